@@ -1,7 +1,8 @@
 package com.jlogical.speedchess;
 
 import com.jlogical.speedchess.board.Board;
-import com.jlogical.speedchess.cpu.CPU;
+import com.jlogical.speedchess.cpu.ConsoleSearchListener;
+import com.jlogical.speedchess.cpu.Engine;
 import com.jlogical.speedchess.moves.Move;
 import com.jlogical.speedchess.moves.MoveGenerator;
 
@@ -15,6 +16,7 @@ public class Chess {
 
     private Board board; // The board used in the current game.
     private boolean[] players; // Whether the players are CPU controlled.
+    private Engine engine; // The engine used by the CPU controlled players.
 
     /**
      * Creates a Chess object.
@@ -22,6 +24,7 @@ public class Chess {
     public Chess(boolean player1, boolean player2, String fen) {
         board = new Board(fen);
         this.players = new boolean[]{player1, player2};
+        engine = new Engine().setListener(new ConsoleSearchListener());
     }
 
     /**
@@ -127,6 +130,10 @@ public class Chess {
 
             // Handle special cases.
             if (input.equals("undo")) {
+                if (board.getMoveHistory().size() < 3) {
+                    System.out.println("Nothing to undo.");
+                    continue;
+                }
                 board.unmakeMove(!player);
                 board.unmakeMove(player);
                 System.out.println(board);
@@ -178,7 +185,7 @@ public class Chess {
      * @return the move the cpu chose.
      */
     private Move cpuMove(boolean player) {
-        return CPU.calculateNextMove(board, player);
+        return engine.calculateNextMove(board, player);
     }
 
     public static void main(String[] args) {
@@ -191,5 +198,5 @@ public class Chess {
 Current Limitations
 1. En Passant does not work yet.
 2. Promotion is only queens for now.
-3. FEN code does not transfer castling, en passant.
+3. FEN code does not transfer en passant.
  */
@@ -0,0 +1,141 @@
+package com.jlogical.speedchess.bench;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.BatchEvaluator;
+import com.jlogical.speedchess.cpu.EvalParams;
+import com.jlogical.speedchess.cpu.Evaluator;
+import com.jlogical.speedchess.cpu.PositionBatch;
+import com.jlogical.speedchess.moves.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares how many positions per second the BatchEvaluator scores against evaluating the same positions one board at a
+ * time, and checks that both give the same scores.
+ */
+public class BatchEvaluationBenchmark {
+
+    private static final int PLAYOUT_LENGTH = 60; // The maximum number of random moves played to create each position.
+
+    /**
+     * Creates positions by playing random legal moves from the starting position.
+     *
+     * @param count the number of positions to create.
+     * @param seed  the seed of the random moves.
+     * @return the boards, with the player to move set.
+     */
+    static List<Board> randomPositions(int count, long seed) {
+        Random random = new Random(seed);
+        List<Board> boards = new ArrayList<>(count);
+        while (boards.size() < count) {
+            Board board = new Board(null);
+            boolean player = true;
+            int length = random.nextInt(PLAYOUT_LENGTH);
+            for (int i = 0; i < length; i++) {
+                List<Move> moves = board.getMoveHistory().peek().getNextLegalMoves(board, player).getMoves();
+                if (moves.isEmpty()) break;
+                board.makeMove(moves.get(random.nextInt(moves.size())), player);
+                player = !player;
+            }
+            board.setCurrPlayer(player);
+            boards.add(board);
+        }
+        return boards;
+    }
+
+    /**
+     * Runs the benchmark.
+     * <p>
+     * Usage: BatchEvaluationBenchmark [-positions n] [-rounds n]
+     */
+    public static void main(String[] args) {
+        int positions = 4096;
+        int rounds = 200;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-positions":
+                    positions = Integer.parseInt(args[++i]);
+                    break;
+                case "-rounds":
+                    rounds = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.out.println("Usage: BatchEvaluationBenchmark [-positions n] [-rounds n]");
+                    return;
+            }
+        }
+
+        System.out.println("Creating " + positions + " positions...");
+        List<Board> boards = randomPositions(positions, 1);
+
+        EvalParams params = new EvalParams();
+        Evaluator evaluator = new Evaluator(params, 0);
+        BatchEvaluator batchEvaluator = new BatchEvaluator(params);
+        PositionBatch batch = new PositionBatch(positions);
+        for (Board board : boards) batch.add(board, board.getCurrPlayer());
+        int[] scores = new int[positions];
+
+        // Both paths must agree before their speeds are worth comparing.
+        batchEvaluator.evaluate(batch, scores);
+        for (int i = 0; i < positions; i++) {
+            Board board = boards.get(i);
+            int expected = evaluator.evaluateStatic(board) * (board.getCurrPlayer() ? 1 : -1);
+            if (scores[i] != expected)
+                throw new IllegalStateException("Position " + i + " scored " + scores[i] + " in the batch but " + expected + " on its own");
+        }
+
+        // Warm up, then measure each path.
+        long sink = 0;
+        for (int round = 0; round < rounds; round++) {
+            sink += runSingle(evaluator, boards) + runBatch(batchEvaluator, batch, scores);
+        }
+
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) sink += runSingle(evaluator, boards);
+        double single = rate(positions * (long) rounds, start);
+
+        start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) sink += runBatch(batchEvaluator, batch, scores);
+        double batched = rate(positions * (long) rounds, start);
+
+        start = System.nanoTime();
+        int fullRounds = Math.max(1, rounds / 100); // The full evaluation generates moves, so it is far slower.
+        for (int round = 0; round < fullRounds; round++) {
+            for (Board board : boards) sink += evaluator.evaluate(board, board.getCurrPlayer());
+        }
+        double full = rate(positions * (long) fullRounds, start);
+
+        System.out.println(String.format("Full evaluate:      %,14.0f positions/s", full));
+        System.out.println(String.format("Per-board static:   %,14.0f positions/s", single));
+        System.out.println(String.format("Batch static:       %,14.0f positions/s (%.1fx per-board)", batched, batched / single));
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /**
+     * @return the sum of the static scores of every board.
+     */
+    private static long runSingle(Evaluator evaluator, List<Board> boards) {
+        long sum = 0;
+        for (Board board : boards) sum += evaluator.evaluateStatic(board) * (board.getCurrPlayer() ? 1 : -1);
+        return sum;
+    }
+
+    /**
+     * @return the sum of the scores of the batch.
+     */
+    private static long runBatch(BatchEvaluator evaluator, PositionBatch batch, int[] scores) {
+        evaluator.evaluate(batch, scores);
+        long sum = 0;
+        for (int i = 0; i < batch.size(); i++) sum += scores[i];
+        return sum;
+    }
+
+    /**
+     * @return the number of positions per second since the start time.
+     */
+    private static double rate(long positions, long startTime) {
+        return positions * 1e9 / (System.nanoTime() - startTime);
+    }
+}
@@ -0,0 +1,139 @@
+package com.jlogical.speedchess.bench;
+
+import com.jlogical.speedchess.bitboard.Attacks;
+import com.jlogical.speedchess.bitboard.Bitboard;
+import com.jlogical.speedchess.bitboard.Fills;
+import com.jlogical.speedchess.bitboard.SquareIterator;
+
+import java.util.Random;
+
+/**
+ * Microbenchmarks for the bitboard operations. Each case runs over the same random boards, is warmed up first, and
+ * feeds a checksum so the work cannot be optimized away. The square-by-square versions are what the set-wise versions
+ * replace.
+ */
+public class BitboardBenchmark {
+
+    private static final int BOARDS = 4096; // The number of random boards each case runs over.
+
+    /**
+     * A benchmarked operation over every board.
+     */
+    private interface Case {
+        long run(long[] occupied, long[] pieces);
+    }
+
+    /**
+     * Runs the benchmark.
+     * <p>
+     * Usage: BitboardBenchmark [-rounds n]
+     */
+    public static void main(String[] args) {
+        int rounds = 2000;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++i]);
+            } else {
+                System.out.println("Usage: BitboardBenchmark [-rounds n]");
+                return;
+            }
+        }
+
+        // Boards about a third full, with a few pieces on occupied squares.
+        Random random = new Random(1);
+        long[] occupied = new long[BOARDS];
+        long[] pieces = new long[BOARDS];
+        for (int i = 0; i < BOARDS; i++) {
+            occupied[i] = random.nextLong() & random.nextLong() | random.nextLong() & random.nextLong() & random.nextLong();
+            pieces[i] = occupied[i] & random.nextLong() & random.nextLong();
+        }
+
+        measure("Count, square by square", rounds, occupied, pieces, (o, p) -> {
+            long sum = 0;
+            for (long board : o) {
+                for (int pos = 0; pos < 64; pos++) if (Bitboard.get(board, pos)) sum++;
+            }
+            return sum;
+        });
+        measure("Count, bitCount", rounds, occupied, pieces, (o, p) -> {
+            long sum = 0;
+            for (long board : o) sum += Bitboard.count(board);
+            return sum;
+        });
+
+        measure("Iterate, square by square", rounds, occupied, pieces, (o, p) -> {
+            long sum = 0;
+            for (long board : o) {
+                for (int pos = 0; pos < 64; pos++) if (Bitboard.get(board, pos)) sum += pos;
+            }
+            return sum;
+        });
+        SquareIterator iterator = new SquareIterator();
+        measure("Iterate, bit scan", rounds, occupied, pieces, (o, p) -> {
+            long sum = 0;
+            for (long board : o) {
+                for (iterator.reset(board); iterator.hasNext(); ) sum += iterator.next();
+            }
+            return sum;
+        });
+
+        measure("Rook attacks, rays per piece", rounds, occupied, pieces, (o, p) -> {
+            long sum = 0;
+            for (int i = 0; i < o.length; i++) {
+                long attacks = 0;
+                for (long rooks = p[i]; rooks != 0; rooks &= rooks - 1) {
+                    attacks |= Attacks.rook(Long.numberOfTrailingZeros(rooks), o[i]);
+                }
+                sum += attacks;
+            }
+            return sum;
+        });
+        measure("Rook attacks, Kogge-Stone set-wise", rounds, occupied, pieces, (o, p) -> {
+            long sum = 0;
+            for (int i = 0; i < o.length; i++) sum += Fills.rookAttacks(p[i], ~o[i]);
+            return sum;
+        });
+
+        measure("Queen attacks, rays per piece", rounds, occupied, pieces, (o, p) -> {
+            long sum = 0;
+            for (int i = 0; i < o.length; i++) {
+                long attacks = 0;
+                for (long queens = p[i]; queens != 0; queens &= queens - 1) {
+                    attacks |= Attacks.queen(Long.numberOfTrailingZeros(queens), o[i]);
+                }
+                sum += attacks;
+            }
+            return sum;
+        });
+        measure("Queen attacks, Kogge-Stone set-wise", rounds, occupied, pieces, (o, p) -> {
+            long sum = 0;
+            for (int i = 0; i < o.length; i++) sum += Fills.queenAttacks(p[i], ~o[i]);
+            return sum;
+        });
+
+        measure("Pawn spans", rounds, occupied, pieces, (o, p) -> {
+            long sum = 0;
+            for (long board : o) sum += Fills.attackSpan(board, true) ^ Fills.attackSpan(board, false);
+            return sum;
+        });
+        measure("Flips", rounds, occupied, pieces, (o, p) -> {
+            long sum = 0;
+            for (long board : o) sum += Bitboard.mirrorHorizontal(board) ^ Bitboard.flipDiagonal(board);
+            return sum;
+        });
+    }
+
+    /**
+     * Warms the case up, then prints how many boards per second it handles.
+     */
+    private static void measure(String name, int rounds, long[] occupied, long[] pieces, Case c) {
+        long sink = 0;
+        for (int round = 0; round < rounds / 2; round++) sink += c.run(occupied, pieces);
+
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) sink += c.run(occupied, pieces);
+        double rate = BOARDS * (double) rounds * 1e9 / (System.nanoTime() - start);
+
+        System.out.println(String.format("%-36s %,14.0f boards/s (checksum %d)", name, rate, sink));
+    }
+}
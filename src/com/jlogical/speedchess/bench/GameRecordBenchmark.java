@@ -0,0 +1,195 @@
+package com.jlogical.speedchess.bench;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.games.GameReader;
+import com.jlogical.speedchess.games.GameRecord;
+import com.jlogical.speedchess.games.GameVisitor;
+import com.jlogical.speedchess.games.GameWriter;
+import com.jlogical.speedchess.games.PgnReader;
+import com.jlogical.speedchess.games.PgnWriter;
+import com.jlogical.speedchess.host.GameResult;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.moves.MoveGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how many games per second can be written and read in the binary game record format and in PGN, using random
+ * games. Checks first that both formats give back the games they were given.
+ */
+public class GameRecordBenchmark {
+
+    private static final int MAX_PLIES = 200; // The longest a random game can be.
+
+    /**
+     * A benchmarked pass over every game.
+     */
+    private interface Case {
+        long run() throws IOException;
+    }
+
+    /**
+     * Runs the benchmark.
+     * <p>
+     * Usage: GameRecordBenchmark [-games n] [-rounds n]
+     */
+    public static void main(String[] args) throws IOException {
+        int count = 1000;
+        int rounds = 6;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-games":
+                    count = Integer.parseInt(args[++i]);
+                    break;
+                case "-rounds":
+                    rounds = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.out.println("Usage: GameRecordBenchmark [-games n] [-rounds n]");
+                    return;
+            }
+        }
+
+        List<GameRecord> games = randomGames(count, new Random(1));
+        long plies = 0;
+        for (GameRecord game : games) plies += game.getMoves().size();
+
+        byte[] records = writeRecords(games, false);
+        byte[] packed = writeRecords(games, true);
+        String pgn = writePgn(games);
+        System.out.println(String.format("%,d games, %,d moves. Bytes per game: %.1f indexed, %.1f packed, %.1f PGN",
+                count, plies, records.length / (double) count, packed.length / (double) count, pgn.length() / (double) count));
+
+        // Every format must give back the same games.
+        GameReader reader = new GameReader(new ByteArrayInputStream(records));
+        GameReader packedReader = new GameReader(new ByteArrayInputStream(packed));
+        PgnReader pgnReader = new PgnReader(new StringReader(pgn));
+        for (GameRecord game : games) {
+            check(game, reader.read(), "Game record");
+            check(game, packedReader.read(), "Game record");
+            check(game, pgnReader.next(), "PGN");
+        }
+
+        int gameCount = count;
+        measure("Write indexed", rounds, gameCount, () -> writeRecords(games, false).length);
+        measure("Replay indexed", rounds, gameCount, () -> replay(records));
+        measure("Write packed", rounds, gameCount, () -> writeRecords(games, true).length);
+        measure("Replay packed", rounds, gameCount, () -> replay(packed));
+        measure("Skip records", rounds, gameCount, () -> {
+            GameReader in = new GameReader(new ByteArrayInputStream(records));
+            while (in.skip()) ;
+            return in.getGameCount();
+        });
+        measure("Write PGN", rounds, gameCount, () -> writePgn(games).length());
+        measure("Read PGN", rounds, gameCount, () -> {
+            PgnReader in = new PgnReader(new StringReader(pgn));
+            long moves = 0;
+            GameRecord game;
+            while ((game = in.next()) != null) moves += game.getMoves().size();
+            return moves;
+        });
+    }
+
+    /**
+     * Plays random legal moves from the starting position until the game ends or reaches MAX_PLIES.
+     */
+    private static List<GameRecord> randomGames(int count, Random random) {
+        List<GameRecord> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Board board = new Board(null);
+            boolean player = true;
+            GameResult result = null;
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                List<Move> moves = MoveGenerator.generateMoves(board, player, true).getMoves();
+                if (moves.isEmpty()) {
+                    result = !board.inCheck(player) ? GameResult.STALE_MATE : player ? GameResult.BLACK_WINS : GameResult.WHITE_WINS;
+                    break;
+                }
+                if (board.countRepetitions(2) >= 2) {
+                    result = GameResult.REPETITION;
+                    break;
+                }
+                if (board.isFiftyMoveDraw()) {
+                    result = GameResult.FIFTY_MOVES;
+                    break;
+                }
+                board.makeMove(moves.get(random.nextInt(moves.size())), player);
+                player = !player;
+            }
+            games.add(GameRecord.of(null, board, result).setTag("White", "Random").setTag("Black", "Random").setTag("Round", Integer.toString(i + 1)));
+        }
+        return games;
+    }
+
+    /**
+     * Replays every game through a board.
+     *
+     * @return the number of moves replayed.
+     */
+    private static long replay(byte[] records) throws IOException {
+        long[] moves = new long[1];
+        GameVisitor counter = new GameVisitor() {
+            @Override
+            public void onMove(Board board, Move move, boolean player) {
+                moves[0]++;
+            }
+        };
+        GameReader in = new GameReader(new ByteArrayInputStream(records));
+        while (in.next(counter)) ;
+        return moves[0];
+    }
+
+    private static byte[] writeRecords(List<GameRecord> games, boolean packedMoves) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GameWriter writer = new GameWriter(bytes).setPackedMoves(packedMoves)) {
+            for (GameRecord game : games) writer.write(game);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String writePgn(List<GameRecord> games) throws IOException {
+        StringWriter text = new StringWriter();
+        try (PgnWriter writer = new PgnWriter(text)) {
+            for (GameRecord game : games) writer.write(game);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Makes sure a game read back has the same moves and result as the game written.
+     */
+    private static void check(GameRecord expected, GameRecord actual, String format) {
+        boolean same = actual != null && actual.getMoves().size() == expected.getMoves().size();
+        for (int i = 0; same && i < expected.getMoves().size(); i++) {
+            same = actual.getMoves().get(i).encode() == expected.getMoves().get(i).encode();
+        }
+        if (same && format.equals("Game record")) same = actual.getResult() == expected.getResult();
+        if (same && format.equals("PGN")) {
+            // PGN only says who won, so every kind of draw comes back as a plain draw.
+            GameResult result = expected.getResult() != null && expected.getResult().isDraw() ? GameResult.DRAW : expected.getResult();
+            same = actual.getResult() == result;
+        }
+        if (!same) throw new IllegalStateException(format + " did not give back round " + expected.getTag("Round"));
+    }
+
+    /**
+     * Warms the case up, then prints how many games per second it handles.
+     */
+    private static void measure(String name, int rounds, int games, Case c) throws IOException {
+        long sink = 0;
+        for (int round = 0; round < rounds / 2 + 1; round++) sink += c.run();
+
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) sink += c.run();
+        double rate = games * (double) rounds * 1e9 / (System.nanoTime() - start);
+
+        System.out.println(String.format("%-16s %,12.0f games per second (checksum %d)", name, rate, sink));
+    }
+}
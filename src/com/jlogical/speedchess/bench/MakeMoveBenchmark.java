@@ -0,0 +1,121 @@
+package com.jlogical.speedchess.bench;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.board.Position;
+import com.jlogical.speedchess.moves.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares playing moves with make and unmake on a Board against copy-make on a Position, over every legal move of the
+ * same random positions. Checks first that both give the same positions.
+ */
+public class MakeMoveBenchmark {
+
+    /**
+     * A benchmarked way of playing every move once.
+     */
+    private interface Case {
+        long run();
+    }
+
+    /**
+     * Runs the benchmark.
+     * <p>
+     * Usage: MakeMoveBenchmark [-positions n] [-rounds n]
+     */
+    public static void main(String[] args) {
+        int count = 1024;
+        int rounds = 200;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-positions":
+                    count = Integer.parseInt(args[++i]);
+                    break;
+                case "-rounds":
+                    rounds = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.out.println("Usage: MakeMoveBenchmark [-positions n] [-rounds n]");
+                    return;
+            }
+        }
+
+        List<Board> boards = BatchEvaluationBenchmark.randomPositions(count, 1);
+        List<Position> positions = new ArrayList<>(count);
+        List<List<Move>> moves = new ArrayList<>(count);
+        int totalMoves = 0;
+        for (Board board : boards) {
+            boolean player = board.getCurrPlayer();
+            positions.add(Position.of(board, player));
+            List<Move> legal = new ArrayList<>(board.getMoveHistory().peek().getNextLegalMoves(board, player).getMoves());
+            moves.add(legal);
+            totalMoves += legal.size();
+        }
+
+        // Both ways must reach the same positions.
+        Position slot = new Position();
+        for (int i = 0; i < count; i++) {
+            Board board = boards.get(i);
+            boolean player = board.getCurrPlayer();
+            for (Move move : moves.get(i)) {
+                board.makeMove(move, player);
+                boolean same = positions.get(i).play(move, slot).equals(Position.of(board, !player));
+                board.unmakeMove(player);
+                if (!same) throw new IllegalStateException("Copy-make differs from make after " + move + " in " + positions.get(i));
+            }
+        }
+        System.out.println(count + " positions, " + totalMoves + " moves");
+
+        int positionCount = count;
+        measure("Make and unmake", rounds, totalMoves, () -> {
+            long sum = 0;
+            for (int i = 0; i < positionCount; i++) {
+                Board board = boards.get(i);
+                boolean player = board.getCurrPlayer();
+                for (Move move : moves.get(i)) {
+                    board.makeMove(move, player);
+                    sum += board.getEmptyTiles();
+                    board.unmakeMove(player);
+                }
+            }
+            return sum;
+        });
+
+        Position[] plies = {new Position(), new Position()}; // A search's preallocated slots for the next ply.
+        measure("Copy-make into a ply slot", rounds, totalMoves, () -> {
+            long sum = 0;
+            for (int i = 0; i < positionCount; i++) {
+                Position position = plies[0].copyFrom(positions.get(i));
+                for (Move move : moves.get(i)) sum += position.play(move, plies[1]).getEmptyTiles();
+            }
+            return sum;
+        });
+
+        measure("Fork a Board from its FEN", rounds / 20 + 1, count, () -> {
+            long sum = 0;
+            for (Position position : positions) sum += position.toBoard().getEmptyTiles();
+            return sum;
+        });
+        measure("Fork a Position", rounds, count, () -> {
+            long sum = 0;
+            for (Position position : positions) sum += new Position().copyFrom(position).getEmptyTiles();
+            return sum;
+        });
+    }
+
+    /**
+     * Warms the case up, then prints how many operations per second it handles.
+     */
+    private static void measure(String name, int rounds, int operations, Case c) {
+        long sink = 0;
+        for (int round = 0; round < rounds / 2; round++) sink += c.run();
+
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) sink += c.run();
+        double rate = operations * (double) rounds * 1e9 / (System.nanoTime() - start);
+
+        System.out.println(String.format("%-28s %,14.0f per second (checksum %d)", name, rate, sink));
+    }
+}
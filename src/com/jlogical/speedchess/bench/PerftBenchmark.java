@@ -0,0 +1,94 @@
+package com.jlogical.speedchess.bench;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.moves.Perft;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times the parallel perft against the serial one on the perft test positions. Every parallel count is checked against
+ * the serial count, then the time is reported for each thread count along with its speed-up over one thread.
+ */
+public class PerftBenchmark {
+
+    /**
+     * The positions timed when none is given, from the standard perft test positions. The counts differ from the
+     * published ones, since the move generator only promotes to queens and does not play en passant.
+     */
+    private static final String[] POSITIONS = {
+            null,
+            "r3k2r/pPppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+    };
+
+    /**
+     * Runs the benchmark.
+     * <p>
+     * Usage: PerftBenchmark [-depth n] [-threads max] [-hash mb] [-fen fen]
+     */
+    public static void main(String[] args) {
+        int depth = 5;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int hashSize = 64;
+        List<String> fens = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    maxThreads = Integer.parseInt(args[++i]);
+                    break;
+                case "-hash":
+                    hashSize = Integer.parseInt(args[++i]);
+                    break;
+                case "-fen":
+                    fens.add(args[++i]);
+                    break;
+                default:
+                    System.out.println("Usage: PerftBenchmark [-depth n] [-threads max] [-hash mb] [-fen fen]");
+                    return;
+            }
+        }
+        if (fens.isEmpty()) fens.addAll(Arrays.asList(POSITIONS));
+
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) threadCounts.add(threads);
+        threadCounts.add(maxThreads);
+
+        for (String fen : fens) {
+            Board board = new Board(fen);
+            boolean player = board.getCurrPlayer();
+            System.out.println(fen == null ? "Start position" : fen);
+
+            long start = System.nanoTime();
+            long expected = Perft.count(board, player, depth);
+            long serialTime = System.nanoTime() - start;
+            System.out.println(String.format("  %-18s %,16d leaves %,10d ms", "serial", expected, serialTime / 1000000));
+
+            // Compile the parallel code before timing it, so the first thread count is not charged for it.
+            if (depth > 1) {
+                Perft warmUp = new Perft(maxThreads, hashSize);
+                warmUp.countParallel(board, player, depth - 1);
+                warmUp.shutdown();
+            }
+
+            long oneThreadTime = 0;
+            for (int threads : threadCounts) {
+                Perft perft = new Perft(threads, hashSize);
+                start = System.nanoTime();
+                long leaves = perft.countParallel(board, player, depth);
+                long time = System.nanoTime() - start;
+                perft.shutdown();
+
+                if (leaves != expected) throw new IllegalStateException("Parallel perft counted " + leaves + " leaves with " + threads + " threads, expected " + expected);
+                if (threads == 1) oneThreadTime = time;
+                System.out.println(String.format("  %-18s %,16d leaves %,10d ms %6.2fx over 1 thread %6.2fx over serial",
+                        threads + (threads == 1 ? " thread" : " threads"), leaves, time / 1000000, oneThreadTime / (double) time, serialTime / (double) time));
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.jlogical.speedchess.bench;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.Engine;
+import com.jlogical.speedchess.cpu.SearchLimits;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Times how long a fresh JVM takes to make its first move, optionally warming up the engine first. The first move is then
+ * searched again from a cleared engine, so the difference between the two is what the cold JIT costs. Only meaningful as
+ * the first thing the JVM runs, so start a new JVM for each measurement.
+ */
+public class StartupBenchmark {
+
+    /**
+     * Runs the benchmark.
+     * <p>
+     * Usage: StartupBenchmark [-depth n] [-fen fen] [-warmup]
+     */
+    public static void main(String[] args) {
+        long mainTime = System.currentTimeMillis();
+        int depth = 5;
+        String fen = null;
+        boolean warmUp = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-fen":
+                    fen = args[++i];
+                    break;
+                case "-warmup":
+                    warmUp = true;
+                    break;
+                default:
+                    System.out.println("Usage: StartupBenchmark [-depth n] [-fen fen] [-warmup]");
+                    return;
+            }
+        }
+
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        Engine engine = new Engine(new SearchLimits().setDepth(depth), Engine.DEFAULT_HASH_SIZE);
+        long warmUpTime = warmUp ? engine.warmUp() : 0;
+
+        Board board = new Board(fen);
+        long start = System.currentTimeMillis();
+        engine.calculateNextMove(board, board.getCurrPlayer());
+        long firstMove = System.currentTimeMillis() - start;
+        long firstNodes = engine.getNodeCount();
+        long timeToFirstMove = System.currentTimeMillis() - jvmStart;
+
+        engine.newGame();
+        start = System.currentTimeMillis();
+        engine.calculateNextMove(board, board.getCurrPlayer());
+        long repeatMove = System.currentTimeMillis() - start;
+
+        System.out.println(String.format("JVM start to main %,d ms, warm-up %,d ms", mainTime - jvmStart, warmUpTime));
+        System.out.println(String.format("First move   %,8d ms %,10d nodes %,8d nps", firstMove, firstNodes, firstNodes * 1000 / Math.max(1, firstMove)));
+        System.out.println(String.format("Same move    %,8d ms %,10d nodes %,8d nps", repeatMove, engine.getNodeCount(), engine.getNodeCount() * 1000 / Math.max(1, repeatMove)));
+        System.out.println(String.format("Time to first move: %,d ms", timeToFirstMove));
+    }
+}
@@ -0,0 +1,135 @@
+package com.jlogical.speedchess.bitboard;
+
+/**
+ * Precomputed attack tables. Knights and kings look their attacks up directly. Sliding pieces take a precomputed ray in
+ * each direction and cut it off at the first blocker, so no square-by-square loop or branch is needed.
+ */
+public class Attacks {
+
+    private static final long[] KNIGHT = new long[64]; // The squares a knight attacks from each square.
+    private static final long[] KING = new long[64]; // The squares a king attacks from each square.
+    private static final long[][] RAYS = new long[8][64]; // Every square in each direction from each square, up to the edge.
+
+    /**
+     * The directions of the rays. Directions that increase the square come first, so a ray's nearest blocker is its lowest
+     * set bit for the first four and its highest for the last four.
+     */
+    private static final int[][] RAY_STEPS = {
+            {0, 1}, {1, 1}, {1, 0}, {-1, 1}, // North, north east, east, north west.
+            {0, -1}, {-1, -1}, {-1, 0}, {1, -1} // South, south west, west, south east.
+    };
+
+    static {
+        int[][] knightSteps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        for (int pos = 0; pos < 64; pos++) {
+            int x = pos % 8, y = pos / 8;
+
+            for (int[] step : knightSteps) {
+                KNIGHT[pos] |= square(x + step[0], y + step[1]);
+            }
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx != 0 || dy != 0) KING[pos] |= square(x + dx, y + dy);
+                }
+            }
+            for (int dir = 0; dir < 8; dir++) {
+                for (int i = 1; i < 8; i++) {
+                    RAYS[dir][pos] |= square(x + RAY_STEPS[dir][0] * i, y + RAY_STEPS[dir][1] * i);
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    /**
+     * @return the bitboard of the square at x and y. 0 if it is off the board.
+     */
+    private static long square(int x, int y) {
+        return x >= 0 && x < 8 && y >= 0 && y < 8 ? 1L << (y * 8 + x) : 0;
+    }
+
+    /**
+     * @param pos the position of the knight.
+     * @return the squares the knight attacks.
+     */
+    public static long knight(int pos) {
+        return KNIGHT[pos];
+    }
+
+    /**
+     * @param pos the position of the king.
+     * @return the squares the king attacks.
+     */
+    public static long king(int pos) {
+        return KING[pos];
+    }
+
+    /**
+     * @param pos      the position of the rook.
+     * @param occupied every occupied square.
+     * @return the squares the rook attacks, including the first piece in each direction.
+     */
+    public static long rook(int pos, long occupied) {
+        return rayUp(0, pos, occupied) | rayUp(2, pos, occupied) | rayDown(4, pos, occupied) | rayDown(6, pos, occupied);
+    }
+
+    /**
+     * @param pos      the position of the bishop.
+     * @param occupied every occupied square.
+     * @return the squares the bishop attacks, including the first piece in each direction.
+     */
+    public static long bishop(int pos, long occupied) {
+        return rayUp(1, pos, occupied) | rayUp(3, pos, occupied) | rayDown(5, pos, occupied) | rayDown(7, pos, occupied);
+    }
+
+    /**
+     * @param pos      the position of the queen.
+     * @param occupied every occupied square.
+     * @return the squares the queen attacks, including the first piece in each direction.
+     */
+    public static long queen(int pos, long occupied) {
+        return rook(pos, occupied) | bishop(pos, occupied);
+    }
+
+    /**
+     * @param dir one of the first four directions, which increase the square.
+     * @return the squares along the ray up to and including its first blocker.
+     */
+    private static long rayUp(int dir, int pos, long occupied) {
+        long ray = RAYS[dir][pos];
+        // With no blocker the scan stops at h8, where these rays are empty, so the whole ray is kept.
+        int blocker = Long.numberOfTrailingZeros(ray & occupied | 1L << 63);
+        return ray ^ RAYS[dir][blocker];
+    }
+
+    /**
+     * @param dir one of the last four directions, which decrease the square.
+     * @return the squares along the ray up to and including its first blocker.
+     */
+    private static long rayDown(int dir, int pos, long occupied) {
+        long ray = RAYS[dir][pos];
+        // With no blocker the scan stops at a1, where these rays are empty, so the whole ray is kept.
+        int blocker = 63 - Long.numberOfLeadingZeros(ray & occupied | 1L);
+        return ray ^ RAYS[dir][blocker];
+    }
+
+    /**
+     * @param pawns  the pawns of the player.
+     * @param player whether the pawns are white.
+     * @return the squares the pawns attack towards the west (file a).
+     */
+    public static long pawnsWest(long pawns, boolean player) {
+        return player ? Shifts.northWest(pawns) : Shifts.southWest(pawns);
+    }
+
+    /**
+     * @param pawns  the pawns of the player.
+     * @param player whether the pawns are white.
+     * @return the squares the pawns attack towards the east (file h).
+     */
+    public static long pawnsEast(long pawns, boolean player) {
+        return player ? Shifts.northEast(pawns) : Shifts.southEast(pawns);
+    }
+}
@@ -96,11 +96,80 @@ public class Bitboard {
      * @return the number of bits that are 1.
      */
     public static int count(long board) {
-        int count = 0;
-        for (int i = 0; i < 64; i++) {
-            if (get(board, i)) count++;
-        }
-        return count;
+        return Long.bitCount(board);
+    }
+
+    /**
+     * @return the position of the lowest bit that is 1. 64 if the board is empty.
+     */
+    public static int first(long board) {
+        return Long.numberOfTrailingZeros(board);
+    }
+
+    /**
+     * @return the position of the highest bit that is 1. -1 if the board is empty.
+     */
+    public static int last(long board) {
+        return 63 - Long.numberOfLeadingZeros(board);
+    }
+
+    /**
+     * @return the board with its lowest bit that is 1 cleared.
+     */
+    public static long withoutFirst(long board) {
+        return board & (board - 1);
+    }
+
+    /**
+     * @return the board with only its lowest bit that is 1 kept.
+     */
+    public static long isolateFirst(long board) {
+        return board & -board;
+    }
+
+    /**
+     * @return whether more than one bit is 1.
+     */
+    public static boolean isMany(long board) {
+        return (board & (board - 1)) != 0;
+    }
+
+    /**
+     * Flips the board vertically, so rank 1 becomes rank 8.
+     */
+    public static long flipVertical(long board) {
+        return Long.reverseBytes(board);
+    }
+
+    /**
+     * Mirrors the board horizontally, so file A becomes file H.
+     */
+    public static long mirrorHorizontal(long board) {
+        board = ((board >>> 1) & 0x5555555555555555L) | ((board & 0x5555555555555555L) << 1);
+        board = ((board >>> 2) & 0x3333333333333333L) | ((board & 0x3333333333333333L) << 2);
+        board = ((board >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((board & 0x0F0F0F0F0F0F0F0FL) << 4);
+        return board;
+    }
+
+    /**
+     * Flips the board about the A1-H8 diagonal, so A8 becomes H1.
+     */
+    public static long flipDiagonal(long board) {
+        long t;
+        t = 0x0F0F0F0F00000000L & (board ^ (board << 28));
+        board ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (board ^ (board << 14));
+        board ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (board ^ (board << 7));
+        board ^= t ^ (t >>> 7);
+        return board;
+    }
+
+    /**
+     * Rotates the board by 180 degrees, so A1 becomes H8.
+     */
+    public static long rotate180(long board) {
+        return Long.reverse(board);
     }
 
     /**
@@ -0,0 +1,185 @@
+package com.jlogical.speedchess.bitboard;
+
+import static com.jlogical.speedchess.bitboard.Masks.*;
+
+/**
+ * Fills that spread every square of a bitboard in a direction at once. The occluded fills use the Kogge-Stone parallel
+ * prefix: three shifts cover any distance on the board, and the fill stops at the first square not in the propagator
+ * (usually the empty squares). Shifting an occluded fill one more step gives the attacks of a set of sliding pieces.
+ */
+public class Fills {
+
+    private Fills() {
+    }
+
+    /**
+     * @return every square on or above any square of the board.
+     */
+    public static long north(long board) {
+        board |= board << 8;
+        board |= board << 16;
+        board |= board << 32;
+        return board;
+    }
+
+    /**
+     * @return every square on or below any square of the board.
+     */
+    public static long south(long board) {
+        board |= board >>> 8;
+        board |= board >>> 16;
+        board |= board >>> 32;
+        return board;
+    }
+
+    /**
+     * @return every square on the same file as any square of the board.
+     */
+    public static long file(long board) {
+        return north(board) | south(board);
+    }
+
+    /**
+     * @param pawns  the pawns of the player.
+     * @param player whether the pawns are white.
+     * @return every square in front of the pawns, not including the pawns themselves.
+     */
+    public static long frontSpan(long pawns, boolean player) {
+        return player ? north(pawns << 8) : south(pawns >>> 8);
+    }
+
+    /**
+     * @param pawns  the pawns of the player.
+     * @param player whether the pawns are white.
+     * @return every square behind the pawns, not including the pawns themselves.
+     */
+    public static long rearSpan(long pawns, boolean player) {
+        return player ? south(pawns >>> 8) : north(pawns << 8);
+    }
+
+    /**
+     * @param pawns  the pawns of the player.
+     * @param player whether the pawns are white.
+     * @return every square the pawns could attack as they advance.
+     */
+    public static long attackSpan(long pawns, boolean player) {
+        long front = frontSpan(pawns, player);
+        return Shifts.east(front) | Shifts.west(front);
+    }
+
+    /*
+     * Occluded fills. Each spreads the generator in one direction through the squares of the propagator, including the
+     * generator itself. The first square outside the propagator is not included.
+     */
+
+    public static long northOccluded(long gen, long pro) {
+        gen |= pro & (gen << 8);
+        pro &= pro << 8;
+        gen |= pro & (gen << 16);
+        pro &= pro << 16;
+        gen |= pro & (gen << 32);
+        return gen;
+    }
+
+    public static long southOccluded(long gen, long pro) {
+        gen |= pro & (gen >>> 8);
+        pro &= pro >>> 8;
+        gen |= pro & (gen >>> 16);
+        pro &= pro >>> 16;
+        gen |= pro & (gen >>> 32);
+        return gen;
+    }
+
+    public static long eastOccluded(long gen, long pro) {
+        pro &= NOT_FILE_A;
+        gen |= pro & (gen << 1);
+        pro &= pro << 1;
+        gen |= pro & (gen << 2);
+        pro &= pro << 2;
+        gen |= pro & (gen << 4);
+        return gen;
+    }
+
+    public static long westOccluded(long gen, long pro) {
+        pro &= NOT_FILE_H;
+        gen |= pro & (gen >>> 1);
+        pro &= pro >>> 1;
+        gen |= pro & (gen >>> 2);
+        pro &= pro >>> 2;
+        gen |= pro & (gen >>> 4);
+        return gen;
+    }
+
+    public static long northEastOccluded(long gen, long pro) {
+        pro &= NOT_FILE_A;
+        gen |= pro & (gen << 9);
+        pro &= pro << 9;
+        gen |= pro & (gen << 18);
+        pro &= pro << 18;
+        gen |= pro & (gen << 36);
+        return gen;
+    }
+
+    public static long northWestOccluded(long gen, long pro) {
+        pro &= NOT_FILE_H;
+        gen |= pro & (gen << 7);
+        pro &= pro << 7;
+        gen |= pro & (gen << 14);
+        pro &= pro << 14;
+        gen |= pro & (gen << 28);
+        return gen;
+    }
+
+    public static long southEastOccluded(long gen, long pro) {
+        pro &= NOT_FILE_A;
+        gen |= pro & (gen >>> 7);
+        pro &= pro >>> 7;
+        gen |= pro & (gen >>> 14);
+        pro &= pro >>> 14;
+        gen |= pro & (gen >>> 28);
+        return gen;
+    }
+
+    public static long southWestOccluded(long gen, long pro) {
+        pro &= NOT_FILE_H;
+        gen |= pro & (gen >>> 9);
+        pro &= pro >>> 9;
+        gen |= pro & (gen >>> 18);
+        pro &= pro >>> 18;
+        gen |= pro & (gen >>> 36);
+        return gen;
+    }
+
+    /**
+     * @param rooks the rooks (or queens) to move.
+     * @param empty every empty square.
+     * @return every square any of the rooks attacks, including the first piece in each direction.
+     */
+    public static long rookAttacks(long rooks, long empty) {
+        return Shifts.north(northOccluded(rooks, empty))
+                | Shifts.south(southOccluded(rooks, empty))
+                | Shifts.east(eastOccluded(rooks, empty))
+                | Shifts.west(westOccluded(rooks, empty));
+    }
+
+    /**
+     * @param bishops the bishops (or queens) to move.
+     * @param empty   every empty square.
+     * @return every square any of the bishops attacks, including the first piece in each direction.
+     */
+    public static long bishopAttacks(long bishops, long empty) {
+        return Shifts.northEast(northEastOccluded(bishops, empty))
+                | Shifts.northWest(northWestOccluded(bishops, empty))
+                | Shifts.southEast(southEastOccluded(bishops, empty))
+                | Shifts.southWest(southWestOccluded(bishops, empty));
+    }
+
+    /**
+     * @param queens the queens to move.
+     * @param empty  every empty square.
+     * @return every square any of the queens attacks, including the first piece in each direction.
+     */
+    public static long queenAttacks(long queens, long empty) {
+        return rookAttacks(queens, empty) | bishopAttacks(queens, empty);
+    }
+}
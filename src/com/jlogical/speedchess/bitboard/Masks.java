@@ -0,0 +1,107 @@
+package com.jlogical.speedchess.bitboard;
+
+/**
+ * Constant bitboards of squares, files, ranks and diagonals. Files run from A (0) to H (7) and ranks from 1 (0) to 8
+ * (7). Diagonals are numbered by file - rank + 7 and anti-diagonals by file + rank, so both run from 0 to 14.
+ */
+public class Masks {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_B = FILE_A << 1;
+    public static final long FILE_G = FILE_A << 6;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long NOT_FILE_A = ~FILE_A; // Every square a piece moving east can land on.
+    public static final long NOT_FILE_H = ~FILE_H; // Every square a piece moving west can land on.
+    public static final long NOT_FILE_AB = ~(FILE_A | FILE_B); // Every square a knight moving two files east can land on.
+    public static final long NOT_FILE_GH = ~(FILE_G | FILE_H); // Every square a knight moving two files west can land on.
+
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_3 = RANK_1 << 16;
+    public static final long RANK_4 = RANK_1 << 24;
+    public static final long RANK_5 = RANK_1 << 32;
+    public static final long RANK_6 = RANK_1 << 40;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    public static final long DIAGONAL_A1_H8 = 0x8040201008040201L; // The long diagonal from A1 to H8.
+    public static final long ANTI_DIAGONAL_H1_A8 = 0x0102040810204080L; // The long diagonal from H1 to A8.
+
+    public static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL; // Every light square. A1 is dark.
+    public static final long DARK_SQUARES = ~LIGHT_SQUARES; // Every dark square.
+    public static final long CENTER = 0x0000001818000000L; // D4, E4, D5 and E5.
+
+    private static final long[] FILES = new long[8]; // Every file, A to H.
+    private static final long[] RANKS = new long[8]; // Every rank, 1 to 8.
+    private static final long[] DIAGONALS = new long[15]; // Every diagonal parallel to A1-H8.
+    private static final long[] ANTI_DIAGONALS = new long[15]; // Every diagonal parallel to H1-A8.
+
+    static {
+        for (int pos = 0; pos < 64; pos++) {
+            int file = pos & 7, rank = pos >>> 3;
+            FILES[file] |= 1L << pos;
+            RANKS[rank] |= 1L << pos;
+            DIAGONALS[file - rank + 7] |= 1L << pos;
+            ANTI_DIAGONALS[file + rank] |= 1L << pos;
+        }
+    }
+
+    private Masks() {
+    }
+
+    /**
+     * @param pos the position (0-63).
+     * @return the bitboard with only the given square set.
+     */
+    public static long square(int pos) {
+        return 1L << pos;
+    }
+
+    /**
+     * @param pos the position (0-63).
+     * @return every square on the same file as the position.
+     */
+    public static long file(int pos) {
+        return FILES[pos & 7];
+    }
+
+    /**
+     * @param pos the position (0-63).
+     * @return every square on the same rank as the position.
+     */
+    public static long rank(int pos) {
+        return RANKS[pos >>> 3];
+    }
+
+    /**
+     * @param pos the position (0-63).
+     * @return every square on the same A1-H8 diagonal as the position.
+     */
+    public static long diagonal(int pos) {
+        return DIAGONALS[(pos & 7) - (pos >>> 3) + 7];
+    }
+
+    /**
+     * @param pos the position (0-63).
+     * @return every square on the same H1-A8 diagonal as the position.
+     */
+    public static long antiDiagonal(int pos) {
+        return ANTI_DIAGONALS[(pos & 7) + (pos >>> 3)];
+    }
+
+    /**
+     * @param file the file (0-7).
+     * @return every square on the file.
+     */
+    public static long fileMask(int file) {
+        return FILES[file];
+    }
+
+    /**
+     * @param rank the rank (0-7).
+     * @return every square on the rank.
+     */
+    public static long rankMask(int rank) {
+        return RANKS[rank];
+    }
+}
@@ -0,0 +1,87 @@
+package com.jlogical.speedchess.bitboard;
+
+import static com.jlogical.speedchess.bitboard.Masks.*;
+
+/**
+ * Moves every square of a bitboard one step in a direction at once. Squares that would wrap around to the other side of
+ * the board are dropped, and squares shifted off the top or bottom fall off the end of the long.
+ */
+public class Shifts {
+
+    private Shifts() {
+    }
+
+    public static long north(long board) {
+        return board << 8;
+    }
+
+    public static long south(long board) {
+        return board >>> 8;
+    }
+
+    public static long east(long board) {
+        return (board & NOT_FILE_H) << 1;
+    }
+
+    public static long west(long board) {
+        return (board & NOT_FILE_A) >>> 1;
+    }
+
+    public static long northEast(long board) {
+        return (board & NOT_FILE_H) << 9;
+    }
+
+    public static long northWest(long board) {
+        return (board & NOT_FILE_A) << 7;
+    }
+
+    public static long southEast(long board) {
+        return (board & NOT_FILE_H) >>> 7;
+    }
+
+    public static long southWest(long board) {
+        return (board & NOT_FILE_A) >>> 9;
+    }
+
+    /**
+     * @param board  the squares to shift.
+     * @param player whether to shift forward for white (north) or for black (south).
+     * @return the squares one step forward for the player.
+     */
+    public static long forward(long board, boolean player) {
+        return player ? board << 8 : board >>> 8;
+    }
+
+    /**
+     * @param pawns  the pawns of the player.
+     * @param player whether the pawns are white.
+     * @return the squares the pawns attack.
+     */
+    public static long pawnAttacks(long pawns, boolean player) {
+        return player ? northEast(pawns) | northWest(pawns) : southEast(pawns) | southWest(pawns);
+    }
+
+    /**
+     * @param knights the knights to move.
+     * @return every square any of the knights attacks.
+     */
+    public static long knightAttacks(long knights) {
+        long east1 = (knights & NOT_FILE_H) << 1;
+        long west1 = (knights & NOT_FILE_A) >>> 1;
+        long east2 = (knights & NOT_FILE_GH) << 2;
+        long west2 = (knights & NOT_FILE_AB) >>> 2;
+        long one = east1 | west1; // One file across: moves two ranks.
+        long two = east2 | west2; // Two files across: moves one rank.
+        return (one << 16) | (one >>> 16) | (two << 8) | (two >>> 8);
+    }
+
+    /**
+     * @param kings the kings to move.
+     * @return every square any of the kings attacks.
+     */
+    public static long kingAttacks(long kings) {
+        long row = east(kings) | west(kings);
+        long wide = row | kings;
+        return row | (wide << 8) | (wide >>> 8);
+    }
+}
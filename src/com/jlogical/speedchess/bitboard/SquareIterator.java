@@ -0,0 +1,56 @@
+package com.jlogical.speedchess.bitboard;
+
+/**
+ * Walks the set squares of a bitboard from lowest to highest by scanning and clearing the lowest bit. A single iterator
+ * can be reset and reused, so looping over squares does not allocate.
+ *
+ * <pre>
+ * for (iterator.reset(board); iterator.hasNext(); ) {
+ *     int pos = iterator.next();
+ * }
+ * </pre>
+ */
+public class SquareIterator {
+
+    private long remaining; // The squares that have not been returned yet.
+
+    public SquareIterator() {
+    }
+
+    public SquareIterator(long board) {
+        this.remaining = board;
+    }
+
+    /**
+     * Starts iterating over a new board.
+     *
+     * @return this iterator.
+     */
+    public SquareIterator reset(long board) {
+        this.remaining = board;
+        return this;
+    }
+
+    /**
+     * @return whether there are squares left.
+     */
+    public boolean hasNext() {
+        return remaining != 0;
+    }
+
+    /**
+     * @return the position of the next square. 64 if there are none left.
+     */
+    public int next() {
+        int pos = Long.numberOfTrailingZeros(remaining);
+        remaining &= remaining - 1;
+        return pos;
+    }
+
+    /**
+     * @return the squares that have not been returned yet.
+     */
+    public long getRemaining() {
+        return remaining;
+    }
+}
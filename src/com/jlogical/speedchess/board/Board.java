@@ -1,11 +1,16 @@
 package com.jlogical.speedchess.board;
 
+import com.jlogical.speedchess.bitboard.Attacks;
 import com.jlogical.speedchess.bitboard.Bitboard;
+import com.jlogical.speedchess.bitboard.Shifts;
+import com.jlogical.speedchess.cpu.EvalParams;
 import com.jlogical.speedchess.cpu.Evaluator;
+import com.jlogical.speedchess.cpu.ZobristKey;
 import com.jlogical.speedchess.moves.Move;
 import com.jlogical.speedchess.moves.MoveGenerator;
+import com.jlogical.speedchess.nnue.Accumulator;
 
-import java.util.List;
+import java.util.Arrays;
 import java.util.Stack;
 
 import static com.jlogical.speedchess.board.Piece.*;
@@ -15,6 +20,10 @@ import static com.jlogical.speedchess.board.Piece.*;
  */
 public class Board {
 
+    public static final int FIFTY_MOVE_PLIES = 100; // The number of moves (for both players) without a capture or pawn move before the game is drawn.
+
+    private static final int INITIAL_HISTORY_SIZE = 128; // The number of positions the key history holds at first. Grows as needed.
+
     /**
      * The following Bitboards arrays have 2 elements. board[0] is white, board[1] is black.
      * These bitboards contain the positions of all the types of pieces for each player.
@@ -37,6 +46,18 @@ public class Board {
 
     private boolean currPlayer; // The current player.
 
+    private long pawnKey; // The Zobrist key of only the pawns, kept up to date as moves are made and unmade.
+
+    /**
+     * The Zobrist key (without the player to move) and the halfmove clock after every move made, indexed by ply. They grow
+     * with the move history, so unmaking a move only steps back and nothing has to be recomputed, however long the game.
+     */
+    private long[] keyHistory = new long[INITIAL_HISTORY_SIZE];
+    private int[] halfmoveClockHistory = new int[INITIAL_HISTORY_SIZE];
+    private int ply; // The number of moves made on the board, indexing the histories.
+
+    private Accumulator accumulator; // The neurons of a network, updated as pieces move. Null if no network is attached.
+
     /**
      * Creates a new board. Generates all bitboards as well.
      *
@@ -59,6 +80,8 @@ public class Board {
         currPlayer = true;
 
         initPieceBitboards(fen);
+        pawnKey = ZobristKey.getPawnKeyForBoard(this);
+        keyHistory[0] = ZobristKey.getKeyForBoard(this, false);
     }
 
     /**
@@ -227,6 +250,16 @@ public class Board {
     public void makeMove(Move move, boolean player) {
 
         moveHistory.push(move); // Add the move to the board's moveHistory.
+        pawnKey ^= ZobristKey.getPawnKeyForMove(move);
+
+        // Captures and pawn moves can never be undone, so they restart the halfmove clock.
+        boolean irreversible = move.getCapturedPiece() != 0 || Math.abs(move.getPieceType()) == PAWN;
+        if (++ply == keyHistory.length) {
+            keyHistory = Arrays.copyOf(keyHistory, ply * 2);
+            halfmoveClockHistory = Arrays.copyOf(halfmoveClockHistory, ply * 2);
+        }
+        keyHistory[ply] = keyHistory[ply - 1] ^ ZobristKey.getKeyChangeForMove(move, player);
+        halfmoveClockHistory[ply] = irreversible ? 0 : halfmoveClockHistory[ply - 1] + 1;
 
         // Move the piece in its piece board.
         int pieceType = move.getPieceType();
@@ -280,17 +313,22 @@ public class Board {
             setBitboard(move.getPromotionPiece(), Bitboard.set(getPieceBitboard(move.getPromotionPiece()), move.getTo()));
         }
 
+        if (accumulator != null) accumulator.push(move, player);
     }
 
     /**
      * Undoes the last move made.
      *
      * @param player the player unmaking the move
+     * @throws IllegalStateException if no moves have been made.
      */
     public void unmakeMove(boolean player) {
 
+        if (ply == 0) throw new IllegalStateException("No move to unmake");
         Move move = moveHistory.pop(); // Get the most-recently made move.
         move.clearCache();
+        pawnKey ^= ZobristKey.getPawnKeyForMove(move);
+        ply--;
 
         // Replace the captured piece.
         if (move.getCapturedPiece() != 0) {
@@ -336,6 +374,36 @@ public class Board {
             // Remove the promoted piece.
             setBitboard(move.getPromotionPiece(), Bitboard.clear(getPieceBitboard(move.getPromotionPiece()), move.getTo()));
         }
+
+        if (accumulator != null) accumulator.pop();
+    }
+
+    /**
+     * @param pos      the square being attacked.
+     * @param occupied every occupied square. Pieces not in it are treated as already gone.
+     * @return every piece of either player that attacks the square.
+     */
+    public long attackersTo(int pos, long occupied) {
+        long square = 1L << pos;
+        long rooksAndQueens = rooks[0] | rooks[1] | queens[0] | queens[1];
+        long bishopsAndQueens = bishops[0] | bishops[1] | queens[0] | queens[1];
+
+        // A white pawn attacks the square if a black pawn on the square would attack the white pawn, and vice versa.
+        return (Shifts.pawnAttacks(square, false) & pawns[0])
+                | (Shifts.pawnAttacks(square, true) & pawns[1])
+                | (Attacks.knight(pos) & (knights[0] | knights[1]))
+                | (Attacks.king(pos) & (kings[0] | kings[1]))
+                | (Attacks.rook(pos, occupied) & rooksAndQueens)
+                | (Attacks.bishop(pos, occupied) & bishopsAndQueens);
+    }
+
+    /**
+     * @param pos    the square to look at.
+     * @param player the attacking player.
+     * @return whether any of the player's pieces attacks the square.
+     */
+    public boolean isAttacked(int pos, boolean player) {
+        return (attackersTo(pos, ~getEmptyTiles()) & getPieces(player)) != 0;
     }
 
     /**
@@ -343,15 +411,30 @@ public class Board {
      * @return whether the given player is in check.
      */
     public boolean inCheck(boolean player) {
-        if (moveHistory.isEmpty()) return false;
-        List<Move> enemyMoves = moveHistory.peek().getNextMoves(this, !player).getMoves();
+        long king = kings[player ? 0 : 1];
+        return king != 0 && isAttacked(Long.numberOfTrailingZeros(king), !player);
+    }
 
-        // Check if any of the enemy's move hit the king.
-        for (Move move : enemyMoves) {
-            if (move.getCapturedPiece() == KING * (player ? 1 : -1))
-                return true;
+    /**
+     * Checks whether the player has any legal move, stopping at the first one found. Uses the legal moves of the last
+     * move if they have already been generated.
+     *
+     * @param player the player to look at.
+     * @return whether the player has a legal move.
+     */
+    public boolean hasLegalMove(boolean player) {
+        Move lastMove = moveHistory.peek();
+        if (lastMove.hasNextLegalMoves(player)) return !lastMove.getNextLegalMoves(this, player).isEmpty();
+
+        for (Move move : lastMove.getNextMoves(this, player).getMoves()) {
+            // Castling is generated even when in check, but it is only legal when not.
+            if ((move.isLeftCastle() || move.isRightCastle()) && inCheck(player)) continue;
+
+            makeMove(move, player);
+            boolean legal = !inCheck(player);
+            unmakeMove(player);
+            if (legal) return true;
         }
-
         return false;
     }
 
@@ -360,8 +443,7 @@ public class Board {
      * @return whether the given player is in check mate.
      */
     public boolean isCheckMate(boolean player) {
-        if (moveHistory.isEmpty()) return false;
-        return inCheck(player) && moveHistory.peek().getNextLegalMoves(this, player).isEmpty();
+        return inCheck(player) && !hasLegalMove(player);
     }
 
     /**
@@ -369,8 +451,41 @@ public class Board {
      * @return whether the given player is in stale mate.
      */
     public boolean isStaleMate(boolean player) {
-        if (moveHistory.isEmpty()) return false;
-        return !inCheck(player) && moveHistory.peek().getNextLegalMoves(this, player).isEmpty();
+        return !inCheck(player) && !hasLegalMove(player);
+    }
+
+    /**
+     * @return whether the current position occurred before with the same player to move. Enough for the search to score
+     * it as a draw, since whatever was played from it the first time can be played again.
+     */
+    public boolean isRepetition() {
+        return countRepetitions(1) > 0;
+    }
+
+    /**
+     * Counts how many times the current position occurred before with the same player to move. Only looks back as far as
+     * the last capture or pawn move, since no earlier position can be the same.
+     *
+     * @param max the count to stop at.
+     * @return the number of earlier occurrences, up to max.
+     */
+    public int countRepetitions(int max) {
+        long key = keyHistory[ply];
+        int reversible = Math.min(getHalfmoveClock(), ply); // The moves that can be looked back on.
+        int count = 0;
+
+        // The same player is to move every second ply, and it takes at least four to get back to a position.
+        for (int back = 4; back <= reversible; back += 2) {
+            if (keyHistory[ply - back] == key && ++count >= max) break;
+        }
+        return count;
+    }
+
+    /**
+     * @return whether fifty moves (for each player) were made without a capture or pawn move.
+     */
+    public boolean isFiftyMoveDraw() {
+        return getHalfmoveClock() >= FIFTY_MOVE_PLIES;
     }
 
     /**
@@ -390,6 +505,18 @@ public class Board {
 
         currPlayer = split[1].equals("w");
 
+        // Read the halfmove clock. Positions before it are unknown, so they are never counted as repetitions.
+        if (split.length > 4) halfmoveClockHistory[0] = Integer.parseInt(split[4]);
+
+        // Read the castling rights. K/Q is white castling right/left, k/q is black.
+        if (split.length > 2) {
+            String castling = split[2];
+            canCastleRight[0] = castling.indexOf('K') >= 0;
+            canCastleLeft[0] = castling.indexOf('Q') >= 0;
+            canCastleRight[1] = castling.indexOf('k') >= 0;
+            canCastleLeft[1] = castling.indexOf('q') >= 0;
+        }
+
         // Place the pieces.
         int pos = 0;
         for (int i = ranks.length - 1; i >= 0; i--) {
@@ -461,6 +588,43 @@ public class Board {
         this.currPlayer = currPlayer;
     }
 
+    /**
+     * @return the Zobrist key of only the pawns on the board.
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * @param player the player to move.
+     * @return the Zobrist key of the board, kept up to date as moves are made and unmade. The same as
+     * ZobristKey.getKeyForBoard, without going over every square.
+     */
+    public long getKey(boolean player) {
+        long key = keyHistory[ply];
+        return player ? key ^ ZobristKey.whiteMove : key;
+    }
+
+    /**
+     * @return the number of moves (for both players) since the last capture or pawn move.
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClockHistory[ply];
+    }
+
+    public Accumulator getAccumulator() {
+        return accumulator;
+    }
+
+    /**
+     * Attaches the neurons of a network to the board, so they are updated whenever a move is made or unmade.
+     *
+     * @param accumulator the accumulator to attach. Null to detach it.
+     */
+    public void setAccumulator(Accumulator accumulator) {
+        this.accumulator = accumulator;
+    }
+
     /**
      * @return the String representation of the board.
      */
@@ -504,7 +668,8 @@ public class Board {
         output.append("     A   B   C   D   E   F   G   H\n");
 
         // Add scores
-        output.append("\n").append("       Score: [").append(Evaluator.evaluate(this, true)).append("]\n");
+        // Scored without caches, which would be allocated and thrown away on every print.
+        output.append("\n").append("       Score: [").append(new Evaluator(new EvalParams(), 0).evaluate(this, currPlayer)).append("]\n");
 //        output.append("\n").append(MoveGenerator.generateMoves(this, true, true).getMoves());
         return output.toString();
     }
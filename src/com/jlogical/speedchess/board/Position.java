@@ -0,0 +1,254 @@
+package com.jlogical.speedchess.board;
+
+import com.jlogical.speedchess.moves.Move;
+
+import java.util.Arrays;
+
+import static com.jlogical.speedchess.board.Piece.*;
+
+/**
+ * A compact copy of a position: one bitboard for every piece of every player and one packed state word. Unlike Board,
+ * nothing is shared and there is no history, so a position can be copied with a single array copy and handed to another
+ * thread. Moves are played by copy-make into another position instead of make and unmake, which lets a search keep one
+ * preallocated position per ply:
+ * <pre>
+ *     positions[ply + 1] = positions[ply].play(move, positions[ply + 1]);
+ * </pre>
+ */
+public class Position {
+
+    public static final int PLANES = 12; // White pawns to kings, then black pawns to kings.
+
+    /**
+     * The layout of the state word.
+     */
+    private static final int WHITE_RIGHT_CASTLE = 1; // White can castle right.
+    private static final int WHITE_LEFT_CASTLE = 1 << 1; // White can castle left.
+    private static final int BLACK_RIGHT_CASTLE = 1 << 2; // Black can castle right.
+    private static final int BLACK_LEFT_CASTLE = 1 << 3; // Black can castle left.
+    private static final int WHITE_TO_MOVE = 1 << 4; // White is the player to move.
+    private static final int CLOCK_SHIFT = 8; // The halfmove clock is stored above the flags.
+
+    private static final String PIECE_CHARS = "PRNBQKprnbqk"; // The FEN character of every plane.
+
+    private final long[] planes = new long[PLANES]; // The bitboard of every piece, indexed by planeIndex.
+    private int state; // The castling rights, the player to move and the halfmove clock.
+
+    /**
+     * Creates an empty position. Meant to be filled with set, copyFrom or play.
+     */
+    public Position() {
+    }
+
+    /**
+     * Takes a snapshot of a board.
+     *
+     * @param board  the board to copy.
+     * @param player the player to move.
+     * @return the snapshot.
+     */
+    public static Position of(Board board, boolean player) {
+        return new Position().set(board, player);
+    }
+
+    /**
+     * @param piece the piece whose plane to get. Black pieces are negative.
+     * @return the index of the piece's plane.
+     */
+    public static int planeIndex(int piece) {
+        return (piece > 0 ? 0 : 6) + Math.abs(piece) - 1;
+    }
+
+    /**
+     * Overwrites this position with a board's position.
+     *
+     * @param board  the board to copy.
+     * @param player the player to move.
+     * @return this position.
+     */
+    public Position set(Board board, boolean player) {
+        for (int piece = PAWN; piece <= KING; piece++) {
+            planes[planeIndex(piece)] = board.getPieceBitboard(piece);
+            planes[planeIndex(-piece)] = board.getPieceBitboard(-piece);
+        }
+        state = (board.getHalfmoveClock() << CLOCK_SHIFT)
+                | (board.canCastleRight(true) ? WHITE_RIGHT_CASTLE : 0)
+                | (board.canCastleLeft(true) ? WHITE_LEFT_CASTLE : 0)
+                | (board.canCastleRight(false) ? BLACK_RIGHT_CASTLE : 0)
+                | (board.canCastleLeft(false) ? BLACK_LEFT_CASTLE : 0)
+                | (player ? WHITE_TO_MOVE : 0);
+        return this;
+    }
+
+    /**
+     * Overwrites this position with another one.
+     *
+     * @param other the position to copy.
+     * @return this position.
+     */
+    public Position copyFrom(Position other) {
+        System.arraycopy(other.planes, 0, planes, 0, PLANES);
+        state = other.state;
+        return this;
+    }
+
+    /**
+     * Plays a move for the player to move, leaving this position unchanged.
+     *
+     * @param move the move to play. Must have been generated for this position.
+     * @param into the position to write the result to. Overwritten.
+     * @return into.
+     */
+    public Position play(Move move, Position into) {
+        into.copyFrom(this);
+        into.apply(move);
+        return into;
+    }
+
+    /**
+     * @param move the move to play.
+     * @return a new position with the move played.
+     */
+    public Position play(Move move) {
+        return play(move, new Position());
+    }
+
+    /**
+     * Plays a move on this position, the same way Board.makeMove does.
+     */
+    private void apply(Move move) {
+        boolean player = getPlayer();
+        int pieceType = move.getPieceType();
+        long from = 1L << move.getFrom();
+        long to = 1L << move.getTo();
+
+        if (move.getCapturedPiece() != 0) planes[planeIndex(move.getCapturedPiece())] &= ~to;
+        planes[planeIndex(pieceType)] &= ~from;
+        planes[planeIndex(move.getPromotionPiece() != 0 ? move.getPromotionPiece() : pieceType)] |= to;
+
+        // Move the rook as well when castling.
+        int rook = planeIndex(player ? ROOK : -ROOK);
+        int back = player ? 0 : 56; // The first square of the player's back rank.
+        if (move.isRightCastle()) planes[rook] ^= (1L << (back + 7)) | (1L << (back + 5));
+        if (move.isLeftCastle()) planes[rook] ^= (1L << back) | (1L << (back + 3));
+
+        if (move.isDisableRightCastle()) state &= ~(player ? WHITE_RIGHT_CASTLE : BLACK_RIGHT_CASTLE);
+        if (move.isDisableLeftCastle()) state &= ~(player ? WHITE_LEFT_CASTLE : BLACK_LEFT_CASTLE);
+
+        // Captures and pawn moves restart the halfmove clock.
+        int clock = move.getCapturedPiece() != 0 || Math.abs(pieceType) == PAWN ? 0 : getHalfmoveClock() + 1;
+        state = ((state & ((1 << CLOCK_SHIFT) - 1)) ^ WHITE_TO_MOVE) | (clock << CLOCK_SHIFT);
+    }
+
+    /**
+     * @param piece the piece to get. Black pieces are negative.
+     * @return the bitboard of the piece.
+     */
+    public long getPieceBitboard(int piece) {
+        return planes[planeIndex(piece)];
+    }
+
+    /**
+     * @param player the player whose pieces to get.
+     * @return the bitboard of all the player's pieces.
+     */
+    public long getPieces(boolean player) {
+        int first = player ? 0 : 6;
+        return planes[first] | planes[first + 1] | planes[first + 2] | planes[first + 3] | planes[first + 4] | planes[first + 5];
+    }
+
+    /**
+     * @return the bitboard of the empty squares.
+     */
+    public long getEmptyTiles() {
+        return ~(getPieces(true) | getPieces(false));
+    }
+
+    /**
+     * @return whether white is to move.
+     */
+    public boolean getPlayer() {
+        return (state & WHITE_TO_MOVE) != 0;
+    }
+
+    public boolean canCastleRight(boolean player) {
+        return (state & (player ? WHITE_RIGHT_CASTLE : BLACK_RIGHT_CASTLE)) != 0;
+    }
+
+    public boolean canCastleLeft(boolean player) {
+        return (state & (player ? WHITE_LEFT_CASTLE : BLACK_LEFT_CASTLE)) != 0;
+    }
+
+    /**
+     * @return the number of moves (for both players) since the last capture or pawn move.
+     */
+    public int getHalfmoveClock() {
+        return state >>> CLOCK_SHIFT;
+    }
+
+    /**
+     * @return the position as a FEN code. There is no en passant, so that field is always empty.
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder();
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int plane = planeAt(rank * 8 + file);
+                if (plane < 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) fen.append(empty);
+                empty = 0;
+                fen.append(PIECE_CHARS.charAt(plane));
+            }
+            if (empty > 0) fen.append(empty);
+            if (rank > 0) fen.append('/');
+        }
+
+        fen.append(getPlayer() ? " w " : " b ");
+        int length = fen.length();
+        if (canCastleRight(true)) fen.append('K');
+        if (canCastleLeft(true)) fen.append('Q');
+        if (canCastleRight(false)) fen.append('k');
+        if (canCastleLeft(false)) fen.append('q');
+        if (fen.length() == length) fen.append('-');
+        return fen.append(" - ").append(getHalfmoveClock()).append(" 1").toString();
+    }
+
+    /**
+     * @return a new board set up with this position, for code that needs a Board, such as move generation.
+     */
+    public Board toBoard() {
+        return new Board(toFen());
+    }
+
+    /**
+     * @return the plane of the piece on the square, or -1 if it is empty.
+     */
+    private int planeAt(int pos) {
+        for (int plane = 0; plane < PLANES; plane++) {
+            if ((planes[plane] >>> pos & 1) != 0) return plane;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Position)) return false;
+        Position other = (Position) o;
+        return state == other.state && Arrays.equals(planes, other.planes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(planes) + state;
+    }
+
+    @Override
+    public String toString() {
+        return toFen();
+    }
+}
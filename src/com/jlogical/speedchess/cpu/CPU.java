@@ -1,115 +1,649 @@
 package com.jlogical.speedchess.cpu;
 
 import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.board.Piece;
+import com.jlogical.speedchess.jfr.EvaluationEvent;
+import com.jlogical.speedchess.jfr.MoveGenerationEvent;
+import com.jlogical.speedchess.jfr.Recording;
+import com.jlogical.speedchess.jfr.RootMoveEvent;
+import com.jlogical.speedchess.jfr.SearchIterationEvent;
 import com.jlogical.speedchess.moves.Move;
 import com.jlogical.speedchess.moves.Moveset;
+import com.jlogical.speedchess.trace.SearchTracer;
 
-import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * Handles the Minimax Alpha-Beta algorithm to determine the next move.
+ * Handles the Negamax Alpha-Beta algorithm to determine the next move. Each CPU owns its own search state, so separate
+ * CPUs can search separate boards at the same time. A single CPU must only be used by one thread, except for
+ * {@link #getStats()} which can be called from any thread.
  */
 public class CPU {
 
-    private static final boolean DEBUG = true; // Whether to output debug information as the CPU is thinking.
+    public static final int INFINITY = 10000000; // Larger than any score the Evaluator can return.
 
-    private static final int COMPLEXITY = 4; // The number of turns to look ahead to decide its next move.
+    private static final int CHECK_INTERVAL = 1024; // The number of nodes to search between checking the limits. Must be a power of two.
+    private static final int MAX_PLY = 64; // The deepest a quiescence search can go.
+    private static final int SAMPLE_INTERVAL = 256; // One node in this many records flight recorder events. Must be a power of two.
+    private static final int GOOD_CAPTURE = 100000; // Added to the ordering score of captures that do not lose material, so they come before quiet moves.
 
-    private static int count = 0;
+    private final Evaluator evaluator; // Evaluates the leaves of the search tree.
+    private final TranspositionTable transpositionTable; // Stores the results of positions already searched.
+    private final StaticExchange exchange; // Works out whether captures win or lose material.
+
+    private SearchListener listener; // Receives information as the search runs. Null if none.
+    private SearchTracer tracer; // Records every node of the search. Null if none.
+
+    private final SearchCounters counters; // The counters of the searching thread.
+    private final List<SearchCounters> threadCounters; // The counters of every thread taking part in the search.
+    private final List<long[]> iterations; // The time (ms) and nodes of each completed iteration of the current search.
+    private final List<PvLine> lines; // The best lines of the last completed iteration, best first.
+
+    private final Move[][] principalVariation; // The best line found from each ply of a quiescence search. [ply][ply..] is the line.
+    private final int[] principalVariationLength; // The end of the line at each ply.
+
+    private SearchLimits limits; // The limits of the current search.
+    private volatile long startTime; // The time the current search started, in nanoseconds.
+    private volatile long endTime; // The time the current search ended, in nanoseconds. 0 while searching.
+    private long evalProbes; // The evaluator's probes when the current search started.
+    private long evalHits; // The evaluator's hits when the current search started.
+    private long pawnProbes; // The evaluator's pawn hash probes when the current search started.
+    private long pawnHits; // The evaluator's pawn hash hits when the current search started.
+    private boolean stopped; // Whether the current search has hit one of its limits.
+    private boolean recordEvents; // Whether the current search creates flight recorder events.
+    private int traceType; // The kind of the node searchMoves last returned from, for the tracer. -1 if it was not called.
+    private int traceCutoff; // The index of the move that cut off the node searchMoves last returned from, for the tracer.
+
+    /**
+     * Creates a CPU.
+     *
+     * @param evaluator          the evaluator to score positions with.
+     * @param transpositionTable the table to store search results in.
+     */
+    public CPU(Evaluator evaluator, TranspositionTable transpositionTable) {
+        this.evaluator = evaluator;
+        this.transpositionTable = transpositionTable;
+        exchange = new StaticExchange();
+        counters = new SearchCounters();
+        threadCounters = new CopyOnWriteArrayList<>();
+        threadCounters.add(counters);
+        iterations = new CopyOnWriteArrayList<>();
+        lines = new CopyOnWriteArrayList<>();
+        principalVariation = new Move[MAX_PLY][MAX_PLY];
+        principalVariationLength = new int[MAX_PLY];
+    }
 
     /**
-     * Calculates the next move for the cpu.
+     * Calculates the next move for the cpu. Searches one layer deeper each iteration until a limit is reached. If the
+     * limits ask for more than one line, the best few root moves are all searched exactly and are available from
+     * {@link #getLines()} afterwards.
      *
      * @param board  the board to calculate on.
-     * @param player the player the CPU is maximizing.
-     * @return the move to perform. Null if none are possible.
+     * @param player the player the CPU is calculating for.
+     * @param limits the limits to stay within.
+     * @return the best move and its score. Null if no moves are possible.
      */
-    public static Move calculateNextMove(Board board, boolean player) {
+    public Pair<Move, Integer> search(Board board, boolean player, SearchLimits limits) {
+
+        this.limits = limits;
+        for (SearchCounters c : threadCounters) c.reset();
+        iterations.clear();
+        lines.clear();
+        evalProbes = evaluator.getProbes();
+        evalHits = evaluator.getHits();
+        pawnProbes = evaluator.getPawnProbes();
+        pawnHits = evaluator.getPawnHits();
+        stopped = false;
+        recordEvents = Recording.isActive();
+        evaluator.attach(board);
+        endTime = 0;
+        startTime = System.nanoTime();
+
+        Moveset legalMoves = board.getMoveHistory().peek().getNextLegalMoves(board, player);
+        orderMoves(board, player, legalMoves);
+        List<Move> rootMoves = new ArrayList<>(legalMoves.getMoves());
+        if (rootMoves.isEmpty()) {
+            endTime = System.nanoTime();
+            if (listener != null) listener.onSearchComplete(getStats(), null, 0);
+            return null;
+        }
 
-        count = 0;
+        int lineCount = Math.min(limits.getMultiPv(), rootMoves.size());
+        int[] scores = new int[rootMoves.size()];
 
-        Pair<Move, Integer> highestMove = calculate(board, player, true, COMPLEXITY, null, board.getMoveHistory().peek().getNextLegalMoves(board, player), Integer.MIN_VALUE, Integer.MAX_VALUE);
+        Pair<Move, Integer> bestMove = null;
+        for (int depth = 1; depth <= limits.getDepth(); depth++) {
+            long iterationStart = System.nanoTime();
+            long iterationNodes = counters.nodes;
+            SearchIterationEvent event = recordEvents ? new SearchIterationEvent() : null;
+            if (event != null) event.begin();
+            if (tracer != null) tracer.setIteration(depth);
 
-        // Check for null.
-        if (highestMove == null || highestMove.getFirst() == null) {
-            System.out.println("NO MOVES LEFT FOR CPU");
-            return null;
+            Pair<Move, Integer> result = searchRoot(board, player, depth, rootMoves, lineCount, scores);
+
+            // Only trust an unfinished iteration if no earlier iteration finished.
+            if (stopped && bestMove != null) break;
+            if (result.getFirst() != null) bestMove = result;
+            if (stopped) break;
+
+            iterations.add(new long[]{(System.nanoTime() - iterationStart) / 1000000, counters.nodes - iterationNodes});
+            if (tracer != null) {
+                tracer.record(board.getKey(player), 0, 0, -INFINITY, INFINITY, bestMove.getSecond(), counters.nodes - iterationNodes,
+                        SearchTracer.ROOT, SearchTracer.NO_CUTOFF, depth * 4);
+            }
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.depth = depth;
+                    event.nodes = counters.nodes - iterationNodes;
+                    event.selDepth = counters.selDepth;
+                    event.score = bestMove.getSecond();
+                    event.bestMove = bestMove.getFirst().toString();
+                    event.commit();
+                }
+            }
+
+            // Search the best moves first in the next iteration, in the order they were ranked.
+            rankRootMoves(rootMoves, scores, lineCount);
+            lines.clear();
+            for (int i = 0; i < lineCount; i++) {
+                lines.add(new PvLine(i + 1, scores[i], depth, extractLine(board, player, rootMoves.get(i))));
+            }
+
+            if (listener != null) listener.onIteration(getStats(), bestMove.getFirst(), bestMove.getSecond());
         }
 
-        if (DEBUG) Toolkit.getDefaultToolkit().beep();
+        if (bestMove == null) bestMove = new Pair<>(rootMoves.get(0), 0);
+        if (lines.isEmpty()) lines.add(new PvLine(1, bestMove.getSecond(), 0, List.of(bestMove.getFirst())));
 
-        System.out.println("\n\n");
-        System.out.println(highestMove.getFirst());
-        System.out.println("Node Count: " + count);
+        endTime = System.nanoTime();
+        if (listener != null) listener.onSearchComplete(getStats(), bestMove.getFirst(), bestMove.getSecond());
 
-        return highestMove.getFirst();
+        return bestMove;
     }
 
     /**
-     * Uses minimax algorithm to calculate the move-score the player would most optimally choose.
+     * Searches all the root moves to the given depth. Each move only has to beat the worst of the best lines found so far,
+     * so with a single line this is a plain alpha-beta search, and with more lines only the moves that could still make
+     * the cut are searched exactly.
+     *
+     * @param lineCount the number of moves to score exactly.
+     * @param scores    filled with the score of each root move. Scores outside the best lines are only upper bounds.
+     * @return the best move and its score. The move is null if the search was stopped before any move was searched.
+     */
+    private Pair<Move, Integer> searchRoot(Board board, boolean player, int depth, List<Move> rootMoves, int lineCount, int[] scores) {
+
+        int[] best = new int[lineCount]; // The best scores so far, best first.
+        Arrays.fill(best, -INFINITY);
+        Pair<Move, Integer> bestMove = new Pair<>(null, -INFINITY);
+
+        for (int i = 0; i < rootMoves.size(); i++) {
+            Move move = rootMoves.get(i);
+            int alpha = best[lineCount - 1];
+            RootMoveEvent event = recordEvents ? new RootMoveEvent() : null;
+            if (event != null) event.begin();
+            long nodes = counters.nodes;
+
+            boolean extend = depth <= 1 && isExtendableCapture(board, player, move);
+            board.makeMove(move, player);
+            boolean check = board.inCheck(!player);
+            double layersLeft = nextDepth(depth, extend, check);
+            int score = tracer == null ? -negamax(board, !player, layersLeft, 1, -INFINITY, -alpha, move, check)
+                    : -tracedNegamax(board, !player, layersLeft, 1, -INFINITY, -alpha, move, check);
+            board.unmakeMove(player);
+
+            if (stopped) break;
+
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.move = move.toString();
+                    event.depth = depth;
+                    event.score = score;
+                    event.nodes = counters.nodes - nodes;
+                    event.commit();
+                }
+            }
+
+            if (listener != null) listener.onRootMove(move, score, depth);
+
+            scores[i] = score;
+            if (score > bestMove.getSecond()) bestMove = new Pair<>(move, score);
+            if (score > alpha) {
+                int j = lineCount - 1;
+                for (; j > 0 && best[j - 1] < score; j--) best[j] = best[j - 1];
+                best[j] = score;
+            }
+        }
+
+        if (!stopped && bestMove.getFirst() != null) {
+            transpositionTable.store(board.getKey(player), Math.min(depth * 4, 255), TranspositionTable.EXACT, bestMove.getSecond(), bestMove.getFirst().encode());
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * Moves the best root moves to the front, best first, leaving the rest in the order they were in. Moves with equal
+     * scores keep their order, so the best move is the first move that reached the best score.
+     *
+     * @param rootMoves the root moves.
+     * @param scores    the score of each root move. Reordered along with the moves.
+     * @param lineCount the number of moves to move to the front.
+     */
+    private static void rankRootMoves(List<Move> rootMoves, int[] scores, int lineCount) {
+        for (int i = 0; i < lineCount; i++) {
+            int best = i;
+            for (int j = i + 1; j < rootMoves.size(); j++) {
+                if (scores[j] > scores[best]) best = j;
+            }
+            Move move = rootMoves.remove(best);
+            rootMoves.add(i, move);
+            int score = scores[best];
+            System.arraycopy(scores, i, scores, i + 1, best - i);
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Follows the moves stored in the transposition table after a root move. The table is shared by every line, so this
+     * costs no extra searching, but the line can be cut short if its entries have been replaced.
+     *
+     * @param board  the board at the root. Left unchanged.
+     * @param player the player to move at the root.
+     * @param move   the root move.
+     * @return the root move followed by the best replies found.
+     */
+    private List<Move> extractLine(Board board, boolean player, Move move) {
+        List<Move> line = new ArrayList<>();
+        line.add(move);
+        board.makeMove(move, player);
+        boolean toMove = !player;
+        while (line.size() < MAX_PLY && !board.isRepetition()) {
+            long entry = transpositionTable.probe(board.getKey(toMove));
+            if (entry == TranspositionTable.EMPTY || TranspositionTable.getMove(entry) == 0) break;
+            int hashMove = TranspositionTable.getMove(entry);
+            Move next = null;
+            for (Move candidate : line.get(line.size() - 1).getNextLegalMoves(board, toMove).getMoves()) {
+                if (candidate.encode() == hashMove) {
+                    next = candidate;
+                    break;
+                }
+            }
+            if (next == null) break;
+            board.makeMove(next, toMove);
+            line.add(next);
+            toMove = !toMove;
+        }
+        for (int i = line.size() - 1; i >= 0; i--) {
+            toMove = !toMove;
+            board.unmakeMove(toMove);
+        }
+        return line;
+    }
+
+    /**
+     * Uses the negamax algorithm to calculate the score of the board for the player to move.
      *
      * @param board      the board to use.
-     * @param player     the player currently in the search tree.
-     * @param maximizing the player that is maximizing the score.
+     * @param player     the player to move.
      * @param layersLeft the number of layers left.
-     * @param rootMove   the move that started this calculate chain.
-     * @param moveset    the moveset that it should calculate.
-     * @return the move-score with the most likelihood of being chosen.
+     * @param ply        the number of moves made since the root.
+     * @param alpha      the score the player is already guaranteed.
+     * @param beta       the score the opponent is already guaranteed.
+     * @param lastMove   the move that led to this position. Used to cache the next moves.
+     * @param inCheck    whether the player to move is in check.
+     * @return the score of the board for the player to move.
      */
-    private static Pair<Move, Integer> calculate(Board board, boolean player, boolean maximizing, double layersLeft, Move rootMove, Moveset moveset, int alpha, int beta) {
+    private int negamax(Board board, boolean player, double layersLeft, int ply, int alpha, int beta, Move lastMove, boolean inCheck) {
 
-        if (layersLeft <= 0 || board.isCheckMate(!player ^ maximizing) || board.isStaleMate(!player ^ maximizing)) {
-            count++;
-            return new Pair<>(rootMove, Evaluator.evaluate(board, player));
-        }
+        counters.nodes++;
+        if (layersLeft < 1) counters.qNodes++;
+        if (ply > counters.selDepth) counters.selDepth = ply;
+        if ((counters.nodes & (CHECK_INTERVAL - 1)) == 0) checkLimits();
+        if (stopped) return 0;
 
-        if (maximizing) {
+        // A repeated position is a draw, since the player who repeated it can keep repeating it.
+        if (board.isRepetition() || board.isFiftyMoveDraw()) return Evaluator.DRAW_SCORE;
 
-            Pair<Move, Integer> bestMove = new Pair<>(null, Integer.MIN_VALUE);
+        if (recordEvents && (counters.nodes & (SAMPLE_INTERVAL - 1)) == 0) return sampledNegamax(board, player, layersLeft, ply, alpha, beta, lastMove, inCheck);
 
-            for (Move move : moveset.getMoves()) {
-                board.makeMove(move, player);
+        // Leaves find out for themselves whether they are mate. Other nodes find out from their own move list.
+        if (layersLeft <= 0) return evaluator.evaluate(board, player);
 
-                double depth = layersLeft <= 1 && (board.inCheck(!player) || move.getCapturedPiece() != 0) ? layersLeft - 0.75 : layersLeft - 1;
+        return searchMoves(board, player, layersLeft, ply, alpha, beta, lastMove, inCheck);
+    }
 
-                Pair<Move, Integer> result = calculate(board, player, false, depth, rootMove == null ? move : rootMove, move.getNextLegalMoves(board, !player), alpha, beta);
-                bestMove = bestMove.getSecond() >= result.getSecond() ? bestMove : result;
+    /**
+     * Same as negamax, but records the node with the tracer once it has been searched. Only called while tracing, so the
+     * search is unchanged without a tracer.
+     */
+    private int tracedNegamax(Board board, boolean player, double layersLeft, int ply, int alpha, int beta, Move lastMove, boolean inCheck) {
+
+        long key = board.getKey(player);
+        long nodes = counters.nodes;
+        traceType = -1;
+        int score = negamax(board, player, layersLeft, ply, alpha, beta, lastMove, inCheck);
+        if (stopped || !tracer.samples(key, ply)) return score;
+
+        // Nodes that never got as far as their moves are draws or leaves.
+        int type = traceType;
+        int cutoff = type == SearchTracer.CUT ? traceCutoff : SearchTracer.NO_CUTOFF;
+        if (type == -1) type = board.isRepetition() || board.isFiftyMoveDraw() ? SearchTracer.DRAW : SearchTracer.LEAF;
+        tracer.record(key, lastMove.encode(), ply, alpha, beta, score, counters.nodes - nodes, type, cutoff, (int) Math.ceil(layersLeft * 4));
+        return score;
+    }
 
-                board.unmakeMove(player);
+    /**
+     * Same as negamax, but times move generation and evaluation with flight recorder events. Only called for one node in
+     * every SAMPLE_INTERVAL, so the timing costs nothing on the other nodes.
+     */
+    private int sampledNegamax(Board board, boolean player, double layersLeft, int ply, int alpha, int beta, Move lastMove, boolean inCheck) {
+
+        if (layersLeft > 0) {
+            // The moves are cached, so searching the node afterwards does not generate them again.
+            MoveGenerationEvent event = new MoveGenerationEvent();
+            event.begin();
+            Moveset moveset = lastMove.getNextLegalMoves(board, player);
+            event.end();
+            if (event.shouldCommit()) {
+                event.ply = ply;
+                event.moves = moveset.getMoves().size();
+                event.sampleInterval = SAMPLE_INTERVAL;
+                event.commit();
+            }
+            return searchMoves(board, player, layersLeft, ply, alpha, beta, lastMove, inCheck);
+        }
 
-                if (layersLeft == COMPLEXITY && DEBUG) {
-                    System.out.println(move + " (" + String.format("%d", result.getSecond()) + ")");
+        EvaluationEvent event = new EvaluationEvent();
+        event.begin();
+        int score = evaluator.evaluate(board, player);
+        event.end();
+        if (event.shouldCommit()) {
+            event.ply = ply;
+            event.score = score;
+            event.sampleInterval = SAMPLE_INTERVAL;
+            event.commit();
+        }
+        return score;
+    }
+
+    /**
+     * Searches every legal move of a node that is not a leaf. If there are none, the node is check mate or stale mate.
+     */
+    private int searchMoves(Board board, boolean player, double layersLeft, int ply, int alpha, int beta, Move lastMove, boolean inCheck) {
+
+        // See if the position has already been searched.
+        long key = board.getKey(player);
+        int depth = (int) Math.ceil(layersLeft * 4);
+        int originalAlpha = alpha;
+        counters.ttProbes++;
+        long entry = transpositionTable.probe(key);
+        if (entry != TranspositionTable.EMPTY) {
+            counters.ttHits++;
+            if (TranspositionTable.getDepth(entry) >= depth) {
+                int score = TranspositionTable.getScore(entry);
+                int flag = TranspositionTable.getFlag(entry);
+                if (flag == TranspositionTable.LOWER_BOUND) alpha = Math.max(alpha, score);
+                if (flag == TranspositionTable.UPPER_BOUND) beta = Math.min(beta, score);
+                if (flag == TranspositionTable.EXACT || alpha >= beta) {
+                    counters.ttCutoffs++;
+                    traceType = SearchTracer.HASH;
+                    return score;
                 }
+            }
+        }
+
+        Moveset moveset = lastMove.getNextLegalMoves(board, player);
+        if (moveset.isEmpty()) {
+            traceType = SearchTracer.MATE;
+            return Evaluator.terminalScore(inCheck);
+        }
+        orderMoves(board, player, moveset);
 
-                alpha = Math.max(alpha, result.getSecond());
-                if (beta <= alpha) {
+        // Search the best move from a previous search first.
+        if (entry != TranspositionTable.EMPTY) {
+            int hashMove = TranspositionTable.getMove(entry);
+            for (Move move : moveset.getMoves()) {
+                if (move.encode() == hashMove) {
+                    moveset.prioritize(move);
                     break;
                 }
             }
+        }
 
-            return bestMove;
-        } else {
+        int bestScore = -INFINITY;
+        Move bestMove = null;
+        int movesSearched = 0;
+        int cutoff = SearchTracer.NO_CUTOFF;
+
+        for (Move move : moveset.getMoves()) {
+            boolean extend = layersLeft <= 1 && isExtendableCapture(board, player, move);
+            board.makeMove(move, player);
+            boolean check = board.inCheck(!player);
+            double nextLayers = nextDepth(layersLeft, extend, check);
+            int score = tracer == null ? -negamax(board, !player, nextLayers, ply + 1, -beta, -alpha, move, check)
+                    : -tracedNegamax(board, !player, nextLayers, ply + 1, -beta, -alpha, move, check);
+            board.unmakeMove(player);
+            movesSearched++;
+
+            if (stopped) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
 
-            Pair<Move, Integer> worstMove = new Pair<>(null, Integer.MAX_VALUE);
+            alpha = Math.max(alpha, score);
+            if (alpha >= beta) {
+                counters.betaCutoffs++;
+                if (movesSearched == 1) counters.firstMoveCutoffs++;
+                cutoff = movesSearched - 1;
+                break;
+            }
+        }
 
-            for (Move move : moveset.getMoves()) {
-                board.makeMove(move, !player);
+        int flag = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND : bestScore >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        transpositionTable.store(key, Math.min(depth, 255), flag, bestScore, bestMove == null ? 0 : bestMove.encode());
 
-                double depth = layersLeft <= 1 && (board.inCheck(player) || move.getCapturedPiece() != 0) ? layersLeft - 0.75 : layersLeft - 1;
+        traceType = flag == TranspositionTable.UPPER_BOUND ? SearchTracer.ALL : flag == TranspositionTable.LOWER_BOUND ? SearchTracer.CUT : SearchTracer.PV;
+        traceCutoff = cutoff;
+        return bestScore;
+    }
 
-                Pair<Move, Integer> result = calculate(board, player, true, depth, rootMove == null ? move : rootMove, move.getNextLegalMoves(board, player), alpha, beta);
-                worstMove = worstMove.getSecond() <= result.getSecond() ? worstMove : result;
+    /**
+     * Scores a board once every capture has been resolved. Only captures are searched, and the player to move can always
+     * stop capturing ("stand pat") if the static evaluation is already good enough.
+     *
+     * @param board  the board to score.
+     * @param player the player to move.
+     * @return the score of the board for the player to move.
+     */
+    public int quiesce(Board board, boolean player) {
+        evaluator.attach(board);
+        return quiescence(board, player, 0, -INFINITY, INFINITY, board.getMoveHistory().peek());
+    }
 
-                board.unmakeMove(!player);
+    /**
+     * @return the captures leading to the position whose evaluation was the result of the last quiesce().
+     */
+    public List<Move> getQuiescenceLine() {
+        List<Move> line = new ArrayList<>();
+        for (int i = 0; i < principalVariationLength[0]; i++) {
+            line.add(principalVariation[0][i]);
+        }
+        return line;
+    }
 
-                beta = Math.min(beta, result.getSecond());
-                if (beta <= alpha) {
-                    break;
-                }
+    /**
+     * Searches only the captures of the board.
+     *
+     * @param board    the board to use.
+     * @param player   the player to move.
+     * @param ply      the number of moves made since the start of the quiescence search.
+     * @param alpha    the score the player is already guaranteed.
+     * @param beta     the score the opponent is already guaranteed.
+     * @param lastMove the move that led to this position. Used to cache the next moves.
+     * @return the score of the board for the player to move.
+     */
+    private int quiescence(Board board, boolean player, int ply, int alpha, int beta, Move lastMove) {
+
+        counters.nodes++;
+        counters.qNodes++;
+        principalVariationLength[ply] = ply;
+
+        int standPat = evaluator.evaluate(board, player);
+        if (standPat >= beta || ply == MAX_PLY - 1) return standPat;
+        alpha = Math.max(alpha, standPat);
+
+        Moveset moveset = lastMove.getNextMoves(board, player);
+        orderMoves(board, player, moveset);
+
+        for (Move move : moveset.getMoves()) {
+            if (move.getCapturedPiece() == 0) continue;
+
+            // A capture that loses material cannot raise alpha above the stand pat score it gives up.
+            if (!isSafeCapture(move) && exchange.evaluate(board, move, player) < 0) {
+                counters.seePrunes++;
+                continue;
+            }
+
+            board.makeMove(move, player);
+            if (board.inCheck(player)) {
+                board.unmakeMove(player);
+                continue;
+            }
+            int score = -quiescence(board, !player, ply + 1, -beta, -alpha, move);
+            board.unmakeMove(player);
+
+            if (score > alpha) {
+                alpha = score;
+
+                // Remember the line that led to the new best score.
+                principalVariation[ply][ply] = move;
+                System.arraycopy(principalVariation[ply + 1], ply + 1, principalVariation[ply], ply + 1, principalVariationLength[ply + 1] - ply - 1);
+                principalVariationLength[ply] = principalVariationLength[ply + 1];
+
+                if (alpha >= beta) break;
             }
+        }
+
+        return alpha;
+    }
+
+    /**
+     * Sorts a moveset the first time it is searched: captures and promotions that do not lose material first, best
+     * exchange first, then quiet moves, then captures that lose material.
+     *
+     * @param board   the board the moves are made on.
+     * @param player  the player making the moves.
+     * @param moveset the moves to sort.
+     */
+    private void orderMoves(Board board, boolean player, Moveset moveset) {
+        if (moveset.isOrdered()) return;
+        moveset.order(move -> {
+            if (move.getCapturedPiece() == 0 && move.getPromotionPiece() == 0) return 0;
+            int gain = exchange.evaluate(board, move, player);
+            return gain >= 0 ? GOOD_CAPTURE + gain : gain;
+        });
+    }
+
+    /**
+     * @return whether the move captures a piece worth at least as much as the one capturing it, so it can never lose
+     * material and does not need an exchange evaluation.
+     */
+    private static boolean isSafeCapture(Move move) {
+        return Piece.getValue(move.getCapturedPiece()) >= Piece.getValue(move.getPieceType());
+    }
+
+    /**
+     * @return whether the move is a capture worth extending on the last layer. Captures that lose material are not
+     * extended, as the side making them would rather stop.
+     */
+    private boolean isExtendableCapture(Board board, boolean player, Move move) {
+        if (move.getCapturedPiece() == 0) return false;
+        if (isSafeCapture(move) || exchange.evaluate(board, move, player) >= 0) return true;
+        counters.seePrunes++;
+        return false;
+    }
 
-            return worstMove;
+    /**
+     * Calculates the layers left after a move. Captures and checks on the last layer are extended so the search does not
+     * stop in the middle of an exchange.
+     *
+     * @param layersLeft    the layers left before the move.
+     * @param extendCapture whether the move was a capture that should be extended on the last layer.
+     * @param givesCheck    whether the move put the opponent in check.
+     * @return the layers left after the move.
+     */
+    private static double nextDepth(double layersLeft, boolean extendCapture, boolean givesCheck) {
+        return layersLeft <= 1 && (extendCapture || givesCheck) ? layersLeft - 0.75 : layersLeft - 1;
+    }
+
+    /**
+     * Stops the search if it has gone past its node or time limit.
+     */
+    private void checkLimits() {
+        if (limits.getNodes() > 0 && counters.nodes >= limits.getNodes()) stopped = true;
+        if (limits.getTime() > 0 && (System.nanoTime() - startTime) / 1000000 >= limits.getTime()) stopped = true;
+    }
+
+    /**
+     * Takes a snapshot of the statistics of the current or last search. Can be called from any thread, even while
+     * searching.
+     *
+     * @return the stats.
+     */
+    public SearchStats getStats() {
+        long end = endTime;
+        long elapsed = (end == 0 ? System.nanoTime() : end) - startTime;
+
+        List<long[]> completed = new ArrayList<>(iterations);
+        long[] iterationTimes = new long[completed.size()];
+        long[] iterationNodes = new long[completed.size()];
+        for (int i = 0; i < completed.size(); i++) {
+            iterationTimes[i] = completed.get(i)[0];
+            iterationNodes[i] = completed.get(i)[1];
         }
+
+        return new SearchStats(threadCounters, elapsed, evaluator.getProbes() - evalProbes, evaluator.getHits() - evalHits,
+                evaluator.getPawnProbes() - pawnProbes, evaluator.getPawnHits() - pawnHits, iterationTimes, iterationNodes);
+    }
+
+    /**
+     * @return the best lines of the last search, best first. As many as the limits asked for, unless there were fewer
+     * legal moves.
+     */
+    public List<PvLine> getLines() {
+        return new ArrayList<>(lines);
+    }
+
+    /**
+     * @return the number of nodes searched in the last search.
+     */
+    public long getNodeCount() {
+        return counters.nodes;
     }
 
+    public SearchListener getListener() {
+        return listener;
+    }
+
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public SearchTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * @param tracer records every node of following searches, or null to stop tracing. Closing it is up to the caller.
+     */
+    public void setTracer(SearchTracer tracer) {
+        this.tracer = tracer;
+    }
 }
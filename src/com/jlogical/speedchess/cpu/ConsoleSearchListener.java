@@ -0,0 +1,49 @@
+package com.jlogical.speedchess.cpu;
+
+import com.jlogical.speedchess.moves.Move;
+
+/**
+ * Prints search information to the console as the CPU is thinking.
+ */
+public class ConsoleSearchListener implements SearchListener {
+
+    private final boolean printRootMoves; // Whether to print the score of every root move.
+
+    /**
+     * Creates a ConsoleSearchListener that prints every root move.
+     */
+    public ConsoleSearchListener() {
+        this(true);
+    }
+
+    /**
+     * Creates a ConsoleSearchListener.
+     *
+     * @param printRootMoves whether to print the score of every root move.
+     */
+    public ConsoleSearchListener(boolean printRootMoves) {
+        this.printRootMoves = printRootMoves;
+    }
+
+    @Override
+    public void onRootMove(Move move, int score, int depth) {
+        if (printRootMoves) System.out.println(move + " (" + String.format("%d", score) + ")");
+    }
+
+    @Override
+    public void onIteration(SearchStats stats, Move bestMove, int score) {
+        System.out.println("info " + stats + " score " + score + " move " + bestMove);
+    }
+
+    @Override
+    public void onSearchComplete(SearchStats stats, Move bestMove, int score) {
+        if (bestMove == null) {
+            System.out.println("NO MOVES LEFT FOR CPU");
+            return;
+        }
+
+        System.out.println("\n\n");
+        System.out.println(bestMove);
+        System.out.println("Node Count: " + stats.getNodes());
+    }
+}
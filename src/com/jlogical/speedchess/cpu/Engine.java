@@ -0,0 +1,280 @@
+package com.jlogical.speedchess.cpu;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.nnue.NeuralEvaluator;
+import com.jlogical.speedchess.nnue.Network;
+import com.jlogical.speedchess.trace.SearchTracer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A self-contained chess engine. Each engine owns its own search state, evaluation cache and transposition table, so any
+ * number of engines can play separate games in the same JVM.
+ * <p>
+ * An engine is confined to one thread: the first thread that uses it owns it until {@link #release()} is called. Only
+ * {@link #getStats()} can be called from other threads.
+ */
+public class Engine {
+
+    public static final int DEFAULT_HASH_SIZE = 16; // The default size of the transposition table, in megabytes.
+    public static final long DEFAULT_WARM_UP_NODES = 300000; // The nodes searched by warmUp(), enough to reach full speed even on one core.
+
+    private static final long WARM_UP_SEARCH_NODES = 25000; // The nodes of each warm-up search, so every position gets searched.
+    private static final int WARM_UP_DEPTH = 32; // Deeper than any warm-up search gets, so only the node limit stops them.
+
+    /**
+     * The positions searched by warmUp(): the start, a quiet middle game and a tactical one, so the move generator, the
+     * evaluation and the capture search all get compiled.
+     */
+    private static final String[] WARM_UP_POSITIONS = {
+            null,
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+            "r3k2r/pPppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+    };
+
+    private final Evaluator evaluator; // Evaluates positions for this engine only.
+    private final TranspositionTable transpositionTable; // Stores search results for this engine only.
+    private final CPU cpu; // Runs the searches.
+
+    private SearchLimits limits; // The limits every search is run with.
+
+    private Thread owner; // The thread the engine is confined to. Null if not yet used.
+
+    /**
+     * Creates an engine with the default limits and hash size.
+     */
+    public Engine() {
+        this(new SearchLimits(), DEFAULT_HASH_SIZE);
+    }
+
+    /**
+     * Creates an engine.
+     *
+     * @param limits   the limits every search is run with.
+     * @param hashSize the size of the transposition table, in megabytes.
+     */
+    public Engine(SearchLimits limits, int hashSize) {
+        this(limits, hashSize, new EvalParams());
+    }
+
+    /**
+     * Creates an engine that evaluates with the given weights.
+     *
+     * @param limits   the limits every search is run with.
+     * @param hashSize the size of the transposition table, in megabytes.
+     * @param params   the weights of the evaluation.
+     */
+    public Engine(SearchLimits limits, int hashSize, EvalParams params) {
+        this(limits, hashSize, params, null);
+    }
+
+    /**
+     * Creates an engine that evaluates with either a network or the handcrafted evaluation.
+     *
+     * @param limits   the limits every search is run with.
+     * @param hashSize the size of the transposition table, in megabytes.
+     * @param params   the weights of the handcrafted evaluation.
+     * @param network  the network to evaluate with. Null to use the handcrafted evaluation.
+     */
+    public Engine(SearchLimits limits, int hashSize, EvalParams params, Network network) {
+        this(limits, new TranspositionTable(hashSize), params, network);
+    }
+
+    /**
+     * Creates an engine that searches with the given transposition table, such as an OffHeapTranspositionTable.
+     *
+     * @param limits             the limits every search is run with.
+     * @param transpositionTable the table to store search results in. Must not be shared with other engines.
+     * @param params             the weights of the handcrafted evaluation.
+     * @param network            the network to evaluate with. Null to use the handcrafted evaluation.
+     */
+    public Engine(SearchLimits limits, TranspositionTable transpositionTable, EvalParams params, Network network) {
+        this.limits = new SearchLimits(limits);
+        evaluator = network == null
+                ? new Evaluator(new EvalParams(params), Evaluator.DEFAULT_CACHE_SIZE)
+                : new NeuralEvaluator(network, Evaluator.DEFAULT_CACHE_SIZE);
+        this.transpositionTable = transpositionTable;
+        cpu = new CPU(evaluator, transpositionTable);
+    }
+
+    /**
+     * Calculates the next move for the given player.
+     *
+     * @param board  the board to calculate on.
+     * @param player the player to move.
+     * @return the move to perform. Null if none are possible.
+     */
+    public Move calculateNextMove(Board board, boolean player) {
+        Pair<Move, Integer> result = analyze(board, player);
+        return result == null ? null : result.getFirst();
+    }
+
+    /**
+     * Searches the given board within this engine's limits.
+     *
+     * @param board  the board to calculate on.
+     * @param player the player to move.
+     * @return the best move and its score for the player. Null if no moves are possible.
+     */
+    public Pair<Move, Integer> analyze(Board board, boolean player) {
+        checkThread();
+        return cpu.search(board, player, limits);
+    }
+
+    /**
+     * Warms up with the default number of nodes.
+     *
+     * @return the time the warm-up took, in milliseconds.
+     */
+    public long warmUp() {
+        return warmUp(DEFAULT_WARM_UP_NODES);
+    }
+
+    /**
+     * Runs short fixed searches so the JIT compiles the search before the first real move, which would otherwise run at a
+     * fraction of the usual speed. Everything learned is cleared afterwards, so the next search is the same as on a new
+     * engine. Compiled code is shared by the whole JVM, so warming up one engine warms up every engine.
+     *
+     * @param nodes the number of nodes to search, spread over the warm-up positions.
+     * @return the time the warm-up took, in milliseconds.
+     */
+    public long warmUp(long nodes) {
+        checkThread();
+        long start = System.nanoTime();
+        SearchListener listener = cpu.getListener();
+        SearchTracer tracer = cpu.getTracer();
+        cpu.setListener(null);
+        cpu.setTracer(null);
+        try {
+            SearchLimits warmUpLimits = new SearchLimits().setDepth(WARM_UP_DEPTH).setNodes(WARM_UP_SEARCH_NODES);
+            long searched = 0;
+            for (int i = 0; searched < nodes; i++) {
+                Board board = new Board(WARM_UP_POSITIONS[i % WARM_UP_POSITIONS.length]);
+                cpu.search(board, board.getCurrPlayer(), warmUpLimits);
+                searched += cpu.getNodeCount();
+                transpositionTable.clear();
+            }
+        } finally {
+            cpu.setListener(listener);
+            cpu.setTracer(tracer);
+        }
+        newGame();
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    /**
+     * Clears everything learned from previous searches. Should be called before starting a new game.
+     */
+    public void newGame() {
+        checkThread();
+        evaluator.clear();
+        transpositionTable.clear();
+    }
+
+    /**
+     * Replaces the transposition table with an empty one of the given size.
+     *
+     * @param hashSize the new size of the transposition table, in megabytes.
+     */
+    public void setHashSize(int hashSize) {
+        checkThread();
+        transpositionTable.resize(hashSize);
+    }
+
+    /**
+     * Saves the transposition table to a snapshot file, so a later engine can start from what this one has searched.
+     *
+     * @param path the file to write.
+     * @throws IOException if the file could not be written.
+     */
+    public void saveHash(Path path) throws IOException {
+        checkThread();
+        transpositionTable.save(path);
+    }
+
+    /**
+     * Replaces the transposition table's contents with a snapshot saved by saveHash. The table is left unchanged if the
+     * snapshot is not valid.
+     *
+     * @param path the file to read.
+     * @throws IOException if the file could not be read or is not a valid snapshot.
+     */
+    public void loadHash(Path path) throws IOException {
+        checkThread();
+        transpositionTable.load(path);
+    }
+
+    /**
+     * Releases the engine from its current thread so that another thread can use it.
+     */
+    public void release() {
+        checkThread();
+        owner = null;
+    }
+
+    /**
+     * Makes sure the engine is only used by the thread that owns it. The first thread to use the engine becomes its owner.
+     */
+    private void checkThread() {
+        Thread current = Thread.currentThread();
+        if (owner == null) {
+            owner = current;
+        } else if (owner != current) {
+            throw new IllegalStateException("Engine is confined to thread " + owner.getName() + " but was used by " + current.getName());
+        }
+    }
+
+    /**
+     * @return the best lines of the last search, best first. Set the multi-PV count of the limits to get more than one.
+     */
+    public List<PvLine> getLines() {
+        return cpu.getLines();
+    }
+
+    /**
+     * @return the number of nodes searched in the last search.
+     */
+    public long getNodeCount() {
+        return cpu.getNodeCount();
+    }
+
+    public SearchLimits getLimits() {
+        return new SearchLimits(limits);
+    }
+
+    public Engine setLimits(SearchLimits limits) {
+        this.limits = new SearchLimits(limits);
+        return this;
+    }
+
+    /**
+     * Takes a snapshot of the statistics of the current or last search. Can be called from any thread, even while
+     * searching.
+     *
+     * @return the stats.
+     */
+    public SearchStats getStats() {
+        return cpu.getStats();
+    }
+
+    public SearchListener getListener() {
+        return cpu.getListener();
+    }
+
+    public Engine setListener(SearchListener listener) {
+        cpu.setListener(listener);
+        return this;
+    }
+
+    public SearchTracer getTracer() {
+        return cpu.getTracer();
+    }
+
+    public Engine setTracer(SearchTracer tracer) {
+        cpu.setTracer(tracer);
+        return this;
+    }
+}
@@ -0,0 +1,112 @@
+package com.jlogical.speedchess.cpu;
+
+import com.jlogical.speedchess.nnue.Network;
+
+import java.nio.file.Path;
+
+/**
+ * Describes how to build an engine. Used to create many identical engines, for example one for every game of a match.
+ */
+public class EngineConfig {
+
+    private String name; // The name of the configuration, used when reporting results.
+    private SearchLimits limits; // The limits every search is run with.
+    private int hashSize; // The size of the transposition table, in megabytes.
+    private boolean offHeapHash; // Whether the transposition table is stored outside the Java heap.
+    private Path hashDirectory; // The directory to map an off-heap table from, such as a hugetlbfs mount. Null to allocate directly.
+    private EvalParams evalParams; // The weights of the evaluation.
+    private Network network; // The network to evaluate with. Null to use the handcrafted evaluation.
+
+    /**
+     * Creates a config with the default limits and hash size.
+     *
+     * @param name the name of the configuration.
+     */
+    public EngineConfig(String name) {
+        this.name = name;
+        limits = new SearchLimits();
+        hashSize = Engine.DEFAULT_HASH_SIZE;
+        evalParams = new EvalParams();
+    }
+
+    /**
+     * @return a new engine built from this config.
+     */
+    public Engine createEngine() {
+        TranspositionTable table = offHeapHash ? new OffHeapTranspositionTable(hashSize, hashDirectory) : new TranspositionTable(hashSize);
+        return new Engine(limits, table, evalParams, network);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public EngineConfig setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public SearchLimits getLimits() {
+        return new SearchLimits(limits);
+    }
+
+    public EngineConfig setLimits(SearchLimits limits) {
+        this.limits = new SearchLimits(limits);
+        return this;
+    }
+
+    public int getHashSize() {
+        return hashSize;
+    }
+
+    public EngineConfig setHashSize(int hashSize) {
+        this.hashSize = hashSize;
+        return this;
+    }
+
+    public boolean isOffHeapHash() {
+        return offHeapHash;
+    }
+
+    public EngineConfig setOffHeapHash(boolean offHeapHash) {
+        this.offHeapHash = offHeapHash;
+        return this;
+    }
+
+    public Path getHashDirectory() {
+        return hashDirectory;
+    }
+
+    /**
+     * Maps the transposition table from a file in the given directory. Only used with an off-heap table.
+     *
+     * @param hashDirectory the directory, such as a hugetlbfs or tmpfs mount. Null to allocate directly.
+     * @return this config.
+     */
+    public EngineConfig setHashDirectory(Path hashDirectory) {
+        this.hashDirectory = hashDirectory;
+        return this;
+    }
+
+    public EvalParams getEvalParams() {
+        return new EvalParams(evalParams);
+    }
+
+    public EngineConfig setEvalParams(EvalParams evalParams) {
+        this.evalParams = new EvalParams(evalParams);
+        return this;
+    }
+
+    public Network getNetwork() {
+        return network;
+    }
+
+    public EngineConfig setNetwork(Network network) {
+        this.network = network;
+        return this;
+    }
+
+    public String toString() {
+        return name + " (" + limits + ", hash " + hashSize + "MB" + (offHeapHash ? " off-heap" : "") + (network == null ? "" : ", nnue") + ")";
+    }
+}
@@ -0,0 +1,100 @@
+package com.jlogical.speedchess.cpu;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size cache of evaluation scores. Each entry is a single long holding the upper bits of the position's key
+ * and its score, so an entry is always read and written as a whole and the cache is safe to share between threads
+ * without locks. An entry replaced by another position simply fails the key check and counts as a miss.
+ */
+public class EvalCache {
+
+    public static final long NOT_FOUND = -1; // Returned by probe() when the position is not in the cache.
+
+    private static final int BYTES_PER_ENTRY = 8; // One packed long per entry.
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(long[].class); // Atomic access to the entries.
+
+    private final long[] entries; // The packed entries. 0 if empty.
+    private final int mask; // Maps a key to its slot.
+
+    private final LongAdder hits = new LongAdder(); // Lookups that found their position.
+    private final LongAdder collisions = new LongAdder(); // Stores that replaced a different position.
+
+    /**
+     * Creates an EvalCache.
+     *
+     * @param sizeMb the size of the cache in megabytes. Rounded down to a power of two number of entries.
+     */
+    public EvalCache(int sizeMb) {
+        long requested = Math.max(1, (long) sizeMb * 1024 * 1024 / BYTES_PER_ENTRY);
+        int capacity = (int) Long.highestOneBit(Math.min(requested, 1 << 30));
+        entries = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return the bits of the key stored in an entry to verify it. The lowest bit is always set so that no verification
+     * matches an empty entry.
+     */
+    private static long verification(long key) {
+        return (key | 1L << 32) & 0xFFFFFFFF00000000L;
+    }
+
+    /**
+     * Looks up a score.
+     *
+     * @param key the key of the position.
+     * @return the score packed into the low 32 bits of a long, or NOT_FOUND.
+     */
+    public long probe(long key) {
+        long entry = (long) ENTRIES.getOpaque(entries, (int) key & mask);
+        if ((entry & 0xFFFFFFFF00000000L) != verification(key)) return NOT_FOUND;
+        hits.increment();
+        return entry & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Stores a score, replacing whatever was in its slot.
+     *
+     * @param key   the key of the position.
+     * @param score the score to store.
+     */
+    public void store(long key, int score) {
+        int slot = (int) key & mask;
+        long old = (long) ENTRIES.getOpaque(entries, slot);
+        long entry = verification(key) | (score & 0xFFFFFFFFL);
+        if (old != 0 && (old & 0xFFFFFFFF00000000L) != verification(key)) collisions.increment();
+        ENTRIES.setOpaque(entries, slot, entry);
+    }
+
+    /**
+     * Removes every entry. Should not be called while other threads are using the cache.
+     */
+    public void clear() {
+        Arrays.fill(entries, 0);
+    }
+
+    /**
+     * @return the number of lookups that found their position since the cache was created.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of stores that replaced a different position since the cache was created.
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    /**
+     * @return the number of entries the cache can hold.
+     */
+    public int capacity() {
+        return entries.length;
+    }
+}
@@ -0,0 +1,193 @@
+package com.jlogical.speedchess.cpu;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.jlogical.speedchess.board.Piece.*;
+
+/**
+ * The tunable weights of the Evaluator, stored as a vector of ints. Each weight has a name, a default and a minimum so
+ * that it can be saved to and loaded from a parameter file.
+ */
+public class EvalParams {
+
+    /**
+     * The index of each weight in the vector.
+     */
+    public static final int PAWN_VALUE = 0; // Material value of a pawn.
+    public static final int ROOK_VALUE = 1; // Material value of a rook.
+    public static final int KNIGHT_VALUE = 2; // Material value of a knight.
+    public static final int BISHOP_VALUE = 3; // Material value of a bishop.
+    public static final int QUEEN_VALUE = 4; // Material value of a queen.
+    public static final int CENTER_MOBILITY_BONUS = 5; // Bonus for being able to move towards the center.
+    public static final int CENTER_POSITION_BONUS = 6; // Bonus for being positioned in the middle.
+    public static final int PAWN_FORWARD_BONUS = 7; // Bonus for being up front for a pawn.
+    public static final int MOBILITY_BONUS = 8; // Bonus for every possible move.
+    public static final int CAPTURE_BONUS = 9; // Bonus for every possible capture.
+    public static final int CAPTURE_DOWN_NUMERATOR = 10; // Capturing a cheaper piece scores this divided by the difference in value.
+    public static final int CAPTURE_UP_DIVISOR = 11; // Capturing a more valuable piece scores the difference in value divided by this.
+    public static final int CHECK_DIVISOR = 12; // The king's value is divided by this when scoring a check.
+    public static final int DEFENCE_DIVISOR = 13; // Defending a piece scores the cheaper value divided by this.
+    public static final int DEFENCE_BONUS = 14; // Bonus for every defended piece.
+    public static final int PASSED_PAWN_BONUS = 15; // Bonus for every rank a passed pawn has advanced.
+    public static final int ISOLATED_PAWN_PENALTY = 16; // Penalty for every pawn with no friendly pawns on the files next to it.
+    public static final int DOUBLED_PAWN_PENALTY = 17; // Penalty for every pawn with a friendly pawn behind it on the same file.
+
+    public static final int KING_VALUE = 25000; // Material value of a king. Not tunable, since both players always have one.
+
+    private static final String[] NAMES = {
+            "PAWN_VALUE", "ROOK_VALUE", "KNIGHT_VALUE", "BISHOP_VALUE", "QUEEN_VALUE",
+            "CENTER_MOBILITY_BONUS", "CENTER_POSITION_BONUS", "PAWN_FORWARD_BONUS", "MOBILITY_BONUS",
+            "CAPTURE_BONUS", "CAPTURE_DOWN_NUMERATOR", "CAPTURE_UP_DIVISOR", "CHECK_DIVISOR", "DEFENCE_DIVISOR", "DEFENCE_BONUS",
+            "PASSED_PAWN_BONUS", "ISOLATED_PAWN_PENALTY", "DOUBLED_PAWN_PENALTY"
+    };
+    private static final int[] DEFAULTS = {
+            100, 500, 320, 330, 900,
+            3, 8, 20, 5,
+            5, 1000, 70, 25, 15, 10,
+            8, 10, 10
+    };
+    private static final int[] MINIMUMS = { // Divisors must stay positive.
+            0, 0, 0, 0, 0,
+            0, 0, 0, 0,
+            0, 0, 1, 1, 1, 0,
+            0, 0, 0
+    };
+
+    private final int[] values; // The current value of each weight.
+    private int version; // Increased every time a weight changes, so derived tables know when to be rebuilt.
+
+    /**
+     * Creates params with the default weights.
+     */
+    public EvalParams() {
+        values = DEFAULTS.clone();
+    }
+
+    /**
+     * Creates a copy of the given params.
+     *
+     * @param params the params to copy.
+     */
+    public EvalParams(EvalParams params) {
+        values = params.values.clone();
+    }
+
+    /**
+     * @return the number of weights.
+     */
+    public static int size() {
+        return NAMES.length;
+    }
+
+    /**
+     * @return the name of the weight at the given index.
+     */
+    public static String getName(int index) {
+        return NAMES[index];
+    }
+
+    /**
+     * @return the smallest value the weight at the given index can have.
+     */
+    public static int getMinimum(int index) {
+        return MINIMUMS[index];
+    }
+
+    /**
+     * @return the value of the weight at the given index.
+     */
+    public int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Sets the weight at the given index. Values below the weight's minimum are raised to the minimum.
+     */
+    public void set(int index, int value) {
+        values[index] = Math.max(value, MINIMUMS[index]);
+        version++;
+    }
+
+    /**
+     * @return a number that changes every time a weight is set.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @param piece the piece whose value to get. Black pieces are negative.
+     * @return the material value of the piece.
+     */
+    public int getPieceValue(int piece) {
+        switch (Math.abs(piece)) {
+            case PAWN:
+                return values[PAWN_VALUE];
+            case ROOK:
+                return values[ROOK_VALUE];
+            case KNIGHT:
+                return values[KNIGHT_VALUE];
+            case BISHOP:
+                return values[BISHOP_VALUE];
+            case QUEEN:
+                return values[QUEEN_VALUE];
+            case KING:
+                return KING_VALUE;
+        }
+        return -1;
+    }
+
+    /**
+     * Loads params from a file of "NAME = value" lines. Weights missing from the file keep their default.
+     *
+     * @param path the file to read.
+     * @return the params.
+     * @throws IOException if the file could not be read or has an unknown weight.
+     */
+    public static EvalParams load(Path path) throws IOException {
+        EvalParams params = new EvalParams();
+        List<String> names = Arrays.asList(NAMES);
+        for (String line : Files.readAllLines(path)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] split = line.split("=");
+            int index = names.indexOf(split[0].trim());
+            if (split.length != 2 || index < 0) throw new IOException("Unknown evaluation parameter: " + line);
+            try {
+                params.set(index, Integer.parseInt(split[1].trim()));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid evaluation parameter: " + line, e);
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Saves the params to a file that can be read by load().
+     *
+     * @param path the file to write.
+     * @throws IOException if the file could not be written.
+     */
+    public void save(Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# Evaluation parameters");
+        for (int i = 0; i < values.length; i++) {
+            lines.add(NAMES[i] + " = " + values[i]);
+        }
+        Files.write(path, lines);
+    }
+
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            output.append(NAMES[i]).append(" = ").append(values[i]).append('\n');
+        }
+        return output.toString();
+    }
+}
@@ -1,26 +1,62 @@
 package com.jlogical.speedchess.cpu;
 
-import com.jlogical.speedchess.bitboard.Bitboard;
+import com.jlogical.speedchess.bitboard.Attacks;
+import com.jlogical.speedchess.bitboard.Fills;
+import com.jlogical.speedchess.bitboard.Masks;
+import com.jlogical.speedchess.bitboard.Shifts;
 import com.jlogical.speedchess.board.Board;
-import com.jlogical.speedchess.board.Piece;
-import com.jlogical.speedchess.moves.Move;
-import com.jlogical.speedchess.moves.Moveset;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-
-import static com.jlogical.speedchess.board.Piece.KING;
+import static com.jlogical.speedchess.board.Piece.*;
+import static com.jlogical.speedchess.cpu.EvalParams.*;
 
 /**
- * Handles evaluating the score of a board.
+ * Handles evaluating the score of a board. Each evaluator keeps its own counters and pawn hash, so it should only be used
+ * by one thread at a time. The score cache itself is lock-free.
  */
 public class Evaluator {
 
-    private static final int CENTER_MOBILITY_BONUS = 3; // Bonus for being able to move towards the center.
-    private static final int CENTER_POSITION_BONUS = 8; // Bonus for being positioned in the middle.
-    private static final int PAWN_FORWARD_BONUS = 20; // Bonus for being up front for a pawn.
+    public static final int DEFAULT_CACHE_SIZE = 1; // The default size of the score cache, in megabytes.
+    public static final int PAWN_HASH_SIZE = 8192; // The number of pawn structures to cache.
+    public static final int MATE_SCORE = 1000000; // The score of the player who is check mated is -MATE_SCORE.
+    public static final int STALE_MATE_SCORE = -50000; // The score of the player who is stale mated.
+    public static final int DRAW_SCORE = 0; // The score of a position drawn by repetition or the fifty-move rule.
+
+    private static final long RANK_BIT_0 = 0xFF00FF00FF00FF00L; // Squares on ranks 2, 4, 6 and 8.
+    private static final long RANK_BIT_1 = 0xFFFF0000FFFF0000L; // Squares on ranks 3, 4, 7 and 8.
+    private static final long RANK_BIT_2 = 0xFFFFFFFF00000000L; // Squares on ranks 5 to 8.
+    private static final long CENTER_BIT_0 = 0x007E425A5A427E00L; // Squares whose center bonus is 1 or 3.
+    private static final long CENTER_BIT_1 = 0x00003C3C3C3C0000L; // Squares whose center bonus is 2 or 3.
+
+    private final EvalParams params; // The weights of every term of the evaluation.
+    private final EvalCache cache; // Caches the scores of positions already evaluated. Null if caching is disabled.
+    private final PawnHashTable pawnHash; // Caches the pawn structure scores. Null if caching is disabled.
+
+    private final int[][] captureScores = new int[KING + 1][KING + 1]; // The bonus for each [attacker][victim] type.
+    private final int[][] defenceScores = new int[KING + 1][KING + 1]; // The bonus for each [defender][defended] type.
+    private int tablesVersion = -1; // The version of the params the tables were built from.
 
-    private static LinkedHashMap<Long, Integer> scoreHash = new LinkedHashMap<>(10000); // Hash map of all the evaluations of states already looked at.
+    private long probes; // The number of evaluations requested.
+    private long hits; // The number of evaluations found in the cache.
+
+    /**
+     * Creates an Evaluator with the default weights and cache size.
+     */
+    public Evaluator() {
+        this(new EvalParams(), DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates an Evaluator.
+     *
+     * @param params    the weights to evaluate with. Changes to the params are seen by the evaluator, so the cache should
+     *                  be disabled if the params are going to change.
+     * @param cacheSize the size of the score cache, in megabytes. 0 to disable both the score cache and the pawn hash.
+     */
+    public Evaluator(EvalParams params, int cacheSize) {
+        this.params = params;
+        cache = cacheSize > 0 ? new EvalCache(cacheSize) : null;
+        pawnHash = cacheSize > 0 ? new PawnHashTable(PAWN_HASH_SIZE) : null;
+    }
 
     /**
      * Evaluates the given board for the given player.
@@ -29,164 +65,318 @@ public class Evaluator {
      * @param player the player to get the score for.
      * @return the score of the player.
      */
-    public static int evaluate(Board board, boolean player) {
+    public int evaluate(Board board, boolean player) {
 
         int scoreMultiplier = player ? 1 : -1; // Negate the score if the player to get the score for is black.
 
-        long key = ZobristKey.getKeyForBoard(board, player);
-        Integer hashScore; // The score for player "true"
-        if ((hashScore = scoreHash.getOrDefault(key, null)) != null) {
-            return hashScore * scoreMultiplier;
+        probes++;
+        long key = board.getKey(player);
+        long cached; // The score for player "true"
+        if (cache != null && (cached = cache.probe(key)) != EvalCache.NOT_FOUND) {
+            hits++;
+            return (int) cached * scoreMultiplier;
         }
 
-        int score = 0;
+        // Only the player to move can be out of moves. Checking stops at the first legal move found.
+        if (!board.hasLegalMove(player)) return terminalScore(board.inCheck(player));
+
+        int score = evaluatePosition(board, player);
+
+        if (cache != null) cache.store(key, score);
+
+        return score * scoreMultiplier;
+    }
+
+    /**
+     * @param inCheck whether the player to move, who has no legal moves, is in check.
+     * @return the score of the position for the player to move: check mate if in check, stale mate otherwise.
+     */
+    public static int terminalScore(boolean inCheck) {
+        return inCheck ? -MATE_SCORE : STALE_MATE_SCORE;
+    }
+
+    /**
+     * Prepares to evaluate the positions of a search starting from the board. Called once at the root of every search.
+     * Does nothing by default.
+     *
+     * @param board the board the search starts from.
+     */
+    public void attach(Board board) {
+    }
+
+    /**
+     * Scores a position that is not check mate or stale mate. Subclasses can override this to replace the handcrafted
+     * evaluation while keeping the cache and the mate scores.
+     *
+     * @param board  the board to evaluate.
+     * @param player the player to move.
+     * @return the score for white.
+     */
+    protected int evaluatePosition(Board board, boolean player) {
+
+        updateTables();
 
-        // Check mates.
-        if (board.isCheckMate(true)) return -1000000 * scoreMultiplier;
-        if (board.isCheckMate(false)) return 1000000 * scoreMultiplier;
+        int score = evaluateStatic(board) + evaluatePawns(board);
+        score += evaluateMoves(board, true);
+        score -= evaluateMoves(board, false);
 
-        // Stale mates.
-        if (board.isStaleMate(true)) return -50000 * scoreMultiplier;
-        if (board.isStaleMate(false)) return -50000 * scoreMultiplier;
+        return score;
+    }
+
+    /**
+     * Scores the material and the position of every piece. Unlike the move bonuses, these terms only depend on the
+     * piece bitboards, which is what lets the BatchEvaluator compute them for many positions at once.
+     *
+     * @param board the board to evaluate.
+     * @return the score for white.
+     */
+    public int evaluateStatic(Board board) {
+
+        int score = 0;
 
         // Material points.
 
-        score += (Bitboard.count(board.pawns[0]) - Bitboard.count(board.pawns[1])) * 100;
-        score += (Bitboard.count(board.rooks[0]) - Bitboard.count(board.rooks[1])) * 500;
-        score += (Bitboard.count(board.knights[0]) - Bitboard.count(board.knights[1])) * 320;
-        score += (Bitboard.count(board.bishops[0]) - Bitboard.count(board.bishops[1])) * 330;
-        score += (Bitboard.count(board.queens[0]) - Bitboard.count(board.queens[1])) * 900;
-        score += (Bitboard.count(board.kings[0]) - Bitboard.count(board.kings[1])) * 25000;
-
-        // Positional bonus.
-        long pieces = board.getPieces(true);
-        for (int i = 0; i < 64; i++) {
-            if (Bitboard.get(pieces,i)) {
-
-                // Pawn position.
-                if (Bitboard.get(board.pawns[0],i)) {
-                    score += forwardDistance(i, true) * PAWN_FORWARD_BONUS;
-                }
+        score += (Long.bitCount(board.pawns[0]) - Long.bitCount(board.pawns[1])) * params.get(PAWN_VALUE);
+        score += (Long.bitCount(board.rooks[0]) - Long.bitCount(board.rooks[1])) * params.get(ROOK_VALUE);
+        score += (Long.bitCount(board.knights[0]) - Long.bitCount(board.knights[1])) * params.get(KNIGHT_VALUE);
+        score += (Long.bitCount(board.bishops[0]) - Long.bitCount(board.bishops[1])) * params.get(BISHOP_VALUE);
+        score += (Long.bitCount(board.queens[0]) - Long.bitCount(board.queens[1])) * params.get(QUEEN_VALUE);
+        score += (Long.bitCount(board.kings[0]) - Long.bitCount(board.kings[1])) * KING_VALUE;
+
+        // Positional bonus. Pawns score how far forward they are, and black's ranks count down from 7.
+        int forwardBonus = params.get(PAWN_FORWARD_BONUS);
+        score += rankSum(board.pawns[0]) * forwardBonus;
+        score -= (7 * Long.bitCount(board.pawns[1]) - rankSum(board.pawns[1])) * forwardBonus;
+
+        // Rooks, knights, bishops and queens score how close they are to the center.
+        long whitePieces = board.rooks[0] | board.knights[0] | board.bishops[0] | board.queens[0];
+        long blackPieces = board.rooks[1] | board.knights[1] | board.bishops[1] | board.queens[1];
+        score += (centerSum(whitePieces) - centerSum(blackPieces)) * params.get(CENTER_POSITION_BONUS);
+
+        return score;
+    }
+
+    /**
+     * Works out the capture and defence bonus of every pair of piece types whenever the params change, so scoring the
+     * attack maps is a table lookup per pair.
+     */
+    private void updateTables() {
+        if (tablesVersion == params.getVersion()) return;
+        tablesVersion = params.getVersion();
 
-                // Rook/Knight/Bishop/Queen
-                if (Bitboard.get(board.rooks[0],i) || Bitboard.get(board.knights[0],i) || Bitboard.get(board.bishops[0],i) || Bitboard.get(board.queens[0],i)) {
-                    score += centerDistance(i) * CENTER_POSITION_BONUS;
+        for (int attacker = PAWN; attacker <= KING; attacker++) {
+            int origin = params.getPieceValue(attacker);
+            for (int victim = PAWN; victim <= KING; victim++) {
+                int dest = params.getPieceValue(victim);
+
+                // Defending the king scores nothing.
+                defenceScores[attacker][victim] = victim == KING ? 0 : Math.min(origin, dest) / params.get(DEFENCE_DIVISOR) + params.get(DEFENCE_BONUS);
+
+                // If this move is checking the king, reduce the bonus points.
+                if (victim == KING) dest /= params.get(CHECK_DIVISOR);
+
+                if (origin > dest) {
+                    captureScores[attacker][victim] = params.get(CAPTURE_DOWN_NUMERATOR) / (origin - dest) + params.get(CAPTURE_BONUS);
+                } else {
+                    captureScores[attacker][victim] = (dest - origin) / params.get(CAPTURE_UP_DIVISOR) + params.get(CAPTURE_BONUS);
                 }
             }
         }
-        pieces = board.getPieces(false);
-        for (int i = 0; i < 64; i++) {
-            if (Bitboard.get(pieces,i)) {
+    }
 
-                // Pawn position.
-                if (Bitboard.get(board.pawns[1],i)) {
-                    score -= forwardDistance(i, false) * PAWN_FORWARD_BONUS;
-                }
+    /**
+     * Scores the mobility, attacks and defences of one player from the attack map of each of their pieces. Gives the same
+     * result as scoring every pseudo-legal move of the player, without generating any moves.
+     *
+     * @param board  the board to evaluate.
+     * @param player the player whose pieces to score.
+     * @return the score for the player.
+     */
+    private int evaluateMoves(Board board, boolean player) {
+        long own = board.getPieces(player);
+        long enemy = board.getPieces(!player);
+        long occupied = own | enemy;
+        long empty = ~occupied;
+        int sign = player ? 1 : -1;
 
-                // Rook/Knight/Bishop/Queen
-                if (Bitboard.get(board.rooks[1],i) || Bitboard.get(board.knights[1],i) || Bitboard.get(board.bishops[1],i) || Bitboard.get(board.queens[1],i)) {
-                    score -= centerDistance(i) * CENTER_POSITION_BONUS;
-                }
-            }
+        int score = 0;
+
+        // Pawns push into empty squares and only move diagonally onto a piece, capturing or defending it.
+        long pawns = board.getPieceBitboard(PAWN * sign);
+        long singlePushes = (player ? pawns << 8 : pawns >>> 8) & empty;
+        long doublePushes = (player ? (singlePushes & Masks.RANK_3) << 8 : (singlePushes & Masks.RANK_6) >>> 8) & empty;
+        score += mobility(singlePushes) + mobility(doublePushes);
+        score += attacks(board, PAWN, Attacks.pawnsWest(pawns, player), own, enemy, player);
+        score += attacks(board, PAWN, Attacks.pawnsEast(pawns, player), own, enemy, player);
+
+        for (long knights = board.getPieceBitboard(KNIGHT * sign); knights != 0; knights &= knights - 1) {
+            score += attacks(board, KNIGHT, Attacks.knight(Long.numberOfTrailingZeros(knights)), own, enemy, player);
+        }
+        for (long bishops = board.getPieceBitboard(BISHOP * sign); bishops != 0; bishops &= bishops - 1) {
+            score += attacks(board, BISHOP, Attacks.bishop(Long.numberOfTrailingZeros(bishops), occupied), own, enemy, player);
+        }
+        for (long rooks = board.getPieceBitboard(ROOK * sign); rooks != 0; rooks &= rooks - 1) {
+            score += attacks(board, ROOK, Attacks.rook(Long.numberOfTrailingZeros(rooks), occupied), own, enemy, player);
+        }
+        for (long queens = board.getPieceBitboard(QUEEN * sign); queens != 0; queens &= queens - 1) {
+            score += attacks(board, QUEEN, Attacks.queen(Long.numberOfTrailingZeros(queens), occupied), own, enemy, player);
         }
 
-        // Move bonuses.
-        if (!board.getMoveHistory().isEmpty()) {
-            Moveset moves = board.getMoveHistory().peek().getNextMoves(board, true);
-            Moveset enemyMoves = board.getMoveHistory().peek().getNextMoves(board, false);
+        long king = board.getPieceBitboard(KING * sign);
+        if (king != 0) {
+            score += attacks(board, KING, Attacks.king(Long.numberOfTrailingZeros(king)), own, enemy, player);
 
-            // Bonus points for attacks / mobility.
-            for (Move move : moves.getMoves()) {
+            // Castling moves count towards mobility too.
+            int rank = player ? 0 : 56;
+            if (board.canCastleRight(player) && (empty & 0x60L << rank) == 0x60L << rank) score += mobility(1L << (rank + 6));
+            if (board.canCastleLeft(player) && (empty & 0x0EL << rank) == 0x0EL << rank) score += mobility(1L << (rank + 2));
+        }
 
-                if(move.getTo()> 64){
-                    System.out.println(Bitboard.format(board.pawns[0]));
-                    System.out.println(move.getPieceType() + " -> " + move);
-                }
-                score += centerDistance(move.getTo()) * CENTER_MOBILITY_BONUS + 5;
-
-                if (move.getCapturedPiece() != 0) {
-                    int origin = Piece.getValue(board.getPiece(move.getFrom()));
-                    int dest = Piece.getValue(move.getCapturedPiece());
-
-                    // If this move is checking the king, reduce the bonus points.
-                    if (dest == Piece.getValue(KING))
-                        dest /= 25;
-
-                    // Calculate the score.
-                    if (origin > dest) {
-                        score += 1000 / (origin - dest) + 5;
-                    } else {
-                        score += (dest - origin) / 70 + 5;
-                    }
-                }
-            }
-            for (Move move : enemyMoves.getMoves()) {
+        return score;
+    }
+
+    /**
+     * Scores the squares attacked by one piece, or by a set of pawns attacking in one direction. Attacking an empty square
+     * or an enemy is a move, attacking an enemy is also a capture, and attacking a friendly piece defends it.
+     *
+     * @return the score for the player.
+     */
+    private int attacks(Board board, int pieceType, long attacked, long own, long enemy, boolean player) {
+        long moves = pieceType == PAWN ? attacked & enemy : attacked & ~own;
+        int score = mobility(moves);
+
+        long captures = attacked & enemy;
+        long defences = attacked & own;
+        int enemySign = player ? -1 : 1;
+        for (int victim = PAWN; victim <= KING && (captures | defences) != 0; victim++) {
+            long enemyPieces = board.getPieceBitboard(victim * enemySign);
+            long ownPieces = board.getPieceBitboard(-victim * enemySign);
+            score += Long.bitCount(captures & enemyPieces) * captureScores[pieceType][victim];
+            score += Long.bitCount(defences & ownPieces) * defenceScores[pieceType][victim];
+            captures &= ~enemyPieces;
+            defences &= ~ownPieces;
+        }
+        return score;
+    }
 
-                score -= centerDistance(move.getTo()) * CENTER_MOBILITY_BONUS + 5;
+    /**
+     * @return the mobility bonus of moving to each of the given squares.
+     */
+    private int mobility(long squares) {
+        return Long.bitCount(squares) * params.get(MOBILITY_BONUS) + centerSum(squares) * params.get(CENTER_MOBILITY_BONUS);
+    }
 
-                if (move.getCapturedPiece() != 0) {
-                    int origin = Piece.getValue(board.getPiece(move.getFrom()));
-                    int dest = Piece.getValue(move.getCapturedPiece());
+    /**
+     * @return the sum of the ranks (0-7) of every piece in the bitboard.
+     */
+    static int rankSum(long pieces) {
+        return 4 * Long.bitCount(pieces & RANK_BIT_2) + 2 * Long.bitCount(pieces & RANK_BIT_1) + Long.bitCount(pieces & RANK_BIT_0);
+    }
 
-                    // If this move is checking the king, reduce the bonus points.
-                    if (dest == Piece.getValue(KING))
-                        dest /= 25;
+    /**
+     * @return the sum of the center bonuses (0-3) of every piece in the bitboard. The bonus is 3 minus the distance from
+     * the center.
+     */
+    static int centerSum(long pieces) {
+        return 2 * Long.bitCount(pieces & CENTER_BIT_1) + Long.bitCount(pieces & CENTER_BIT_0);
+    }
 
-                    if (origin > dest) {
-                        score -= 1000 / (origin - dest) + 5;
-                    } else {
-                        score -= (dest - origin) / 70 + 5;
-                    }
-                }
-            }
+    /**
+     * Scores the pawn structure, looking it up in the pawn hash first.
+     *
+     * @param board the board to evaluate.
+     * @return the score for white.
+     */
+    private int evaluatePawns(Board board) {
+        if (pawnHash != null) {
+            int slot = pawnHash.probe(board.getPawnKey());
+            if (slot >= 0) return pawnHash.getScore(slot);
+        }
 
-            // Bonus points for defense.
-            for (Move move : moves.getDefences()) {
-                int origin = Piece.getValue(board.getPiece(move.getFrom()));
-                int dest = Piece.getValue(move.getCapturedPiece());
+        long white = board.pawns[0], black = board.pawns[1];
 
-                // Skip defending the king.
-                if (dest == Piece.getValue(KING)) continue;
+        // The squares in front of each player's pawns, and the squares they could attack as they advance.
+        long whiteFront = Fills.frontSpan(white, true);
+        long blackFront = Fills.frontSpan(black, false);
+        long whiteSpan = Fills.attackSpan(white, true);
+        long blackSpan = Fills.attackSpan(black, false);
 
-                score += Math.min(origin, dest) / 15 + 10;
-            }
+        // A pawn is passed if no enemy pawn can block or capture it on its way to promotion.
+        long whitePassed = white & ~(blackFront | blackSpan);
+        long blackPassed = black & ~(whiteFront | whiteSpan);
 
-            for (Move move : enemyMoves.getDefences()) {
-                int origin = Piece.getValue(board.getPiece(move.getFrom()));
-                int dest = Piece.getValue(move.getCapturedPiece());
+        // A pawn is isolated if there are no friendly pawns on the files next to it.
+        long whiteFiles = Fills.file(white);
+        long blackFiles = Fills.file(black);
+        long whiteIsolated = white & ~(Shifts.west(whiteFiles) | Shifts.east(whiteFiles));
+        long blackIsolated = black & ~(Shifts.west(blackFiles) | Shifts.east(blackFiles));
 
-                // Skip defending the king.
-                if (dest == Piece.getValue(KING)) continue;
+        // A pawn is doubled if there is a friendly pawn behind it on the same file.
+        long whiteDoubled = white & whiteFront;
+        long blackDoubled = black & blackFront;
 
-                score -= Math.min(origin, dest) / 15 + 10;
-            }
+        int score = 0;
+        for (long passed = whitePassed; passed != 0; passed &= passed - 1) {
+            score += forwardDistance(Long.numberOfTrailingZeros(passed), true) * params.get(PASSED_PAWN_BONUS);
         }
-
-        if (scoreHash.size() >= 10000 - 1) {
-            scoreHash.remove(scoreHash.keySet().iterator().next());
+        for (long passed = blackPassed; passed != 0; passed &= passed - 1) {
+            score -= forwardDistance(Long.numberOfTrailingZeros(passed), false) * params.get(PASSED_PAWN_BONUS);
         }
-        scoreHash.put(key, score);
+        score -= (Long.bitCount(whiteIsolated) - Long.bitCount(blackIsolated)) * params.get(ISOLATED_PAWN_PENALTY);
+        score -= (Long.bitCount(whiteDoubled) - Long.bitCount(blackDoubled)) * params.get(DOUBLED_PAWN_PENALTY);
 
-        return score * scoreMultiplier;
+        if (pawnHash != null) pawnHash.store(board.getPawnKey(), score, whitePassed | blackPassed, whiteSpan, blackSpan);
+        return score;
+    }
+
+    /**
+     * Removes all the cached scores.
+     */
+    public void clear() {
+        if (cache != null) cache.clear();
+        if (pawnHash != null) pawnHash.clear();
+    }
+
+    /**
+     * @return the number of evaluations requested since the evaluator was created.
+     */
+    public long getProbes() {
+        return probes;
     }
 
-    private static final int[] CENTER_DISTANCE = { // Contains the distance from the center for all positions in the board.
-            3, 3, 3, 3, 3, 3, 3, 3,
-            3, 2, 2, 2, 2, 2, 2, 3,
-            3, 2, 1, 1, 1, 1, 2, 3,
-            3, 2, 1, 0, 0, 1, 2, 3,
-            3, 2, 1, 0, 0, 1, 2, 3,
-            3, 2, 1, 1, 1, 1, 2, 3,
-            3, 2, 2, 2, 2, 2, 2, 3,
-            3, 3, 3, 3, 3, 3, 3, 3
-    };
+    /**
+     * @return the number of evaluations found in the cache since the evaluator was created.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the score cache. Null if caching is disabled.
+     */
+    public EvalCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the pawn structure cache. Null if caching is disabled.
+     */
+    public PawnHashTable getPawnHash() {
+        return pawnHash;
+    }
+
+    /**
+     * @return the number of pawn hash lookups since the evaluator was created.
+     */
+    public long getPawnProbes() {
+        return pawnHash == null ? 0 : pawnHash.getProbes();
+    }
 
     /**
-     * @param pos the position to check.
-     * @return a bonus score for how close the given position is near the center.
+     * @return the number of pawn structures found in the pawn hash since the evaluator was created.
      */
-    private static int centerDistance(int pos) {
-        return (3 - CENTER_DISTANCE[pos]);
+    public long getPawnHits() {
+        return pawnHash == null ? 0 : pawnHash.getHits();
     }
 
     /**
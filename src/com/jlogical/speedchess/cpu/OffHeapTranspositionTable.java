@@ -0,0 +1,186 @@
+package com.jlogical.speedchess.cpu;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * A transposition table stored outside the Java heap, so tables of many gigabytes neither need a large heap nor slow down
+ * the garbage collector. Entries are grouped in buckets of four that fill one 64-byte cache line, so a probe touches a
+ * single line, and a store can keep the deepest results instead of always replacing.
+ * <p>
+ * The memory is either allocated directly or mapped from a file. Mapping from a file in a hugetlbfs mount (such as
+ * /dev/hugepages) backs the table with huge pages, which saves most of the TLB misses of probing a large table; tmpfs
+ * (/dev/shm) works too. A direct buffer is limited to 2GB, so the table is split into chunks.
+ * <p>
+ * Direct memory is capped by -XX:MaxDirectMemorySize, and old memory is only released once the garbage collector finds
+ * the buffers unreachable, so resizing a large table may briefly need room for both. Like TranspositionTable, probing
+ * and storing are not thread-safe; only clearing uses several threads.
+ */
+public class OffHeapTranspositionTable extends TranspositionTable {
+
+    private static final int SLOT_SIZE = 16; // The number of bytes used by each entry (checked key + data).
+    private static final int BUCKET_SLOTS = 4; // The number of entries in each bucket.
+    private static final int BUCKET_SIZE = SLOT_SIZE * BUCKET_SLOTS; // One cache line.
+    private static final int CHUNK_BITS = 30; // Each chunk holds 1GB.
+    private static final int BUCKETS_PER_CHUNK_BITS = CHUNK_BITS - 6; // log2(chunk size / BUCKET_SIZE).
+    private static final int ZERO_BLOCK = 1 << 20; // The number of bytes zeroed by each task of a clear.
+
+    private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(ZERO_BLOCK).asReadOnlyBuffer(); // Copied over memory to clear it.
+
+    private final Path directory; // The directory to map the table from. Null to allocate directly.
+
+    private ByteBuffer[] chunks; // The memory of the table, split into 1GB chunks.
+    private long bucketMask; // Used to map a key to a bucket. The number of buckets is always a power of two.
+
+    /**
+     * Creates a table in directly allocated memory.
+     *
+     * @param sizeMb the size of the table in megabytes. Rounded down to a power of two number of buckets.
+     */
+    public OffHeapTranspositionTable(int sizeMb) {
+        this(sizeMb, null);
+    }
+
+    /**
+     * Creates a table mapped from a temporary file in the given directory. The file is deleted once mapped, so nothing
+     * is left behind.
+     *
+     * @param sizeMb    the size of the table in megabytes. Rounded down to a power of two number of buckets.
+     * @param directory the directory to create the file in, such as a hugetlbfs or tmpfs mount. Null to allocate
+     *                  directly.
+     */
+    public OffHeapTranspositionTable(int sizeMb, Path directory) {
+        this.directory = directory;
+        allocate(sizeMb);
+    }
+
+    @Override
+    protected void allocate(int sizeMb) {
+        long buckets = Long.highestOneBit(Math.max(1L, (long) sizeMb * 1024 * 1024 / BUCKET_SIZE));
+        long bytes = buckets * BUCKET_SIZE;
+        int chunkSize = (int) Math.min(bytes, 1L << CHUNK_BITS);
+        int chunkCount = (int) (bytes / chunkSize);
+
+        chunks = null; // Let the old table be collected before allocating the new one.
+        ByteBuffer[] newChunks = new ByteBuffer[chunkCount];
+        if (directory == null) {
+            for (int i = 0; i < chunkCount; i++) newChunks[i] = alignedDirect(chunkSize);
+        } else {
+            mapChunks(newChunks, chunkSize);
+        }
+        chunks = newChunks;
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * @return a zeroed direct buffer of the given size, starting on a cache line.
+     */
+    private static ByteBuffer alignedDirect(int size) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size + BUCKET_SIZE).alignedSlice(BUCKET_SIZE);
+        buffer.limit(size);
+        return buffer.slice().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Maps every chunk from one temporary file. Mapped pages start zeroed and are only backed once first touched.
+     */
+    private void mapChunks(ByteBuffer[] chunks, int chunkSize) {
+        try {
+            Path file = Files.createTempFile(directory, "speedchess-tt", ".bin");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                for (int i = 0; i < chunks.length; i++) {
+                    chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * chunkSize, chunkSize).order(ByteOrder.nativeOrder());
+                }
+            } finally {
+                Files.delete(file); // The mapping keeps the memory alive.
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map the transposition table in " + directory, e);
+        }
+    }
+
+    @Override
+    public long probe(long key) {
+        long bucket = key & bucketMask;
+        ByteBuffer chunk = chunks[(int) (bucket >>> BUCKETS_PER_CHUNK_BITS)];
+        int offset = (int) (bucket << 6) & ((1 << CHUNK_BITS) - 1);
+        for (int slot = 0; slot < BUCKET_SLOTS; slot++, offset += SLOT_SIZE) {
+            long data = chunk.getLong(offset + 8);
+
+            // The key is stored xored with the data, so a slot torn by a concurrent write never matches.
+            if ((chunk.getLong(offset) ^ data) == key && data != EMPTY) return data;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Stores a search result. Replaces the entry for the same key if there is one, otherwise an empty slot, otherwise the
+     * shallowest entry in the bucket.
+     *
+     * @param key   the Zobrist key of the position.
+     * @param depth the depth searched, in quarter plies (0-255).
+     * @param flag  EXACT, LOWER_BOUND or UPPER_BOUND.
+     * @param score the score of the position.
+     * @param move  the encoded best move, or 0 if none.
+     */
+    @Override
+    public void store(long key, int depth, int flag, int score, int move) {
+        long bucket = key & bucketMask;
+        ByteBuffer chunk = chunks[(int) (bucket >>> BUCKETS_PER_CHUNK_BITS)];
+        int start = (int) (bucket << 6) & ((1 << CHUNK_BITS) - 1);
+
+        int target = start;
+        int shallowest = Integer.MAX_VALUE;
+        for (int offset = start; offset < start + BUCKET_SIZE; offset += SLOT_SIZE) {
+            long data = chunk.getLong(offset + 8);
+            if (data == EMPTY || (chunk.getLong(offset) ^ data) == key) {
+                target = offset;
+                break;
+            }
+            if (getDepth(data) < shallowest) {
+                shallowest = getDepth(data);
+                target = offset;
+            }
+        }
+
+        long data = pack(depth, flag, score, move);
+        chunk.putLong(target, key ^ data);
+        chunk.putLong(target + 8, data);
+    }
+
+    /**
+     * Empties every slot, splitting the memory into blocks that are zeroed in parallel.
+     */
+    @Override
+    protected void zero() {
+        int blocksPerChunk = Math.max(1, chunks[0].capacity() / ZERO_BLOCK);
+        IntStream.range(0, chunks.length * blocksPerChunk).parallel().forEach(block -> {
+            ByteBuffer chunk = chunks[block / blocksPerChunk].duplicate();
+            int length = Math.min(ZERO_BLOCK, chunk.capacity());
+            chunk.position(block % blocksPerChunk * length);
+            chunk.put(ZEROS.duplicate().limit(length));
+        });
+    }
+
+    @Override
+    protected long getSlotKey(long slot) {
+        return chunks[(int) (slot >>> (CHUNK_BITS - 4))].getLong((int) (slot << 4) & ((1 << CHUNK_BITS) - 1)) ^ getSlotData(slot);
+    }
+
+    @Override
+    protected long getSlotData(long slot) {
+        return chunks[(int) (slot >>> (CHUNK_BITS - 4))].getLong(((int) (slot << 4) & ((1 << CHUNK_BITS) - 1)) + 8);
+    }
+
+    @Override
+    public long capacity() {
+        return (bucketMask + 1) * BUCKET_SLOTS;
+    }
+}
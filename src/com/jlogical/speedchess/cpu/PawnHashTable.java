@@ -0,0 +1,112 @@
+package com.jlogical.speedchess.cpu;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size cache of pawn structure evaluations, indexed by the board's pawn key. Pawns move far less often than the
+ * other pieces, so most positions in a search share their pawn structure with a position evaluated before.
+ * <p>
+ * Each slot stores the score of the pawn structure along with the bitboards derived while scoring it, so later terms can
+ * use them without recomputing them. Entries are always replaced.
+ */
+public class PawnHashTable {
+
+    private final long[] keys; // The pawn key stored in each slot.
+    private final int[] scores; // The score of the pawn structure for white.
+    private final long[] passedPawns; // The passed pawns of both players.
+    private final long[][] attackSpans; // Every square each player's pawns could attack as they advance. [0] is white.
+    private final boolean[] used; // Whether each slot holds an entry.
+    private final int mask; // Maps a key to its slot.
+
+    private long probes; // The number of lookups.
+    private long hits; // The number of lookups that found their pawn structure.
+
+    /**
+     * Creates a PawnHashTable.
+     *
+     * @param size the number of entries. Rounded down to a power of two.
+     */
+    public PawnHashTable(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size, 1));
+        keys = new long[capacity];
+        scores = new int[capacity];
+        passedPawns = new long[capacity];
+        attackSpans = new long[2][capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Looks up a pawn structure.
+     *
+     * @param key the pawn key of the board.
+     * @return the slot holding the pawn structure. -1 if it is not in the table.
+     */
+    public int probe(long key) {
+        probes++;
+        int slot = (int) key & mask;
+        if (!used[slot] || keys[slot] != key) return -1;
+        hits++;
+        return slot;
+    }
+
+    /**
+     * Stores a pawn structure, replacing whatever was in its slot.
+     *
+     * @param key       the pawn key of the board.
+     * @param score     the score of the pawn structure for white.
+     * @param passed    the passed pawns of both players.
+     * @param whiteSpan the attack span of white's pawns.
+     * @param blackSpan the attack span of black's pawns.
+     * @return the slot the pawn structure was stored in.
+     */
+    public int store(long key, int score, long passed, long whiteSpan, long blackSpan) {
+        int slot = (int) key & mask;
+        keys[slot] = key;
+        scores[slot] = score;
+        passedPawns[slot] = passed;
+        attackSpans[0][slot] = whiteSpan;
+        attackSpans[1][slot] = blackSpan;
+        used[slot] = true;
+        return slot;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+    }
+
+    public int getScore(int slot) {
+        return scores[slot];
+    }
+
+    public long getPassedPawns(int slot) {
+        return passedPawns[slot];
+    }
+
+    /**
+     * @param slot   the slot of the pawn structure.
+     * @param player the player whose attack span to get.
+     * @return every square the player's pawns could attack as they advance.
+     */
+    public long getAttackSpan(int slot, boolean player) {
+        return attackSpans[player ? 0 : 1][slot];
+    }
+
+    public long getProbes() {
+        return probes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of entries the table can hold.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+}
@@ -0,0 +1,94 @@
+package com.jlogical.speedchess.cpu;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.board.Position;
+
+import static com.jlogical.speedchess.board.Piece.*;
+import static com.jlogical.speedchess.board.Position.PLANES;
+import static com.jlogical.speedchess.board.Position.planeIndex;
+
+/**
+ * A block of positions stored as a structure of arrays: one array of bitboards for every piece plane and one for the
+ * player to move. Evaluating a whole plane at a time keeps each loop over one contiguous array, which suits the JIT's
+ * loop vectorisation far better than walking one Board at a time.
+ */
+public class PositionBatch {
+
+    private final long[][] planes; // The bitboard of every plane for every position. [plane][position].
+    private final boolean[] whiteToMove; // Whether white is to move in each position.
+    private int size; // The number of positions in the batch.
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param capacity the maximum number of positions in the batch.
+     */
+    public PositionBatch(int capacity) {
+        planes = new long[PLANES][capacity];
+        whiteToMove = new boolean[capacity];
+    }
+
+    /**
+     * Adds a copy of the board's pieces to the end of the batch.
+     *
+     * @param board  the board to add.
+     * @param player the player to move.
+     * @return the index of the position in the batch.
+     */
+    public int add(Board board, boolean player) {
+        if (size == whiteToMove.length) throw new IllegalStateException("Batch is full");
+        for (int piece = PAWN; piece <= KING; piece++) {
+            planes[planeIndex(piece)][size] = board.getPieceBitboard(piece);
+            planes[planeIndex(-piece)][size] = board.getPieceBitboard(-piece);
+        }
+        whiteToMove[size] = player;
+        return size++;
+    }
+
+    /**
+     * Adds a copy of a snapshot's pieces to the end of the batch.
+     *
+     * @param position the position to add.
+     * @return the index of the position in the batch.
+     */
+    public int add(Position position) {
+        if (size == whiteToMove.length) throw new IllegalStateException("Batch is full");
+        for (int piece = PAWN; piece <= KING; piece++) {
+            planes[planeIndex(piece)][size] = position.getPieceBitboard(piece);
+            planes[planeIndex(-piece)][size] = position.getPieceBitboard(-piece);
+        }
+        whiteToMove[size] = position.getPlayer();
+        return size++;
+    }
+
+    /**
+     * Removes every position from the batch.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @param plane the index of the plane, from {@link Position#planeIndex}.
+     * @return the bitboards of the plane. Only the first size() elements are positions in the batch.
+     */
+    public long[] getPlane(int plane) {
+        return planes[plane];
+    }
+
+    /**
+     * @param index the index of the position.
+     * @return whether white is to move in the position.
+     */
+    public boolean isWhiteToMove(int index) {
+        return whiteToMove[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return whiteToMove.length;
+    }
+}
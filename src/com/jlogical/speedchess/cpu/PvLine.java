@@ -0,0 +1,62 @@
+package com.jlogical.speedchess.cpu;
+
+import com.jlogical.speedchess.moves.Move;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One of the best lines found by a search: a root move, its score and the moves expected to follow it.
+ */
+public class PvLine {
+
+    private final int rank; // The position of the line among the best lines, starting at 1.
+    private final int score; // The score of the line for the player to move.
+    private final int depth; // The depth the line was searched to.
+    private final List<Move> moves; // The root move followed by the expected replies.
+
+    /**
+     * Creates a line.
+     *
+     * @param rank  the position of the line among the best lines, starting at 1.
+     * @param score the score of the line for the player to move.
+     * @param depth the depth the line was searched to.
+     * @param moves the root move followed by the expected replies.
+     */
+    public PvLine(int rank, int score, int depth, List<Move> moves) {
+        this.rank = rank;
+        this.score = score;
+        this.depth = depth;
+        this.moves = Collections.unmodifiableList(new ArrayList<>(moves));
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the root move of the line.
+     */
+    public Move getMove() {
+        return moves.get(0);
+    }
+
+    public List<Move> getMoves() {
+        return moves;
+    }
+
+    public String toString() {
+        StringBuilder line = new StringBuilder();
+        for (Move move : moves) line.append(' ').append(move.toCoordinates());
+        return rank + ". " + score + " (depth " + depth + ")" + line;
+    }
+}
@@ -0,0 +1,34 @@
+package com.jlogical.speedchess.cpu;
+
+/**
+ * Counters recorded by a single searching thread. The fields are plain longs so that incrementing them is as cheap as
+ * possible; only the owning thread writes to them. Other threads may read them at any time through
+ * {@link SearchStats}, in which case the values can lag slightly behind.
+ */
+class SearchCounters {
+
+    long nodes; // Every node visited, including qNodes.
+    long qNodes; // Nodes visited past the nominal depth by the capture/check extension.
+    int selDepth; // The deepest ply reached.
+    long ttProbes; // Transposition table lookups.
+    long ttHits; // Lookups that found the position.
+    long ttCutoffs; // Hits that were deep enough to end the node without searching it.
+    long betaCutoffs; // Nodes where a move scored at least beta.
+    long firstMoveCutoffs; // Beta cutoffs caused by the first move searched.
+    long seePrunes; // Captures not searched or extended past the last layer because they lose material.
+
+    /**
+     * Sets every counter back to 0.
+     */
+    void reset() {
+        nodes = 0;
+        qNodes = 0;
+        selDepth = 0;
+        ttProbes = 0;
+        ttHits = 0;
+        ttCutoffs = 0;
+        betaCutoffs = 0;
+        firstMoveCutoffs = 0;
+        seePrunes = 0;
+    }
+}
@@ -0,0 +1,83 @@
+package com.jlogical.speedchess.cpu;
+
+/**
+ * The limits a search must stay within. The search stops at whichever limit is reached first.
+ */
+public class SearchLimits {
+
+    public static final int DEFAULT_DEPTH = 4; // The default number of turns to look ahead.
+
+    private int depth; // The number of turns to look ahead to decide the next move.
+    private long nodes; // The maximum number of nodes to search. 0 if unlimited.
+    private long time; // The maximum time to search, in milliseconds. 0 if unlimited.
+    private int multiPv; // The number of best root moves to rank and report lines for.
+
+    /**
+     * Creates limits that only stop the search at the default depth.
+     */
+    public SearchLimits() {
+        depth = DEFAULT_DEPTH;
+        nodes = 0;
+        time = 0;
+        multiPv = 1;
+    }
+
+    /**
+     * Creates a copy of the given limits.
+     *
+     * @param limits the limits to copy.
+     */
+    public SearchLimits(SearchLimits limits) {
+        depth = limits.depth;
+        nodes = limits.nodes;
+        time = limits.time;
+        multiPv = limits.multiPv;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public SearchLimits setDepth(int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public SearchLimits setNodes(long nodes) {
+        this.nodes = nodes;
+        return this;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public SearchLimits setTime(long time) {
+        this.time = time;
+        return this;
+    }
+
+    public int getMultiPv() {
+        return multiPv;
+    }
+
+    /**
+     * Sets how many of the best root moves are ranked. Each is searched to the full depth, so their scores can be
+     * compared, while the rest are only proven to be worse.
+     *
+     * @param multiPv the number of lines, at least 1.
+     * @return these limits.
+     */
+    public SearchLimits setMultiPv(int multiPv) {
+        this.multiPv = Math.max(1, multiPv);
+        return this;
+    }
+
+    public String toString() {
+        return "depth " + depth + (nodes > 0 ? ", nodes " + nodes : "") + (time > 0 ? ", time " + time + "ms" : "") + (multiPv > 1 ? ", multipv " + multiPv : "");
+    }
+}
@@ -0,0 +1,40 @@
+package com.jlogical.speedchess.cpu;
+
+import com.jlogical.speedchess.moves.Move;
+
+/**
+ * Receives information from a search as it runs. Every method is called on the searching thread, so implementations
+ * should return quickly.
+ */
+public interface SearchListener {
+
+    /**
+     * Called after each root move is searched.
+     *
+     * @param move  the root move.
+     * @param score the score of the move for the player to move.
+     * @param depth the depth being searched.
+     */
+    default void onRootMove(Move move, int score, int depth) {
+    }
+
+    /**
+     * Called after each iteration of the search finishes.
+     *
+     * @param stats    the stats of the search so far.
+     * @param bestMove the best move found so far.
+     * @param score    the score of the best move.
+     */
+    default void onIteration(SearchStats stats, Move bestMove, int score) {
+    }
+
+    /**
+     * Called once the search has finished.
+     *
+     * @param stats    the stats of the whole search.
+     * @param bestMove the move chosen. Null if no moves were possible.
+     * @param score    the score of the move chosen.
+     */
+    default void onSearchComplete(SearchStats stats, Move bestMove, int score) {
+    }
+}
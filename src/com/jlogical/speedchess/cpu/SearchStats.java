@@ -0,0 +1,198 @@
+package com.jlogical.speedchess.cpu;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A snapshot of the statistics of a search. Created by adding up the counters of every thread taking part in the search,
+ * so taking a snapshot never slows the search itself down.
+ */
+public class SearchStats {
+
+    private final long nodes; // Every node visited, including qNodes.
+    private final long qNodes; // Nodes visited past the nominal depth by the capture/check extension.
+    private final long time; // The time spent searching, in milliseconds.
+    private final long nps; // Nodes searched per second.
+    private final int depth; // The last depth fully searched.
+    private final int selDepth; // The deepest ply reached.
+    private final long ttProbes; // Transposition table lookups.
+    private final long ttHits; // Lookups that found the position.
+    private final long ttCutoffs; // Hits that ended the node without searching it.
+    private final long evalProbes; // Evaluations requested.
+    private final long evalHits; // Evaluations found in the evaluation cache.
+    private final long pawnProbes; // Pawn hash lookups.
+    private final long pawnHits; // Pawn structures found in the pawn hash.
+    private final long betaCutoffs; // Nodes where a move scored at least beta.
+    private final long firstMoveCutoffs; // Beta cutoffs caused by the first move searched.
+    private final long seePrunes; // Captures not searched or extended past the last layer because they lose material.
+    private final long[] iterationTimes; // The time each completed iteration took, in milliseconds. [0] is depth 1.
+    private final long[] iterationNodes; // The nodes each completed iteration took. [0] is depth 1.
+
+    /**
+     * Creates a snapshot by adding up the given counters.
+     *
+     * @param counters       the counters of every thread in the search.
+     * @param elapsed        the time spent searching, in nanoseconds.
+     * @param evalProbes     the evaluations requested during the search.
+     * @param evalHits       the evaluations found in the evaluation cache during the search.
+     * @param pawnProbes     the pawn hash lookups during the search.
+     * @param pawnHits       the pawn structures found in the pawn hash during the search.
+     * @param iterationTimes the time each completed iteration took, in milliseconds.
+     * @param iterationNodes the nodes each completed iteration took.
+     */
+    SearchStats(List<SearchCounters> counters, long elapsed, long evalProbes, long evalHits, long pawnProbes, long pawnHits, long[] iterationTimes, long[] iterationNodes) {
+        long nodes = 0, qNodes = 0, ttProbes = 0, ttHits = 0, ttCutoffs = 0, betaCutoffs = 0, firstMoveCutoffs = 0, seePrunes = 0;
+        int selDepth = 0;
+        for (SearchCounters c : counters) {
+            nodes += c.nodes;
+            qNodes += c.qNodes;
+            selDepth = Math.max(selDepth, c.selDepth);
+            ttProbes += c.ttProbes;
+            ttHits += c.ttHits;
+            ttCutoffs += c.ttCutoffs;
+            betaCutoffs += c.betaCutoffs;
+            firstMoveCutoffs += c.firstMoveCutoffs;
+            seePrunes += c.seePrunes;
+        }
+        this.nodes = nodes;
+        this.qNodes = qNodes;
+        this.selDepth = selDepth;
+        this.ttProbes = ttProbes;
+        this.ttHits = ttHits;
+        this.ttCutoffs = ttCutoffs;
+        this.betaCutoffs = betaCutoffs;
+        this.firstMoveCutoffs = firstMoveCutoffs;
+        this.seePrunes = seePrunes;
+        this.evalProbes = evalProbes;
+        this.evalHits = evalHits;
+        this.pawnProbes = pawnProbes;
+        this.pawnHits = pawnHits;
+        this.iterationTimes = iterationTimes;
+        this.iterationNodes = iterationNodes;
+        depth = iterationTimes.length;
+        time = elapsed / 1000000;
+        nps = elapsed > 0 ? nodes * 1000000000L / elapsed : 0;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getQNodes() {
+        return qNodes;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public long getNps() {
+        return nps;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getSelDepth() {
+        return selDepth;
+    }
+
+    public long getTtProbes() {
+        return ttProbes;
+    }
+
+    public long getTtHits() {
+        return ttHits;
+    }
+
+    public long getTtCutoffs() {
+        return ttCutoffs;
+    }
+
+    public long getEvalProbes() {
+        return evalProbes;
+    }
+
+    public long getEvalHits() {
+        return evalHits;
+    }
+
+    public long getBetaCutoffs() {
+        return betaCutoffs;
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    public long getSeePrunes() {
+        return seePrunes;
+    }
+
+    /**
+     * @return the fraction of evaluations found in the evaluation cache (0-1).
+     */
+    public double getEvalCacheHitRate() {
+        return evalProbes == 0 ? 0 : (double) evalHits / evalProbes;
+    }
+
+    public long getPawnProbes() {
+        return pawnProbes;
+    }
+
+    public long getPawnHits() {
+        return pawnHits;
+    }
+
+    /**
+     * @return the fraction of pawn hash lookups that found their pawn structure (0-1).
+     */
+    public double getPawnHashHitRate() {
+        return pawnProbes == 0 ? 0 : (double) pawnHits / pawnProbes;
+    }
+
+    /**
+     * @return the fraction of beta cutoffs caused by the first move searched (0-1). Higher means better move ordering.
+     */
+    public double getFirstMoveCutoffRate() {
+        return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+
+    /**
+     * @return how many times more nodes the last iteration took than the one before it. 0 if fewer than 2 iterations.
+     */
+    public double getEffectiveBranchingFactor() {
+        int last = iterationNodes.length - 1;
+        if (last < 1 || iterationNodes[last - 1] == 0) return 0;
+        return (double) iterationNodes[last] / iterationNodes[last - 1];
+    }
+
+    /**
+     * @return the time each completed iteration took, in milliseconds. [0] is depth 1.
+     */
+    public long[] getIterationTimes() {
+        return iterationTimes.clone();
+    }
+
+    /**
+     * @return the number of nodes each completed iteration took. [0] is depth 1.
+     */
+    public long[] getIterationNodes() {
+        return iterationNodes.clone();
+    }
+
+    /**
+     * @return the String representation of the stats, as a single info line.
+     */
+    public String toString() {
+        return "depth " + depth + " seldepth " + selDepth + " nodes " + nodes + " qnodes " + qNodes + " time " + time + " nps " + nps
+                + " tt " + ttHits + "/" + ttProbes + " (" + ttCutoffs + " cutoffs)"
+                + " eval-cache " + String.format("%.1f%%", getEvalCacheHitRate() * 100)
+                + " pawn-hash " + String.format("%.1f%%", getPawnHashHitRate() * 100)
+                + " cutoffs " + betaCutoffs + " (" + String.format("%.1f%%", getFirstMoveCutoffRate() * 100) + " first)"
+                + " see-prunes " + seePrunes
+                + " ebf " + String.format("%.2f", getEffectiveBranchingFactor())
+                + " iterations " + Arrays.toString(iterationTimes);
+    }
+}
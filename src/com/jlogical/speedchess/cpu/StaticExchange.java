@@ -0,0 +1,81 @@
+package com.jlogical.speedchess.cpu;
+
+import com.jlogical.speedchess.bitboard.Attacks;
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.board.Piece;
+import com.jlogical.speedchess.moves.Move;
+
+import static com.jlogical.speedchess.board.Piece.*;
+
+/**
+ * Static exchange evaluation. Works out the material outcome of a sequence of captures on one square without making any
+ * moves: both sides keep recapturing with their least valuable attacker, either side can stop whenever continuing would
+ * lose material, and sliding pieces lined up behind an attacker join in once it has moved (x-rays). Pins and checks are
+ * ignored. Keeps a small scratch buffer, so each searching thread needs its own.
+ */
+public class StaticExchange {
+
+    private static final int[] ATTACKER_ORDER = {PAWN, KNIGHT, BISHOP, ROOK, QUEEN, KING}; // Least valuable first.
+
+    private final int[] gains = new int[32]; // The speculative material balance after each capture in the sequence.
+
+    /**
+     * Evaluates a move by the captures that follow it on its destination square. Also works for quiet moves, where it
+     * gives how much the moved piece loses if it is left hanging.
+     *
+     * @param board  the board before the move.
+     * @param move   the move to evaluate.
+     * @param player the player making the move.
+     * @return the material the player wins (positive) or loses (negative) with best play from both sides.
+     */
+    public int evaluate(Board board, Move move, boolean player) {
+        if (move.isLeftCastle() || move.isRightCastle()) return 0;
+
+        int to = move.getTo();
+        long fromSet = 1L << move.getFrom();
+        long occupied = ~board.getEmptyTiles();
+        long attackers = board.attackersTo(to, occupied);
+        long sliders = board.pawns[0] | board.pawns[1] | board.bishops[0] | board.bishops[1]
+                | board.rooks[0] | board.rooks[1] | board.queens[0] | board.queens[1]; // Pieces that can reveal an x-ray.
+        long rooksAndQueens = board.rooks[0] | board.rooks[1] | board.queens[0] | board.queens[1];
+        long bishopsAndQueens = board.bishops[0] | board.bishops[1] | board.queens[0] | board.queens[1];
+
+        // The piece standing on the square, which the next capture would win.
+        int promotion = Math.abs(move.getPromotionPiece());
+        int onSquare = promotion != 0 ? promotion : Math.abs(move.getPieceType());
+        int depth = 0;
+        gains[0] = move.getCapturedPiece() == 0 ? 0 : Piece.getValue(move.getCapturedPiece());
+        if (promotion != 0) gains[0] += Piece.getValue(promotion) - Piece.getValue(PAWN);
+
+        boolean side = player;
+        do {
+            depth++;
+            side = !side;
+            gains[depth] = Piece.getValue(onSquare) - gains[depth - 1];
+
+            attackers &= ~fromSet;
+            occupied &= ~fromSet;
+            if ((fromSet & sliders) != 0) {
+                attackers |= ((Attacks.rook(to, occupied) & rooksAndQueens) | (Attacks.bishop(to, occupied) & bishopsAndQueens)) & occupied;
+            }
+
+            // Recapture with the least valuable attacker.
+            fromSet = 0;
+            long own = attackers & board.getPieces(side);
+            for (int type : ATTACKER_ORDER) {
+                long pieces = own & board.getPieceBitboard(side ? type : -type);
+                if (pieces != 0) {
+                    fromSet = pieces & -pieces;
+                    onSquare = type;
+                    break;
+                }
+            }
+        } while (fromSet != 0 && depth < gains.length - 1);
+
+        // Walk back up the sequence, letting each side stop capturing if that is better for it.
+        while (--depth > 0) {
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+        }
+        return gains[0];
+    }
+}
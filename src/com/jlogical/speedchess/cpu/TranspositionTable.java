@@ -0,0 +1,298 @@
+package com.jlogical.speedchess.cpu;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.jfr.Recording;
+import com.jlogical.speedchess.jfr.TranspositionTableEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * A fixed-size hash table of search results, indexed by Zobrist key. Each entry is packed into a single long so probing
+ * never allocates. Not thread-safe; each engine owns its own table.
+ */
+public class TranspositionTable {
+
+    /**
+     * The kinds of scores an entry can hold.
+     */
+    public static final int EXACT = 0; // The score is the exact minimax score.
+    public static final int LOWER_BOUND = 1; // The search failed high, so the score is at least this much.
+    public static final int UPPER_BOUND = 2; // The search failed low, so the score is at most this much.
+
+    public static final long EMPTY = 0L; // The value returned when probing a key that is not stored.
+
+    private static final long VALID = 1L << 63; // Set on every stored entry so a stored entry is never EMPTY.
+    private static final int ENTRY_SIZE = 16; // The number of bytes used by each entry (key + data).
+
+    /**
+     * The layout of a snapshot file.
+     */
+    private static final int MAGIC = 0x54544353; // "SCTT" in little-endian, at the start of every snapshot.
+    private static final int VERSION = 1; // The version of the snapshot format. Changes whenever the packing of an entry does.
+    private static final int HEADER_SIZE = 32; // Magic, version, key check, entry count and checksum.
+    private static final int WINDOW_SIZE = 1 << 30; // The most bytes of entries mapped at once.
+
+    private long[] keys; // The full key stored in each slot. Used to verify a probe.
+    private long[] entries; // The packed data stored in each slot.
+    private int mask; // Used to map a key to a slot. The number of slots is always a power of two.
+
+    /**
+     * Creates a transposition table.
+     *
+     * @param sizeMb the size of the table in megabytes. Rounded down to a power of two number of entries.
+     */
+    public TranspositionTable(int sizeMb) {
+        allocate(sizeMb);
+    }
+
+    /**
+     * Creates a table without allocating it, for subclasses that store their entries elsewhere. They must allocate
+     * themselves and override every method that touches the entries.
+     */
+    protected TranspositionTable() {
+    }
+
+    /**
+     * Replaces the table with an empty one of the given size.
+     *
+     * @param sizeMb the new size of the table in megabytes.
+     */
+    public void resize(int sizeMb) {
+        if (!Recording.isActive()) {
+            allocate(sizeMb);
+            return;
+        }
+        TranspositionTableEvent event = new TranspositionTableEvent();
+        event.begin();
+        allocate(sizeMb);
+        event.end();
+        if (event.shouldCommit()) {
+            event.action = TranspositionTableEvent.RESIZE;
+            event.capacity = capacity();
+            event.commit();
+        }
+    }
+
+    /**
+     * Allocates an empty table of the given size, replacing the current one.
+     *
+     * @param sizeMb the size of the table in megabytes.
+     */
+    protected void allocate(int sizeMb) {
+        long slots = Math.max(1L, (long) sizeMb * 1024 * 1024 / ENTRY_SIZE);
+        int size = (int) Long.highestOneBit(Math.min(slots, 1 << 30));
+        keys = null; // Let the old table be collected before allocating the new one.
+        entries = null;
+        keys = new long[size];
+        entries = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @param key the Zobrist key of the position to look up.
+     * @return the packed entry for the key, or EMPTY if the key is not stored.
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        return keys[index] == key ? entries[index] : EMPTY;
+    }
+
+    /**
+     * Stores a search result, replacing whatever was in its slot.
+     *
+     * @param key   the Zobrist key of the position.
+     * @param depth the depth searched, in quarter plies (0-255).
+     * @param flag  EXACT, LOWER_BOUND or UPPER_BOUND.
+     * @param score the score of the position.
+     * @param move  the encoded best move, or 0 if none.
+     */
+    public void store(long key, int depth, int flag, int score, int move) {
+        int index = (int) key & mask;
+        keys[index] = key;
+        entries[index] = pack(depth, flag, score, move);
+    }
+
+    /**
+     * Removes every entry from the table.
+     */
+    public void clear() {
+        if (!Recording.isActive()) {
+            zero();
+            return;
+        }
+        TranspositionTableEvent event = new TranspositionTableEvent();
+        event.begin();
+        zero();
+        event.end();
+        if (event.shouldCommit()) {
+            event.action = TranspositionTableEvent.CLEAR;
+            event.capacity = capacity();
+            event.commit();
+        }
+    }
+
+    /**
+     * Empties every slot of the table.
+     */
+    protected void zero() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(entries, EMPTY);
+    }
+
+    /**
+     * @return the number of entries the table can hold.
+     */
+    public long capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @param slot the index of the slot, less than capacity().
+     * @return the key stored in the slot. Only meaningful if its data is not EMPTY.
+     */
+    protected long getSlotKey(long slot) {
+        return keys[(int) slot];
+    }
+
+    /**
+     * @param slot the index of the slot, less than capacity().
+     * @return the packed data stored in the slot, or EMPTY.
+     */
+    protected long getSlotData(long slot) {
+        return entries[(int) slot];
+    }
+
+    /**
+     * Saves every entry to a snapshot file that load() can warm start a table from, of any size. The entries are written
+     * through a memory mapping, followed by a CRC32C checksum of them, and the header is written last so a snapshot cut
+     * short is never mistaken for a complete one.
+     * <p>
+     * The little-endian header holds the magic number and version as ints, the key of the starting position (so snapshots
+     * from a different Zobrist scheme are rejected), the entry count and the checksum as longs. Each entry is a key and its
+     * packed data as longs.
+     *
+     * @param path the file to write. Replaced if it exists.
+     * @throws IOException if the file could not be written.
+     */
+    public void save(Path path) throws IOException {
+        long count = 0;
+        for (long slot = 0; slot < capacity(); slot++) {
+            if (getSlotData(slot) != EMPTY) count++;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            CRC32C checksum = new CRC32C();
+            long slot = 0;
+            for (long written = 0; written < count; ) {
+                long entries = Math.min(count - written, WINDOW_SIZE / ENTRY_SIZE);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + written * ENTRY_SIZE, entries * ENTRY_SIZE);
+                window.order(ByteOrder.LITTLE_ENDIAN);
+                while (window.hasRemaining()) {
+                    long data = getSlotData(slot);
+                    if (data != EMPTY) window.putLong(getSlotKey(slot)).putLong(data);
+                    slot++;
+                }
+                checksum.update(window.flip());
+                window.force();
+                written += entries;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(keyCheck()).putLong(count).putLong(checksum.getValue()).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Replaces the contents of the table with a snapshot written by save(). The whole file is checked before the table
+     * is touched, so a snapshot that is not valid leaves the table as it was. If the table is smaller than the snapshot,
+     * entries that collide are dropped as in a search.
+     *
+     * @param path the file to read.
+     * @throws IOException if the file could not be read, is not a snapshot, is from an incompatible version or is
+     *                     corrupt.
+     */
+    public void load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) ;
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) throw new IOException("Not a transposition table snapshot: " + path);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported transposition table snapshot version " + version + ": " + path);
+            if (header.getLong() != keyCheck()) throw new IOException("Transposition table snapshot uses different Zobrist keys: " + path);
+            long count = header.getLong();
+            long expected = header.getLong();
+            if (count < 0 || channel.size() != HEADER_SIZE + count * ENTRY_SIZE) throw new IOException("Transposition table snapshot has the wrong size: " + path);
+
+            // Check every entry before replacing anything.
+            CRC32C checksum = new CRC32C();
+            for (long offset = HEADER_SIZE; offset < channel.size(); offset += WINDOW_SIZE) {
+                checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, channel.size() - offset)));
+            }
+            if (checksum.getValue() != expected) throw new IOException("Transposition table snapshot is corrupt: " + path);
+
+            clear();
+            for (long offset = HEADER_SIZE; offset < channel.size(); offset += WINDOW_SIZE) {
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, channel.size() - offset)).order(ByteOrder.LITTLE_ENDIAN);
+                while (window.hasRemaining()) {
+                    long key = window.getLong();
+                    long data = window.getLong();
+                    store(key, getDepth(data), getFlag(data), getScore(data), getMove(data));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the key of the starting position, which changes if the Zobrist keys ever do.
+     */
+    private static long keyCheck() {
+        return ZobristKey.getKeyForBoard(new Board(null), true);
+    }
+
+    /**
+     * @return the packed form of the given entry fields.
+     */
+    public static long pack(int depth, int flag, int score, int move) {
+        return (score & 0xFFFFFFFFL) | (long) (move & 0xFFFF) << 32 | (long) (depth & 0xFF) << 48 | (long) (flag & 0x3) << 56 | VALID;
+    }
+
+    /**
+     * @return the score of a packed entry.
+     */
+    public static int getScore(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * @return the encoded best move of a packed entry.
+     */
+    public static int getMove(long entry) {
+        return (int) (entry >>> 32) & 0xFFFF;
+    }
+
+    /**
+     * @return the depth of a packed entry, in quarter plies.
+     */
+    public static int getDepth(long entry) {
+        return (int) (entry >>> 48) & 0xFF;
+    }
+
+    /**
+     * @return the flag of a packed entry.
+     */
+    public static int getFlag(long entry) {
+        return (int) (entry >>> 56) & 0x3;
+    }
+}
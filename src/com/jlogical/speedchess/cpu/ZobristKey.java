@@ -81,6 +81,65 @@ public class ZobristKey {
         return getKeyForSquare(move.getFrom(), board.getPiece(move.getFrom())) ^ getKeyForSquare(move.getTo(), board.getPiece(move.getFrom()));
     }
 
+    /**
+     * @param board the board to get the key from.
+     * @return the key of only the pawns on the board. Positions with the same pawns share the same pawn key.
+     */
+    public static long getPawnKeyForBoard(Board board) {
+        long key = 0;
+        for (int player = 0; player < 2; player++) {
+            long pawns = board.pawns[player];
+            while (pawns != 0) {
+                key ^= pawn[player][Long.numberOfTrailingZeros(pawns)];
+                pawns &= pawns - 1;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Returns the change to the pawn key caused by a move. Making and unmaking a move both change the key by the same
+     * amount.
+     *
+     * @param move the move to get the key from.
+     * @return the key to xor into the pawn key.
+     */
+    public static long getPawnKeyForMove(Move move) {
+        long key = 0;
+        if (Math.abs(move.getPieceType()) == PAWN) {
+            key ^= getKeyForSquare(move.getFrom(), move.getPieceType());
+            if (move.getPromotionPiece() == 0) key ^= getKeyForSquare(move.getTo(), move.getPieceType());
+        }
+        if (Math.abs(move.getCapturedPiece()) == PAWN) key ^= getKeyForSquare(move.getTo(), move.getCapturedPiece());
+        return key;
+    }
+
+    /**
+     * Returns the change to the key of a board caused by a move, without the player to move. Making and unmaking a move
+     * both change the key by the same amount.
+     *
+     * @param move   the move to get the key from.
+     * @param player the player making the move.
+     * @return the key to xor into the board's key.
+     */
+    public static long getKeyChangeForMove(Move move, boolean player) {
+        int pieceType = move.getPieceType();
+        int to = move.getTo();
+        long key = getKeyForSquare(move.getFrom(), pieceType);
+        key ^= getKeyForSquare(to, move.getPromotionPiece() != 0 ? move.getPromotionPiece() : pieceType);
+        if (move.getCapturedPiece() != 0) key ^= getKeyForSquare(to, move.getCapturedPiece());
+
+        // The rook moves too when castling.
+        int rook = player ? ROOK : -ROOK;
+        int back = player ? 0 : 56; // The first square of the player's back rank.
+        if (move.isRightCastle()) key ^= getKeyForSquare(back + 7, rook) ^ getKeyForSquare(back + 5, rook);
+        if (move.isLeftCastle()) key ^= getKeyForSquare(back, rook) ^ getKeyForSquare(back + 3, rook);
+
+        if (move.isDisableRightCastle()) key ^= player ? whiteRightCastling : blackRightCastling;
+        if (move.isDisableLeftCastle()) key ^= player ? whiteLeftCastling : blackLeftCastling;
+        return key;
+    }
+
     /**
      * @param board the board to get the key from.
      * @param isWhite whether the player is white.
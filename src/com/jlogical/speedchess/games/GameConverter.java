@@ -0,0 +1,104 @@
+package com.jlogical.speedchess.games;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts game files between PGN and the binary game record format.
+ */
+public class GameConverter {
+
+    private GameConverter() {
+    }
+
+    /**
+     * Converts every game of a PGN file to a game record file. Games with moves that cannot be played are reported and
+     * left out.
+     *
+     * @param pgn the PGN file to read.
+     * @param out the game record file to write.
+     * @return the number of games converted.
+     * @throws IOException if a file could not be read or written.
+     */
+    public static long pgnToRecords(Path pgn, Path out) throws IOException {
+        try (Reader reader = Files.newBufferedReader(pgn, StandardCharsets.UTF_8); OutputStream stream = Files.newOutputStream(out)) {
+            PgnReader in = new PgnReader(reader);
+            GameWriter writer = new GameWriter(stream);
+            while (true) {
+                GameRecord game;
+                try {
+                    game = in.next();
+                } catch (IOException e) {
+                    System.err.println("Skipped: " + e.getMessage());
+                    continue;
+                }
+                if (game == null) break;
+                writer.write(game);
+            }
+            writer.flush();
+            return writer.getGameCount();
+        }
+    }
+
+    /**
+     * Converts every game of a game record file to PGN.
+     *
+     * @param records the game record file to read.
+     * @param out     the PGN file to write.
+     * @return the number of games converted.
+     * @throws IOException if a file could not be read or written, or the game record file is corrupt.
+     */
+    public static long recordsToPgn(Path records, Path out) throws IOException {
+        try (InputStream stream = Files.newInputStream(records); Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            GameReader reader = new GameReader(stream);
+            PgnWriter pgn = new PgnWriter(writer);
+            GameRecord game;
+            while ((game = reader.read()) != null) pgn.write(game);
+            pgn.flush();
+            return reader.getGameCount();
+        }
+    }
+
+    /**
+     * Converts a file from the command line. Files ending in .pgn are converted to game records and anything else is
+     * converted to PGN.
+     * <p>
+     * Usage: GameConverter -in file -out file
+     */
+    public static void main(String[] args) throws IOException {
+        Path in = null;
+        Path out = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-in":
+                    in = Paths.get(args[++i]);
+                    break;
+                case "-out":
+                    out = Paths.get(args[++i]);
+                    break;
+                default:
+                    in = null;
+                    i = args.length;
+                    break;
+            }
+        }
+        if (in == null || out == null) {
+            System.out.println("Usage: GameConverter -in file -out file");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean fromPgn = in.getFileName().toString().toLowerCase().endsWith(".pgn");
+        long games = fromPgn ? pgnToRecords(in, out) : recordsToPgn(in, out);
+        long time = Math.max(1, (System.nanoTime() - start) / 1000000);
+        System.out.println(String.format("Converted %,d games in %,d ms (%,.0f games per second), %,d bytes -> %,d bytes",
+                games, time, games * 1000.0 / time, Files.size(in), Files.size(out)));
+    }
+}
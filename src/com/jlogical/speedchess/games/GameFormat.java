@@ -0,0 +1,54 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.moves.MoveGenerator;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The layout of a game record file, shared by {@link GameWriter} and {@link GameReader}.
+ * <p>
+ * A file starts with the magic number and the version as a big-endian int and a byte. Then each game is:
+ * <ul>
+ *     <li>the length of the rest of the game in bytes, as a varint, so a game can be skipped without replaying it</li>
+ *     <li>the result: 0 if unfinished, otherwise the GameResult ordinal + 1</li>
+ *     <li>a flags byte saying whether a starting FEN and tags follow, and how the moves are stored</li>
+ *     <li>the starting FEN as a string, if flagged</li>
+ *     <li>the number of tags as a varint, then each name and value as strings, if flagged</li>
+ *     <li>the number of moves as a varint</li>
+ *     <li>one byte per move: its index in the legal moves of the position, sorted by Move.encode() so the indices do
+ *     not depend on the order MoveGenerator generates them in. Or, if flagged as packed, two big-endian bytes per move:
+ *     the move as returned by Move.encode()</li>
+ * </ul>
+ * Indices take half the space, but reading them back generates every legal move of every position. Packed moves are
+ * rebuilt straight from the board, so they are much faster to read. Both are checked to be legal when written.
+ * <p>
+ * Varints hold 7 bits per byte, lowest first, with the top bit set on every byte but the last. Strings are a varint
+ * length followed by that many bytes of UTF-8.
+ */
+final class GameFormat {
+
+    static final int MAGIC = 0x53434752; // "SCGR", at the start of every file.
+    static final int VERSION = 2; // The version of the format. Changes whenever the layout of a game does. 2 sorts the legal moves.
+
+    static final int HAS_FEN = 1; // Set in the flags if the game does not start from the standard position.
+    static final int HAS_TAGS = 2; // Set in the flags if the game has tags.
+    static final int PACKED_MOVES = 4; // Set in the flags if the moves are stored as two-byte encoded moves instead of indices.
+
+    static final int MAX_MOVES = 256; // A move index must fit in a byte.
+
+    private GameFormat() {
+    }
+
+    /**
+     * @return the legal moves of the board in the order move indices refer to, sorted by their encoding. Generated fresh,
+     * since the cached movesets are reordered by searches.
+     */
+    static List<Move> legalMoves(Board board, boolean player) {
+        List<Move> moves = MoveGenerator.generateMoves(board, player, true).getMoves();
+        moves.sort(Comparator.comparingInt(Move::encode));
+        return moves;
+    }
+}
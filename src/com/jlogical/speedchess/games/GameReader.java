@@ -0,0 +1,221 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.host.GameResult;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.moves.MoveGenerator;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads games written by a {@link GameWriter}, one at a time, replaying each through a Board. Games are passed to a
+ * {@link GameVisitor} move by move, so a file of any size can be read without holding more than one game in memory.
+ * Not thread-safe.
+ */
+public class GameReader implements Closeable {
+
+    private static final GameResult[] RESULTS = GameResult.values();
+
+    private final DataInputStream in; // The stream games are read from.
+    private byte[] game; // The bytes of the game being read.
+    private int position; // The next byte of the game to read.
+    private int limit; // The end of the game's bytes.
+    private long gameCount; // The number of games read or skipped.
+
+    /**
+     * Creates a reader and checks the file header.
+     *
+     * @param in the stream to read from. Buffered by the reader.
+     * @throws IOException if the header could not be read or is not a game record header.
+     */
+    public GameReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        game = new byte[1024];
+        try {
+            if (this.in.readInt() != GameFormat.MAGIC) throw new IOException("Not a game record file");
+            int version = this.in.readUnsignedByte();
+            if (version != GameFormat.VERSION) throw new IOException("Unsupported game record version " + version);
+        } catch (EOFException e) {
+            throw new IOException("Not a game record file", e);
+        }
+    }
+
+    /**
+     * Replays the next game, passing it to the visitor.
+     *
+     * @param visitor receives the game.
+     * @return false if there are no more games.
+     * @throws IOException if the game could not be read or is corrupt.
+     */
+    public boolean next(GameVisitor visitor) throws IOException {
+        if (!readGame()) return false;
+
+        int code = readByte();
+        if (code > RESULTS.length) throw corrupt("unknown result " + code);
+        GameResult result = code == 0 ? null : RESULTS[code - 1];
+        int flags = readByte();
+        String fen = (flags & GameFormat.HAS_FEN) != 0 ? readString() : null;
+        Map<String, String> tags = Collections.emptyMap();
+        if ((flags & GameFormat.HAS_TAGS) != 0) {
+            int count = readVarint();
+            tags = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) tags.put(readString(), readString());
+        }
+
+        int moveCount = readVarint();
+        boolean packed = (flags & GameFormat.PACKED_MOVES) != 0;
+        int moveSize = packed ? 2 : 1;
+        if ((long) moveCount * moveSize != limit - position) throw corrupt("expected " + moveCount + " moves but found " + (limit - position) / moveSize);
+
+        Board board;
+        try {
+            board = new Board(fen);
+        } catch (RuntimeException e) {
+            throw corrupt("bad starting position " + fen);
+        }
+        boolean player = board.getCurrPlayer();
+        visitor.onStart(board, fen, result, tags);
+        for (int i = 0; i < moveCount; i++) {
+            Move move = packed ? readPackedMove(board, player, i) : readIndexedMove(board, player, i);
+            visitor.onMove(board, move, player);
+            board.makeMove(move, player);
+            player = !player;
+            board.setCurrPlayer(player);
+        }
+        visitor.onEnd(board, result);
+        return true;
+    }
+
+    /**
+     * @return the move at the next legal move index.
+     */
+    private Move readIndexedMove(Board board, boolean player, int ply) throws IOException {
+        List<Move> legal = GameFormat.legalMoves(board, player);
+        int index = readByte();
+        if (index >= legal.size()) throw corrupt("move " + (ply + 1) + " is index " + index + " of " + legal.size() + " legal moves");
+        return legal.get(index);
+    }
+
+    /**
+     * @return the next packed move. Only checked to move a piece of the player.
+     */
+    private Move readPackedMove(Board board, boolean player, int ply) throws IOException {
+        int encoded = readByte() << 8 | readByte();
+        int piece = board.getPiece(encoded & 63);
+        if (piece == 0 || piece > 0 != player) throw corrupt("move " + (ply + 1) + " does not move a piece of the player to move");
+        return MoveGenerator.decodeMove(board, encoded);
+    }
+
+    /**
+     * Reads the next game into memory.
+     *
+     * @return the game, or null if there are no more games.
+     * @throws IOException if the game could not be read or is corrupt.
+     */
+    public GameRecord read() throws IOException {
+        GameRecord[] record = new GameRecord[1];
+        boolean found = next(new GameVisitor() {
+            @Override
+            public void onStart(Board board, String fen, GameResult result, Map<String, String> tags) {
+                record[0] = new GameRecord(fen).setResult(result);
+                for (Map.Entry<String, String> tag : tags.entrySet()) record[0].setTag(tag.getKey(), tag.getValue());
+            }
+
+            @Override
+            public void onMove(Board board, Move move, boolean player) {
+                record[0].addMove(move);
+            }
+        });
+        return found ? record[0] : null;
+    }
+
+    /**
+     * Skips the next game without replaying it.
+     *
+     * @return false if there are no more games.
+     * @throws IOException if the game could not be read.
+     */
+    public boolean skip() throws IOException {
+        return readGame();
+    }
+
+    /**
+     * @return the number of games read or skipped.
+     */
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads the bytes of the next game into the buffer.
+     *
+     * @return false if the stream ended before the game started.
+     */
+    private boolean readGame() throws IOException {
+        int first = in.read();
+        if (first < 0) return false;
+        gameCount++;
+
+        int length = first & 0x7F;
+        try {
+            for (int shift = 7; (first & 0x80) != 0; shift += 7) {
+                if (shift > 28) throw corrupt("bad length");
+                first = in.readUnsignedByte();
+                length |= (first & 0x7F) << shift;
+            }
+            if (length < 0) throw corrupt("bad length");
+            if (length > game.length) game = new byte[Math.max(length, game.length * 2)];
+            in.readFully(game, 0, length);
+        } catch (EOFException e) {
+            throw corrupt("the file ends in the middle of it");
+        }
+        position = 0;
+        limit = length;
+        return true;
+    }
+
+    private int readByte() throws IOException {
+        if (position >= limit) throw corrupt("it ends too early");
+        return game[position++] & 0xFF;
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift <= 28; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw corrupt("bad varint");
+    }
+
+    private String readString() throws IOException {
+        int length = readVarint();
+        if (length < 0 || length > limit - position) throw corrupt("bad string length " + length);
+        String value = new String(game, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * @return an exception saying that the current game is corrupt.
+     */
+    private IOException corrupt(String reason) {
+        return new IOException("Game " + gameCount + " is corrupt: " + reason);
+    }
+}
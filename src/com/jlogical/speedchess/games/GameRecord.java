@@ -0,0 +1,95 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.host.GameResult;
+import com.jlogical.speedchess.moves.Move;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A whole game held in memory: where it started, the moves played, how it ended and any tags such as the players'
+ * names. Used to convert between formats. Streaming through a {@link GameReader} avoids building one per game.
+ */
+public class GameRecord {
+
+    private final String fen; // The FEN code of the starting position. Null for the standard starting position.
+    private final List<Move> moves; // The moves played, in order.
+    private final Map<String, String> tags; // Extra information about the game, in the order it was added.
+    private GameResult result; // How the game ended. Null if it did not finish.
+
+    /**
+     * Creates a game with no moves.
+     *
+     * @param fen the FEN code of the starting position. Null for the standard starting position.
+     */
+    public GameRecord(String fen) {
+        this.fen = fen;
+        moves = new ArrayList<>();
+        tags = new LinkedHashMap<>();
+    }
+
+    /**
+     * Creates a game from the moves made on a board.
+     *
+     * @param fen    the FEN code the board was created with. Null for the standard starting position.
+     * @param board  the board the game was played on.
+     * @param result how the game ended. Null if it did not finish.
+     * @return the game.
+     */
+    public static GameRecord of(String fen, Board board, GameResult result) {
+        GameRecord game = new GameRecord(fen).setResult(result);
+        List<Move> history = board.getMoveHistory();
+        for (int i = 1; i < history.size(); i++) game.addMove(history.get(i)); // The first move is a placeholder.
+        return game;
+    }
+
+    /**
+     * @return a new board set up at the starting position of the game.
+     */
+    public Board createBoard() {
+        return new Board(fen);
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    public List<Move> getMoves() {
+        return Collections.unmodifiableList(moves);
+    }
+
+    public GameRecord addMove(Move move) {
+        moves.add(move);
+        return this;
+    }
+
+    public GameResult getResult() {
+        return result;
+    }
+
+    public GameRecord setResult(GameResult result) {
+        this.result = result;
+        return this;
+    }
+
+    public Map<String, String> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * @param name the name of the tag.
+     * @return the value of the tag, or null if it is not set.
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public GameRecord setTag(String name, String value) {
+        tags.put(name, value);
+        return this;
+    }
+}
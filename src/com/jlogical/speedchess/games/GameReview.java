@@ -0,0 +1,283 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.Engine;
+import com.jlogical.speedchess.cpu.Evaluator;
+import com.jlogical.speedchess.cpu.Pair;
+import com.jlogical.speedchess.cpu.SearchLimits;
+import com.jlogical.speedchess.moves.Move;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Analyses every position of a game with one engine and flags the moves that lost the most score. The engine's
+ * transposition table and caches are kept between positions, so each search starts from what the searches of the
+ * neighbouring positions found. The engine's limits are the budget for each position.
+ * <p>
+ * Positions can be analysed from the last to the first. The refutations found late in the game are then already in the
+ * table when the earlier positions that lead to them are searched.
+ */
+public class GameReview {
+
+    public static final int DEFAULT_INACCURACY = 50; // The default score drop of an inaccuracy, in centipawns.
+    public static final int DEFAULT_MISTAKE = 100; // The default score drop of a mistake.
+    public static final int DEFAULT_BLUNDER = 250; // The default score drop of a blunder.
+
+    private final Engine engine; // Analyses the positions. Its limits are the budget of each position.
+    private boolean backward; // Whether positions are analysed from the last to the first.
+    private boolean independent; // Whether everything learned is cleared before each position, as separate searches would.
+    private int inaccuracy; // The smallest score drop of an inaccuracy.
+    private int mistake; // The smallest score drop of a mistake.
+    private int blunder; // The smallest score drop of a blunder.
+    private long nodes; // The nodes searched by the last review.
+
+    /**
+     * Creates a review.
+     *
+     * @param engine the engine to analyse with. Its limits are the budget of each position.
+     */
+    public GameReview(Engine engine) {
+        this.engine = engine;
+        inaccuracy = DEFAULT_INACCURACY;
+        mistake = DEFAULT_MISTAKE;
+        blunder = DEFAULT_BLUNDER;
+    }
+
+    /**
+     * Analyses every position of a game, including the one after the last move, so the last move can be judged too.
+     *
+     * @param game the game to review. Its moves must be legal.
+     * @return every move of the game with its judgement, in the order they were played.
+     */
+    public List<ReviewedMove> review(GameRecord game) {
+        List<Move> moves = game.getMoves();
+        int count = moves.size() + 1;
+        int[] scores = new int[count]; // The score of each position for the player to move.
+        Move[] bestMoves = new Move[count];
+        String[] bestSans = new String[count];
+        int[] depths = new int[count];
+        long[] searched = new long[count];
+        nodes = 0;
+
+        if (!backward) {
+            // Walk one board through the game.
+            Board board = game.createBoard();
+            boolean player = board.getCurrPlayer();
+            for (int ply = 0; ply < count; ply++) {
+                analyze(board, player, ply, scores, bestMoves, bestSans, depths, searched);
+                if (ply < moves.size()) {
+                    board.makeMove(moves.get(ply), player);
+                    player = !player;
+                    board.setCurrPlayer(player);
+                }
+            }
+        } else {
+            // Play the whole game once, then unmake it move by move.
+            Board board = game.createBoard();
+            boolean player = board.getCurrPlayer();
+            for (Move move : moves) {
+                board.makeMove(move, player);
+                player = !player;
+            }
+            for (int ply = count - 1; ply >= 0; ply--) {
+                board.setCurrPlayer(player);
+                analyze(board, player, ply, scores, bestMoves, bestSans, depths, searched);
+                if (ply > 0) {
+                    player = !player;
+                    board.unmakeMove(player);
+                }
+            }
+        }
+
+        // Judge each move by comparing the best score with the score of the position it led to.
+        List<ReviewedMove> reviewed = new ArrayList<>();
+        Board board = game.createBoard();
+        boolean player = board.getCurrPlayer();
+        for (int ply = 0; ply < moves.size(); ply++) {
+            Move move = moves.get(ply);
+            boolean best = bestMoves[ply] != null && bestMoves[ply].encode() == move.encode();
+            int playedScore = best ? scores[ply] : -scores[ply + 1];
+            int drop = Math.max(0, scores[ply] - playedScore);
+            reviewed.add(new ReviewedMove(ply, player, San.toSan(board, move, player), bestSans[ply], scores[ply], playedScore, judge(drop),
+                    depths[ply], searched[ply]));
+            board.makeMove(move, player);
+            player = !player;
+        }
+        return reviewed;
+    }
+
+    /**
+     * Analyses a single position and stores the results at its ply.
+     */
+    private void analyze(Board board, boolean player, int ply, int[] scores, Move[] bestMoves, String[] bestSans, int[] depths, long[] searched) {
+        if (independent) engine.newGame();
+        Pair<Move, Integer> result = engine.analyze(board, player);
+        nodes += engine.getNodeCount();
+        searched[ply] = engine.getNodeCount();
+        if (result == null) {
+            scores[ply] = Evaluator.terminalScore(board.inCheck(player));
+            return;
+        }
+        scores[ply] = result.getSecond();
+        bestMoves[ply] = result.getFirst();
+        bestSans[ply] = San.toSan(board, result.getFirst(), player);
+        depths[ply] = engine.getStats().getDepth();
+    }
+
+    /**
+     * @return the judgement of a move that lost the given score.
+     */
+    private ReviewedMove.Judgement judge(int drop) {
+        if (drop >= blunder) return ReviewedMove.Judgement.BLUNDER;
+        if (drop >= mistake) return ReviewedMove.Judgement.MISTAKE;
+        if (drop >= inaccuracy) return ReviewedMove.Judgement.INACCURACY;
+        return ReviewedMove.Judgement.GOOD;
+    }
+
+    public boolean isBackward() {
+        return backward;
+    }
+
+    public GameReview setBackward(boolean backward) {
+        this.backward = backward;
+        return this;
+    }
+
+    public boolean isIndependent() {
+        return independent;
+    }
+
+    /**
+     * @param independent whether to clear everything learned before each position. Only useful to measure how much
+     *                    keeping the engine's state between positions saves.
+     * @return this review.
+     */
+    public GameReview setIndependent(boolean independent) {
+        this.independent = independent;
+        return this;
+    }
+
+    /**
+     * Sets the smallest score drops of each judgement, in centipawns.
+     *
+     * @param inaccuracy the smallest drop of an inaccuracy.
+     * @param mistake    the smallest drop of a mistake.
+     * @param blunder    the smallest drop of a blunder.
+     * @return this review.
+     */
+    public GameReview setThresholds(int inaccuracy, int mistake, int blunder) {
+        this.inaccuracy = inaccuracy;
+        this.mistake = mistake;
+        this.blunder = blunder;
+        return this;
+    }
+
+    /**
+     * @return the nodes searched by the last review.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Reviews games from the command line. Files ending in .pgn are read as PGN and anything else as game records.
+     * <p>
+     * Usage: GameReview -in games [-game n] [-depth d] [-nodes n] [-time ms] [-hash mb] [-backward] [-independent]
+     */
+    public static void main(String[] args) throws IOException {
+        Path in = null;
+        int gameNumber = 0;
+        SearchLimits limits = new SearchLimits().setDepth(6);
+        int hashSize = Engine.DEFAULT_HASH_SIZE;
+        boolean backward = false;
+        boolean independent = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-in":
+                    in = Paths.get(args[++i]);
+                    break;
+                case "-game":
+                    gameNumber = Integer.parseInt(args[++i]);
+                    break;
+                case "-depth":
+                    limits.setDepth(Integer.parseInt(args[++i]));
+                    break;
+                case "-nodes":
+                    limits.setNodes(Long.parseLong(args[++i]));
+                    break;
+                case "-time":
+                    limits.setTime(Long.parseLong(args[++i]));
+                    break;
+                case "-hash":
+                    hashSize = Integer.parseInt(args[++i]);
+                    break;
+                case "-backward":
+                    backward = true;
+                    break;
+                case "-independent":
+                    independent = true;
+                    break;
+                default:
+                    in = null;
+                    i = args.length;
+                    break;
+            }
+        }
+        if (in == null) {
+            System.out.println("Usage: GameReview -in games [-game n] [-depth d] [-nodes n] [-time ms] [-hash mb] [-backward] [-independent]");
+            return;
+        }
+
+        List<GameRecord> games = new ArrayList<>();
+        if (in.getFileName().toString().toLowerCase().endsWith(".pgn")) {
+            try (Reader reader = Files.newBufferedReader(in, StandardCharsets.UTF_8)) {
+                PgnReader pgn = new PgnReader(reader);
+                GameRecord game;
+                while ((game = pgn.next()) != null) games.add(game);
+            }
+        } else {
+            try (InputStream stream = Files.newInputStream(in)) {
+                GameReader reader = new GameReader(stream);
+                GameRecord game;
+                while ((game = reader.read()) != null) games.add(game);
+            }
+        }
+
+        Engine engine = new Engine(limits, hashSize);
+        GameReview review = new GameReview(engine).setBackward(backward).setIndependent(independent);
+        long totalNodes = 0;
+        long totalTime = 0;
+        for (int i = 0; i < games.size(); i++) {
+            if (gameNumber > 0 && i + 1 != gameNumber) continue;
+            GameRecord game = games.get(i);
+            engine.newGame();
+            long start = System.nanoTime();
+            List<ReviewedMove> moves = review.review(game);
+            long time = (System.nanoTime() - start) / 1000000;
+            totalNodes += review.getNodes();
+            totalTime += time;
+
+            System.out.println("Game " + (i + 1) + (game.getTag("White") == null ? "" : ": " + game.getTag("White") + " - " + game.getTag("Black")));
+            int[][] counts = new int[2][ReviewedMove.Judgement.values().length];
+            for (ReviewedMove move : moves) {
+                System.out.println(move);
+                counts[move.getPlayer() ? 0 : 1][move.getJudgement().ordinal()]++;
+            }
+            for (int side = 0; side < 2; side++) {
+                System.out.println(String.format("%s: %d inaccuracies, %d mistakes, %d blunders", side == 0 ? "White" : "Black",
+                        counts[side][ReviewedMove.Judgement.INACCURACY.ordinal()], counts[side][ReviewedMove.Judgement.MISTAKE.ordinal()],
+                        counts[side][ReviewedMove.Judgement.BLUNDER.ordinal()]));
+            }
+            System.out.println(String.format("%d positions, %,d nodes in %,d ms%n", moves.size() + 1, review.getNodes(), time));
+        }
+        System.out.println(String.format("Reviewed in %,d ms, %,d nodes", totalTime, totalNodes));
+    }
+}
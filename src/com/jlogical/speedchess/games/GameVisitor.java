@@ -0,0 +1,44 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.host.GameResult;
+import com.jlogical.speedchess.moves.Move;
+
+import java.util.Map;
+
+/**
+ * Receives a game as a {@link GameReader} replays it, so games can be processed one position at a time without holding
+ * them in memory. The board passed to each method belongs to the reader and must be left as it was.
+ */
+public interface GameVisitor {
+
+    /**
+     * Called before the first move of a game.
+     *
+     * @param board  the board at the starting position.
+     * @param fen    the FEN code of the starting position. Null for the standard starting position.
+     * @param result how the game ended. Null if it did not finish.
+     * @param tags   extra information about the game, such as the players' names.
+     */
+    default void onStart(Board board, String fen, GameResult result, Map<String, String> tags) {
+    }
+
+    /**
+     * Called for each move, before it is made.
+     *
+     * @param board  the board before the move.
+     * @param move   the move about to be made.
+     * @param player the player making the move.
+     */
+    default void onMove(Board board, Move move, boolean player) {
+    }
+
+    /**
+     * Called after the last move of a game.
+     *
+     * @param board  the board at the final position.
+     * @param result how the game ended. Null if it did not finish.
+     */
+    default void onEnd(Board board, GameResult result) {
+    }
+}
@@ -0,0 +1,166 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.host.GameResult;
+import com.jlogical.speedchess.moves.Move;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes games to a stream in the compact binary format described in {@link GameFormat}, one game at a time. By default
+ * each move takes a single byte, its index among the legal moves. With packed moves each takes two bytes but the games
+ * are much faster to read. Not thread-safe.
+ */
+public class GameWriter implements Closeable {
+
+    private final DataOutputStream out; // The stream games are written to.
+    private final ByteArrayOutputStream game; // The game being written, held back until its length is known.
+    private boolean packedMoves; // Whether moves are written as two-byte encoded moves instead of legal move indices.
+    private long gameCount; // The number of games written.
+
+    /**
+     * Creates a writer and writes the file header.
+     *
+     * @param out the stream to write to. Buffered by the writer.
+     * @throws IOException if the header could not be written.
+     */
+    public GameWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        game = new ByteArrayOutputStream(1024);
+        this.out.writeInt(GameFormat.MAGIC);
+        this.out.writeByte(GameFormat.VERSION);
+    }
+
+    /**
+     * Writes a game.
+     *
+     * @param record the game to write. Its moves must be legal.
+     * @throws IOException if the game could not be written.
+     */
+    public void write(GameRecord record) throws IOException {
+        write(record.getFen(), record.getMoves(), record.getResult(), record.getTags());
+    }
+
+    /**
+     * Writes a game. The moves are replayed on a new board to check that they are legal, and to find their indices unless
+     * moves are packed.
+     *
+     * @param fen    the FEN code of the starting position. Null for the standard starting position.
+     * @param moves  the moves played. Must be legal.
+     * @param result how the game ended. Null if it did not finish.
+     * @param tags   extra information about the game. Can be empty.
+     * @throws IOException              if the game could not be written.
+     * @throws IllegalArgumentException if a move is not legal. Nothing is written.
+     */
+    public void write(String fen, List<Move> moves, GameResult result, Map<String, String> tags) throws IOException {
+        game.reset();
+        game.write(result == null ? 0 : result.ordinal() + 1);
+        game.write((fen != null ? GameFormat.HAS_FEN : 0) | (!tags.isEmpty() ? GameFormat.HAS_TAGS : 0) | (packedMoves ? GameFormat.PACKED_MOVES : 0));
+        if (fen != null) writeString(fen);
+        if (!tags.isEmpty()) {
+            writeVarint(game, tags.size());
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                writeString(tag.getKey());
+                writeString(tag.getValue());
+            }
+        }
+
+        writeVarint(game, moves.size());
+        writeMoves(fen, moves);
+
+        writeVarint(out, game.size());
+        game.writeTo(out);
+        gameCount++;
+    }
+
+    /**
+     * Replays the moves from the starting position, writing each as its index among the legal moves, or packed.
+     */
+    private void writeMoves(String fen, List<Move> moves) {
+        Board board = new Board(fen);
+        boolean player = board.getCurrPlayer();
+        for (Move move : moves) {
+            List<Move> legal = GameFormat.legalMoves(board, player);
+            int index = indexOf(legal, move);
+            if (index < 0) throw new IllegalArgumentException("Illegal move " + move.toCoordinates() + " in game from " + (fen == null ? "the starting position" : fen));
+            if (packedMoves) {
+                int encoded = move.encode();
+                game.write(encoded >>> 8);
+                game.write(encoded);
+            } else {
+                game.write(index);
+            }
+            board.makeMove(legal.get(index), player);
+            player = !player;
+        }
+    }
+
+    /**
+     * @return the index of the legal move with the same squares and promotion as the move, or -1 if there is none.
+     */
+    private static int indexOf(List<Move> legal, Move move) {
+        int encoded = move.encode();
+        for (int i = 0; i < legal.size() && i < GameFormat.MAX_MOVES; i++) {
+            if (legal.get(i).encode() == encoded) return i;
+        }
+        return -1;
+    }
+
+    public boolean isPackedMoves() {
+        return packedMoves;
+    }
+
+    /**
+     * Sets whether the following games store their moves as two-byte encoded moves instead of legal move indices.
+     *
+     * @param packedMoves whether to pack moves.
+     * @return this writer.
+     */
+    public GameWriter setPackedMoves(boolean packedMoves) {
+        this.packedMoves = packedMoves;
+        return this;
+    }
+
+    /**
+     * @return the number of games written.
+     */
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * Writes any buffered games to the stream.
+     *
+     * @throws IOException if they could not be written.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(game, bytes.length);
+        game.write(bytes);
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
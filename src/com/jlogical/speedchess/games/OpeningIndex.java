@@ -0,0 +1,152 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.board.Board;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A read-only table of the moves played from each position of a collection of games, built by
+ * {@link OpeningIndexBuilder}. The file is memory-mapped and its entries are sorted by Zobrist key, so a lookup is a
+ * binary search that only touches the pages it needs, however large the file is. Thread-safe.
+ * <p>
+ * The big-endian file starts with a header of the magic number and version as ints and the entry count as a long. Each
+ * entry is the key of the position with the player to move, the wins, draws and losses of the player making the move as
+ * ints, the encoded move as a short and two bytes of padding. Entries are sorted by key, then by move.
+ */
+public class OpeningIndex implements Closeable {
+
+    static final int MAGIC = 0x53434f49; // "SCOI", at the start of every index.
+    static final int VERSION = 1; // The version of the format. Changes whenever the layout of an entry does.
+    static final int HEADER_SIZE = 16; // Magic, version and entry count.
+    static final int ENTRY_SIZE = 24; // Key, wins, draws, losses, move and padding.
+
+    private static final int WINDOW_ENTRIES = (1 << 30) / ENTRY_SIZE; // The entries mapped by each window, so no entry crosses two.
+
+    private final FileChannel channel; // The open index file.
+    private final MappedByteBuffer[] windows; // The entries, mapped in windows of WINDOW_ENTRIES.
+    private final long size; // The number of entries.
+
+    /**
+     * Opens an index.
+     *
+     * @param path the index file.
+     * @throws IOException if the file could not be read or is not a valid index.
+     */
+    public OpeningIndex(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) ;
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) throw new IOException("Not an opening index: " + path);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported opening index version " + version + ": " + path);
+            size = header.getLong();
+            if (size < 0 || channel.size() != HEADER_SIZE + size * ENTRY_SIZE) throw new IOException("Opening index has the wrong size: " + path);
+
+            windows = new MappedByteBuffer[(int) ((size + WINDOW_ENTRIES - 1) / WINDOW_ENTRIES)];
+            for (int i = 0; i < windows.length; i++) {
+                long first = (long) i * WINDOW_ENTRIES;
+                long entries = Math.min(WINDOW_ENTRIES, size - first);
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * ENTRY_SIZE, entries * ENTRY_SIZE);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param board  the board to look up.
+     * @param player the player to move.
+     * @return the moves played from the board's position, most played first. Empty if the position is not in the index.
+     */
+    public List<OpeningMove> lookup(Board board, boolean player) {
+        return lookup(board.getKey(player));
+    }
+
+    /**
+     * @param key the Zobrist key of the position, including the player to move.
+     * @return the moves played from the position, most played first. Empty if the position is not in the index.
+     */
+    public List<OpeningMove> lookup(long key) {
+        // Find the first entry with the key.
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (getKey(middle) < key) low = middle + 1;
+            else high = middle;
+        }
+
+        List<OpeningMove> moves = new ArrayList<>();
+        for (long entry = low; entry < size && getKey(entry) == key; entry++) {
+            ByteBuffer window = windows[(int) (entry / WINDOW_ENTRIES)];
+            int offset = (int) (entry % WINDOW_ENTRIES) * ENTRY_SIZE;
+            moves.add(new OpeningMove(window.getShort(offset + 20) & 0xFFFF, window.getInt(offset + 8) & 0xFFFFFFFFL,
+                    window.getInt(offset + 12) & 0xFFFFFFFFL, window.getInt(offset + 16) & 0xFFFFFFFFL));
+        }
+        moves.sort(Comparator.comparingLong(OpeningMove::getGames).reversed());
+        return moves;
+    }
+
+    /**
+     * @return the number of (position, move) entries in the index.
+     */
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return the key of an entry.
+     */
+    private long getKey(long entry) {
+        return windows[(int) (entry / WINDOW_ENTRIES)].getLong((int) (entry % WINDOW_ENTRIES) * ENTRY_SIZE);
+    }
+
+    /**
+     * Looks up a position from the command line and prints the moves played from it.
+     * <p>
+     * Usage: OpeningIndex index [-fen fen]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args[0].startsWith("-")) {
+            System.out.println("Usage: OpeningIndex index [-fen fen]");
+            return;
+        }
+        String fen = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-fen")) {
+                fen = args[++i];
+            } else {
+                System.out.println("Usage: OpeningIndex index [-fen fen]");
+                return;
+            }
+        }
+
+        try (OpeningIndex index = new OpeningIndex(Paths.get(args[0]))) {
+            Board board = new Board(fen);
+            long key = board.getKey(board.getCurrPlayer());
+            long start = System.nanoTime();
+            List<OpeningMove> moves = index.lookup(key);
+            long micros = (System.nanoTime() - start) / 1000;
+            System.out.println(String.format("%,d entries, %d moves found in %d us", index.size(), moves.size(), micros));
+            for (OpeningMove move : moves) System.out.println(move);
+        }
+    }
+}
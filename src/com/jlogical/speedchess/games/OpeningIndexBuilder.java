@@ -0,0 +1,342 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.host.GameResult;
+import com.jlogical.speedchess.moves.Move;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Builds an {@link OpeningIndex} from any number of games. Every move of the opening of each game is recorded with its
+ * position and how the game ended. Records are sorted in memory a run at a time, each sorted run is written to a
+ * temporary file, and the runs are merged into the index at the end, so the games can take far more memory than is
+ * available. Not thread-safe.
+ */
+public class OpeningIndexBuilder {
+
+    public static final int DEFAULT_PLIES = 30; // The default number of moves (for both players) recorded from each game.
+    public static final int DEFAULT_RUN_SIZE = 1 << 22; // The default number of records sorted in memory at once.
+
+    private static final int WIN = 0; // The result of a record if the player making the move won.
+    private static final int DRAW = 1; // The result of a record if the game was drawn.
+    private static final int LOSS = 2; // The result of a record if the player making the move lost.
+
+    private final Path tempDirectory; // The directory the sorted runs are written to.
+    private final long[] keys; // The position key of each record in the current run.
+    private final int[] data; // The encoded move of each record shifted left by 2, or'd with its result.
+    private final List<Path> runs; // The sorted runs written so far.
+    private int count; // The number of records in the current run.
+    private int plies; // The number of moves recorded from each game.
+    private long games; // The number of games added.
+
+    /**
+     * Creates a builder.
+     *
+     * @param tempDirectory the directory to write the sorted runs to.
+     * @param runSize       the number of records to sort in memory at once. Each takes 12 bytes.
+     */
+    public OpeningIndexBuilder(Path tempDirectory, int runSize) {
+        this.tempDirectory = tempDirectory;
+        keys = new long[runSize];
+        data = new int[runSize];
+        runs = new ArrayList<>();
+        plies = DEFAULT_PLIES;
+    }
+
+    /**
+     * Records the opening of a game. Games that did not finish are skipped, since they have nothing to score.
+     *
+     * @param game the game to add. Its moves must be legal.
+     * @throws IOException if a full run could not be written.
+     */
+    public void add(GameRecord game) throws IOException {
+        GameResult result = game.getResult();
+        if (result == null) return;
+        games++;
+
+        Board board = game.createBoard();
+        boolean player = board.getCurrPlayer();
+        List<Move> moves = game.getMoves();
+        for (int ply = 0; ply < plies && ply < moves.size(); ply++) {
+            Move move = moves.get(ply);
+            int outcome = result.isDraw() ? DRAW : (result == GameResult.WHITE_WINS) == player ? WIN : LOSS;
+            if (count == keys.length) writeRun();
+            keys[count] = board.getKey(player);
+            data[count] = move.encode() << 2 | outcome;
+            count++;
+            board.makeMove(move, player);
+            player = !player;
+        }
+    }
+
+    /**
+     * Merges everything added into an index file, then deletes the sorted runs. Entries for the same position and move
+     * are combined into one.
+     *
+     * @param path the index file to write. Replaced if it exists.
+     * @return the number of entries in the index.
+     * @throws IOException if a file could not be read or written.
+     */
+    public long build(Path path) throws IOException {
+        if (count > 0) writeRun();
+
+        List<RunReader> readers = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            PriorityQueue<RunReader> queue = new PriorityQueue<>((a, b) -> a.key != b.key ? Long.compare(a.key, b.key) : Integer.compare(a.move, b.move));
+            for (Path run : runs) {
+                RunReader reader = new RunReader(Files.newInputStream(run));
+                readers.add(reader);
+                if (reader.next()) queue.add(reader);
+            }
+
+            // Write the header last, once the number of entries is known.
+            channel.position(OpeningIndex.HEADER_SIZE);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            long entries = 0;
+            while (!queue.isEmpty()) {
+                RunReader first = queue.poll();
+                long key = first.key;
+                int move = first.move;
+                long wins = first.wins, draws = first.draws, losses = first.losses;
+                if (first.next()) queue.add(first);
+                while (!queue.isEmpty() && queue.peek().key == key && queue.peek().move == move) {
+                    RunReader same = queue.poll();
+                    wins += same.wins;
+                    draws += same.draws;
+                    losses += same.losses;
+                    if (same.next()) queue.add(same);
+                }
+                writeEntry(out, key, move, wins, draws, losses);
+                entries++;
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(OpeningIndex.HEADER_SIZE);
+            header.putInt(OpeningIndex.MAGIC).putInt(OpeningIndex.VERSION).putLong(entries).flip();
+            channel.write(header, 0);
+            channel.force(true);
+            return entries;
+        } finally {
+            for (RunReader reader : readers) reader.in.close();
+            for (Path run : runs) Files.deleteIfExists(run);
+            runs.clear();
+        }
+    }
+
+    /**
+     * Sorts the current run, combines records for the same position and move, and writes it to a temporary file.
+     */
+    private void writeRun() throws IOException {
+        sort(0, count - 1);
+
+        Path run = Files.createTempFile(tempDirectory, "opening", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            int i = 0;
+            while (i < count) {
+                long key = keys[i];
+                int move = data[i] >>> 2;
+                long[] results = new long[3];
+                for (; i < count && keys[i] == key && data[i] >>> 2 == move; i++) results[data[i] & 3]++;
+                writeEntry(out, key, move, results[WIN], results[DRAW], results[LOSS]);
+            }
+        }
+        count = 0;
+    }
+
+    /**
+     * Writes an entry in the layout of an index entry. Runs use the same layout.
+     */
+    private static void writeEntry(DataOutputStream out, long key, int move, long wins, long draws, long losses) throws IOException {
+        out.writeLong(key);
+        out.writeInt((int) Math.min(wins, 0xFFFFFFFFL));
+        out.writeInt((int) Math.min(draws, 0xFFFFFFFFL));
+        out.writeInt((int) Math.min(losses, 0xFFFFFFFFL));
+        out.writeShort(move);
+        out.writeShort(0);
+    }
+
+    /**
+     * Sorts the records of the current run between two indices (inclusive) by key, then by move and result.
+     */
+    private void sort(int low, int high) {
+        while (high - low > 16) {
+            int middle = (low + high) >>> 1;
+            long pivotKey = keys[middle];
+            int pivotData = data[middle];
+            int i = low, j = high;
+            while (i <= j) {
+                while (compare(keys[i], data[i], pivotKey, pivotData) < 0) i++;
+                while (compare(keys[j], data[j], pivotKey, pivotData) > 0) j--;
+                if (i <= j) swap(i++, j--);
+            }
+            // Recurse into the smaller side so the stack stays shallow.
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(keys[j - 1], data[j - 1], keys[j], data[j]) > 0; j--) swap(j - 1, j);
+        }
+    }
+
+    private static int compare(long keyA, int dataA, long keyB, int dataB) {
+        return keyA != keyB ? Long.compare(keyA, keyB) : Integer.compare(dataA, dataB);
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int value = data[a];
+        data[a] = data[b];
+        data[b] = value;
+    }
+
+    public int getPlies() {
+        return plies;
+    }
+
+    public OpeningIndexBuilder setPlies(int plies) {
+        this.plies = plies;
+        return this;
+    }
+
+    /**
+     * @return the number of finished games added.
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @return the number of sorted runs written to temporary files so far.
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Reads the entries of a sorted run one at a time.
+     */
+    private static class RunReader {
+        private final DataInputStream in; // The run file.
+        private long key; // The key of the current entry.
+        private int move; // The move of the current entry.
+        private long wins, draws, losses; // The results of the current entry.
+
+        private RunReader(InputStream in) {
+            this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        }
+
+        /**
+         * Moves to the next entry.
+         *
+         * @return false if there are no more entries.
+         */
+        private boolean next() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            wins = in.readInt() & 0xFFFFFFFFL;
+            draws = in.readInt() & 0xFFFFFFFFL;
+            losses = in.readInt() & 0xFFFFFFFFL;
+            move = in.readUnsignedShort();
+            in.readShort();
+            return true;
+        }
+    }
+
+    /**
+     * Builds an index from the command line. Files ending in .pgn are read as PGN and anything else as game records.
+     * Games that cannot be read are reported and skipped.
+     * <p>
+     * Usage: OpeningIndexBuilder -out index [-plies n] [-run records] [-temp dir] games...
+     */
+    public static void main(String[] args) throws IOException {
+        Path out = null;
+        Path temp = Paths.get(System.getProperty("java.io.tmpdir"));
+        int plies = DEFAULT_PLIES;
+        int runSize = DEFAULT_RUN_SIZE;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-out":
+                    out = Paths.get(args[++i]);
+                    break;
+                case "-plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                case "-run":
+                    runSize = Integer.parseInt(args[++i]);
+                    break;
+                case "-temp":
+                    temp = Paths.get(args[++i]);
+                    break;
+                default:
+                    inputs.add(Paths.get(args[i]));
+                    break;
+            }
+        }
+        if (out == null || inputs.isEmpty()) {
+            System.out.println("Usage: OpeningIndexBuilder -out index [-plies n] [-run records] [-temp dir] games...");
+            return;
+        }
+
+        long start = System.nanoTime();
+        OpeningIndexBuilder builder = new OpeningIndexBuilder(temp, runSize).setPlies(plies);
+        for (Path input : inputs) {
+            if (input.getFileName().toString().toLowerCase().endsWith(".pgn")) {
+                try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                    PgnReader pgn = new PgnReader(reader);
+                    while (true) {
+                        GameRecord game;
+                        try {
+                            game = pgn.next();
+                        } catch (IOException e) {
+                            System.err.println("Skipped: " + e.getMessage());
+                            continue;
+                        }
+                        if (game == null) break;
+                        builder.add(game);
+                    }
+                }
+            } else {
+                try (InputStream stream = Files.newInputStream(input)) {
+                    GameReader reader = new GameReader(stream);
+                    GameRecord game;
+                    while ((game = reader.read()) != null) builder.add(game);
+                }
+            }
+        }
+
+        int runs = builder.getRunCount() + (builder.count > 0 ? 1 : 0);
+        long entries = builder.build(out);
+        System.out.println(String.format("Indexed %,d games into %,d entries from %d sorted runs in %,d ms", builder.getGames(), entries, runs,
+                (System.nanoTime() - start) / 1000000));
+    }
+}
@@ -0,0 +1,73 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.moves.Move;
+
+/**
+ * A move played from a position in an opening index, with how the games that played it ended for the player making it.
+ */
+public class OpeningMove {
+
+    private final int move; // The move, as returned by Move.encode().
+    private final long wins; // The games won by the player making the move.
+    private final long draws; // The games drawn.
+    private final long losses; // The games lost by the player making the move.
+
+    /**
+     * Creates an opening move.
+     *
+     * @param move   the move, as returned by Move.encode().
+     * @param wins   the games won by the player making the move.
+     * @param draws  the games drawn.
+     * @param losses the games lost by the player making the move.
+     */
+    public OpeningMove(int move, long wins, long draws, long losses) {
+        this.move = move;
+        this.wins = wins;
+        this.draws = draws;
+        this.losses = losses;
+    }
+
+    /**
+     * @return the move, as returned by Move.encode(). Turn it back into a Move with MoveGenerator.decodeMove.
+     */
+    public int getMove() {
+        return move;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public long getLosses() {
+        return losses;
+    }
+
+    /**
+     * @return the number of games that played the move.
+     */
+    public long getGames() {
+        return wins + draws + losses;
+    }
+
+    /**
+     * @return the average score of the move for the player making it, from 0 (every game lost) to 1 (every game won).
+     */
+    public double getScore() {
+        return (wins + draws * 0.5) / getGames();
+    }
+
+    /**
+     * @return the move in coordinate notation. Ex: e2e4, b7a8q.
+     */
+    public String toCoordinates() {
+        return Move.toCoordinates(move);
+    }
+
+    public String toString() {
+        return String.format("%s %d games +%d =%d -%d (%.1f%%)", toCoordinates(), getGames(), wins, draws, losses, getScore() * 100);
+    }
+}
@@ -0,0 +1,224 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.host.GameResult;
+import com.jlogical.speedchess.moves.Move;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads games from PGN, one at a time. Comments, variations, numeric annotations and move numbers are skipped, so only
+ * the tags, the main line and the result are kept.
+ */
+public class PgnReader implements Closeable {
+
+    private final BufferedReader in; // The stream games are read from.
+    private int peeked = -2; // The next character, if it has been looked at but not read. -2 if not.
+    private long gameCount; // The number of games read, including ones that could not be played.
+
+    /**
+     * Creates a reader.
+     *
+     * @param in the stream to read from. Buffered by the reader.
+     */
+    public PgnReader(Reader in) {
+        this.in = new BufferedReader(in, 1 << 16);
+    }
+
+    /**
+     * Reads the next game. If a move cannot be played, the rest of the game is still read, so the next call starts at the
+     * following game.
+     *
+     * @return the game, or null if there are no more games.
+     * @throws IOException if the game could not be read or has a move that is not legal.
+     */
+    public GameRecord next() throws IOException {
+        skipWhitespace();
+        if (peek() < 0) return null;
+        gameCount++;
+
+        // Read the tags. The starting position has to be known before the moves can be played.
+        Map<String, String> tags = new LinkedHashMap<>();
+        while (peek() == '[') {
+            read();
+            skipWhitespace();
+            String name = readToken();
+            skipWhitespace();
+            String value = peek() == '"' ? readQuoted() : readToken();
+            skipTo(']');
+            tags.put(name, value);
+            skipWhitespace();
+        }
+
+        String fen = tags.get("FEN");
+        GameRecord game = new GameRecord(fen).setResult(parseResult(tags.get("Result")));
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!tag.getKey().equals("FEN") && !tag.getKey().equals("SetUp") && !tag.getKey().equals("Result")) game.setTag(tag.getKey(), tag.getValue());
+        }
+
+        Board board;
+        try {
+            board = game.createBoard();
+        } catch (RuntimeException e) {
+            skipMoves();
+            throw new IOException("Game " + gameCount + " has a bad FEN: " + fen);
+        }
+        boolean player = board.getCurrPlayer();
+
+        // Play the main line until the result or the start of the next game.
+        String error = null;
+        while (true) {
+            skipWhitespace();
+            int c = peek();
+            if (c < 0 || c == '[') break;
+            if (c == '{') {
+                skipTo('}');
+            } else if (c == ';') {
+                skipTo('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == ')' || c == '}') {
+                read();
+            } else {
+                String token = readToken();
+                if (isResult(token)) {
+                    game.setResult(parseResult(token));
+                    break;
+                }
+                token = stripMoveNumber(token);
+                if (token.isEmpty() || token.startsWith("$") || error != null) continue;
+
+                Move move = San.parse(board, player, token);
+                if (move == null) {
+                    error = "Game " + gameCount + " has an illegal or unsupported move " + token + " after " + game.getMoves().size() + " moves";
+                    continue;
+                }
+                game.addMove(move);
+                board.makeMove(move, player);
+                player = !player;
+            }
+        }
+
+        if (error != null) throw new IOException(error);
+        return game;
+    }
+
+    /**
+     * @return the number of games read, including ones that could not be played.
+     */
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * @return the result a PGN result token or tag stands for. Null if the game did not finish or the token is unknown.
+     */
+    static GameResult parseResult(String token) {
+        if ("1-0".equals(token)) return GameResult.WHITE_WINS;
+        if ("0-1".equals(token)) return GameResult.BLACK_WINS;
+        if ("1/2-1/2".equals(token)) return GameResult.DRAW;
+        return null;
+    }
+
+    private static boolean isResult(String token) {
+        return token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*");
+    }
+
+    /**
+     * @return the token without a move number in front of it. Ex: "12." and "12..." become empty and "12.e4" becomes
+     * "e4".
+     */
+    private static String stripMoveNumber(String token) {
+        int start = 0;
+        while (start < token.length() && Character.isDigit(token.charAt(start))) start++;
+        if (start == 0 || start < token.length() && token.charAt(start) != '.') return token;
+        while (start < token.length() && token.charAt(start) == '.') start++;
+        return token.substring(start);
+    }
+
+    /**
+     * Skips the move text of a game whose moves cannot be played.
+     */
+    private void skipMoves() throws IOException {
+        while (true) {
+            skipWhitespace();
+            int c = peek();
+            if (c < 0 || c == '[') return;
+            if (c == '{') skipTo('}');
+            else if (c == ';') skipTo('\n');
+            else if (c == '(') skipVariation();
+            else if (isResult(readToken())) return;
+        }
+    }
+
+    /**
+     * Skips a variation, including any variations and comments inside it.
+     */
+    private void skipVariation() throws IOException {
+        int depth = 0;
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == '{') skipTo('}');
+            else if (c == '(') depth++;
+            else if (c == ')' && --depth == 0) return;
+        }
+    }
+
+    /**
+     * @return the characters up to the next whitespace or delimiter. At least one character is read.
+     */
+    private String readToken() throws IOException {
+        StringBuilder token = new StringBuilder();
+        token.append((char) read());
+        int c;
+        while ((c = peek()) >= 0 && !Character.isWhitespace(c) && "{}()[];\"".indexOf(c) < 0) token.append((char) read());
+        return token.toString();
+    }
+
+    /**
+     * @return the contents of a quoted string, with backslash escapes removed.
+     */
+    private String readQuoted() throws IOException {
+        read();
+        StringBuilder value = new StringBuilder();
+        int c;
+        while ((c = read()) >= 0 && c != '"') {
+            if (c == '\\') c = read();
+            if (c >= 0) value.append((char) c);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Skips past the next occurrence of a character.
+     */
+    private void skipTo(char end) throws IOException {
+        int c;
+        while ((c = read()) >= 0 && c != end) ;
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (peek() >= 0 && Character.isWhitespace(peek())) read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) peeked = in.read();
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        peeked = -2;
+        return c;
+    }
+}
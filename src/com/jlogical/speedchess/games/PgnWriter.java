@@ -0,0 +1,143 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.host.GameResult;
+import com.jlogical.speedchess.moves.Move;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes games as PGN, one at a time. The seven standard tags come first, filled with "?" where the game has no value,
+ * followed by the starting position if it is not the standard one, then any other tags.
+ */
+public class PgnWriter implements Closeable {
+
+    private static final List<String> ROSTER = Arrays.asList("Event", "Site", "Date", "Round", "White", "Black", "Result"); // The tags every PGN game has, in order.
+    private static final int LINE_LENGTH = 80; // The longest a line of moves can be.
+
+    private final BufferedWriter out; // The stream games are written to.
+
+    /**
+     * Creates a writer.
+     *
+     * @param out the stream to write to. Buffered by the writer.
+     */
+    public PgnWriter(Writer out) {
+        this.out = new BufferedWriter(out, 1 << 16);
+    }
+
+    /**
+     * Writes a game.
+     *
+     * @param game the game to write. Its moves must be legal.
+     * @throws IOException if the game could not be written.
+     */
+    public void write(GameRecord game) throws IOException {
+        out.write(toPgn(game));
+    }
+
+    /**
+     * @param game the game. Its moves must be legal.
+     * @return the game as PGN, ending with a blank line.
+     */
+    public static String toPgn(GameRecord game) {
+        StringBuilder pgn = new StringBuilder(512);
+        String result = resultToken(game.getResult());
+        Map<String, String> tags = game.getTags();
+        for (String name : ROSTER) {
+            String value = name.equals("Result") ? result : tags.get(name);
+            appendTag(pgn, name, value != null ? value : name.equals("Date") ? "????.??.??" : "?");
+        }
+        if (game.getFen() != null) {
+            appendTag(pgn, "SetUp", "1");
+            appendTag(pgn, "FEN", game.getFen());
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!ROSTER.contains(tag.getKey()) && !tag.getKey().equals("SetUp") && !tag.getKey().equals("FEN")) appendTag(pgn, tag.getKey(), tag.getValue());
+        }
+        pgn.append('\n');
+
+        Board board = game.createBoard();
+        boolean player = board.getCurrPlayer();
+        int moveNumber = fullmoveNumber(game.getFen());
+        int lineStart = pgn.length();
+        boolean first = true;
+        for (Move move : game.getMoves()) {
+            String token = San.toSan(board, move, player);
+            if (player) token = moveNumber + ". " + token;
+            else if (first) token = moveNumber + "... " + token;
+            lineStart = appendToken(pgn, token, lineStart);
+            board.makeMove(move, player);
+            if (!player) moveNumber++;
+            player = !player;
+            first = false;
+        }
+        appendToken(pgn, result, lineStart);
+        return pgn.append("\n\n").toString();
+    }
+
+    /**
+     * @return the PGN result token of a result.
+     */
+    static String resultToken(GameResult result) {
+        if (result == null) return "*";
+        if (result == GameResult.WHITE_WINS) return "1-0";
+        if (result == GameResult.BLACK_WINS) return "0-1";
+        return "1/2-1/2";
+    }
+
+    /**
+     * Adds a token to the move text, starting a new line if it would go past the line length.
+     *
+     * @return the start of the current line.
+     */
+    private static int appendToken(StringBuilder pgn, String token, int lineStart) {
+        if (pgn.length() > lineStart) {
+            if (pgn.length() - lineStart + 1 + token.length() > LINE_LENGTH) {
+                pgn.append('\n');
+                lineStart = pgn.length();
+            } else {
+                pgn.append(' ');
+            }
+        }
+        pgn.append(token);
+        return lineStart;
+    }
+
+    private static void appendTag(StringBuilder pgn, String name, String value) {
+        pgn.append('[').append(name).append(" \"").append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"]\n");
+    }
+
+    /**
+     * @return the number of the first move of a game from its FEN code.
+     */
+    private static int fullmoveNumber(String fen) {
+        if (fen == null) return 1;
+        String[] fields = fen.trim().split("\\s+");
+        try {
+            return fields.length > 5 ? Math.max(1, Integer.parseInt(fields[5])) : 1;
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Writes any buffered games to the stream.
+     *
+     * @throws IOException if they could not be written.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
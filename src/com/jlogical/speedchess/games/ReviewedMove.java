@@ -0,0 +1,104 @@
+package com.jlogical.speedchess.games;
+
+/**
+ * A move of a reviewed game, with the engine's best move in the same position and how much the move played lost
+ * compared to it. Scores are from the point of view of the player making the move.
+ */
+public class ReviewedMove {
+
+    /**
+     * How bad a move was, by how much score it lost.
+     */
+    public enum Judgement {
+        GOOD, INACCURACY, MISTAKE, BLUNDER
+    }
+
+    private final int ply; // The number of moves made before this one.
+    private final boolean player; // The player who made the move. True for white.
+    private final String move; // The move played, in SAN.
+    private final String bestMove; // The engine's best move, in SAN.
+    private final int bestScore; // The score of the best move.
+    private final int playedScore; // The score of the move played.
+    private final Judgement judgement; // How bad the move was.
+    private final int depth; // The depth the position was searched to.
+    private final long nodes; // The nodes searched in the position.
+
+    /**
+     * Creates a reviewed move.
+     *
+     * @param ply         the number of moves made before this one.
+     * @param player      the player who made the move. True for white.
+     * @param move        the move played, in SAN.
+     * @param bestMove    the engine's best move, in SAN.
+     * @param bestScore   the score of the best move.
+     * @param playedScore the score of the move played.
+     * @param judgement   how bad the move was.
+     * @param depth       the depth the position was searched to.
+     * @param nodes       the nodes searched in the position.
+     */
+    public ReviewedMove(int ply, boolean player, String move, String bestMove, int bestScore, int playedScore, Judgement judgement, int depth, long nodes) {
+        this.ply = ply;
+        this.player = player;
+        this.move = move;
+        this.bestMove = bestMove;
+        this.bestScore = bestScore;
+        this.playedScore = playedScore;
+        this.judgement = judgement;
+        this.depth = depth;
+        this.nodes = nodes;
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * @return the player who made the move. True for white.
+     */
+    public boolean getPlayer() {
+        return player;
+    }
+
+    public String getMove() {
+        return move;
+    }
+
+    public String getBestMove() {
+        return bestMove;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public int getPlayedScore() {
+        return playedScore;
+    }
+
+    /**
+     * @return how much score the move lost compared to the best move. Never negative.
+     */
+    public int getScoreDrop() {
+        return Math.max(0, bestScore - playedScore);
+    }
+
+    public Judgement getJudgement() {
+        return judgement;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public String toString() {
+        // Games that start with black to move have white's moves on odd plies.
+        boolean whiteStarted = player == (ply % 2 == 0);
+        String number = ((ply + (whiteStarted ? 0 : 1)) / 2 + 1) + (player ? ". " : "... ");
+        String line = String.format("%-12s %8d  best %-8s %8d  depth %2d", number + move, playedScore, bestMove, bestScore, depth);
+        return judgement == Judgement.GOOD ? line : line + "  " + judgement + " (-" + getScoreDrop() + ")";
+    }
+}
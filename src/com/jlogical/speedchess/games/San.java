@@ -0,0 +1,96 @@
+package com.jlogical.speedchess.games;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.board.Piece;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.moves.MoveGenerator;
+
+import java.util.List;
+
+/**
+ * Converts moves to and from standard algebraic notation (SAN), as used by PGN. Ex: e4, Nbd7, exd5, O-O, e8=Q+.
+ */
+public class San {
+
+    private static final String PIECE_LETTERS = " PRNBQK"; // The SAN letter of each piece type, indexed by its absolute value.
+
+    private San() {
+    }
+
+    /**
+     * @param board  the board before the move. Left unchanged.
+     * @param move   the move. Must be legal.
+     * @param player the player making the move.
+     * @return the move in SAN, with a check or mate suffix.
+     */
+    public static String toSan(Board board, Move move, boolean player) {
+        StringBuilder san = new StringBuilder(withoutCheck(move, MoveGenerator.generateMoves(board, player, true).getMoves()));
+        board.makeMove(move, player);
+        if (board.inCheck(!player)) san.append(board.hasLegalMove(!player) ? '+' : '#');
+        board.unmakeMove(player);
+        return san.toString();
+    }
+
+    /**
+     * Finds the legal move that some SAN refers to. Check, mate and annotation suffixes are ignored, castling can be
+     * written with zeros, and coordinate notation (e2e4) is accepted too.
+     *
+     * @param board  the board before the move.
+     * @param player the player making the move.
+     * @param san    the move in SAN.
+     * @return the move, or null if no legal move matches.
+     */
+    public static Move parse(Board board, boolean player, String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) end--;
+        String text = san.substring(0, end);
+        if (text.startsWith("0-0")) text = text.replace('0', 'O');
+
+        List<Move> legal = MoveGenerator.generateMoves(board, player, true).getMoves();
+        for (Move move : legal) {
+            if (text.equals(withoutCheck(move, legal)) || text.equals(move.toCoordinates())) return move;
+        }
+        return null;
+    }
+
+    /**
+     * @param move  the move.
+     * @param legal every legal move of the position, used to tell apart pieces that could reach the same square.
+     * @return the move in SAN, without a check or mate suffix.
+     */
+    private static String withoutCheck(Move move, List<Move> legal) {
+        if (move.isRightCastle()) return "O-O";
+        if (move.isLeftCastle()) return "O-O-O";
+
+        StringBuilder san = new StringBuilder(6);
+        int pieceType = move.getPieceType();
+        String to = Move.posName(move.getTo());
+        String from = Move.posName(move.getFrom());
+
+        if (Math.abs(pieceType) == Piece.PAWN) {
+            if (move.getCapturedPiece() != 0) san.append(from.charAt(0)).append('x');
+            san.append(to);
+            if (move.getPromotionPiece() != 0) san.append('=').append(PIECE_LETTERS.charAt(Math.abs(move.getPromotionPiece())));
+            return san.toString();
+        }
+
+        san.append(PIECE_LETTERS.charAt(Math.abs(pieceType)));
+
+        // Name the file, rank or both of the piece moving if another of the same pieces could move to the same square.
+        boolean ambiguous = false, sameFile = false, sameRank = false;
+        for (Move other : legal) {
+            if (other.getPieceType() != pieceType || other.getTo() != move.getTo() || other.getFrom() == move.getFrom()) continue;
+            ambiguous = true;
+            if (other.getFrom() % 8 == move.getFrom() % 8) sameFile = true;
+            if (other.getFrom() / 8 == move.getFrom() / 8) sameRank = true;
+        }
+        if (ambiguous) {
+            if (!sameFile) san.append(from.charAt(0));
+            else if (!sameRank) san.append(from.charAt(1));
+            else san.append(from);
+        }
+
+        if (move.getCapturedPiece() != 0) san.append('x');
+        return san.append(to).toString();
+    }
+}
@@ -0,0 +1,121 @@
+package com.jlogical.speedchess.host;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.Engine;
+import com.jlogical.speedchess.moves.Move;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hosts many games at once in the same process. Every game runs on its own thread, which is a virtual thread when the
+ * JVM supports them, so thousands of games can be waiting at once. Searching is CPU-bound, so the number of searches
+ * running at the same time is limited to the number of search threads.
+ * <p>
+ * Without virtual threads, games run on a fixed pool of platform threads, a few per search thread. Games submitted
+ * beyond that wait in a queue until a running game finishes.
+ */
+public class GameHost implements AutoCloseable {
+
+    private static final int PLATFORM_GAMES_PER_SEARCH_THREAD = 4; // The games run at once per search thread without virtual threads.
+
+    private final ExecutorService games; // Runs each game on its own thread.
+    private final Semaphore searchPermits; // Limits how many searches can run at the same time.
+    private final int searchThreads; // The number of searches that can run at the same time.
+
+    /**
+     * Creates a GameHost that runs one search per available processor.
+     */
+    public GameHost() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a GameHost.
+     *
+     * @param searchThreads the maximum number of searches to run at the same time.
+     */
+    public GameHost(int searchThreads) {
+        if (searchThreads < 1) throw new IllegalArgumentException("There must be at least one search thread.");
+        this.searchThreads = searchThreads;
+        searchPermits = new Semaphore(searchThreads, true);
+        games = newGameExecutor(searchThreads * PLATFORM_GAMES_PER_SEARCH_THREAD);
+    }
+
+    /**
+     * Starts playing the given game.
+     *
+     * @param game the game to play.
+     * @return the result of the game once it has finished.
+     */
+    public CompletableFuture<GameResult> submit(HostedGame game) {
+        CompletableFuture<GameResult> result = new CompletableFuture<>();
+        games.execute(() -> {
+            try {
+                result.complete(game.play(this));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Calculates the next move with the given engine. Waits until a search thread is free before searching.
+     *
+     * @param engine the engine to search with. Must be owned by the calling thread.
+     * @param board  the board to calculate on.
+     * @param player the player to move.
+     * @return the move to perform. Null if none are possible.
+     * @throws InterruptedException if the thread was interrupted while waiting for a search thread.
+     */
+    public Move search(Engine engine, Board board, boolean player) throws InterruptedException {
+        searchPermits.acquire();
+        try {
+            return engine.calculateNextMove(board, player);
+        } finally {
+            searchPermits.release();
+        }
+    }
+
+    /**
+     * @return the number of searches that can run at the same time.
+     */
+    public int getSearchThreads() {
+        return searchThreads;
+    }
+
+    /**
+     * Stops accepting new games and waits for all running games to finish. If the thread is interrupted while waiting,
+     * stops waiting and leaves the thread interrupted.
+     */
+    @Override
+    public void close() {
+        games.shutdown();
+        try {
+            games.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param platformThreads the number of threads of the fallback pool.
+     * @return an executor that runs every task on a new virtual thread. If the JVM does not support virtual threads,
+     * falls back to a fixed pool of daemon platform threads.
+     */
+    private static ExecutorService newGameExecutor(int platformThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(platformThreads, runnable -> {
+                Thread thread = new Thread(runnable, "hosted-game");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.jlogical.speedchess.host;
+
+/**
+ * The ways a hosted game can end. Game records store the ordinal, so new results must only be added at the end.
+ */
+public enum GameResult {
+    WHITE_WINS, // Black was check mated.
+    BLACK_WINS, // White was check mated.
+    STALE_MATE, // The player to move had no legal moves but was not in check.
+    REPETITION, // The same position occurred for the third time.
+    FIFTY_MOVES, // Fifty moves were made by each player without a capture or pawn move.
+    MOVE_LIMIT, // The game reached its maximum number of moves.
+    DRAW; // The game was drawn for a reason not listed above, such as an agreement in an imported game.
+
+    /**
+     * @return whether the result is a draw.
+     */
+    public boolean isDraw() {
+        return this != WHITE_WINS && this != BLACK_WINS;
+    }
+}
@@ -0,0 +1,103 @@
+package com.jlogical.speedchess.host;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.Engine;
+import com.jlogical.speedchess.cpu.EngineConfig;
+import com.jlogical.speedchess.cpu.SearchLimits;
+import com.jlogical.speedchess.moves.Move;
+
+/**
+ * A game between two engines, played on a GameHost. Each game owns its board and its engines, so nothing is shared with
+ * other games.
+ */
+public class HostedGame {
+
+    public static final int DEFAULT_MAX_MOVES = 200; // The default number of moves (for both players) before the game is stopped.
+    public static final int DEFAULT_HASH_SIZE = 1; // The default size of each engine's transposition table, in megabytes.
+    private static final int REPETITIONS = 3; // The number of times a position must occur for the game to be drawn.
+
+    private final Board board; // The board the game is played on.
+    private final Engine[] engines; // The engine for each player. [0] is white, [1] is black.
+    private int maxMoves; // The number of moves before the game is stopped.
+
+    /**
+     * Creates a game where both players search with the same limits.
+     *
+     * @param fen    the FEN code to start from. If null, starts from the default board.
+     * @param limits the limits of both players.
+     */
+    public HostedGame(String fen, SearchLimits limits) {
+        this(fen, limits, limits);
+    }
+
+    /**
+     * Creates a game.
+     *
+     * @param fen         the FEN code to start from. If null, starts from the default board.
+     * @param whiteLimits the limits of the white player.
+     * @param blackLimits the limits of the black player.
+     */
+    public HostedGame(String fen, SearchLimits whiteLimits, SearchLimits blackLimits) {
+        board = new Board(fen);
+        engines = new Engine[]{new Engine(whiteLimits, DEFAULT_HASH_SIZE), new Engine(blackLimits, DEFAULT_HASH_SIZE)};
+        maxMoves = DEFAULT_MAX_MOVES;
+    }
+
+    /**
+     * Creates a game between two engine configs.
+     *
+     * @param fen   the FEN code to start from. If null, starts from the default board.
+     * @param white the config of the white player.
+     * @param black the config of the black player.
+     */
+    public HostedGame(String fen, EngineConfig white, EngineConfig black) {
+        board = new Board(fen);
+        engines = new Engine[]{white.createEngine(), black.createEngine()};
+        maxMoves = DEFAULT_MAX_MOVES;
+    }
+
+    /**
+     * Plays the game until it ends. The engines become confined to the calling thread.
+     *
+     * @param host the host to search on.
+     * @return the result of the game.
+     * @throws InterruptedException if the thread was interrupted while waiting to search.
+     */
+    GameResult play(GameHost host) throws InterruptedException {
+
+        boolean currPlayer = board.getCurrPlayer(); // Whether the current player is white.
+
+        // Repeatedly switch turns until checkmate, stalemate, repetition, the fifty-move rule or the move limit.
+        for (int moves = 0; moves < maxMoves; moves++) {
+
+            if (board.isCheckMate(currPlayer)) return currPlayer ? GameResult.BLACK_WINS : GameResult.WHITE_WINS;
+            if (board.isStaleMate(currPlayer)) return GameResult.STALE_MATE;
+            if (board.countRepetitions(REPETITIONS - 1) >= REPETITIONS - 1) return GameResult.REPETITION;
+            if (board.isFiftyMoveDraw()) return GameResult.FIFTY_MOVES;
+
+            Move nextMove = host.search(engines[Board.playerBitboardNum(currPlayer)], board, currPlayer);
+            if (nextMove == null) return GameResult.STALE_MATE;
+
+            board.makeMove(nextMove, currPlayer);
+
+            // Swap the current player.
+            currPlayer = !currPlayer;
+            board.setCurrPlayer(currPlayer);
+        }
+
+        return GameResult.MOVE_LIMIT;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public int getMaxMoves() {
+        return maxMoves;
+    }
+
+    public HostedGame setMaxMoves(int maxMoves) {
+        this.maxMoves = maxMoves;
+        return this;
+    }
+}
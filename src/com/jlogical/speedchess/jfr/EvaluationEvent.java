@@ -0,0 +1,29 @@
+package com.jlogical.speedchess.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for a sample of the nodes in a search. Times a single call to the evaluator.
+ */
+@Name("com.jlogical.speedchess.Evaluation")
+@Label("Evaluation")
+@Category({"SpeedChess", "Node Sample"})
+@Description("Static evaluation at one sampled leaf")
+@StackTrace(false)
+public class EvaluationEvent extends Event {
+
+    @Label("Ply")
+    public int ply;
+
+    @Label("Score")
+    public int score;
+
+    @Label("Sample Interval")
+    @Description("One node in this many is sampled")
+    public int sampleInterval;
+}
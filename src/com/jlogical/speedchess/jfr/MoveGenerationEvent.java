@@ -0,0 +1,30 @@
+package com.jlogical.speedchess.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for a sample of the nodes in a search. Times legal move generation (including the check and mate probes
+ * that generate the moves).
+ */
+@Name("com.jlogical.speedchess.MoveGeneration")
+@Label("Move Generation")
+@Category({"SpeedChess", "Node Sample"})
+@Description("Legal move generation at one sampled node")
+@StackTrace(false)
+public class MoveGenerationEvent extends Event {
+
+    @Label("Ply")
+    public int ply;
+
+    @Label("Moves")
+    public int moves;
+
+    @Label("Sample Interval")
+    @Description("One node in this many is sampled")
+    public int sampleInterval;
+}
@@ -0,0 +1,21 @@
+package com.jlogical.speedchess.jfr;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Decides whether the engine's flight recorder events are worth creating. Creating the first event of the JVM starts
+ * the flight recorder's machinery, which takes hundreds of milliseconds, so events are only created once a recording has
+ * started the recorder, such as with -XX:StartFlightRecording.
+ */
+public final class Recording {
+
+    private Recording() {
+    }
+
+    /**
+     * @return whether the flight recorder has been started, so events can be created cheaply.
+     */
+    public static boolean isActive() {
+        return FlightRecorder.isInitialized();
+    }
+}
@@ -0,0 +1,136 @@
+package com.jlogical.speedchess.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Turns a .jfr recording of the engine into a per-phase time breakdown. The move generation and evaluation events only
+ * sample some of the nodes, so their times are scaled up by their sample interval to estimate the totals.
+ */
+public class RecordingAnalyzer {
+
+    private long searchNanos; // Total time of all search iterations.
+    private int iterations; // The number of search iterations.
+    private long searchNodes; // Total nodes of all search iterations.
+
+    private int rootMoves; // The number of root move events.
+    private long slowestRootMove; // The longest a single root move took, in nanoseconds.
+    private String slowestRootMoveName; // The root move that took the longest.
+
+    private long generationNanos; // Estimated total time spent generating moves.
+    private long generationSamples; // The number of move generation samples.
+    private long evaluationNanos; // Estimated total time spent evaluating.
+    private long evaluationSamples; // The number of evaluation samples.
+
+    private int tableClears; // The number of transposition table clears.
+    private int tableResizes; // The number of transposition table resizes.
+    private long tableNanos; // The time spent clearing and resizing transposition tables.
+
+    /**
+     * Reads every event in the given recording.
+     *
+     * @param path the path of the .jfr file.
+     * @throws IOException if the file could not be read.
+     */
+    public void read(Path path) throws IOException {
+        try (RecordingFile recording = new RecordingFile(path)) {
+            while (recording.hasMoreEvents()) {
+                add(recording.readEvent());
+            }
+        }
+    }
+
+    /**
+     * Adds a single event to the breakdown. Events that aren't from the engine are ignored.
+     *
+     * @param event the event to add.
+     */
+    public void add(RecordedEvent event) {
+        long nanos = event.getDuration().toNanos();
+        switch (event.getEventType().getName()) {
+            case "com.jlogical.speedchess.SearchIteration":
+                iterations++;
+                searchNanos += nanos;
+                searchNodes += event.getLong("nodes");
+                break;
+            case "com.jlogical.speedchess.RootMove":
+                rootMoves++;
+                if (nanos > slowestRootMove) {
+                    slowestRootMove = nanos;
+                    slowestRootMoveName = event.getString("move") + " (depth " + event.getInt("depth") + ")";
+                }
+                break;
+            case "com.jlogical.speedchess.MoveGeneration":
+                generationSamples++;
+                generationNanos += nanos * event.getInt("sampleInterval");
+                break;
+            case "com.jlogical.speedchess.Evaluation":
+                evaluationSamples++;
+                evaluationNanos += nanos * event.getInt("sampleInterval");
+                break;
+            case "com.jlogical.speedchess.TranspositionTable":
+                if (TranspositionTableEvent.CLEAR.equals(event.getString("action"))) tableClears++;
+                else tableResizes++;
+                tableNanos += nanos;
+                break;
+        }
+    }
+
+    /**
+     * @return the String representation of the breakdown.
+     */
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+
+        output.append("Search:     ").append(iterations).append(" iterations, ").append(searchNodes).append(" nodes, ").append(millis(searchNanos)).append('\n');
+        if (searchNanos > 0) {
+            output.append("            ").append(searchNodes * 1000000000L / searchNanos).append(" nodes/s\n");
+        }
+        output.append("Root moves: ").append(rootMoves);
+        if (slowestRootMoveName != null) {
+            output.append(", slowest ").append(slowestRootMoveName).append(" in ").append(millis(slowestRootMove));
+        }
+        output.append('\n');
+
+        // The phases of the search, estimated from the sampled nodes.
+        long otherNanos = Math.max(0, searchNanos - generationNanos - evaluationNanos);
+        output.append("\nPhase              Estimated time    Share   Samples\n");
+        output.append(phase("Move generation", generationNanos, generationSamples));
+        output.append(phase("Evaluation", evaluationNanos, evaluationSamples));
+        output.append(phase("Other search", otherNanos, 0));
+
+        output.append("\nTransposition table: ").append(tableClears).append(" clears, ").append(tableResizes).append(" resizes, ").append(millis(tableNanos)).append('\n');
+
+        return output.toString();
+    }
+
+    /**
+     * @return a single line of the phase table.
+     */
+    private String phase(String name, long nanos, long samples) {
+        double share = searchNanos == 0 ? 0 : 100.0 * nanos / searchNanos;
+        return String.format("%-18s %14s %7.1f%% %9d%n", name, millis(nanos), share, samples);
+    }
+
+    /**
+     * @return the given nanoseconds formatted as milliseconds.
+     */
+    private static String millis(long nanos) {
+        return String.format("%.1f ms", nanos / 1000000.0);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: RecordingAnalyzer <recording.jfr>");
+            return;
+        }
+
+        RecordingAnalyzer analyzer = new RecordingAnalyzer();
+        analyzer.read(Paths.get(args[0]));
+        System.out.print(analyzer);
+    }
+}
@@ -0,0 +1,32 @@
+package com.jlogical.speedchess.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for every root move searched, so expensive root moves can be found.
+ */
+@Name("com.jlogical.speedchess.RootMove")
+@Label("Root Move")
+@Category({"SpeedChess", "Search"})
+@Description("The search of a single root move")
+@StackTrace(false)
+public class RootMoveEvent extends Event {
+
+    @Label("Move")
+    public String move;
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Score")
+    public int score;
+
+    @Label("Nodes")
+    @Description("Nodes searched below this root move")
+    public long nodes;
+}
@@ -0,0 +1,35 @@
+package com.jlogical.speedchess.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded once for every completed iteration of the iterative deepening search.
+ */
+@Name("com.jlogical.speedchess.SearchIteration")
+@Label("Search Iteration")
+@Category({"SpeedChess", "Search"})
+@Description("One completed iteration of the iterative deepening search")
+@StackTrace(false)
+public class SearchIterationEvent extends Event {
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Nodes")
+    @Description("Nodes searched during this iteration")
+    public long nodes;
+
+    @Label("Selective Depth")
+    public int selDepth;
+
+    @Label("Score")
+    public int score;
+
+    @Label("Best Move")
+    public String bestMove;
+}
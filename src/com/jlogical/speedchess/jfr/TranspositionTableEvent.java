@@ -0,0 +1,27 @@
+package com.jlogical.speedchess.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded whenever a transposition table is cleared or resized.
+ */
+@Name("com.jlogical.speedchess.TranspositionTable")
+@Label("Transposition Table")
+@Category({"SpeedChess", "Hash"})
+@Description("A transposition table was cleared or resized")
+public class TranspositionTableEvent extends Event {
+
+    public static final String CLEAR = "clear";
+    public static final String RESIZE = "resize";
+
+    @Label("Action")
+    public String action;
+
+    @Label("Entries")
+    @Description("The number of entries the table holds after the action")
+    public long capacity;
+}
@@ -0,0 +1,275 @@
+package com.jlogical.speedchess.match;
+
+import com.jlogical.speedchess.cpu.EngineConfig;
+import com.jlogical.speedchess.cpu.EvalParams;
+import com.jlogical.speedchess.cpu.SearchLimits;
+import com.jlogical.speedchess.host.GameHost;
+import com.jlogical.speedchess.host.GameResult;
+import com.jlogical.speedchess.host.HostedGame;
+import com.jlogical.speedchess.nnue.Network;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Plays two engine configs against each other to measure which is stronger. Every opening is played twice with the
+ * colours reversed, and games are run concurrently on a GameHost so every core is kept busy.
+ */
+public class MatchRunner {
+
+    private static final int REPORT_INTERVAL = 10; // The number of games between progress reports.
+
+    private final EngineConfig first; // The config being tested.
+    private final EngineConfig second; // The config being compared against.
+    private final List<String> openings; // The FEN codes of the starting positions.
+
+    private int games; // The maximum number of games to play.
+    private int threads; // The number of searches to run at the same time.
+    private int maxMoves; // The number of moves before a game is adjudicated as a draw.
+    private Sprt sprt; // Stops the match early once a hypothesis is accepted. Null to play every game.
+    private boolean verbose; // Whether to print progress while the match runs.
+
+    private MatchScore score; // The score of the last match run.
+    private long time; // The time the last match took, in milliseconds.
+
+    /**
+     * Creates a MatchRunner.
+     *
+     * @param first    the config being tested.
+     * @param second   the config being compared against.
+     * @param openings the FEN codes of the starting positions. Must not be empty.
+     */
+    public MatchRunner(EngineConfig first, EngineConfig second, List<String> openings) {
+        if (openings.isEmpty()) throw new IllegalArgumentException("At least one opening is needed.");
+        this.first = first;
+        this.second = second;
+        this.openings = new ArrayList<>(openings);
+        games = openings.size() * 2;
+        threads = Runtime.getRuntime().availableProcessors();
+        maxMoves = HostedGame.DEFAULT_MAX_MOVES;
+    }
+
+    /**
+     * Plays the match until every game has been played or the SPRT has been decided. Games already running when the SPRT
+     * is decided are finished and counted.
+     *
+     * @return the score of the first config.
+     * @throws InterruptedException if the thread was interrupted while waiting for games.
+     * @throws ExecutionException   if a game failed.
+     */
+    public MatchScore run() throws InterruptedException, ExecutionException {
+
+        score = new MatchScore();
+        long startTime = System.nanoTime();
+
+        BlockingQueue<GameOutcome> finished = new LinkedBlockingQueue<>(); // Games that have finished but not been counted.
+        int maxRunning = threads * 2; // Enough games to keep every search thread busy while others are between moves.
+        int submitted = 0;
+        int running = 0;
+        boolean stopping = false;
+
+        try (GameHost host = new GameHost(threads)) {
+            while (true) {
+
+                // Keep enough games running to use every search thread.
+                while (!stopping && submitted < games && running < maxRunning) {
+                    String opening = openings.get((submitted / 2) % openings.size());
+                    boolean firstIsWhite = submitted % 2 == 0;
+                    HostedGame game = firstIsWhite ? new HostedGame(opening, first, second) : new HostedGame(opening, second, first);
+                    game.setMaxMoves(maxMoves);
+                    host.submit(game).whenComplete((result, error) -> finished.add(new GameOutcome(firstIsWhite, result, error)));
+                    submitted++;
+                    running++;
+                }
+
+                if (running == 0) break;
+
+                // Count the next game to finish.
+                GameOutcome outcome = finished.take();
+                running--;
+                if (outcome.error != null) throw new ExecutionException(outcome.error);
+                score.add(outcome.scoreForFirst());
+
+                if (sprt != null && sprt.decide(score) != Sprt.Decision.CONTINUE) stopping = true;
+                if (verbose && (score.getGames() % REPORT_INTERVAL == 0 || running == 0)) System.out.println(report(startTime));
+            }
+        }
+
+        time = (System.nanoTime() - startTime) / 1000000;
+        return score;
+    }
+
+    /**
+     * @return a progress report of the match so far.
+     */
+    private String report(long startTime) {
+        double hours = (System.nanoTime() - startTime) / 3.6e12;
+        String report = String.format("Games %d  %s  %.0f games/hour", score.getGames(), score, score.getGames() / hours);
+        if (sprt != null) report += "  " + sprt.toString(score);
+        return report;
+    }
+
+    /**
+     * @return the number of games played per hour in the last match.
+     */
+    public double getGamesPerHour() {
+        return time == 0 ? 0 : score.getGames() * 3600000.0 / time;
+    }
+
+    public MatchScore getScore() {
+        return score;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    public MatchRunner setGames(int games) {
+        this.games = games;
+        return this;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public MatchRunner setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public int getMaxMoves() {
+        return maxMoves;
+    }
+
+    public MatchRunner setMaxMoves(int maxMoves) {
+        this.maxMoves = maxMoves;
+        return this;
+    }
+
+    public Sprt getSprt() {
+        return sprt;
+    }
+
+    public MatchRunner setSprt(Sprt sprt) {
+        this.sprt = sprt;
+        return this;
+    }
+
+    public MatchRunner setVerbose(boolean verbose) {
+        this.verbose = verbose;
+        return this;
+    }
+
+    /**
+     * The result of one finished game.
+     */
+    private static class GameOutcome {
+        private final boolean firstIsWhite; // Whether the first config played white.
+        private final GameResult result; // The result of the game. Null if it failed.
+        private final Throwable error; // Why the game failed. Null if it finished.
+
+        private GameOutcome(boolean firstIsWhite, GameResult result, Throwable error) {
+            this.firstIsWhite = firstIsWhite;
+            this.result = result;
+            this.error = error;
+        }
+
+        /**
+         * @return 1 if the first config won, 0.5 for a draw and 0 if it lost.
+         */
+        private double scoreForFirst() {
+            if (result.isDraw()) return 0.5;
+            return (result == GameResult.WHITE_WINS) == firstIsWhite ? 1 : 0;
+        }
+    }
+
+    /**
+     * Runs a match from the command line.
+     * <p>
+     * Usage: MatchRunner openings.epd [-games n] [-threads n] [-depth d] [-nodes n] [-time ms] [-depth1 d] [-depth2 d]
+     * [-hash mb] [-moves n] [-params1 file] [-params2 file] [-nnue1 file] [-nnue2 file]
+     * [-sprt elo0 elo1]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 1) {
+            System.out.println("Usage: MatchRunner openings.epd [-games n] [-threads n] [-depth d] [-nodes n] [-time ms] [-depth1 d] [-depth2 d] [-hash mb] [-moves n] [-params1 file] [-params2 file] [-nnue1 file] [-nnue2 file] [-sprt elo0 elo1]");
+            return;
+        }
+
+        List<String> openings = Openings.load(Paths.get(args[0]));
+        SearchLimits limits = new SearchLimits();
+        int depth1 = -1, depth2 = -1, hash = HostedGame.DEFAULT_HASH_SIZE, games = openings.size() * 2, moves = HostedGame.DEFAULT_MAX_MOVES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        EvalParams params1 = new EvalParams(), params2 = new EvalParams();
+        Network network1 = null, network2 = null;
+        Sprt sprt = null;
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-depth":
+                    limits.setDepth(Integer.parseInt(args[++i]));
+                    break;
+                case "-nodes":
+                    limits.setNodes(Long.parseLong(args[++i])).setDepth(Integer.MAX_VALUE);
+                    break;
+                case "-time":
+                    limits.setTime(Long.parseLong(args[++i])).setDepth(Integer.MAX_VALUE);
+                    break;
+                case "-depth1":
+                    depth1 = Integer.parseInt(args[++i]);
+                    break;
+                case "-depth2":
+                    depth2 = Integer.parseInt(args[++i]);
+                    break;
+                case "-hash":
+                    hash = Integer.parseInt(args[++i]);
+                    break;
+                case "-moves":
+                    moves = Integer.parseInt(args[++i]);
+                    break;
+                case "-params1":
+                    params1 = EvalParams.load(Paths.get(args[++i]));
+                    break;
+                case "-params2":
+                    params2 = EvalParams.load(Paths.get(args[++i]));
+                    break;
+                case "-nnue1":
+                    network1 = Network.load(Paths.get(args[++i]));
+                    break;
+                case "-nnue2":
+                    network2 = Network.load(Paths.get(args[++i]));
+                    break;
+                case "-sprt":
+                    sprt = new Sprt(Double.parseDouble(args[++i]), Double.parseDouble(args[++i]), 0.05, 0.05);
+                    break;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        EngineConfig first = new EngineConfig("first").setLimits(depth1 > 0 ? new SearchLimits(limits).setDepth(depth1) : limits).setHashSize(hash).setEvalParams(params1).setNetwork(network1);
+        EngineConfig second = new EngineConfig("second").setLimits(depth2 > 0 ? new SearchLimits(limits).setDepth(depth2) : limits).setHashSize(hash).setEvalParams(params2).setNetwork(network2);
+
+        System.out.println(first + " vs " + second + ", " + openings.size() + " openings");
+
+        MatchRunner runner = new MatchRunner(first, second, openings).setGames(games).setThreads(threads).setMaxMoves(moves).setSprt(sprt).setVerbose(true);
+        MatchScore score = runner.run();
+
+        System.out.println("\nFinal: " + score);
+        if (sprt != null) System.out.println(sprt.toString(score));
+        System.out.println(String.format("Throughput: %.0f games/hour", runner.getGamesPerHour()));
+    }
+}
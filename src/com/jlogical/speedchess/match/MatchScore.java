@@ -0,0 +1,98 @@
+package com.jlogical.speedchess.match;
+
+/**
+ * The running score of a match from the point of view of the first engine. Converts the score into an Elo difference
+ * using the logistic model.
+ */
+public class MatchScore {
+
+    private long wins; // Games the first engine won.
+    private long draws; // Games that were drawn.
+    private long losses; // Games the first engine lost.
+
+    /**
+     * Adds the result of a single game.
+     *
+     * @param score 1 for a win, 0.5 for a draw and 0 for a loss.
+     */
+    public void add(double score) {
+        if (score > 0.5) wins++;
+        else if (score < 0.5) losses++;
+        else draws++;
+    }
+
+    /**
+     * @return the number of games played.
+     */
+    public long getGames() {
+        return wins + draws + losses;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public long getLosses() {
+        return losses;
+    }
+
+    /**
+     * @return the average score per game (0-1).
+     */
+    public double getScore() {
+        long games = getGames();
+        return games == 0 ? 0.5 : (wins + draws / 2.0) / games;
+    }
+
+    /**
+     * @return the variance of the score of a single game.
+     */
+    public double getVariance() {
+        long games = getGames();
+        if (games == 0) return 0;
+        double score = getScore();
+        return (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2) + losses * Math.pow(score, 2)) / games;
+    }
+
+    /**
+     * @return the estimated Elo difference between the first and second engine.
+     */
+    public double getElo() {
+        return elo(getScore());
+    }
+
+    /**
+     * @return the half-width of the 95% confidence interval of the Elo difference.
+     */
+    public double getEloError() {
+        long games = getGames();
+        if (games == 0) return Double.POSITIVE_INFINITY;
+        double margin = 1.959964 * Math.sqrt(getVariance() / games);
+        return (elo(getScore() + margin) - elo(getScore() - margin)) / 2;
+    }
+
+    /**
+     * @param score the expected score (0-1).
+     * @return the Elo difference that gives the expected score.
+     */
+    public static double elo(double score) {
+        score = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * @param elo the Elo difference.
+     * @return the expected score (0-1) of the Elo difference.
+     */
+    public static double score(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    public String toString() {
+        return String.format("+%d =%d -%d  score %.1f%%  Elo %+.1f +/- %.1f", wins, draws, losses, getScore() * 100, getElo(), getEloError());
+    }
+}
@@ -0,0 +1,42 @@
+package com.jlogical.speedchess.match;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads opening positions from a FEN or EPD file.
+ */
+public class Openings {
+
+    private Openings() {
+    }
+
+    /**
+     * Reads one position per line. Blank lines and lines starting with '#' are skipped. EPD lines only have 4 fields
+     * followed by operations, so only the first 4 fields of each line are kept.
+     *
+     * @param path the file to read.
+     * @return the FEN code of every position in the file.
+     * @throws IOException if the file could not be read.
+     */
+    public static List<String> load(Path path) throws IOException {
+        List<String> openings = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] fields = line.split("\\s+");
+            if (fields.length < 2) throw new IOException("Not a FEN or EPD position: " + line);
+
+            StringBuilder fen = new StringBuilder(fields[0]);
+            for (int i = 1; i < Math.min(fields.length, 4); i++) {
+                fen.append(' ').append(fields[i]);
+            }
+            openings.add(fen.toString());
+        }
+        return openings;
+    }
+}
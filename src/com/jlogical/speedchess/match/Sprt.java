@@ -0,0 +1,67 @@
+package com.jlogical.speedchess.match;
+
+/**
+ * A sequential probability ratio test between two Elo hypotheses. Uses the normal approximation of the log-likelihood
+ * ratio for trinomial (win/draw/loss) results, so the test can be checked after every game and stopped as soon as one
+ * hypothesis is accepted.
+ */
+public class Sprt {
+
+    /**
+     * The possible outcomes of the test.
+     */
+    public enum Decision {
+        CONTINUE, // Not enough games to decide yet.
+        ACCEPT_H0, // Elo <= elo0 is accepted. Usually means reject the change.
+        ACCEPT_H1 // Elo >= elo1 is accepted. Usually means accept the change.
+    }
+
+    private final double elo0; // The Elo difference of the null hypothesis.
+    private final double elo1; // The Elo difference of the alternative hypothesis.
+    private final double lowerBound; // Accept H0 once the log-likelihood ratio drops below this.
+    private final double upperBound; // Accept H1 once the log-likelihood ratio rises above this.
+
+    /**
+     * Creates an SPRT.
+     *
+     * @param elo0  the Elo difference of the null hypothesis.
+     * @param elo1  the Elo difference of the alternative hypothesis. Must be greater than elo0.
+     * @param alpha the chance of accepting H1 when H0 is true.
+     * @param beta  the chance of accepting H0 when H1 is true.
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) throw new IllegalArgumentException("elo1 must be greater than elo0.");
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        lowerBound = Math.log(beta / (1 - alpha));
+        upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * @param score the score of the match so far.
+     * @return the log-likelihood ratio of H1 over H0.
+     */
+    public double getLlr(MatchScore score) {
+        double variance = score.getVariance();
+        if (score.getGames() == 0 || variance == 0) return 0;
+
+        double s0 = MatchScore.score(elo0);
+        double s1 = MatchScore.score(elo1);
+        return score.getGames() * (s1 - s0) * (2 * score.getScore() - s0 - s1) / (2 * variance);
+    }
+
+    /**
+     * @param score the score of the match so far.
+     * @return whether the match can be stopped, and which hypothesis was accepted.
+     */
+    public Decision decide(MatchScore score) {
+        double llr = getLlr(score);
+        if (llr <= lowerBound) return Decision.ACCEPT_H0;
+        if (llr >= upperBound) return Decision.ACCEPT_H1;
+        return Decision.CONTINUE;
+    }
+
+    public String toString(MatchScore score) {
+        return String.format("SPRT [%.1f, %.1f]  LLR %.2f (%.2f, %.2f)  %s", elo0, elo1, getLlr(score), lowerBound, upperBound, decide(score));
+    }
+}
@@ -96,6 +96,14 @@ public class Move {
         return nextLegalMoves[player ? 0 : 1];
     }
 
+    /**
+     * @param player the player to look at.
+     * @return whether the legal moves after this one have already been generated for the player.
+     */
+    public boolean hasNextLegalMoves(boolean player) {
+        return nextLegalMoves != null && nextLegalMoves[player ? 0 : 1] != null;
+    }
+
     /**
      * Clears the next moves caches.
      */
@@ -104,6 +112,13 @@ public class Move {
         nextMoves = null;
     }
 
+    /**
+     * @return the move packed into 16 bits: the from position, the to position and the promoted piece type.
+     */
+    public int encode() {
+        return from | to << 6 | Math.abs(promotionPiece) << 12;
+    }
+
     /**
      * @param pos the position (0-63).
      * @return the position name from the given position. Ex: e2, a6, d8, etc...
@@ -188,6 +203,22 @@ public class Move {
         return this;
     }
 
+    /**
+     * @return the move in coordinate notation, as used by UCI. Ex: e2e4, e1g1, b7a8q.
+     */
+    public String toCoordinates() {
+        return toCoordinates(encode());
+    }
+
+    /**
+     * @param encoded the move, as returned by encode().
+     * @return the move in coordinate notation, as used by UCI. Ex: e2e4, e1g1, b7a8q.
+     */
+    public static String toCoordinates(int encoded) {
+        String coordinates = posName(encoded & 63) + posName(encoded >>> 6 & 63);
+        int promotionPiece = encoded >>> 12 & 7;
+        return promotionPiece == 0 ? coordinates : coordinates + " prnbqk".charAt(promotionPiece);
+    }
 
     public String toString() {
         return posName(from) + " -> " + posName(to);
@@ -4,7 +4,9 @@ import com.jlogical.speedchess.bitboard.Bitboard;
 import com.jlogical.speedchess.board.Board;
 
 import static com.jlogical.speedchess.bitboard.Direction.*;
+import static com.jlogical.speedchess.board.Piece.KING;
 import static com.jlogical.speedchess.board.Piece.QUEEN;
+import static com.jlogical.speedchess.board.Piece.ROOK;
 
 /**
  * Generates all possible moves from a given board.
@@ -37,6 +39,36 @@ public class MoveGenerator {
         return moves;
     }
 
+    /**
+     * Rebuilds a move from its 16-bit encoding, with the same captured piece and castling flags the generator would give
+     * it. Much faster than generating every move to find it, but does not check that the move is legal.
+     *
+     * @param board   the board the move is made on.
+     * @param encoded the move, as returned by Move.encode().
+     * @return the move.
+     */
+    public static Move decodeMove(Board board, int encoded) {
+        int from = encoded & 63;
+        int to = encoded >>> 6 & 63;
+        int promotionPiece = encoded >>> 12 & 7;
+        int pieceType = board.getPiece(from);
+        boolean player = pieceType > 0;
+
+        Move move = new Move(pieceType, from, to, board.getPiece(to));
+        if (promotionPiece != 0) move.setPromotionPiece(player ? promotionPiece : -promotionPiece);
+
+        int back = player ? 0 : 56; // The first square of the player's back rank.
+        if (Math.abs(pieceType) == KING) {
+            move.setDisableRightCastle(board.canCastleRight(player)).setDisableLeftCastle(board.canCastleLeft(player));
+            if (from == back + 4 && to == back + 6) move.setRightCastle(true);
+            if (from == back + 4 && to == back + 2) move.setLeftCastle(true);
+        } else if (Math.abs(pieceType) == ROOK) {
+            move.setDisableRightCastle(board.canCastleRight(player) && from == back + 7);
+            move.setDisableLeftCastle(board.canCastleLeft(player) && from == back);
+        }
+        return move;
+    }
+
     /**
      * Adds a move to the list of moves. If [legalOnly], then checks to make sure the move is legal before adding it.
      */
@@ -386,16 +418,17 @@ public class MoveGenerator {
                     addMove(board, player, moves, legalOnly, new Move(board.getPiece(i), i, j, board.getPiece(j)).setDefending(Bitboard.get(pieces, j)).setDisableLeftCastle(willDisableCastlingLeft).setDisableRightCastle(willDisableCastlingRight));
 
                 /*
-                 * Castling.
+                 * Castling. A rook captured on its corner does not take the right away, so check that it is still there.
                  */
-                if (board.canCastleRight(player) && (!legalOnly || !board.inCheck(player))) {
+                long rooks = board.rooks[player ? 0 : 1];
+                if (board.canCastleRight(player) && Bitboard.get(rooks, player ? 7 : 63) && (!legalOnly || !board.inCheck(player))) {
                     if (player && Bitboard.get(empty,5) && Bitboard.get(empty,6)) {
                         addMove(board, true, moves, legalOnly, new Move(board.getPiece(i), i, 6).setRightCastle(true).setDisableLeftCastle(willDisableCastlingLeft).setDisableRightCastle(willDisableCastlingRight));
                     } else if (!player && Bitboard.get(empty,61) && Bitboard.get(empty,62)) {
                         addMove(board, false, moves, legalOnly, new Move(board.getPiece(i), i, 62).setRightCastle(true).setDisableLeftCastle(willDisableCastlingLeft).setDisableRightCastle(willDisableCastlingRight));
                     }
                 }
-                if (board.canCastleLeft(player) && (!legalOnly || !board.inCheck(player))) {
+                if (board.canCastleLeft(player) && Bitboard.get(rooks, player ? 0 : 56) && (!legalOnly || !board.inCheck(player))) {
                     if (player && Bitboard.get(empty,3) && Bitboard.get(empty,2) && Bitboard.get(empty,1)) {
                         addMove(board, true, moves, legalOnly, new Move(board.getPiece(i), i, 2).setLeftCastle(true).setDisableLeftCastle(willDisableCastlingLeft).setDisableRightCastle(willDisableCastlingRight));
                     } else if (!player && Bitboard.get(empty,59) && Bitboard.get(empty,58) && Bitboard.get(empty,57)) {
@@ -2,6 +2,7 @@ package com.jlogical.speedchess.moves;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.ToIntFunction;
 
 /**
  * A set of valid moves a player can do in a board configuration.
@@ -10,6 +11,7 @@ public class Moveset {
 
     private List<Move> moves; // List of valid movements.
     private List<Move> defences; // List of "moves" that defend a piece.
+    private boolean ordered; // Whether the moves have already been sorted by order().
 
     /**
      * Creates an empty moveset.
@@ -38,6 +40,54 @@ public class Moveset {
         defences.add(move);
     }
 
+    /**
+     * Moves the given move to the front of the moveset so it is searched first.
+     *
+     * @param move the move to prioritize.
+     */
+    public void prioritize(Move move) {
+        if (moves.remove(move)) moves.add(0, move);
+    }
+
+    /**
+     * Sorts the moves from the highest score to the lowest, keeping the current order of moves with equal scores. Each
+     * move is scored once. Movesets are cached and reused, so only the first call sorts; later calls do nothing.
+     *
+     * @param scorer gives the score of a move.
+     */
+    public void order(ToIntFunction<Move> scorer) {
+        if (ordered) return;
+        ordered = true;
+
+        int size = moves.size();
+        Move[] sorted = moves.toArray(new Move[size]);
+        int[] scores = new int[size];
+        for (int i = 0; i < size; i++) scores[i] = scorer.applyAsInt(sorted[i]);
+
+        // Insertion sort: the lists are short and captures already come first.
+        for (int i = 1; i < size; i++) {
+            Move move = sorted[i];
+            int score = scores[i];
+            int j = i - 1;
+            for (; j >= 0 && scores[j] < score; j--) {
+                sorted[j + 1] = sorted[j];
+                scores[j + 1] = scores[j];
+            }
+            sorted[j + 1] = move;
+            scores[j + 1] = score;
+        }
+
+        moves.clear();
+        for (Move move : sorted) moves.add(move);
+    }
+
+    /**
+     * @return whether the moves have been sorted by order().
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
     /**
      * @return whether there are no valid moves to make.
      */
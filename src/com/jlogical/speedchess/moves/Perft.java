@@ -0,0 +1,138 @@
+package com.jlogical.speedchess.moves;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.board.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaves of the legal move tree to a fixed depth ("perft"), to check the move generator against known counts.
+ * <p>
+ * {@link #count(Board, boolean, int)} is the plain serial walk. An instance counts in parallel instead: the top of the
+ * tree is split into fork/join tasks, one per move, until the subtrees are small enough to walk on one thread. Each task
+ * works on its own board, rebuilt from a Position, and every task shares one {@link PerftHash} so a subtree reached by
+ * different move orders is only counted once.
+ */
+public class Perft {
+
+    private static final int SERIAL_DEPTH = 3; // Subtrees this deep or shallower are walked on one thread instead of split.
+
+    private final ForkJoinPool pool; // Runs the tasks.
+    private final PerftHash hash; // The counts of subtrees already walked. Null if not hashing.
+
+    /**
+     * Creates a parallel perft.
+     *
+     * @param threads the number of threads to count with.
+     * @param hashSizeMb the size of the shared hash table in megabytes, or 0 for no hash table.
+     */
+    public Perft(int threads, int hashSizeMb) {
+        pool = new ForkJoinPool(threads);
+        hash = hashSizeMb > 0 ? new PerftHash(hashSizeMb) : null;
+    }
+
+    /**
+     * Counts the leaves below a board on one thread, making and unmaking every move.
+     *
+     * @param board  the board to count from. Left unchanged.
+     * @param player the player to move.
+     * @param depth  the number of moves to look ahead.
+     * @return the number of positions reachable in exactly depth legal moves.
+     */
+    public static long count(Board board, boolean player, int depth) {
+        if (depth == 0) return 1;
+        long leaves = 0;
+        for (Move move : MoveGenerator.generateMoves(board, player, true).getMoves()) {
+            board.makeMove(move, player);
+            leaves += count(board, !player, depth - 1);
+            board.unmakeMove(player);
+        }
+        return leaves;
+    }
+
+    /**
+     * Counts the leaves below a board using every thread of this perft. Gives the same count as
+     * {@link #count(Board, boolean, int)}.
+     *
+     * @param board  the board to count from. Left unchanged.
+     * @param player the player to move.
+     * @param depth  the number of moves to look ahead.
+     * @return the number of positions reachable in exactly depth legal moves.
+     */
+    public long countParallel(Board board, boolean player, int depth) {
+        return pool.invoke(new PerftTask(Position.of(board, player), depth));
+    }
+
+    /**
+     * Stops the threads of this perft once they are idle.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Counts the leaves below one position, splitting into a task per move while the subtree is large.
+     */
+    private class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Position position; // The position to count from.
+        private final int depth; // The number of moves to look ahead.
+
+        private PerftTask(Position position, int depth) {
+            this.position = position;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            Board board = position.toBoard();
+            boolean player = position.getPlayer();
+            if (depth <= SERIAL_DEPTH) return countHashed(board, player, depth);
+
+            long key = board.getKey(player);
+            long leaves = hash != null ? hash.probe(key, depth) : -1;
+            if (leaves >= 0) return leaves;
+
+            List<PerftTask> tasks = new ArrayList<>();
+            for (Move move : MoveGenerator.generateMoves(board, player, true).getMoves()) {
+                tasks.add(new PerftTask(position.play(move), depth - 1));
+            }
+            leaves = 0;
+            for (PerftTask task : invokeAll(tasks)) leaves += task.join();
+
+            if (hash != null) hash.store(key, depth, leaves);
+            return leaves;
+        }
+    }
+
+    /**
+     * Counts the leaves below a board on the calling thread, using the hash table and counting the last layer of moves
+     * without playing them.
+     */
+    private long countHashed(Board board, boolean player, int depth) {
+        if (depth == 0) return 1;
+
+        long key = board.getKey(player);
+        if (hash != null && depth > 1) {
+            long leaves = hash.probe(key, depth);
+            if (leaves >= 0) return leaves;
+        }
+
+        List<Move> moves = MoveGenerator.generateMoves(board, player, true).getMoves();
+        if (depth == 1) return moves.size();
+
+        long leaves = 0;
+        for (Move move : moves) {
+            board.makeMove(move, player);
+            leaves += countHashed(board, !player, depth - 1);
+            board.unmakeMove(player);
+        }
+
+        if (hash != null) hash.store(key, depth, leaves);
+        return leaves;
+    }
+}
@@ -0,0 +1,67 @@
+package com.jlogical.speedchess.moves;
+
+/**
+ * A fixed-size hash table of perft counts, keyed by Zobrist key and depth, that any number of threads can share without
+ * locking. Each slot is two longs: the key xored with the data, and the data. A probe only trusts a slot whose two
+ * halves agree, so a slot torn by two threads writing at once reads as a miss instead of a wrong count.
+ * <p>
+ * Slots are grouped in pairs. The first slot of a pair keeps the deepest count stored in it, since a deeper count saves
+ * more work, and the second always takes the latest count.
+ */
+public class PerftHash {
+
+    private static final int SLOT_SIZE = 16; // The number of bytes used by each slot (key and data).
+    private static final int DEPTH_SHIFT = 56; // The data holds the depth above this bit and the count below it.
+    private static final long COUNT_MASK = (1L << DEPTH_SHIFT) - 1;
+
+    private final long[] slots; // [2i] is the key xor the data of slot i, [2i + 1] is its data.
+    private final int mask; // Maps a key to the first slot of its pair. The number of pairs is always a power of two.
+
+    /**
+     * Creates an empty table.
+     *
+     * @param sizeMb the size of the table in megabytes. Rounded down to a power of two number of slots.
+     */
+    public PerftHash(int sizeMb) {
+        long count = Math.max(2L, (long) sizeMb * 1024 * 1024 / SLOT_SIZE);
+        int size = (int) Long.highestOneBit(Math.min(count, 1 << 29));
+        slots = new long[size * 2];
+        mask = (size - 1) & ~1;
+    }
+
+    /**
+     * @param key   the Zobrist key of the position, including the player to move.
+     * @param depth the depth of the count, at least 1.
+     * @return the number of leaves at the depth below the position, or -1 if it is not stored.
+     */
+    public long probe(long key, int depth) {
+        int slot = (int) key & mask;
+        for (int i = slot; i <= slot + 1; i++) {
+            long data = slots[2 * i + 1];
+            if ((slots[2 * i] ^ data) == key && (int) (data >>> DEPTH_SHIFT) == depth) return data & COUNT_MASK;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a count.
+     *
+     * @param key   the Zobrist key of the position, including the player to move.
+     * @param depth the depth of the count, from 1 to 255.
+     * @param count the number of leaves at the depth below the position.
+     */
+    public void store(long key, int depth, long count) {
+        long data = (long) depth << DEPTH_SHIFT | count & COUNT_MASK;
+        int slot = (int) key & mask;
+        if (depth < (int) (slots[2 * slot + 1] >>> DEPTH_SHIFT)) slot++;
+        slots[2 * slot] = key ^ data;
+        slots[2 * slot + 1] = data;
+    }
+
+    /**
+     * @return the number of counts the table can hold.
+     */
+    public int capacity() {
+        return slots.length / 2;
+    }
+}
@@ -0,0 +1,173 @@
+package com.jlogical.speedchess.nnue;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.moves.Move;
+
+import java.util.Arrays;
+
+import static com.jlogical.speedchess.board.Piece.*;
+
+/**
+ * The hidden neurons of a network for the positions along the board's move history. The board updates the accumulator
+ * as moves are made and unmade, so only the features of the pieces that moved have to be added or removed.
+ * <p>
+ * Each level of the stack holds white's neurons followed by black's. A level that could not be updated incrementally,
+ * for example because the accumulator was attached in the middle of a game, is refreshed from the board when it is next
+ * evaluated.
+ */
+public class Accumulator {
+
+    private static final int INITIAL_LEVELS = 128; // The number of levels allocated at first. Grows as needed.
+
+    private final Network network; // The network whose neurons are accumulated.
+    private final int hiddenSize; // The number of neurons of each player.
+
+    private short[][] levels; // The neurons at each level of the move history.
+    private boolean[] computed; // Whether each level is up to date.
+    private int top; // The level of the current position.
+    private long refreshes; // The number of times the neurons have been recomputed from a whole board.
+
+    /**
+     * Creates an accumulator that must be refreshed before it is used.
+     *
+     * @param network the network whose neurons to accumulate.
+     */
+    public Accumulator(Network network) {
+        this.network = network;
+        hiddenSize = network.getHiddenSize();
+        levels = new short[INITIAL_LEVELS][2 * hiddenSize];
+        computed = new boolean[INITIAL_LEVELS];
+    }
+
+    /**
+     * Forgets every level, so the next evaluation recomputes the neurons from the board.
+     */
+    public void reset() {
+        top = 0;
+        computed[0] = false;
+    }
+
+    /**
+     * Recomputes the neurons of the current position from every piece on the board.
+     *
+     * @param board the board to read.
+     */
+    public void refresh(Board board) {
+        short[] neurons = levels[top];
+        System.arraycopy(network.featureBiases, 0, neurons, 0, hiddenSize);
+        System.arraycopy(network.featureBiases, 0, neurons, hiddenSize, hiddenSize);
+
+        for (int piece = PAWN; piece <= KING; piece++) {
+            addAll(neurons, piece, board.getPieceBitboard(piece));
+            addAll(neurons, -piece, board.getPieceBitboard(-piece));
+        }
+        computed[top] = true;
+        refreshes++;
+    }
+
+    /**
+     * Adds the features of every piece in the bitboard.
+     */
+    private void addAll(short[] neurons, int piece, long bitboard) {
+        while (bitboard != 0) {
+            add(neurons, piece, Long.numberOfTrailingZeros(bitboard));
+            bitboard &= bitboard - 1;
+        }
+    }
+
+    /**
+     * Pushes the position after the given move. Called by the board after it makes the move.
+     *
+     * @param move   the move that was made.
+     * @param player the player that made the move.
+     */
+    public void push(Move move, boolean player) {
+        if (++top == levels.length) {
+            levels = Arrays.copyOf(levels, top * 2);
+            computed = Arrays.copyOf(computed, top * 2);
+            for (int i = top; i < levels.length; i++) levels[i] = new short[2 * hiddenSize];
+        }
+
+        computed[top] = computed[top - 1];
+        if (!computed[top]) return;
+
+        short[] neurons = levels[top];
+        System.arraycopy(levels[top - 1], 0, neurons, 0, 2 * hiddenSize);
+
+        int pieceType = move.getPieceType();
+        remove(neurons, pieceType, move.getFrom());
+        if (move.getCapturedPiece() != 0) remove(neurons, move.getCapturedPiece(), move.getTo());
+        add(neurons, move.getPromotionPiece() != 0 ? move.getPromotionPiece() : pieceType, move.getTo());
+
+        // Move the rook when castling.
+        int rook = player ? ROOK : -ROOK;
+        if (move.isRightCastle()) {
+            remove(neurons, rook, player ? 7 : 63);
+            add(neurons, rook, player ? 5 : 61);
+        } else if (move.isLeftCastle()) {
+            remove(neurons, rook, player ? 0 : 56);
+            add(neurons, rook, player ? 3 : 59);
+        }
+    }
+
+    /**
+     * Pops the position of the last move. Called by the board after it unmakes the move.
+     */
+    public void pop() {
+        if (top == 0) {
+            computed[0] = false; // The accumulator was attached after the move was made, so the previous level is unknown.
+        } else {
+            top--;
+        }
+    }
+
+    /**
+     * Evaluates the current position, refreshing it first if it is not up to date.
+     *
+     * @param board  the board the accumulator is attached to.
+     * @param player the player to move.
+     * @return the score for the player to move.
+     */
+    public int evaluate(Board board, boolean player) {
+        if (!computed[top]) refresh(board);
+        return network.evaluate(levels[top], 0, player);
+    }
+
+    /**
+     * Adds the columns of a piece's feature to both players' neurons.
+     */
+    private void add(short[] neurons, int piece, int pos) {
+        short[] weights = network.featureWeights;
+        int white = Network.featureIndex(0, piece, pos) * hiddenSize;
+        int black = Network.featureIndex(1, piece, pos) * hiddenSize;
+        for (int i = 0; i < hiddenSize; i++) {
+            neurons[i] += weights[white + i];
+            neurons[hiddenSize + i] += weights[black + i];
+        }
+    }
+
+    /**
+     * Removes the columns of a piece's feature from both players' neurons.
+     */
+    private void remove(short[] neurons, int piece, int pos) {
+        short[] weights = network.featureWeights;
+        int white = Network.featureIndex(0, piece, pos) * hiddenSize;
+        int black = Network.featureIndex(1, piece, pos) * hiddenSize;
+        for (int i = 0; i < hiddenSize; i++) {
+            neurons[i] -= weights[white + i];
+            neurons[hiddenSize + i] -= weights[black + i];
+        }
+    }
+
+    public Network getNetwork() {
+        return network;
+    }
+
+    /**
+     * @return the number of times the neurons have been recomputed from a whole board. A search should only need one,
+     * at its root.
+     */
+    public long getRefreshes() {
+        return refreshes;
+    }
+}
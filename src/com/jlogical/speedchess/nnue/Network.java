@@ -0,0 +1,172 @@
+package com.jlogical.speedchess.nnue;
+
+import com.jlogical.speedchess.cpu.EvalParams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.jlogical.speedchess.board.Piece.*;
+
+/**
+ * The weights of a small quantised evaluation network. Each player has an accumulator of hidden neurons that is the sum
+ * of the feature transformer columns of every piece on the board, seen from that player's side. The accumulators of the
+ * player to move and the other player are clipped and fed into a single output neuron.
+ * <p>
+ * A network is never changed after it is created, so it can be shared by any number of engines.
+ */
+public class Network {
+
+    public static final int FEATURES = 768; // One input for every piece colour, piece type and square: 2 * 6 * 64.
+    public static final int QA = 255; // The scale of the feature transformer. Hidden neurons are clipped to [0, QA].
+    public static final int QB = 64; // The scale of the output weights.
+    public static final int SCALE = 400; // Converts the output of the network to centipawns.
+
+    private static final int MAGIC = 0x4E4E4353; // "SCNN" in little-endian, at the start of every weights file.
+    private static final int VERSION = 1; // The version of the weights file format.
+
+    private final int hiddenSize; // The number of hidden neurons in each accumulator.
+    final short[] featureWeights; // The column of hiddenSize weights for every feature, one after another.
+    final short[] featureBiases; // The starting value of every hidden neuron.
+    private final short[] outputWeights; // The weights of the player to move's neurons followed by the other player's.
+    private final int outputBias; // Added to the output before scaling.
+
+    /**
+     * Creates a network from its weights.
+     *
+     * @param hiddenSize     the number of hidden neurons in each accumulator.
+     * @param featureWeights FEATURES * hiddenSize weights, grouped by feature.
+     * @param featureBiases  hiddenSize biases.
+     * @param outputWeights  2 * hiddenSize weights.
+     * @param outputBias     the output bias.
+     */
+    public Network(int hiddenSize, short[] featureWeights, short[] featureBiases, short[] outputWeights, int outputBias) {
+        if (featureWeights.length != FEATURES * hiddenSize || featureBiases.length != hiddenSize || outputWeights.length != 2 * hiddenSize)
+            throw new IllegalArgumentException("Weights do not match a hidden size of " + hiddenSize);
+        this.hiddenSize = hiddenSize;
+        this.featureWeights = featureWeights.clone();
+        this.featureBiases = featureBiases.clone();
+        this.outputWeights = outputWeights.clone();
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Returns the index of a piece's feature as seen by the given perspective. Black sees the board flipped vertically with
+     * the colours swapped, so both perspectives share the same weights.
+     *
+     * @param perspective the player seeing the piece. 0 is white, 1 is black.
+     * @param piece       the piece. Black pieces are negative.
+     * @param pos         the position of the piece (0-63).
+     * @return the index of the feature.
+     */
+    public static int featureIndex(int perspective, int piece, int pos) {
+        int colour = piece > 0 ? 0 : 1;
+        int side = colour == perspective ? 0 : 1; // 0 if the piece belongs to the perspective.
+        int square = perspective == 0 ? pos : pos ^ 56;
+        return ((side * 6) + Math.abs(piece) - 1) * 64 + square;
+    }
+
+    /**
+     * Runs the output layer over the accumulators of both players.
+     *
+     * @param accumulator the hidden neurons of white followed by black.
+     * @param offset      the index of white's first neuron in the accumulator.
+     * @param player      the player to move.
+     * @return the score for the player to move.
+     */
+    int evaluate(short[] accumulator, int offset, boolean player) {
+        int us = player ? offset : offset + hiddenSize;
+        int them = player ? offset + hiddenSize : offset;
+
+        // Kept as plain loops over primitive arrays so that the JIT can unroll and vectorise them.
+        int sum = 0;
+        for (int i = 0; i < hiddenSize; i++) {
+            sum += clip(accumulator[us + i]) * outputWeights[i];
+        }
+        for (int i = 0; i < hiddenSize; i++) {
+            sum += clip(accumulator[them + i]) * outputWeights[hiddenSize + i];
+        }
+
+        return (int) ((long) (sum + outputBias) * SCALE / (QA * QB));
+    }
+
+    /**
+     * @return the value clipped to [0, QA].
+     */
+    private static int clip(int value) {
+        return Math.max(0, Math.min(value, QA));
+    }
+
+    /**
+     * Creates a network that only counts material, weighting each piece by its value in the given params. Used when no
+     * trained network is available and to test the accumulator.
+     *
+     * @param params the weights whose piece values to use.
+     * @return the network.
+     */
+    public static Network material(EvalParams params) {
+        int hiddenSize = 16; // One neuron for each of the player's piece types, padded to a multiple of 8.
+        int pieceWeight = 16; // The amount each piece adds to its neuron. Nine queens stay below QA.
+
+        short[] featureWeights = new short[FEATURES * hiddenSize];
+        short[] outputWeights = new short[2 * hiddenSize];
+        for (int piece = PAWN; piece <= QUEEN; piece++) {
+            for (int pos = 0; pos < 64; pos++) {
+                featureWeights[featureIndex(0, piece, pos) * hiddenSize + piece - 1] = (short) pieceWeight;
+            }
+            int weight = Math.round((float) params.getPieceValue(piece) * QA * QB / (pieceWeight * SCALE));
+            outputWeights[piece - 1] = (short) weight;
+            outputWeights[hiddenSize + piece - 1] = (short) -weight;
+        }
+        return new Network(hiddenSize, featureWeights, new short[hiddenSize], outputWeights, 0);
+    }
+
+    /**
+     * Loads a network from a little-endian weights file. The file starts with the magic number, version and hidden size
+     * as ints, followed by the feature weights, feature biases and output weights as shorts and the output bias as an int.
+     *
+     * @param path the file to read.
+     * @return the network.
+     * @throws IOException if the file could not be read or is not a weights file.
+     */
+    public static Network load(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) throw new IOException("Not a network weights file: " + path);
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("Unsupported network version " + version + ": " + path);
+        int hiddenSize = buffer.getInt();
+        if (hiddenSize <= 0 || buffer.remaining() != 2 * (FEATURES * hiddenSize + 3 * hiddenSize) + 4)
+            throw new IOException("Network weights file has the wrong size: " + path);
+
+        short[] featureWeights = new short[FEATURES * hiddenSize];
+        short[] featureBiases = new short[hiddenSize];
+        short[] outputWeights = new short[2 * hiddenSize];
+        buffer.asShortBuffer().get(featureWeights).get(featureBiases).get(outputWeights);
+        buffer.position(buffer.position() + 2 * (featureWeights.length + featureBiases.length + outputWeights.length));
+        return new Network(hiddenSize, featureWeights, featureBiases, outputWeights, buffer.getInt());
+    }
+
+    /**
+     * Saves the network to a file that can be read by load().
+     *
+     * @param path the file to write.
+     * @throws IOException if the file could not be written.
+     */
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(12 + 2 * (featureWeights.length + featureBiases.length + outputWeights.length) + 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(hiddenSize);
+        buffer.asShortBuffer().put(featureWeights).put(featureBiases).put(outputWeights);
+        buffer.position(buffer.position() + 2 * (featureWeights.length + featureBiases.length + outputWeights.length));
+        buffer.putInt(outputBias);
+        Files.write(path, buffer.array());
+    }
+
+    /**
+     * @return the number of hidden neurons in each accumulator.
+     */
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+}
@@ -0,0 +1,50 @@
+package com.jlogical.speedchess.nnue;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.EvalParams;
+import com.jlogical.speedchess.cpu.Evaluator;
+
+/**
+ * Evaluates positions with a network instead of the handcrafted terms. The evaluator attaches its accumulator to the
+ * root of every search, so searching a board only updates the neurons of the pieces that move.
+ */
+public class NeuralEvaluator extends Evaluator {
+
+    private final Accumulator accumulator; // Attached to the board being evaluated.
+
+    /**
+     * Creates a NeuralEvaluator.
+     *
+     * @param network   the network to evaluate with.
+     * @param cacheSize the size of the score cache, in megabytes. 0 to disable the cache.
+     */
+    public NeuralEvaluator(Network network, int cacheSize) {
+        super(new EvalParams(), cacheSize);
+        accumulator = new Accumulator(network);
+    }
+
+    /**
+     * Takes the board over from whichever accumulator it had, if any, and computes the neurons of its position. Every
+     * position the search reaches from here is then updated incrementally as moves are made and unmade.
+     */
+    @Override
+    public void attach(Board board) {
+        accumulator.reset();
+        board.setAccumulator(accumulator);
+        accumulator.refresh(board);
+    }
+
+    @Override
+    protected int evaluatePosition(Board board, boolean player) {
+
+        // Boards evaluated outside a search are attached where they stand.
+        if (board.getAccumulator() != accumulator) attach(board);
+
+        int score = accumulator.evaluate(board, player);
+        return player ? score : -score;
+    }
+
+    public Network getNetwork() {
+        return accumulator.getNetwork();
+    }
+}
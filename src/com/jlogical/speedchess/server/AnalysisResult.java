@@ -0,0 +1,76 @@
+package com.jlogical.speedchess.server;
+
+/**
+ * The outcome of analysing one position, as sent back by the AnalysisServer.
+ */
+public class AnalysisResult {
+
+    private final String move; // The best move in coordinate notation. Null if there are no legal moves.
+    private final int score; // The score of the best move for the player to move.
+    private final int depth; // The depth that was completed.
+    private final long nodes; // The number of nodes searched.
+    private final long time; // How long the search took, in milliseconds.
+    private final boolean cached; // Whether the result was served from the cache instead of searched.
+
+    /**
+     * Creates a result.
+     *
+     * @param move   the best move in coordinate notation. Null if there are no legal moves.
+     * @param score  the score of the best move for the player to move.
+     * @param depth  the depth that was completed.
+     * @param nodes  the number of nodes searched.
+     * @param time   how long the search took, in milliseconds.
+     * @param cached whether the result was served from the cache.
+     */
+    public AnalysisResult(String move, int score, int depth, long nodes, long time, boolean cached) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.time = time;
+        this.cached = cached;
+    }
+
+    /**
+     * @return the same result, marked as served from the cache.
+     */
+    public AnalysisResult asCached() {
+        return cached ? this : new AnalysisResult(move, score, depth, nodes, time, true);
+    }
+
+    public String getMove() {
+        return move;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * @return the result as a JSON object.
+     */
+    public String toJson() {
+        return "{\"move\":" + (move == null ? "null" : "\"" + move + "\"") + ",\"score\":" + score + ",\"depth\":" + depth
+                + ",\"nodes\":" + nodes + ",\"time\":" + time + ",\"cached\":" + cached + "}";
+    }
+
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,397 @@
+package com.jlogical.speedchess.server;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.Engine;
+import com.jlogical.speedchess.cpu.EngineConfig;
+import com.jlogical.speedchess.cpu.Evaluator;
+import com.jlogical.speedchess.cpu.Pair;
+import com.jlogical.speedchess.cpu.SearchLimits;
+import com.jlogical.speedchess.cpu.SearchStats;
+import com.jlogical.speedchess.moves.Move;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local HTTP service that analyses positions, so other programs do not have to run the engine in their own process.
+ * <ul>
+ * <li>GET /analyze?fen=...&amp;depth=...&amp;nodes=...&amp;time=... analyses one position and answers with a JSON
+ * object.</li>
+ * <li>POST /analyze with one FEN code per line analyses a batch with the limits from the query string, and answers with
+ * one JSON object per line, in the same order.</li>
+ * <li>GET /stats answers with the request counters and latency percentiles.</li>
+ * </ul>
+ * Searches run on a fixed number of search threads, each with its own engine. Concurrent requests for the same position
+ * and limits share one search, and depth-limited results are cached by Zobrist key and depth. When every search thread
+ * is busy and the queue of waiting searches is full, new searches are refused with 503 instead of piling up.
+ */
+public class AnalysisServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8765; // The default port to listen on.
+    public static final int DEFAULT_QUEUE_SIZE = 64; // The default number of searches that can wait for a search thread.
+    public static final int DEFAULT_CACHE_SIZE = 100000; // The default number of results to cache.
+
+    /**
+     * A position and the limits it is searched with. Requests with the same key share one search.
+     */
+    private static final class SearchKey {
+        private final long zobristKey; // The key of the position, including the player to move.
+        private final int depth; // The depth limit.
+        private final long nodes; // The node limit.
+        private final long time; // The time limit.
+
+        private SearchKey(long zobristKey, SearchLimits limits) {
+            this.zobristKey = zobristKey;
+            depth = limits.getDepth();
+            nodes = limits.getNodes();
+            time = limits.getTime();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SearchKey)) return false;
+            SearchKey other = (SearchKey) o;
+            return zobristKey == other.zobristKey && depth == other.depth && nodes == other.nodes && time == other.time;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((Long.hashCode(zobristKey) * 31 + depth) * 31 + Long.hashCode(nodes)) * 31 + Long.hashCode(time);
+        }
+    }
+
+    private final HttpServer http; // Accepts the requests.
+    private final ExecutorService handlers; // Parses requests and writes responses. Never waits for a search.
+    private final ThreadPoolExecutor searches; // Runs the searches, with a bounded queue.
+    private final ThreadLocal<Engine> engines; // The engine of each search thread.
+    private final Map<SearchKey, CompletableFuture<AnalysisResult>> inFlight = new ConcurrentHashMap<>(); // Searches that have not finished.
+    private final ResultCache cache; // Finished depth-limited results.
+    private final LatencyHistogram latencies = new LatencyHistogram(); // How long each position took to answer, from request to response.
+
+    /**
+     * Counters reported by /stats.
+     */
+    private final AtomicLong positions = new AtomicLong(); // Positions asked for.
+    private final AtomicLong searched = new AtomicLong(); // Positions that started a search.
+    private final AtomicLong cacheHits = new AtomicLong(); // Positions answered from the cache.
+    private final AtomicLong coalesced = new AtomicLong(); // Positions that joined a search already running.
+    private final AtomicLong rejected = new AtomicLong(); // Positions refused because every search thread was busy.
+
+    /**
+     * Creates a server. Call start() to begin accepting requests.
+     *
+     * @param address       the address to listen on.
+     * @param config        the config every search thread's engine is built from.
+     * @param searchThreads the number of searches to run at the same time.
+     * @param queueSize     the number of searches that can wait for a search thread.
+     * @param cacheSize     the number of results to cache.
+     * @throws IOException if the address could not be bound.
+     */
+    public AnalysisServer(InetSocketAddress address, EngineConfig config, int searchThreads, int queueSize, int cacheSize) throws IOException {
+        if (searchThreads < 1) throw new IllegalArgumentException("There must be at least one search thread.");
+        AtomicInteger threadNumber = new AtomicInteger();
+        searches = new ThreadPoolExecutor(searchThreads, searchThreads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+            Thread thread = new Thread(runnable, "analysis-search-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        engines = ThreadLocal.withInitial(config::createEngine);
+        cache = new ResultCache(cacheSize);
+
+        handlers = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "analysis-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        http = HttpServer.create(address, 0);
+        http.setExecutor(handlers);
+        http.createContext("/analyze", this::handleAnalyze);
+        http.createContext("/stats", this::handleStats);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        http.start();
+    }
+
+    /**
+     * @return the address the server is listening on.
+     */
+    public InetSocketAddress getAddress() {
+        return http.getAddress();
+    }
+
+    /**
+     * Analyses a position, sharing a search with any identical request that is still running.
+     *
+     * @param fen    the FEN code of the position.
+     * @param limits the limits to search with.
+     * @return the result, once the search has finished.
+     * @throws IllegalArgumentException   if the FEN code does not have a king for each player.
+     * @throws RejectedExecutionException if every search thread is busy and the queue is full.
+     */
+    public CompletableFuture<AnalysisResult> analyze(String fen, SearchLimits limits) {
+        positions.incrementAndGet();
+        Board board = new Board(fen);
+        if (Long.bitCount(board.kings[0]) != 1 || Long.bitCount(board.kings[1]) != 1) throw new IllegalArgumentException("Invalid FEN: " + fen);
+        boolean player = board.getCurrPlayer();
+        long key = board.getKey(player);
+        SearchLimits searchLimits = new SearchLimits(limits);
+
+        // Time and node limits give different results on a busy machine, so only depth-limited searches are cached.
+        boolean cacheable = limits.getNodes() == 0 && limits.getTime() == 0;
+        if (cacheable) {
+            AnalysisResult cached = cache.get(key, limits.getDepth());
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return CompletableFuture.completedFuture(cached.asCached());
+            }
+        }
+
+        SearchKey searchKey = new SearchKey(key, limits);
+        CompletableFuture<AnalysisResult> result = new CompletableFuture<>();
+        CompletableFuture<AnalysisResult> running = inFlight.putIfAbsent(searchKey, result);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return running;
+        }
+
+        try {
+            searches.execute(() -> {
+                try {
+                    AnalysisResult analysis = search(board, player, searchLimits);
+                    if (cacheable) cache.put(key, limits.getDepth(), analysis);
+                    result.complete(analysis);
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(searchKey, result);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(searchKey, result);
+            rejected.incrementAndGet();
+            result.completeExceptionally(e); // Anything that joined in the meantime is refused too.
+            throw e;
+        }
+        searched.incrementAndGet();
+        return result;
+    }
+
+    /**
+     * Searches a position with the calling search thread's engine.
+     */
+    private AnalysisResult search(Board board, boolean player, SearchLimits limits) {
+        Engine engine = engines.get();
+        engine.setLimits(limits);
+        Pair<Move, Integer> best = engine.analyze(board, player);
+        SearchStats stats = engine.getStats();
+        // Without a legal move the game is over, so the score tells mate from stalemate.
+        return best == null
+                ? new AnalysisResult(null, Evaluator.terminalScore(board.inCheck(player)), 0, stats.getNodes(), stats.getTime(), false)
+                : new AnalysisResult(best.getFirst().toCoordinates(), best.getSecond(), stats.getDepth(), stats.getNodes(), stats.getTime(), false);
+    }
+
+    /**
+     * Answers /analyze for one position (GET) or a batch of positions (POST).
+     */
+    private void handleAnalyze(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        SearchLimits limits;
+        List<String> fens = new ArrayList<>();
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            limits = new SearchLimits();
+            if (query.containsKey("depth")) limits.setDepth(Integer.parseInt(query.get("depth")));
+            if (query.containsKey("nodes")) limits.setNodes(Long.parseLong(query.get("nodes")));
+            if (query.containsKey("time")) limits.setTime(Long.parseLong(query.get("time")));
+
+            if (exchange.getRequestMethod().equals("POST")) {
+                try (InputStream body = exchange.getRequestBody()) {
+                    for (String line : new String(body.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                        if (!line.isBlank()) fens.add(line.trim());
+                    }
+                }
+            } else if (query.containsKey("fen")) {
+                fens.add(query.get("fen"));
+            }
+            if (fens.isEmpty()) throw new IllegalArgumentException("No position given.");
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+            return;
+        }
+
+        // Start every position before waiting on any, so a batch is searched in parallel.
+        List<CompletableFuture<String>> answers = new ArrayList<>(fens.size());
+        boolean anyRefused = false;
+        boolean anyInvalid = false;
+        for (String fen : fens) {
+            CompletableFuture<String> answer;
+            try {
+                answer = analyze(fen, limits).handle((result, e) -> {
+                    latencies.record((System.nanoTime() - start) / 1000);
+                    return e == null ? result.toJson() : error(e instanceof RejectedExecutionException || e.getCause() instanceof RejectedExecutionException ? "Busy" : String.valueOf(e));
+                });
+            } catch (RejectedExecutionException e) {
+                anyRefused = true;
+                answer = CompletableFuture.completedFuture(error("Busy"));
+            } catch (RuntimeException e) {
+                anyInvalid = true;
+                answer = CompletableFuture.completedFuture(error("Invalid FEN: " + fen));
+            }
+            answers.add(answer);
+        }
+
+        // Single positions answer with the status of their result: 503 if refused, 400 if the FEN is not valid. Batches
+        // always answer 200, with an error per line.
+        int status = fens.size() > 1 ? 200 : anyRefused ? 503 : anyInvalid ? 400 : 200;
+        CompletableFuture.allOf(answers.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, e) -> {
+            StringBuilder body = new StringBuilder();
+            for (CompletableFuture<String> answer : answers) body.append(answer.join()).append('\n');
+            try {
+                respond(exchange, status, body.toString());
+            } catch (IOException ignoredIo) {
+                // The client went away.
+            }
+        });
+    }
+
+    /**
+     * Answers /stats.
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, getStats() + "\n");
+    }
+
+    /**
+     * @return the request counters, cache size, queue length and latency percentiles (in milliseconds) as a JSON object.
+     */
+    public String getStats() {
+        return "{\"positions\":" + positions.get() + ",\"searched\":" + searched.get() + ",\"cacheHits\":" + cacheHits.get()
+                + ",\"coalesced\":" + coalesced.get() + ",\"rejected\":" + rejected.get() + ",\"cached\":" + cache.size()
+                + ",\"queued\":" + searches.getQueue().size() + ",\"active\":" + searches.getActiveCount()
+                + ",\"p50\":" + millis(latencies.getPercentile(50)) + ",\"p90\":" + millis(latencies.getPercentile(90))
+                + ",\"p99\":" + millis(latencies.getPercentile(99)) + ",\"p999\":" + millis(latencies.getPercentile(99.9))
+                + ",\"max\":" + millis(latencies.getMax()) + "}";
+    }
+
+    /**
+     * @return microseconds as milliseconds with three decimals.
+     */
+    private static String millis(long micros) {
+        return String.format("%.3f", micros / 1000.0);
+    }
+
+    /**
+     * @return a JSON object with an error message.
+     */
+    private static String error(String message) {
+        return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    /**
+     * Sends a JSON response and closes the exchange.
+     */
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (status == 503) exchange.getResponseHeaders().set("Retry-After", "1");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @return the decoded parameters of a query string.
+     */
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) return parameters;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals < 0) continue;
+            parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Stops accepting requests and stops every search.
+     */
+    @Override
+    public void close() {
+        http.stop(0);
+        searches.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    /**
+     * Runs a server until the process is stopped. Only listens on the loopback address.
+     * <p>
+     * Usage: AnalysisServer [-port n] [-threads n] [-queue n] [-cache n] [-hash mb] [-warmup]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queueSize = DEFAULT_QUEUE_SIZE;
+        int cacheSize = DEFAULT_CACHE_SIZE;
+        EngineConfig config = new EngineConfig("analysis");
+        boolean warmUp = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-queue":
+                    queueSize = Integer.parseInt(args[++i]);
+                    break;
+                case "-cache":
+                    cacheSize = Integer.parseInt(args[++i]);
+                    break;
+                case "-hash":
+                    config.setHashSize(Integer.parseInt(args[++i]));
+                    break;
+                case "-warmup":
+                    warmUp = true;
+                    break;
+                default:
+                    System.out.println("Usage: AnalysisServer [-port n] [-threads n] [-queue n] [-cache n] [-hash mb] [-warmup]");
+                    return;
+            }
+        }
+
+        // Compiled code is shared by every engine, so one warm engine is enough for the first request to run at full speed.
+        if (warmUp) System.out.println("Warmed up in " + config.createEngine().warmUp() + " ms");
+
+        AnalysisServer server = new AnalysisServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), config, threads, queueSize, cacheSize);
+        server.start();
+        System.out.println("Listening on " + server.getAddress() + " with " + threads + " search threads");
+    }
+}
@@ -0,0 +1,84 @@
+package com.jlogical.speedchess.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records latencies from any number of threads without locking, and reports percentiles of them. Latencies are counted
+ * in buckets that are exact below 16 microseconds and within 1/16 (about 6%) above, so the memory used never grows.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4; // Each power of two is split into 2^SUB_BUCKET_BITS buckets.
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS; // Enough for any positive long.
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS); // The number of latencies in each bucket.
+    private final AtomicLong max = new AtomicLong(); // The longest latency recorded, in microseconds.
+
+    /**
+     * Records one latency.
+     *
+     * @param micros the latency in microseconds.
+     */
+    public void record(long micros) {
+        micros = Math.max(0, micros);
+        counts.incrementAndGet(bucket(micros));
+        max.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * @param percentile the percentile to get, from 0 to 100.
+     * @return the latency that the given percentage of recorded latencies are at or below, in microseconds. Rounded down
+     * to its bucket. 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += snapshot[i] = counts.get(i);
+        if (total == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) return Math.min(lowestValue(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * @return the number of latencies recorded.
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+        return total;
+    }
+
+    /**
+     * @return the longest latency recorded, in microseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the bucket of a latency.
+     */
+    private static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the lowest latency that falls in a bucket.
+     */
+    private static long lowestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (magnitude - SUB_BUCKET_BITS);
+    }
+}
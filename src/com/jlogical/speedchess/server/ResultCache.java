@@ -0,0 +1,80 @@
+package com.jlogical.speedchess.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of analysis results, keyed by the Zobrist key of the position and the depth searched. When full, the
+ * least recently used result is dropped. Only depth-limited results belong here, since a search stopped by time or nodes
+ * depends on how busy the machine was. Thread-safe.
+ */
+public class ResultCache {
+
+    /**
+     * A position and the depth it was searched to.
+     */
+    private static final class Key {
+        private final long zobristKey; // The key of the position, including the player to move.
+        private final int depth; // The depth searched.
+
+        private Key(long zobristKey, int depth) {
+            this.zobristKey = zobristKey;
+            this.depth = depth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return zobristKey == other.zobristKey && depth == other.depth;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(zobristKey) * 31 + depth;
+        }
+    }
+
+    private final Map<Key, AnalysisResult> results; // The cached results, least recently used first.
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity the most results to keep.
+     */
+    public ResultCache(int capacity) {
+        results = new LinkedHashMap<Key, AnalysisResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, AnalysisResult> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param zobristKey the key of the position, including the player to move.
+     * @param depth      the depth searched.
+     * @return the cached result, or null if there is none.
+     */
+    public synchronized AnalysisResult get(long zobristKey, int depth) {
+        return results.get(new Key(zobristKey, depth));
+    }
+
+    /**
+     * Caches a result, replacing any result for the same position and depth.
+     *
+     * @param zobristKey the key of the position, including the player to move.
+     * @param depth      the depth searched.
+     * @param result     the result.
+     */
+    public synchronized void put(long zobristKey, int depth, AnalysisResult result) {
+        results.put(new Key(zobristKey, depth), result);
+    }
+
+    /**
+     * @return the number of results cached.
+     */
+    public synchronized int size() {
+        return results.size();
+    }
+}
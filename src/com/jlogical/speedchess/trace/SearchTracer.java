@@ -0,0 +1,218 @@
+package com.jlogical.speedchess.trace;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.CPU;
+import com.jlogical.speedchess.cpu.Evaluator;
+import com.jlogical.speedchess.cpu.SearchLimits;
+import com.jlogical.speedchess.cpu.TranspositionTable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records the nodes of a search to a file for {@link TraceAnalyzer}, one fixed-size record per node as the node returns.
+ * The file is allocated up front and memory-mapped as a ring: once it is full, the oldest records are overwritten, so a
+ * long search keeps its latest nodes without the file growing.
+ * <p>
+ * To limit the volume, only positions whose key falls in 1 of every {@code sampleRate} values are recorded, below the
+ * first few plies which are always recorded. Sampling by key means a position searched twice is recorded both times.
+ * <p>
+ * The big-endian file starts with a header of the magic number, version and record size as ints, the sample rate and
+ * always-recorded plies as ints, the capacity and number of records written as longs, and 4 bytes of padding. Each record
+ * is laid out as described by the offsets below.
+ */
+public class SearchTracer implements Closeable {
+
+    /**
+     * The kinds of nodes.
+     */
+    public static final int PV = 0; // The score was between alpha and beta.
+    public static final int CUT = 1; // A move scored at least beta, so the rest were skipped.
+    public static final int ALL = 2; // Every move scored at most alpha.
+    public static final int HASH = 3; // The transposition table gave the score without searching.
+    public static final int LEAF = 4; // The node was scored by the evaluator.
+    public static final int DRAW = 5; // The position was a repetition or a fifty-move draw.
+    public static final int MATE = 6; // The player to move had no legal moves.
+    public static final int ROOT = 7; // A whole iteration, recorded once at the root.
+    public static final String[] TYPE_NAMES = {"PV", "CUT", "ALL", "HASH", "LEAF", "DRAW", "MATE", "ROOT"};
+
+    public static final int NO_CUTOFF = 255; // The cutoff index of a node that did not cut off.
+
+    static final int MAGIC = 0x53435452; // "SCTR", at the start of every trace.
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+    static final int RECORD_SIZE = 32;
+
+    /**
+     * The offsets of the fields of a record.
+     */
+    static final int KEY = 0; // long: the Zobrist key of the position, with the player to move.
+    static final int ALPHA = 8; // int: alpha when the node was entered.
+    static final int BETA = 12; // int: beta when the node was entered.
+    static final int SCORE = 16; // int: the score returned.
+    static final int NODES = 20; // int: the nodes searched below and including this one.
+    static final int MOVE = 24; // short: the encoded move that led to the node. 0 at the root.
+    static final int PLY = 26; // byte: the number of moves made since the root.
+    static final int TYPE = 27; // byte: the kind of node.
+    static final int CUTOFF = 28; // byte: the index of the move that cut off, or NO_CUTOFF.
+    static final int DEPTH = 29; // byte: the depth left, in quarter plies.
+    static final int ITERATION = 30; // byte: the depth of the iteration the node was searched in.
+
+    private static final int MAX_SIZE_MB = 1024; // A single mapping holds at most 2GB, so the trace is kept below that.
+
+    private final FileChannel channel; // The open trace file.
+    private final MappedByteBuffer buffer; // The whole file, mapped.
+    private final long capacity; // The number of records the ring holds.
+    private final int sampleMask; // A position is recorded if the low bits of its key under this mask are 0.
+    private final int fullPlies; // Nodes at this ply or less are always recorded.
+    private long written; // The number of records written, including overwritten ones.
+    private int iteration; // The depth of the iteration being searched.
+
+    /**
+     * Creates a trace file.
+     *
+     * @param path       the file to write. Replaced if it exists.
+     * @param sizeMb     the size of the ring in megabytes, up to 1024.
+     * @param sampleRate record 1 in this many positions below the first few plies. Rounded down to a power of two.
+     * @param fullPlies  nodes at this ply or less are always recorded.
+     * @throws IOException if the file could not be created.
+     */
+    public SearchTracer(Path path, int sizeMb, int sampleRate, int fullPlies) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        capacity = Math.max(1, (long) Math.min(Math.max(sizeMb, 1), MAX_SIZE_MB) * 1024 * 1024 / RECORD_SIZE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity * RECORD_SIZE);
+        sampleMask = Integer.highestOneBit(Math.max(1, sampleRate)) - 1;
+        this.fullPlies = fullPlies;
+        writeHeader();
+    }
+
+    /**
+     * @param key the key of the position.
+     * @param ply the number of moves made since the root.
+     * @return whether a node should be recorded. Only these nodes need to be passed to record().
+     */
+    public boolean samples(long key, int ply) {
+        return ply <= fullPlies || ((int) key & sampleMask) == 0;
+    }
+
+    /**
+     * Records a node.
+     *
+     * @param key         the Zobrist key of the position, with the player to move.
+     * @param move        the encoded move that led to the node. 0 at the root.
+     * @param ply         the number of moves made since the root.
+     * @param alpha       alpha when the node was entered.
+     * @param beta        beta when the node was entered.
+     * @param score       the score returned.
+     * @param nodes       the nodes searched below and including this one.
+     * @param type        the kind of node.
+     * @param cutoffIndex the index of the move that cut off, or NO_CUTOFF.
+     * @param depth       the depth left, in quarter plies.
+     */
+    public void record(long key, int move, int ply, int alpha, int beta, int score, long nodes, int type, int cutoffIndex, int depth) {
+        int offset = (int) (HEADER_SIZE + written++ % capacity * RECORD_SIZE);
+        buffer.putLong(offset + KEY, key);
+        buffer.putInt(offset + ALPHA, alpha);
+        buffer.putInt(offset + BETA, beta);
+        buffer.putInt(offset + SCORE, score);
+        buffer.putInt(offset + NODES, (int) Math.min(nodes, Integer.MAX_VALUE));
+        buffer.putShort(offset + MOVE, (short) move);
+        buffer.put(offset + PLY, (byte) Math.min(ply, 255));
+        buffer.put(offset + TYPE, (byte) type);
+        buffer.put(offset + CUTOFF, (byte) Math.min(cutoffIndex, NO_CUTOFF));
+        buffer.put(offset + DEPTH, (byte) Math.max(0, Math.min(depth, 255)));
+        buffer.put(offset + ITERATION, (byte) iteration);
+    }
+
+    /**
+     * Sets the iteration that following records belong to, and updates the header so the records so far can be read.
+     *
+     * @param iteration the depth of the iteration being searched.
+     */
+    public void setIteration(int iteration) {
+        this.iteration = Math.min(iteration, 255);
+        writeHeader();
+    }
+
+    /**
+     * @return the number of records written, including ones since overwritten.
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Writes the header and closes the file.
+     *
+     * @throws IOException if the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        writeHeader();
+        buffer.force();
+        channel.close();
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD_SIZE).putInt(12, sampleMask + 1).putInt(16, fullPlies)
+                .putLong(20, capacity).putLong(28, written);
+    }
+
+    /**
+     * Runs a traced search from the command line.
+     * <p>
+     * Usage: SearchTracer -out file [-fen fen] [-depth d] [-size mb] [-sample n] [-plies n]
+     */
+    public static void main(String[] args) throws IOException {
+        Path out = null;
+        String fen = null;
+        int depth = 6;
+        int size = 256;
+        int sample = 16;
+        int plies = 2;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-out":
+                    out = Paths.get(args[++i]);
+                    break;
+                case "-fen":
+                    fen = args[++i];
+                    break;
+                case "-depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-size":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "-sample":
+                    sample = Integer.parseInt(args[++i]);
+                    break;
+                case "-plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    out = null;
+                    i = args.length;
+                    break;
+            }
+        }
+        if (out == null) {
+            System.out.println("Usage: SearchTracer -out file [-fen fen] [-depth d] [-size mb] [-sample n] [-plies n]");
+            return;
+        }
+
+        Board board = new Board(fen);
+        CPU cpu = new CPU(new Evaluator(), new TranspositionTable(16));
+        try (SearchTracer tracer = new SearchTracer(out, size, sample, plies)) {
+            cpu.setTracer(tracer);
+            cpu.search(board, board.getCurrPlayer(), new SearchLimits().setDepth(depth));
+            System.out.println(cpu.getStats());
+            System.out.println(String.format("Wrote %,d records to %s", tracer.getWritten(), out));
+        }
+    }
+}
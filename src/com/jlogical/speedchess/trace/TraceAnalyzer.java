@@ -0,0 +1,223 @@
+package com.jlogical.speedchess.trace;
+
+import com.jlogical.speedchess.moves.Move;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Turns a trace written by {@link SearchTracer} into a report of where a search spent its nodes: the kinds of nodes at
+ * each ply, positions that were searched more than once in the same iteration, how late in the move order cutoffs
+ * happened, and which subtrees grew the most from one iteration to the next. Counts below the always-recorded plies only
+ * cover the sampled positions, so they are scaled up by the sample rate to estimate the totals.
+ */
+public class TraceAnalyzer {
+
+    private static final int MAX_PLY = 256; // A ply is stored as a byte.
+    private static final int TOP_SUBTREES = 10; // The number of largest subtrees reported.
+    private static final int[] CUTOFF_BUCKETS = {0, 1, 2, 3, 4, 8, 16, 32}; // The first index of each cutoff histogram bucket.
+
+    private int sampleRate = 1; // Positions below fullPlies were recorded 1 in this many times.
+    private int fullPlies = MAX_PLY; // Nodes at this ply or less were always recorded.
+    private long records; // The number of records read.
+    private long overwritten; // The number of records lost because the ring was full.
+
+    private final long[][] typeCounts = new long[MAX_PLY][SearchTracer.TYPE_NAMES.length]; // The nodes of each kind at each ply.
+    private final long[] cutoffSums = new long[MAX_PLY]; // The sum of the cutoff indices at each ply.
+    private final long[] cutoffHistogram = new long[CUTOFF_BUCKETS.length]; // The cutoffs in each bucket, over every ply.
+
+    private final TreeMap<Integer, Long> iterationNodes = new TreeMap<>(); // The nodes of each completed iteration.
+    private final Map<Long, Integer> visits = new HashMap<>(); // The number of times each position was recorded in the current iteration.
+    private int iteration = -1; // The iteration of the last record.
+    private long repeats; // Visits to a position already recorded in the same iteration.
+    private long hashRepeats; // Repeats answered by the transposition table.
+    private long wastedNodes; // Nodes below repeats that were searched again. Nested repeats are counted once for each.
+
+    private final Map<Integer, Map<Integer, Long>> rootMoveNodes = new HashMap<>(); // The nodes of each root move in each iteration.
+    private final PriorityQueue<long[]> largest = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0])); // The largest subtrees below the root moves, as {nodes, ply, move, iteration, type}.
+
+    /**
+     * Reads every record in a trace, oldest first.
+     *
+     * @param path the trace file.
+     * @throws IOException if the file could not be read or is not a trace.
+     */
+    public void read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < SearchTracer.HEADER_SIZE || buffer.getInt(0) != SearchTracer.MAGIC) throw new IOException("Not a search trace: " + path);
+            int version = buffer.getInt(4);
+            if (version != SearchTracer.VERSION || buffer.getInt(8) != SearchTracer.RECORD_SIZE) throw new IOException("Unsupported search trace version " + version + ": " + path);
+            sampleRate = buffer.getInt(12);
+            fullPlies = buffer.getInt(16);
+            long capacity = buffer.getLong(20);
+            long written = buffer.getLong(28);
+            if (channel.size() != SearchTracer.HEADER_SIZE + capacity * SearchTracer.RECORD_SIZE) throw new IOException("Search trace has the wrong size: " + path);
+
+            // Once the ring is full, the oldest record is the one the next record would have replaced.
+            long count = Math.min(written, capacity);
+            long first = written - count;
+            overwritten = first;
+            for (long i = first; i < written; i++) {
+                add(buffer, (int) (SearchTracer.HEADER_SIZE + i % capacity * SearchTracer.RECORD_SIZE));
+            }
+        }
+    }
+
+    /**
+     * Adds the record at the given offset to the report.
+     */
+    private void add(ByteBuffer buffer, int offset) {
+        long key = buffer.getLong(offset + SearchTracer.KEY);
+        long nodes = buffer.getInt(offset + SearchTracer.NODES) & 0xFFFFFFFFL;
+        int move = buffer.getShort(offset + SearchTracer.MOVE) & 0xFFFF;
+        int ply = buffer.get(offset + SearchTracer.PLY) & 0xFF;
+        int type = buffer.get(offset + SearchTracer.TYPE) & 0xFF;
+        int cutoff = buffer.get(offset + SearchTracer.CUTOFF) & 0xFF;
+        int recordIteration = buffer.get(offset + SearchTracer.ITERATION) & 0xFF;
+        if (type >= SearchTracer.TYPE_NAMES.length) return;
+        records++;
+
+        if (recordIteration != iteration) {
+            iteration = recordIteration;
+            visits.clear();
+        }
+        if (type == SearchTracer.ROOT) {
+            iterationNodes.put(recordIteration, nodes);
+            return;
+        }
+
+        typeCounts[ply][type]++;
+        if (type == SearchTracer.CUT && cutoff != SearchTracer.NO_CUTOFF) {
+            cutoffSums[ply] += cutoff;
+            int bucket = CUTOFF_BUCKETS.length - 1;
+            while (CUTOFF_BUCKETS[bucket] > cutoff) bucket--;
+            cutoffHistogram[bucket] += scale(ply);
+        }
+
+        // A position searched again in the same iteration missed the transposition table, or its stored bound was not good enough.
+        int seen = visits.merge(key, 1, Integer::sum);
+        if (seen > 1) {
+            repeats += scale(ply);
+            if (type == SearchTracer.HASH) hashRepeats += scale(ply);
+            else wastedNodes += nodes * scale(ply);
+        }
+
+        if (ply == 1) {
+            rootMoveNodes.computeIfAbsent(move, m -> new HashMap<>()).merge(recordIteration, nodes, Long::sum);
+        } else {
+            largest.add(new long[]{nodes, ply, move, recordIteration, type});
+            if (largest.size() > TOP_SUBTREES) largest.poll();
+        }
+    }
+
+    /**
+     * @return the number of nodes a record at the given ply stands for.
+     */
+    private long scale(int ply) {
+        return ply <= fullPlies ? 1 : sampleRate;
+    }
+
+    /**
+     * @return the String representation of the report.
+     */
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        output.append(String.format("Records: %,d (%,d overwritten), sampling 1 in %d below ply %d%n", records, overwritten, sampleRate, fullPlies));
+
+        // Iterations, and how much of the search was spent on iterations before the last.
+        long total = 0;
+        for (long nodes : iterationNodes.values()) total += nodes;
+        output.append("\nIteration          Nodes   Growth\n");
+        long previous = 0;
+        for (Map.Entry<Integer, Long> entry : iterationNodes.entrySet()) {
+            output.append(String.format("%9d %14d %8s%n", entry.getKey(), entry.getValue(), growth(entry.getValue(), previous)));
+            previous = entry.getValue();
+        }
+        if (total > 0) output.append(String.format("Earlier iterations: %.1f%% of all nodes%n", 100.0 * (total - previous) / total));
+
+        // Node kinds at each ply.
+        output.append("\nPly      Nodes");
+        for (int type = 0; type < SearchTracer.ROOT; type++) output.append(String.format(" %7s", SearchTracer.TYPE_NAMES[type]));
+        output.append("  Avg cutoff\n");
+        for (int ply = 1; ply < MAX_PLY; ply++) {
+            long nodes = 0;
+            for (long count : typeCounts[ply]) nodes += count;
+            if (nodes == 0) continue;
+            output.append(String.format("%3d %10d", ply, nodes * scale(ply)));
+            for (int type = 0; type < SearchTracer.ROOT; type++) output.append(String.format(" %6.1f%%", 100.0 * typeCounts[ply][type] / nodes));
+            long cuts = typeCounts[ply][SearchTracer.CUT];
+            output.append(cuts == 0 ? "           -\n" : String.format(" %11.2f%n", (double) cutoffSums[ply] / cuts));
+        }
+
+        // How late in the move order cutoffs happened.
+        long cutoffs = 0;
+        for (long count : cutoffHistogram) cutoffs += count;
+        output.append("\nCutoff move      Cutoffs    Share\n");
+        for (int bucket = 0; bucket < CUTOFF_BUCKETS.length; bucket++) {
+            int low = CUTOFF_BUCKETS[bucket] + 1;
+            // Cutoff indices start at 0, so show them as move numbers.
+            String name = bucket == CUTOFF_BUCKETS.length - 1 ? low + "+" : CUTOFF_BUCKETS[bucket + 1] > low ? low + "-" + CUTOFF_BUCKETS[bucket + 1] : "" + low;
+            output.append(String.format("%-11s %12d %7.1f%%%n", name, cutoffHistogram[bucket], cutoffs == 0 ? 0 : 100.0 * cutoffHistogram[bucket] / cutoffs));
+        }
+
+        // Positions searched more than once in the same iteration.
+        output.append(String.format("%nRepeated positions: %,d, %,d answered by the table, %,d searched again over %,d nodes", repeats, hashRepeats,
+                repeats - hashRepeats, wastedNodes));
+        if (total > 0) output.append(String.format(" (%.1f%% of all nodes)", 100.0 * wastedNodes / total));
+        output.append('\n');
+
+        // The root moves of the last iteration, with how much they grew from the one before.
+        if (!iterationNodes.isEmpty() && !rootMoveNodes.isEmpty()) {
+            int last = iterationNodes.lastKey();
+            List<Map.Entry<Integer, Map<Integer, Long>>> moves = new ArrayList<>(rootMoveNodes.entrySet());
+            moves.sort((a, b) -> Long.compare(b.getValue().getOrDefault(last, 0L), a.getValue().getOrDefault(last, 0L)));
+            output.append(String.format("%nRoot move (depth %d)   Nodes    Share   Growth%n", last));
+            for (Map.Entry<Integer, Map<Integer, Long>> move : moves) {
+                long nodes = move.getValue().getOrDefault(last, 0L);
+                if (nodes == 0) continue;
+                long before = move.getValue().getOrDefault(last - 1, 0L);
+                output.append(String.format("%-16s %11d %7.1f%% %8s%n", Move.toCoordinates(move.getKey()), nodes, 100.0 * nodes / iterationNodes.get(last), growth(nodes, before)));
+            }
+        }
+
+        // The largest subtrees below the root moves.
+        List<long[]> subtrees = new ArrayList<>(largest);
+        subtrees.sort((a, b) -> Long.compare(b[0], a[0]));
+        output.append("\nLargest subtrees    Nodes  Ply  Iteration  Kind\n");
+        for (long[] subtree : subtrees) {
+            output.append(String.format("%-12s %12d %4d %10d  %s%n", Move.toCoordinates((int) subtree[2]), subtree[0], subtree[1], subtree[3], SearchTracer.TYPE_NAMES[(int) subtree[4]]));
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * @return how many times larger a count is than the one before it, or "-" if there was none.
+     */
+    private static String growth(long nodes, long previous) {
+        return previous == 0 ? "-" : String.format("%.1fx", (double) nodes / previous);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: TraceAnalyzer <trace>");
+            return;
+        }
+
+        TraceAnalyzer analyzer = new TraceAnalyzer();
+        analyzer.read(Paths.get(args[0]));
+        System.out.print(analyzer);
+    }
+}
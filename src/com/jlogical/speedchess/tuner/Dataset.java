@@ -0,0 +1,61 @@
+package com.jlogical.speedchess.tuner;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams labelled positions from a file in batches, so datasets much larger than memory can be used.
+ */
+public class Dataset implements Closeable {
+
+    private final BufferedReader reader; // Reads the file one line at a time.
+    private long skipped; // The number of lines that could not be parsed.
+
+    /**
+     * Opens a dataset.
+     *
+     * @param path the file to read. One labelled position per line.
+     * @throws IOException if the file could not be opened.
+     */
+    public Dataset(Path path) throws IOException {
+        reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the next batch of positions.
+     *
+     * @param size the maximum number of positions to read.
+     * @return the positions read. Empty once the end of the file is reached.
+     * @throws IOException if the file could not be read.
+     */
+    public List<LabelledPosition> nextBatch(int size) throws IOException {
+        List<LabelledPosition> batch = new ArrayList<>(size);
+        String line;
+        while (batch.size() < size && (line = reader.readLine()) != null) {
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            LabelledPosition position = LabelledPosition.parse(line);
+            if (position == null) skipped++;
+            else batch.add(position);
+        }
+        return batch;
+    }
+
+    /**
+     * @return the number of lines that could not be parsed so far.
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
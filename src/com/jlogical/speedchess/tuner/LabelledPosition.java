@@ -0,0 +1,63 @@
+package com.jlogical.speedchess.tuner;
+
+/**
+ * A position and the result of the game it was taken from.
+ */
+public class LabelledPosition {
+
+    private final String fen; // The FEN code of the position.
+    private final double result; // The result of the game for white. 1 for a win, 0.5 for a draw and 0 for a loss.
+
+    /**
+     * Creates a LabelledPosition.
+     *
+     * @param fen    the FEN code of the position.
+     * @param result the result of the game for white.
+     */
+    public LabelledPosition(String fen, double result) {
+        this.fen = fen;
+        this.result = result;
+    }
+
+    /**
+     * Parses a line of a dataset. The line starts with a FEN or EPD position and ends with the result, either as
+     * "1-0", "0-1" or "1/2-1/2" (optionally quoted, as in an EPD c9 operation) or as a number in brackets like "[0.5]".
+     *
+     * @param line the line to parse.
+     * @return the position, or null if the line has no result.
+     */
+    public static LabelledPosition parse(String line) {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length < 3) return null;
+
+        String label = fields[fields.length - 1].replace("\"", "").replace(";", "");
+        double result;
+        if (label.equals("1-0")) result = 1;
+        else if (label.equals("0-1")) result = 0;
+        else if (label.equals("1/2-1/2")) result = 0.5;
+        else if (label.startsWith("[") && label.endsWith("]")) {
+            try {
+                result = Double.parseDouble(label.substring(1, label.length() - 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        } else return null;
+
+        // Only the first 4 fields describe the position.
+        StringBuilder fen = new StringBuilder(fields[0]);
+        for (int i = 1; i < Math.min(fields.length - 1, 4); i++) {
+            if (fields[i].equals("c9")) break;
+            fen.append(' ').append(fields[i]);
+        }
+
+        return new LabelledPosition(fen.toString(), result);
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    public double getResult() {
+        return result;
+    }
+}
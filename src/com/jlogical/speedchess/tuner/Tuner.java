@@ -0,0 +1,369 @@
+package com.jlogical.speedchess.tuner;
+
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.CPU;
+import com.jlogical.speedchess.cpu.EvalParams;
+import com.jlogical.speedchess.cpu.Evaluator;
+import com.jlogical.speedchess.cpu.TranspositionTable;
+import com.jlogical.speedchess.moves.Move;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Tunes the evaluation weights with the Texel method: minimizes the error between the quiescence score of a position
+ * (turned into an expected result by a sigmoid) and the actual result of the game it came from.
+ * <p>
+ * The dataset is streamed from disk in batches, and the gradient of each batch is computed in parallel with fork/join.
+ * The gradient of each weight is found by nudging the weight up and down by one at the quiet position at the end of the
+ * quiescence line, which works for the divisors in the capture and defence formulas as well as the linear terms.
+ */
+public class Tuner {
+
+    public static final int DEFAULT_BATCH_SIZE = 16384; // The default number of positions per weight update.
+    public static final double DEFAULT_LEARNING_RATE = 1.0; // The default step size of each update, in weight units.
+
+    private static final int MATE_SCORE = Math.min(Evaluator.MATE_SCORE, Math.abs(Evaluator.STALE_MATE_SCORE)); // Positions scoring at least this much are mates or stale mates and are skipped.
+    private static final int SPLIT_SIZE = 64; // Batches smaller than this are not split into more tasks.
+    private static final double BETA1 = 0.9; // Adam decay rate of the mean gradient.
+    private static final double BETA2 = 0.999; // Adam decay rate of the squared gradient.
+    private static final double EPSILON = 1e-8; // Keeps Adam from dividing by zero.
+
+    private final ForkJoinPool pool; // Computes the gradient of each batch.
+    private final ThreadLocal<Worker> workers; // The search state of each pool thread.
+
+    private volatile EvalParams params; // The current weights, rounded. Replaced (never changed) after every update.
+    private final double[] weights; // The current weights, before rounding.
+    private final double[] mean; // Adam's running mean of the gradient.
+    private final double[] variance; // Adam's running mean of the squared gradient.
+    private long steps; // The number of updates made.
+
+    private double scalingConstant; // K in the sigmoid 1 / (1 + 10^(-K * score / 400)).
+    private double learningRate; // The step size of each update, in weight units.
+    private int batchSize; // The number of positions per update.
+
+    /**
+     * Creates a Tuner.
+     *
+     * @param params  the weights to start from.
+     * @param threads the number of threads to compute gradients with.
+     */
+    public Tuner(EvalParams params, int threads) {
+        this.params = new EvalParams(params);
+        pool = new ForkJoinPool(threads);
+        workers = ThreadLocal.withInitial(Worker::new);
+
+        weights = new double[EvalParams.size()];
+        for (int i = 0; i < weights.length; i++) weights[i] = params.get(i);
+        mean = new double[weights.length];
+        variance = new double[weights.length];
+
+        scalingConstant = 1;
+        learningRate = DEFAULT_LEARNING_RATE;
+        batchSize = DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Finds the scaling constant K that best fits the current weights to the results, using the first positions of the
+     * dataset.
+     *
+     * @param path    the dataset.
+     * @param samples the maximum number of positions to fit with.
+     * @return the scaling constant.
+     */
+    public double fitScalingConstant(Path path, int samples) throws IOException, InterruptedException, ExecutionException {
+        List<LabelledPosition> positions;
+        try (Dataset dataset = new Dataset(path)) {
+            positions = dataset.nextBatch(samples);
+        }
+
+        EvalParams current = params;
+        int[] scores = pool.submit(() -> positions.parallelStream().mapToInt(p -> workers.get().score(p, current)).toArray()).get();
+
+        // Ternary search for the K with the lowest error. The error is convex in K.
+        double low = 0, high = 3;
+        for (int i = 0; i < 60; i++) {
+            double a = low + (high - low) / 3, b = high - (high - low) / 3;
+            if (error(positions, scores, a) < error(positions, scores, b)) high = b;
+            else low = a;
+        }
+
+        scalingConstant = (low + high) / 2;
+        return scalingConstant;
+    }
+
+    /**
+     * @return the mean squared error of the given scores with the given scaling constant.
+     */
+    private static double error(List<LabelledPosition> positions, int[] scores, double k) {
+        double error = 0;
+        int count = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (Math.abs(scores[i]) >= MATE_SCORE) continue;
+            error += Math.pow(positions.get(i).getResult() - sigmoid(scores[i], k), 2);
+            count++;
+        }
+        return count == 0 ? 0 : error / count;
+    }
+
+    /**
+     * Makes one pass over the dataset, updating the weights after every batch.
+     *
+     * @param path the dataset.
+     * @return the mean squared error over the pass, measured before each batch's update.
+     */
+    public double epoch(Path path) throws IOException, InterruptedException, ExecutionException {
+        double error = 0;
+        long count = 0;
+
+        try (Dataset dataset = new Dataset(path)) {
+            List<LabelledPosition> batch;
+            while (!(batch = dataset.nextBatch(batchSize)).isEmpty()) {
+                double[] gradient = pool.submit(new GradientTask(batch, 0, batch.size(), params, scalingConstant)).get();
+
+                int n = (int) gradient[weights.length + 1];
+                if (n == 0) continue;
+                error += gradient[weights.length];
+                count += n;
+
+                update(gradient, n);
+            }
+        }
+
+        return count == 0 ? 0 : error / count;
+    }
+
+    /**
+     * Takes one Adam step in the direction of the given gradient.
+     *
+     * @param gradient the summed gradient of the batch.
+     * @param n        the number of positions in the batch.
+     */
+    private void update(double[] gradient, int n) {
+        steps++;
+        EvalParams updated = new EvalParams(params);
+        for (int i = 0; i < weights.length; i++) {
+            double g = gradient[i] / n;
+            mean[i] = BETA1 * mean[i] + (1 - BETA1) * g;
+            variance[i] = BETA2 * variance[i] + (1 - BETA2) * g * g;
+            double meanHat = mean[i] / (1 - Math.pow(BETA1, steps));
+            double varianceHat = variance[i] / (1 - Math.pow(BETA2, steps));
+
+            weights[i] = Math.max(weights[i] - learningRate * meanHat / (Math.sqrt(varianceHat) + EPSILON), EvalParams.getMinimum(i));
+            updated.set(i, (int) Math.round(weights[i]));
+        }
+        params = updated;
+    }
+
+    /**
+     * @return the expected result (0-1) of the given score.
+     */
+    private static double sigmoid(int score, double k) {
+        return 1 / (1 + Math.pow(10, -k * score / 400));
+    }
+
+    public EvalParams getParams() {
+        return new EvalParams(params);
+    }
+
+    public double getScalingConstant() {
+        return scalingConstant;
+    }
+
+    public Tuner setScalingConstant(double scalingConstant) {
+        this.scalingConstant = scalingConstant;
+        return this;
+    }
+
+    public Tuner setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+        return this;
+    }
+
+    public Tuner setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * The search state of a single pool thread. Each worker has its own copy of the weights, which it changes while
+     * measuring the gradient, so its evaluator never caches scores.
+     */
+    private static class Worker {
+        private EvalParams source; // The params the worker's copy was made from.
+        private EvalParams params; // The worker's own copy of the weights.
+        private Evaluator evaluator; // Evaluates with the worker's copy.
+        private CPU cpu; // Runs the quiescence searches.
+
+        /**
+         * Makes sure the worker's weights are a copy of the given params.
+         */
+        private void use(EvalParams current) {
+            if (source == current) return;
+            source = current;
+            params = new EvalParams(current);
+            evaluator = new Evaluator(params, 0);
+            cpu = new CPU(evaluator, new TranspositionTable(1));
+        }
+
+        /**
+         * @return the quiescence score of the position for white, using the given weights.
+         */
+        private int score(LabelledPosition position, EvalParams current) {
+            use(current);
+            Board board = new Board(position.getFen());
+            boolean player = board.getCurrPlayer();
+            return cpu.quiesce(board, player) * (player ? 1 : -1);
+        }
+
+        /**
+         * Adds the gradient of the error of one position.
+         *
+         * @param position the position.
+         * @param k        the scaling constant.
+         * @param sum      the gradient of each weight, then the error, then the number of positions used.
+         */
+        private void addGradient(LabelledPosition position, double k, double[] sum) {
+            Board board = new Board(position.getFen());
+            boolean player = board.getCurrPlayer();
+
+            if (Math.abs(cpu.quiesce(board, player)) >= MATE_SCORE) return;
+
+            // Walk down to the quiet position the quiescence score came from.
+            for (Move move : cpu.getQuiescenceLine()) {
+                board.makeMove(move, player);
+                player = !player;
+            }
+
+            // Scored for the player to move, so mate and stalemate are checked for the right side, then turned to white's view.
+            int sign = player ? 1 : -1;
+            int score = evaluator.evaluate(board, player) * sign;
+            double expected = sigmoid(score, k);
+            double errorSlope = -2 * (position.getResult() - expected) * expected * (1 - expected) * k * Math.log(10) / 400;
+
+            int size = EvalParams.size();
+            for (int i = 0; i < size; i++) {
+                int value = params.get(i);
+                params.set(i, value + 1);
+                int up = evaluator.evaluate(board, player) * sign;
+                params.set(i, value - 1);
+                int down = evaluator.evaluate(board, player) * sign;
+                int step = value + 1 - params.get(i);
+                params.set(i, value);
+
+                sum[i] += errorSlope * (up - down) / step;
+            }
+
+            sum[size] += Math.pow(position.getResult() - expected, 2);
+            sum[size + 1]++;
+        }
+    }
+
+    /**
+     * Computes the summed gradient of part of a batch, splitting it in half until it is small enough.
+     */
+    private class GradientTask extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<LabelledPosition> batch; // The whole batch.
+        private final int from; // The first position of this task.
+        private final int to; // One past the last position of this task.
+        private final EvalParams params; // The weights to compute the gradient at.
+        private final double k; // The scaling constant.
+
+        private GradientTask(List<LabelledPosition> batch, int from, int to, EvalParams params, double k) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.params = params;
+            this.k = k;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from <= SPLIT_SIZE) {
+                double[] sum = new double[EvalParams.size() + 2];
+                Worker worker = workers.get();
+                worker.use(params);
+                for (int i = from; i < to; i++) {
+                    worker.addGradient(batch.get(i), k, sum);
+                }
+                return sum;
+            }
+
+            int middle = (from + to) >>> 1;
+            GradientTask left = new GradientTask(batch, from, middle, params, k);
+            left.fork();
+            double[] sum = new GradientTask(batch, middle, to, params, k).compute();
+            double[] leftSum = left.join();
+            for (int i = 0; i < sum.length; i++) sum[i] += leftSum[i];
+            return sum;
+        }
+    }
+
+    /**
+     * Tunes the weights from the command line.
+     * <p>
+     * Usage: Tuner dataset [-epochs n] [-batch n] [-rate r] [-threads n] [-k k] [-params start.params] [-out tuned.params]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 1) {
+            System.out.println("Usage: Tuner dataset [-epochs n] [-batch n] [-rate r] [-threads n] [-k k] [-params start.params] [-out tuned.params]");
+            return;
+        }
+
+        Path dataset = Paths.get(args[0]);
+        int epochs = 10, batch = DEFAULT_BATCH_SIZE, threads = Runtime.getRuntime().availableProcessors();
+        double rate = DEFAULT_LEARNING_RATE, k = 0;
+        EvalParams params = new EvalParams();
+        Path out = Paths.get("tuned.params");
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-epochs":
+                    epochs = Integer.parseInt(args[++i]);
+                    break;
+                case "-batch":
+                    batch = Integer.parseInt(args[++i]);
+                    break;
+                case "-rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-k":
+                    k = Double.parseDouble(args[++i]);
+                    break;
+                case "-params":
+                    params = EvalParams.load(Paths.get(args[++i]));
+                    break;
+                case "-out":
+                    out = Paths.get(args[++i]);
+                    break;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        Tuner tuner = new Tuner(params, threads).setBatchSize(batch).setLearningRate(rate);
+        if (k > 0) tuner.setScalingConstant(k);
+        else System.out.println("K = " + tuner.fitScalingConstant(dataset, batch));
+
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            long start = System.nanoTime();
+            double error = tuner.epoch(dataset);
+            System.out.println(String.format("Epoch %d  error %.6f  %.1fs", epoch, error, (System.nanoTime() - start) / 1e9));
+
+            tuner.getParams().save(out);
+        }
+
+        System.out.println(tuner.getParams());
+    }
+}
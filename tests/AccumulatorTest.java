@@ -0,0 +1,89 @@
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.CPU;
+import com.jlogical.speedchess.cpu.SearchLimits;
+import com.jlogical.speedchess.cpu.TranspositionTable;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.moves.MoveGenerator;
+import com.jlogical.speedchess.nnue.Accumulator;
+import com.jlogical.speedchess.nnue.Network;
+import com.jlogical.speedchess.nnue.NeuralEvaluator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccumulatorTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    /**
+     * @return a small network with random weights, so every feature changes the output.
+     */
+    private static Network randomNetwork(long seed) {
+        Random random = new Random(seed);
+        int hiddenSize = 8;
+        short[] featureWeights = new short[Network.FEATURES * hiddenSize];
+        for (int i = 0; i < featureWeights.length; i++) featureWeights[i] = (short) (random.nextInt(41) - 20);
+        short[] featureBiases = new short[hiddenSize];
+        for (int i = 0; i < hiddenSize; i++) featureBiases[i] = (short) random.nextInt(100);
+        short[] outputWeights = new short[2 * hiddenSize];
+        for (int i = 0; i < outputWeights.length; i++) outputWeights[i] = (short) (random.nextInt(41) - 20);
+        return new Network(hiddenSize, featureWeights, featureBiases, outputWeights, 0);
+    }
+
+    /**
+     * @return the evaluation of the board computed from scratch.
+     */
+    private static int refreshed(Network network, Board board, boolean player) {
+        Accumulator fresh = new Accumulator(network);
+        fresh.refresh(board);
+        return fresh.evaluate(board, player);
+    }
+
+    @Test
+    public void testIncrementalMatchesRefresh() {
+        Network network = randomNetwork(1);
+        Random random = new Random(2);
+        for (int game = 0; game < 20; game++) {
+            Board board = new Board(KIWIPETE);
+            Accumulator accumulator = new Accumulator(network);
+            board.setAccumulator(accumulator);
+            accumulator.refresh(board);
+
+            boolean player = true;
+            int plies = 0;
+            for (; plies < 40; plies++) {
+                List<Move> moves = MoveGenerator.generateMoves(board, player, true).getMoves();
+                if (moves.isEmpty()) break;
+                board.makeMove(moves.get(random.nextInt(moves.size())), player);
+                player = !player;
+                assertEquals(refreshed(network, board, player), accumulator.evaluate(board, player));
+            }
+            for (; plies > 0; plies--) {
+                player = !player;
+                board.unmakeMove(player);
+                assertEquals(refreshed(network, board, player), accumulator.evaluate(board, player));
+            }
+
+            // Only the refresh at the start, since every other position was updated incrementally.
+            assertEquals(1, accumulator.getRefreshes());
+        }
+    }
+
+    @Test
+    public void testSearchRefreshesOnlyAtTheRoot() {
+        NeuralEvaluator evaluator = new NeuralEvaluator(randomNetwork(3), 0);
+        CPU cpu = new CPU(evaluator, new TranspositionTable(1));
+        Board board = new Board(KIWIPETE);
+
+        cpu.search(board, true, new SearchLimits().setDepth(3));
+        Accumulator accumulator = board.getAccumulator();
+        assertNotNull(accumulator);
+        assertEquals(1, accumulator.getRefreshes());
+
+        cpu.search(board, true, new SearchLimits().setDepth(3));
+        assertEquals(2, accumulator.getRefreshes());
+    }
+}
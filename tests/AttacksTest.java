@@ -0,0 +1,44 @@
+import com.jlogical.speedchess.bitboard.Attacks;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttacksTest {
+
+    private static final int[][] ROOK_STEPS = {{0, 1}, {1, 0}, {0, -1}, {-1, 0}};
+    private static final int[][] BISHOP_STEPS = {{1, 1}, {-1, 1}, {-1, -1}, {1, -1}};
+
+    /**
+     * @return the squares a slider attacks, found by walking each direction square by square.
+     */
+    private static long walk(int pos, long occupied, int[][] steps) {
+        long attacks = 0;
+        for (int[] step : steps) {
+            int x = pos % 8 + step[0], y = pos / 8 + step[1];
+            while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                long square = 1L << (y * 8 + x);
+                attacks |= square;
+                if ((occupied & square) != 0) break;
+                x += step[0];
+                y += step[1];
+            }
+        }
+        return attacks;
+    }
+
+    @Test
+    public void testSlidersMatchWalking() {
+        Random random = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            // Include empty and full boards, where every ray runs to the edge or stops at once.
+            long occupied = i == 0 ? 0 : i == 1 ? -1L : random.nextLong() & random.nextLong();
+            for (int pos = 0; pos < 64; pos++) {
+                assertEquals(walk(pos, occupied, ROOK_STEPS), Attacks.rook(pos, occupied));
+                assertEquals(walk(pos, occupied, BISHOP_STEPS), Attacks.bishop(pos, occupied));
+                assertEquals(walk(pos, occupied, ROOK_STEPS) | walk(pos, occupied, BISHOP_STEPS), Attacks.queen(pos, occupied));
+            }
+        }
+    }
+}
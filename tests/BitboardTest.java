@@ -1,4 +1,5 @@
 import com.jlogical.speedchess.bitboard.Bitboard;
+import com.jlogical.speedchess.bitboard.SquareIterator;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -120,4 +121,57 @@ public class BitboardTest {
                         "* * * * * * * * *\n" +
                         "*X* * * * * * * *\n");
     }
+
+    @Test
+    public void testScan() {
+        long board = 0L;
+        board = Bitboard.set(board, 3);
+        board = Bitboard.set(board, 17);
+        board = Bitboard.set(board, 60);
+
+        assertEquals(3, Bitboard.first(board));
+        assertEquals(60, Bitboard.last(board));
+        assertEquals(17, Bitboard.first(Bitboard.withoutFirst(board)));
+        assertEquals(1L << 3, Bitboard.isolateFirst(board));
+        assertTrue(Bitboard.isMany(board));
+        assertFalse(Bitboard.isMany(1L << 60));
+        assertEquals(64, Bitboard.first(0L));
+        assertEquals(-1, Bitboard.last(0L));
+    }
+
+    @Test
+    public void testSquareIterator() {
+        long board = 0x8000000000010011L;
+        SquareIterator iterator = new SquareIterator();
+
+        StringBuilder squares = new StringBuilder();
+        for (iterator.reset(board); iterator.hasNext(); ) {
+            squares.append(iterator.next()).append(' ');
+        }
+        assertEquals("0 4 16 63 ", squares.toString());
+
+        iterator.reset(0L);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testFlips() {
+        long a1 = Bitboard.set(0L, 0, 0);
+        long c2 = Bitboard.set(0L, 2, 1);
+
+        assertEquals(Bitboard.set(0L, 0, 7), Bitboard.flipVertical(a1));
+        assertEquals(Bitboard.set(0L, 7, 0), Bitboard.mirrorHorizontal(a1));
+        assertEquals(Bitboard.set(0L, 7, 7), Bitboard.rotate180(a1));
+
+        assertEquals(Bitboard.set(0L, 2, 6), Bitboard.flipVertical(c2));
+        assertEquals(Bitboard.set(0L, 5, 1), Bitboard.mirrorHorizontal(c2));
+        assertEquals(Bitboard.set(0L, 1, 2), Bitboard.flipDiagonal(c2));
+        assertEquals(Bitboard.set(0L, 5, 6), Bitboard.rotate180(c2));
+
+        long board = 0x0123456789ABCDEFL;
+        assertEquals(board, Bitboard.flipVertical(Bitboard.flipVertical(board)));
+        assertEquals(board, Bitboard.mirrorHorizontal(Bitboard.mirrorHorizontal(board)));
+        assertEquals(board, Bitboard.flipDiagonal(Bitboard.flipDiagonal(board)));
+        assertEquals(Bitboard.rotate180(board), Bitboard.flipVertical(Bitboard.mirrorHorizontal(board)));
+    }
 }
@@ -0,0 +1,83 @@
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.ZobristKey;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.moves.MoveGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoardHistoryTest {
+
+    private static final int PLIES = 320; // More than the key history holds at first.
+
+    @Test
+    public void testLongGameRoundTrips() {
+        Random random = new Random(1);
+        Board board = new Board(null);
+        long[] keys = new long[PLIES + 1];
+        int[] clocks = new int[PLIES + 1];
+        keys[0] = board.getKey(true);
+        clocks[0] = board.getHalfmoveClock();
+
+        boolean player = true;
+        for (int ply = 1; ply <= PLIES; ply++) {
+            List<Move> moves = MoveGenerator.generateMoves(board, player, true).getMoves();
+            assertFalse(moves.isEmpty());
+            Move move = moves.get(random.nextInt(moves.size()));
+            board.makeMove(move, player);
+            player = !player;
+            keys[ply] = board.getKey(player);
+            clocks[ply] = board.getHalfmoveClock();
+            assertEquals(ZobristKey.getKeyForBoard(board, player), keys[ply]);
+        }
+
+        for (int ply = PLIES; ply > 0; ply--) {
+            assertEquals(keys[ply], board.getKey(player));
+            assertEquals(clocks[ply], board.getHalfmoveClock());
+            player = !player;
+            board.unmakeMove(player);
+        }
+        assertEquals(keys[0], board.getKey(true));
+        assertEquals(clocks[0], board.getHalfmoveClock());
+    }
+
+    @Test
+    public void testLongShuffleCountsRepetitions() {
+        Board board = new Board(null);
+        String[] shuffle = {"g1f3", "g8f6", "f3g1", "f6g8"};
+        boolean player = true;
+        for (int ply = 0; ply < PLIES; ply++) {
+            board.makeMove(find(board, player, shuffle[ply % shuffle.length]), player);
+            player = !player;
+            assertEquals(ply + 1, board.getHalfmoveClock());
+        }
+        // The starting position came up once every 4 plies.
+        assertEquals(PLIES / 4, board.countRepetitions(Integer.MAX_VALUE));
+
+        for (int ply = PLIES; ply > 0; ply--) {
+            player = !player;
+            board.unmakeMove(player);
+            assertEquals(ply - 1, board.getHalfmoveClock());
+        }
+        assertEquals(0, board.countRepetitions(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testUnmakeWithoutMovesThrows() {
+        Board board = new Board(null);
+        assertThrows(IllegalStateException.class, () -> board.unmakeMove(false));
+    }
+
+    /**
+     * @return the legal move in coordinate notation.
+     */
+    private static Move find(Board board, boolean player, String coordinates) {
+        for (Move move : MoveGenerator.generateMoves(board, player, true).getMoves()) {
+            if (move.toCoordinates().equals(coordinates)) return move;
+        }
+        throw new IllegalArgumentException(coordinates);
+    }
+}
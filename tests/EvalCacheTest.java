@@ -0,0 +1,74 @@
+import com.jlogical.speedchess.cpu.EvalCache;
+import com.jlogical.speedchess.cpu.EvalParams;
+import com.jlogical.speedchess.cpu.Evaluator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvalCacheTest {
+
+    @Test
+    public void testHitsMatchUncachedEvaluation() {
+        Evaluator cached = new Evaluator();
+        Evaluator uncached = new Evaluator(new EvalParams(), 0);
+        RandomGames.play(1, 10, 60, (board, player) -> {
+            // The second evaluation of each player is a hit, and must give the same score as the first.
+            for (int i = 0; i < 2; i++) {
+                assertEquals(uncached.evaluate(board, player), cached.evaluate(board, player));
+                assertEquals(uncached.evaluate(board, !player), cached.evaluate(board, !player));
+            }
+
+            // The entry holds the score for white whichever player asked, so black's scores are negated on the way out.
+            if (board.hasLegalMove(player)) {
+                long entry = cached.getCache().probe(board.getKey(player));
+                assertNotEquals(EvalCache.NOT_FOUND, entry);
+                assertEquals(uncached.evaluate(board, true), (int) entry);
+            }
+        });
+        assertTrue(cached.getHits() * 2 >= cached.getProbes());
+        assertEquals(0, uncached.getHits());
+    }
+
+    @Test
+    public void testScorePacking() {
+        EvalCache cache = new EvalCache(1);
+        int[] scores = {0, 1, -1, 1234, -1234, Evaluator.MATE_SCORE, -Evaluator.MATE_SCORE, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int i = 0; i < scores.length; i++) {
+            long key = 0x9E3779B97F4A7C15L * (i + 1);
+            cache.store(key, scores[i]);
+            long entry = cache.probe(key);
+
+            // Only the low 32 bits are used, so even a score of -1 is not mistaken for NOT_FOUND.
+            assertNotEquals(EvalCache.NOT_FOUND, entry);
+            assertEquals(0, entry >>> 32);
+            assertEquals(scores[i], (int) entry);
+        }
+
+        // A key whose verification bits are all zero still does not match an empty entry.
+        assertEquals(EvalCache.NOT_FOUND, cache.probe(0x00000000FFFFFFFFL));
+        cache.store(0x00000000FFFFFFFFL, 0);
+        assertEquals(0, cache.probe(0x00000000FFFFFFFFL));
+    }
+
+    @Test
+    public void testProbeAndStore() {
+        EvalCache cache = new EvalCache(1);
+        long key = 0x123456789ABCDEFL;
+        assertEquals(EvalCache.NOT_FOUND, cache.probe(key));
+
+        cache.store(key, -1234);
+        assertEquals(-1234, (int) cache.probe(key));
+        assertEquals(1, cache.getHits());
+
+        // A different position in the same slot replaces it.
+        long other = key ^ 1L << 40;
+        assertEquals(EvalCache.NOT_FOUND, cache.probe(other));
+        cache.store(other, 77);
+        assertEquals(77, (int) cache.probe(other));
+        assertEquals(EvalCache.NOT_FOUND, cache.probe(key));
+        assertEquals(1, cache.getCollisions());
+
+        cache.clear();
+        assertEquals(EvalCache.NOT_FOUND, cache.probe(other));
+    }
+}
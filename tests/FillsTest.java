@@ -0,0 +1,67 @@
+import com.jlogical.speedchess.bitboard.Attacks;
+import com.jlogical.speedchess.bitboard.Bitboard;
+import com.jlogical.speedchess.bitboard.Fills;
+import com.jlogical.speedchess.bitboard.Masks;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FillsTest {
+
+    @Test
+    public void testFileFills() {
+        long d4 = Bitboard.set(0L, 3, 3);
+
+        assertEquals(Masks.fileMask(3) & ~0xFFFFFFL, Fills.north(d4));
+        assertEquals(Masks.fileMask(3) & 0xFFFFFFFFL, Fills.south(d4));
+        assertEquals(Masks.fileMask(3), Fills.file(d4));
+    }
+
+    @Test
+    public void testPawnSpans() {
+        long e2 = Bitboard.set(0L, 4, 1);
+
+        assertEquals(Masks.fileMask(4) & ~0xFFFFL, Fills.frontSpan(e2, true));
+        assertEquals(Bitboard.set(0L, 4, 0), Fills.rearSpan(e2, true));
+        assertEquals(Bitboard.set(0L, 4, 0), Fills.frontSpan(e2, false));
+        assertEquals((Masks.fileMask(3) | Masks.fileMask(5)) & ~0xFFFFL, Fills.attackSpan(e2, true));
+
+        long a7 = Bitboard.set(0L, 0, 6);
+        assertEquals(Masks.fileMask(1) & 0xFFFFFFFFFFFFL, Fills.attackSpan(a7, false));
+    }
+
+    @Test
+    public void testOccludedFill() {
+        long a1 = Bitboard.set(0L, 0, 0);
+        long empty = ~(a1 | Bitboard.set(0L, 4, 0));
+
+        assertEquals(0x0FL, Fills.eastOccluded(a1, empty));
+        assertEquals(a1, Fills.westOccluded(a1, empty));
+        assertEquals(Masks.FILE_A, Fills.northOccluded(a1, ~a1));
+        assertEquals(Masks.DIAGONAL_A1_H8, Fills.northEastOccluded(a1, ~a1));
+    }
+
+    @Test
+    public void testSlidingAttacksMatchRays() {
+        Random random = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            long occupied = random.nextLong() & random.nextLong();
+            int pos = random.nextInt(64);
+            long piece = 1L << pos;
+            long empty = ~(occupied | piece);
+
+            assertEquals(Attacks.rook(pos, occupied), Fills.rookAttacks(piece, empty));
+            assertEquals(Attacks.bishop(pos, occupied), Fills.bishopAttacks(piece, empty));
+            assertEquals(Attacks.queen(pos, occupied), Fills.queenAttacks(piece, empty));
+        }
+    }
+
+    @Test
+    public void testSetWiseAttacks() {
+        long rooks = Bitboard.set(Bitboard.set(0L, 0, 0), 7, 7);
+        long edges = Masks.FILE_A | Masks.RANK_1 | Masks.FILE_H | Masks.RANK_8;
+        assertEquals(edges & ~rooks, Fills.rookAttacks(rooks, ~rooks));
+    }
+}
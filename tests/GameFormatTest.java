@@ -0,0 +1,118 @@
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.board.Piece;
+import com.jlogical.speedchess.games.GameReader;
+import com.jlogical.speedchess.games.GameRecord;
+import com.jlogical.speedchess.games.GameWriter;
+import com.jlogical.speedchess.games.PgnReader;
+import com.jlogical.speedchess.games.PgnWriter;
+import com.jlogical.speedchess.host.GameResult;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.moves.MoveGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameFormatTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final GameResult[] RESULTS = {null, GameResult.WHITE_WINS, GameResult.BLACK_WINS, GameResult.DRAW}; // The results PGN can hold.
+
+    /**
+     * @return games of random legal moves, some from the standard position and some from Kiwipete.
+     */
+    private static List<GameRecord> randomGames(long seed) {
+        Random random = new Random(seed);
+        List<GameRecord> games = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String fen = i % 2 == 0 ? null : KIWIPETE;
+            Board board = new Board(fen);
+            boolean player = board.getCurrPlayer();
+            for (int ply = 0; ply < 120; ply++) {
+                List<Move> moves = MoveGenerator.generateMoves(board, player, true).getMoves();
+                if (moves.isEmpty()) break;
+                board.makeMove(moves.get(random.nextInt(moves.size())), player);
+                player = !player;
+            }
+            games.add(GameRecord.of(fen, board, RESULTS[i % RESULTS.length]).setTag("Round", "" + i));
+        }
+        return games;
+    }
+
+    private static void assertSameGame(GameRecord expected, GameRecord actual) {
+        assertEquals(expected.getFen(), actual.getFen());
+        assertEquals(expected.getResult(), actual.getResult());
+        assertEquals(expected.getMoves().size(), actual.getMoves().size());
+        for (int i = 0; i < expected.getMoves().size(); i++) {
+            assertEquals(expected.getMoves().get(i).encode(), actual.getMoves().get(i).encode());
+        }
+    }
+
+    private static List<GameRecord> roundTrip(List<GameRecord> games, boolean packed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GameWriter writer = new GameWriter(bytes).setPackedMoves(packed)) {
+            for (GameRecord game : games) writer.write(game);
+        }
+        List<GameRecord> read = new ArrayList<>();
+        try (GameReader reader = new GameReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            GameRecord game;
+            while ((game = reader.read()) != null) read.add(game);
+        }
+        return read;
+    }
+
+    @Test
+    public void testIndexedRoundTrip() throws IOException {
+        List<GameRecord> games = randomGames(1);
+        List<GameRecord> read = roundTrip(games, false);
+        assertEquals(games.size(), read.size());
+        for (int i = 0; i < games.size(); i++) {
+            assertSameGame(games.get(i), read.get(i));
+            assertEquals("" + i, read.get(i).getTag("Round"));
+        }
+    }
+
+    @Test
+    public void testPackedRoundTrip() throws IOException {
+        List<GameRecord> games = randomGames(2);
+        List<GameRecord> read = roundTrip(games, true);
+        assertEquals(games.size(), read.size());
+        for (int i = 0; i < games.size(); i++) assertSameGame(games.get(i), read.get(i));
+    }
+
+    @Test
+    public void testPgnRoundTrip() throws IOException {
+        List<GameRecord> games = randomGames(3);
+        StringWriter pgn = new StringWriter();
+        try (PgnWriter writer = new PgnWriter(pgn)) {
+            for (GameRecord game : games) writer.write(game);
+        }
+        List<GameRecord> read = new ArrayList<>();
+        try (PgnReader reader = new PgnReader(new StringReader(pgn.toString()))) {
+            GameRecord game;
+            while ((game = reader.next()) != null) read.add(game);
+        }
+        assertEquals(games.size(), read.size());
+        for (int i = 0; i < games.size(); i++) assertSameGame(games.get(i), read.get(i));
+    }
+
+    @Test
+    public void testIllegalMovesAreRejected() throws IOException {
+        // A knight cannot move two squares forward.
+        List<Move> moves = Collections.singletonList(new Move(Piece.KNIGHT, 6, 22));
+        for (boolean packed : new boolean[]{false, true}) {
+            GameWriter writer = new GameWriter(new ByteArrayOutputStream()).setPackedMoves(packed);
+            assertThrows(IllegalArgumentException.class, () -> writer.write(null, moves, null, Collections.emptyMap()));
+            assertEquals(0, writer.getGameCount());
+        }
+    }
+}
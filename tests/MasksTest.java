@@ -0,0 +1,39 @@
+import com.jlogical.speedchess.bitboard.Bitboard;
+import com.jlogical.speedchess.bitboard.Masks;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MasksTest {
+
+    @Test
+    public void testFilesAndRanks() {
+        int e4 = 3 * 8 + 4;
+
+        assertEquals(Masks.FILE_A << 4, Masks.file(e4));
+        assertEquals(Masks.RANK_4, Masks.rank(e4));
+        assertEquals(Masks.FILE_H, Masks.fileMask(7));
+        assertEquals(Masks.RANK_8, Masks.rankMask(7));
+        assertEquals(1L << e4, Masks.square(e4));
+    }
+
+    @Test
+    public void testDiagonals() {
+        assertEquals(Masks.DIAGONAL_A1_H8, Masks.diagonal(0));
+        assertEquals(Masks.DIAGONAL_A1_H8, Masks.diagonal(63));
+        assertEquals(Masks.ANTI_DIAGONAL_H1_A8, Masks.antiDiagonal(7));
+        assertEquals(Masks.ANTI_DIAGONAL_H1_A8, Masks.antiDiagonal(56));
+
+        int c1 = 2;
+        assertEquals(Bitboard.set(Bitboard.set(Bitboard.set(0L, 2, 0), 1, 1), 0, 2), Masks.antiDiagonal(c1));
+        assertEquals(6, Bitboard.count(Masks.diagonal(c1)));
+    }
+
+    @Test
+    public void testSquareColors() {
+        assertFalse(Bitboard.get(Masks.LIGHT_SQUARES, 0, 0));
+        assertTrue(Bitboard.get(Masks.LIGHT_SQUARES, 7, 0));
+        assertTrue(Bitboard.get(Masks.DARK_SQUARES, 7, 7));
+        assertEquals(32, Bitboard.count(Masks.LIGHT_SQUARES));
+    }
+}
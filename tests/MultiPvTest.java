@@ -0,0 +1,81 @@
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.CPU;
+import com.jlogical.speedchess.cpu.Evaluator;
+import com.jlogical.speedchess.cpu.Pair;
+import com.jlogical.speedchess.cpu.PvLine;
+import com.jlogical.speedchess.cpu.SearchLimits;
+import com.jlogical.speedchess.cpu.TranspositionTable;
+import com.jlogical.speedchess.moves.Move;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultiPvTest {
+
+    private static final String[] POSITIONS = {
+            null,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+    };
+    private static final int DEPTH = 4;
+
+    /**
+     * The lines found by a search with a fresh CPU and table, so no search is helped by one before it.
+     */
+    private static class Result {
+        Pair<Move, Integer> best;
+        List<PvLine> lines;
+    }
+
+    private static Result search(String fen, SearchLimits limits) {
+        Board board = new Board(fen);
+        CPU cpu = new CPU(new Evaluator(), new TranspositionTable(4));
+        Result result = new Result();
+        result.best = cpu.search(board, board.getCurrPlayer(), limits);
+        result.lines = cpu.getLines();
+        return result;
+    }
+
+    @Test
+    public void testSingleLineMatchesNormalSearch() {
+        for (String fen : POSITIONS) {
+            Result normal = search(fen, new SearchLimits().setDepth(DEPTH));
+            Result single = search(fen, new SearchLimits().setDepth(DEPTH).setMultiPv(1));
+            assertEquals(normal.best.getFirst().encode(), single.best.getFirst().encode());
+            assertEquals(normal.best.getSecond(), single.best.getSecond());
+
+            assertEquals(1, single.lines.size());
+            assertEquals(single.best.getFirst().encode(), single.lines.get(0).getMove().encode());
+            assertEquals((int) single.best.getSecond(), single.lines.get(0).getScore());
+        }
+    }
+
+    @Test
+    public void testThreeLinesAreRankedAndDistinct() {
+        for (String fen : POSITIONS) {
+            Result single = search(fen, new SearchLimits().setDepth(DEPTH));
+            Result three = search(fen, new SearchLimits().setDepth(DEPTH).setMultiPv(3));
+            assertEquals(3, three.lines.size());
+
+            // The best line is the move a single line search picks.
+            PvLine first = three.lines.get(0);
+            assertEquals(single.best.getFirst().encode(), first.getMove().encode());
+            assertEquals((int) single.best.getSecond(), first.getScore());
+            assertEquals(single.best.getFirst().encode(), three.best.getFirst().encode());
+
+            Set<Integer> moves = new HashSet<>();
+            for (int i = 0; i < three.lines.size(); i++) {
+                PvLine line = three.lines.get(i);
+                assertEquals(i + 1, line.getRank());
+                assertEquals(DEPTH, line.getDepth());
+                assertTrue(moves.add(line.getMove().encode()));
+                if (i > 0) assertTrue(three.lines.get(i - 1).getScore() >= line.getScore());
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import com.jlogical.speedchess.cpu.OffHeapTranspositionTable;
+import com.jlogical.speedchess.cpu.TranspositionTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapTranspositionTableTest {
+
+    /**
+     * Fills one slot of every bucket with a random entry, so nothing is replaced.
+     *
+     * @return the keys stored, one per bucket.
+     */
+    private static long[] fill(TranspositionTable table, long seed) {
+        Random random = new Random(seed);
+        long buckets = table.capacity() / 4;
+        long[] keys = new long[(int) buckets];
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            keys[bucket] = random.nextLong() & -buckets | bucket;
+            table.store(keys[bucket], random.nextInt(256), random.nextInt(3), random.nextInt(200001) - 100000, random.nextInt(1 << 15));
+        }
+        return keys;
+    }
+
+    @Test
+    public void testStoreProbeRoundTrip() {
+        OffHeapTranspositionTable table = new OffHeapTranspositionTable(4);
+        Random random = new Random(1);
+        long buckets = table.capacity() / 4;
+        for (int i = 0; i < 10000; i++) {
+            long key = random.nextLong() & -buckets | random.nextInt((int) buckets);
+            int depth = random.nextInt(256), flag = random.nextInt(3), score = random.nextInt(200001) - 100000, move = random.nextInt(1 << 15);
+            table.store(key, depth, flag, score, move);
+            assertEquals(TranspositionTable.pack(depth, flag, score, move), table.probe(key));
+        }
+        assertEquals(TranspositionTable.EMPTY, table.probe(0x5555555555555555L));
+    }
+
+    @Test
+    public void testFullBucketReplacesShallowest() {
+        OffHeapTranspositionTable table = new OffHeapTranspositionTable(1);
+        long buckets = table.capacity() / 4;
+        long bucket = 123;
+        int[] depths = {40, 8, 24, 32};
+        long[] keys = new long[5];
+        for (int i = 0; i < keys.length; i++) keys[i] = bucket + i * buckets;
+        for (int i = 0; i < depths.length; i++) table.store(keys[i], depths[i], TranspositionTable.EXACT, i, i);
+
+        // Storing a key already in the bucket replaces its own slot, even if it is not the shallowest.
+        table.store(keys[0], 4, TranspositionTable.LOWER_BOUND, 99, 0);
+        assertEquals(TranspositionTable.pack(4, TranspositionTable.LOWER_BOUND, 99, 0), table.probe(keys[0]));
+        table.store(keys[0], depths[0], TranspositionTable.EXACT, 0, 0);
+
+        // A fifth key replaces the shallowest entry and keeps the rest.
+        table.store(keys[4], 16, TranspositionTable.UPPER_BOUND, -5, 7);
+        assertEquals(TranspositionTable.pack(16, TranspositionTable.UPPER_BOUND, -5, 7), table.probe(keys[4]));
+        assertEquals(TranspositionTable.EMPTY, table.probe(keys[1]));
+        for (int i : new int[]{0, 2, 3}) {
+            assertEquals(TranspositionTable.pack(depths[i], TranspositionTable.EXACT, i, i), table.probe(keys[i]));
+        }
+    }
+
+    @Test
+    public void testClear() {
+        // Several blocks, so the clear is split between tasks.
+        OffHeapTranspositionTable table = new OffHeapTranspositionTable(8);
+        long[] keys = fill(table, 2);
+        table.clear();
+        for (long key : keys) assertEquals(TranspositionTable.EMPTY, table.probe(key));
+
+        table.resize(2);
+        assertEquals(2 * 1024 * 1024 / 16, table.capacity());
+        keys = fill(table, 3);
+        assertNotEquals(TranspositionTable.EMPTY, table.probe(keys[keys.length - 1]));
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        OffHeapTranspositionTable table = new OffHeapTranspositionTable(2);
+        long[] keys = fill(table, 4);
+        Path path = Files.createTempFile("tt", ".snapshot");
+        try {
+            table.save(path);
+
+            // Into another off-heap table, one mapped from a file, and one on the heap.
+            TranspositionTable[] targets = {new OffHeapTranspositionTable(2), new OffHeapTranspositionTable(2, path.getParent()), new TranspositionTable(4)};
+            for (TranspositionTable target : targets) {
+                target.load(path);
+                for (long key : keys) assertEquals(table.probe(key), target.probe(key));
+            }
+
+            // And back out of the heap table, which stores the same entries in a different layout.
+            TranspositionTable heap = new TranspositionTable(4);
+            heap.load(path);
+            heap.save(path);
+            OffHeapTranspositionTable reloaded = new OffHeapTranspositionTable(2);
+            reloaded.load(path);
+            for (long key : keys) assertEquals(table.probe(key), reloaded.probe(key));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.games.GameRecord;
+import com.jlogical.speedchess.games.OpeningIndex;
+import com.jlogical.speedchess.games.OpeningIndexBuilder;
+import com.jlogical.speedchess.games.OpeningMove;
+import com.jlogical.speedchess.host.GameResult;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.moves.MoveGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningIndexTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final int PLIES = 12;
+
+    /**
+     * @return the legal move with the given coordinate notation.
+     */
+    private static Move find(Board board, boolean player, String coordinates) {
+        for (Move move : MoveGenerator.generateMoves(board, player, true).getMoves()) {
+            if (move.toCoordinates().equals(coordinates)) return move;
+        }
+        throw new IllegalArgumentException(coordinates);
+    }
+
+    /**
+     * @return a game from the standard position with the given moves in coordinate notation.
+     */
+    private static GameRecord game(GameResult result, String... moves) {
+        GameRecord game = new GameRecord(null).setResult(result);
+        Board board = game.createBoard();
+        boolean player = board.getCurrPlayer();
+        for (String coordinates : moves) {
+            Move move = find(board, player, coordinates);
+            game.addMove(move);
+            board.makeMove(move, player);
+            player = !player;
+        }
+        return game;
+    }
+
+    /**
+     * @return a few games from the standard position, then random games from Kiwipete, which never reach it.
+     */
+    private static List<GameRecord> games() {
+        List<GameRecord> games = new ArrayList<>();
+        games.add(game(GameResult.WHITE_WINS, "e2e4", "e7e5"));
+        games.add(game(GameResult.BLACK_WINS, "e2e4", "c7c5"));
+        games.add(game(GameResult.REPETITION, "e2e4", "e7e5"));
+        games.add(game(GameResult.WHITE_WINS, "d2d4", "d7d5"));
+        games.add(game(null, "d2d4", "g8f6")); // Unfinished, so skipped.
+
+        GameResult[] results = GameResult.values();
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            Board board = new Board(KIWIPETE);
+            boolean player = board.getCurrPlayer();
+            for (int ply = 0; ply < PLIES; ply++) {
+                List<Move> moves = MoveGenerator.generateMoves(board, player, true).getMoves();
+                if (moves.isEmpty()) break;
+                board.makeMove(moves.get(random.nextInt(moves.size())), player);
+                player = !player;
+            }
+            games.add(GameRecord.of(KIWIPETE, board, results[random.nextInt(results.length)]));
+        }
+        return games;
+    }
+
+    /**
+     * @return the index file built from the games with the given run size.
+     */
+    private static Path build(Path directory, List<GameRecord> games, int runSize, String name) throws IOException {
+        OpeningIndexBuilder builder = new OpeningIndexBuilder(directory, runSize).setPlies(PLIES);
+        for (GameRecord game : games) builder.add(game);
+        if (runSize < 100) assertTrue(builder.getRunCount() > 10);
+        Path path = directory.resolve(name);
+        builder.build(path);
+        assertEquals(games.size() - 1, builder.getGames());
+        return path;
+    }
+
+    private static void assertCounts(List<OpeningMove> moves, String coordinates, long wins, long draws, long losses) {
+        for (OpeningMove move : moves) {
+            if (!move.toCoordinates().equals(coordinates)) continue;
+            assertEquals(wins, move.getWins());
+            assertEquals(draws, move.getDraws());
+            assertEquals(losses, move.getLosses());
+            return;
+        }
+        fail("No entry for " + coordinates);
+    }
+
+    @Test
+    public void testSmallRunsBuildTheSameIndex() throws IOException {
+        Path directory = Files.createTempDirectory("openings");
+        try {
+            List<GameRecord> games = games();
+            Path merged = build(directory, games, 7, "merged.idx");
+            Path single = build(directory, games, 1 << 16, "single.idx");
+            assertArrayEquals(Files.readAllBytes(single), Files.readAllBytes(merged));
+        } finally {
+            deleteAll(directory);
+        }
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        Path directory = Files.createTempDirectory("openings");
+        try {
+            List<GameRecord> games = games();
+            Path path = build(directory, games, 7, "openings.idx");
+
+            // Count every position and move the slow way.
+            Map<Long, Map<Integer, long[]>> expected = new HashMap<>();
+            for (GameRecord game : games) {
+                if (game.getResult() == null) continue;
+                Board board = game.createBoard();
+                boolean player = board.getCurrPlayer();
+                for (int ply = 0; ply < PLIES && ply < game.getMoves().size(); ply++) {
+                    Move move = game.getMoves().get(ply);
+                    int outcome = game.getResult().isDraw() ? 1 : (game.getResult() == GameResult.WHITE_WINS) == player ? 0 : 2;
+                    expected.computeIfAbsent(board.getKey(player), k -> new HashMap<>()).computeIfAbsent(move.encode(), m -> new long[3])[outcome]++;
+                    board.makeMove(move, player);
+                    player = !player;
+                }
+            }
+
+            try (OpeningIndex index = new OpeningIndex(path)) {
+                Board board = new Board(null);
+                List<OpeningMove> moves = index.lookup(board, true);
+                assertEquals(2, moves.size());
+                assertEquals("e2e4", moves.get(0).toCoordinates()); // Most played first.
+                assertCounts(moves, "e2e4", 1, 1, 1);
+                assertCounts(moves, "d2d4", 1, 0, 0);
+
+                board.makeMove(find(board, true, "e2e4"), true);
+                moves = index.lookup(board, false);
+                assertCounts(moves, "e7e5", 0, 1, 1);
+                assertCounts(moves, "c7c5", 1, 0, 0);
+
+                // Keys of both signs are found by the binary search.
+                boolean negative = false;
+                long entries = 0;
+                for (Map.Entry<Long, Map<Integer, long[]>> position : expected.entrySet()) {
+                    negative |= position.getKey() < 0;
+                    List<OpeningMove> found = index.lookup(position.getKey());
+                    assertEquals(position.getValue().size(), found.size());
+                    for (OpeningMove move : found) {
+                        long[] counts = position.getValue().get(move.getMove());
+                        assertNotNull(counts);
+                        assertEquals(counts[0], move.getWins());
+                        assertEquals(counts[1], move.getDraws());
+                        assertEquals(counts[2], move.getLosses());
+                    }
+                    entries += found.size();
+                }
+                assertTrue(negative);
+                assertEquals(entries, index.size());
+                assertTrue(index.lookup(0x123456789L).isEmpty());
+            }
+        } finally {
+            deleteAll(directory);
+        }
+    }
+
+    private static void deleteAll(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+}
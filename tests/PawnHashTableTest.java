@@ -0,0 +1,100 @@
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.EvalParams;
+import com.jlogical.speedchess.cpu.Evaluator;
+import com.jlogical.speedchess.cpu.PawnHashTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PawnHashTableTest {
+
+    /**
+     * @return the pawns with no enemy pawn ahead of them on their own or a neighbouring file, found square by square.
+     */
+    private static long passed(Board board, boolean player) {
+        long own = board.pawns[player ? 0 : 1], enemy = board.pawns[player ? 1 : 0];
+        long passed = 0;
+        for (int pos = 0; pos < 64; pos++) {
+            if ((own >>> pos & 1) == 0) continue;
+            boolean blocked = false;
+            for (int other = 0; other < 64; other++) {
+                boolean ahead = player ? other / 8 > pos / 8 : other / 8 < pos / 8;
+                if ((enemy >>> other & 1) != 0 && ahead && Math.abs(other % 8 - pos % 8) <= 1) blocked = true;
+            }
+            if (!blocked) passed |= 1L << pos;
+        }
+        return passed;
+    }
+
+    /**
+     * @return every square on a neighbouring file ahead of one of the player's pawns, found square by square.
+     */
+    private static long attackSpan(Board board, boolean player) {
+        long own = board.pawns[player ? 0 : 1];
+        long span = 0;
+        for (int pos = 0; pos < 64; pos++) {
+            if ((own >>> pos & 1) == 0) continue;
+            for (int square = 0; square < 64; square++) {
+                boolean ahead = player ? square / 8 > pos / 8 : square / 8 < pos / 8;
+                if (ahead && Math.abs(square % 8 - pos % 8) == 1) span |= 1L << square;
+            }
+        }
+        return span;
+    }
+
+    @Test
+    public void testHitsMatchUncachedEvaluation() {
+        Evaluator cached = new Evaluator();
+        Evaluator uncached = new Evaluator(new EvalParams(), 0);
+        RandomGames.play(1, 10, 80, (board, player) -> {
+            // Clear the score cache so every evaluation reaches the pawn structure.
+            cached.getCache().clear();
+            assertEquals(uncached.evaluate(board, player), cached.evaluate(board, player));
+        });
+        // Most moves leave the pawns alone, so their structure is found again.
+        assertTrue(cached.getPawnHits() > 0);
+        assertTrue(cached.getPawnHits() < cached.getPawnProbes());
+    }
+
+    @Test
+    public void testDerivedBitboards() {
+        Evaluator evaluator = new Evaluator();
+        RandomGames.play(2, 10, 80, (board, player) -> {
+            if (!board.hasLegalMove(player)) return; // Scored without looking at the pawns.
+            evaluator.getCache().clear();
+            evaluator.evaluate(board, player);
+
+            // The entry the evaluator stored, or found, describes the pawns on this board.
+            PawnHashTable table = evaluator.getPawnHash();
+            int slot = table.probe(board.getPawnKey());
+            assertTrue(slot >= 0);
+            assertEquals(passed(board, true) | passed(board, false), table.getPassedPawns(slot));
+            assertEquals(attackSpan(board, true), table.getAttackSpan(slot, true));
+            assertEquals(attackSpan(board, false), table.getAttackSpan(slot, false));
+        });
+    }
+
+    @Test
+    public void testProbeAndStore() {
+        PawnHashTable table = new PawnHashTable(1024);
+        long key = 0x0123456789ABCDEFL;
+        assertEquals(-1, table.probe(key));
+
+        int slot = table.store(key, -42, 0x00FF000000000000L, 0x0000FFFF00000000L, 0x00000000FFFF0000L);
+        assertEquals(slot, table.probe(key));
+        assertEquals(-42, table.getScore(slot));
+        assertEquals(0x00FF000000000000L, table.getPassedPawns(slot));
+        assertEquals(0x0000FFFF00000000L, table.getAttackSpan(slot, true));
+        assertEquals(0x00000000FFFF0000L, table.getAttackSpan(slot, false));
+
+        // A different structure in the same slot replaces it.
+        long other = key + table.capacity();
+        assertEquals(-1, table.probe(other));
+        assertEquals(slot, table.store(other, 7, 0, 0, 0));
+        assertEquals(-1, table.probe(key));
+        assertEquals(1, table.getHits());
+
+        table.clear();
+        assertEquals(-1, table.probe(other));
+    }
+}
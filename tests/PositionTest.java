@@ -0,0 +1,72 @@
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.board.Position;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.moves.MoveGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionTest {
+
+    private static final String[] FENS = {
+            null,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", // Kiwipete: castling and many captures.
+            "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1", // Promotions for both players.
+    };
+
+    private static final int PLIES = 60;
+
+    @Test
+    public void testCopyMakeMatchesMakeUnmake() {
+        Random random = new Random(1);
+        for (String fen : FENS) {
+            for (int game = 0; game < 10; game++) {
+                Board board = new Board(fen);
+                boolean player = board.getCurrPlayer();
+                Position[] positions = new Position[PLIES + 1];
+                for (int ply = 0; ply <= PLIES; ply++) positions[ply] = new Position();
+                positions[0].set(board, player);
+
+                int plies = 0;
+                for (; plies < PLIES; plies++) {
+                    List<Move> moves = MoveGenerator.generateMoves(board, player, true).getMoves();
+                    if (moves.isEmpty()) break;
+                    Move move = moves.get(random.nextInt(moves.size()));
+                    Position before = new Position().copyFrom(positions[plies]);
+
+                    positions[plies + 1] = positions[plies].play(move, positions[plies + 1]);
+                    board.makeMove(move, player);
+                    player = !player;
+
+                    assertEquals(Position.of(board, player), positions[plies + 1]);
+                    assertEquals(before, positions[plies]);
+                }
+
+                // Unmaking the board walks back through the same positions.
+                for (; plies > 0; plies--) {
+                    player = !player;
+                    board.unmakeMove(player);
+                    assertEquals(positions[plies - 1], Position.of(board, player));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFenRoundTrip() {
+        Random random = new Random(2);
+        for (String fen : FENS) {
+            Position position = Position.of(new Board(fen), new Board(fen).getCurrPlayer());
+            for (int ply = 0; ply < PLIES; ply++) {
+                Board board = position.toBoard();
+                assertEquals(position, Position.of(board, board.getCurrPlayer()));
+                List<Move> moves = MoveGenerator.generateMoves(board, position.getPlayer(), true).getMoves();
+                if (moves.isEmpty()) break;
+                position = position.play(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+}
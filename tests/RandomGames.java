@@ -0,0 +1,45 @@
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.moves.MoveGenerator;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plays random legal moves, for tests that need many different positions reached the way a search reaches them.
+ */
+public class RandomGames {
+
+    public static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    /**
+     * Called with every position of a game, before the move from it is made.
+     */
+    public interface Visitor {
+        void visit(Board board, boolean player);
+    }
+
+    /**
+     * Plays random games, alternating between the standard starting position and Kiwipete. A game ends early if the
+     * player to move has no legal moves.
+     *
+     * @param seed    the seed of the moves chosen.
+     * @param games   the number of games to play.
+     * @param plies   the most moves (for both players) to make in each game.
+     * @param visitor called with every position reached.
+     */
+    public static void play(long seed, int games, int plies, Visitor visitor) {
+        Random random = new Random(seed);
+        for (int game = 0; game < games; game++) {
+            Board board = new Board(game % 2 == 0 ? null : KIWIPETE);
+            boolean player = board.getCurrPlayer();
+            for (int ply = 0; ply < plies; ply++) {
+                visitor.visit(board, player);
+                List<Move> moves = MoveGenerator.generateMoves(board, player, true).getMoves();
+                if (moves.isEmpty()) break;
+                board.makeMove(moves.get(random.nextInt(moves.size())), player);
+                player = !player;
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import com.jlogical.speedchess.bitboard.Bitboard;
+import com.jlogical.speedchess.bitboard.Masks;
+import com.jlogical.speedchess.bitboard.Shifts;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShiftsTest {
+
+    @Test
+    public void testSteps() {
+        long d4 = Bitboard.set(0L, 3, 3);
+
+        assertEquals(Bitboard.set(0L, 3, 4), Shifts.north(d4));
+        assertEquals(Bitboard.set(0L, 3, 2), Shifts.south(d4));
+        assertEquals(Bitboard.set(0L, 4, 3), Shifts.east(d4));
+        assertEquals(Bitboard.set(0L, 2, 3), Shifts.west(d4));
+        assertEquals(Bitboard.set(0L, 4, 4), Shifts.northEast(d4));
+        assertEquals(Bitboard.set(0L, 2, 4), Shifts.northWest(d4));
+        assertEquals(Bitboard.set(0L, 4, 2), Shifts.southEast(d4));
+        assertEquals(Bitboard.set(0L, 2, 2), Shifts.southWest(d4));
+    }
+
+    @Test
+    public void testNoWrap() {
+        assertEquals(0L, Shifts.east(Masks.FILE_H));
+        assertEquals(0L, Shifts.northEast(Masks.FILE_H));
+        assertEquals(0L, Shifts.southEast(Masks.FILE_H));
+        assertEquals(0L, Shifts.west(Masks.FILE_A));
+        assertEquals(0L, Shifts.northWest(Masks.FILE_A));
+        assertEquals(0L, Shifts.southWest(Masks.FILE_A));
+        assertEquals(0L, Shifts.north(Masks.RANK_8));
+        assertEquals(0L, Shifts.south(Masks.RANK_1));
+
+        assertEquals(Masks.FILE_A << 1, Shifts.east(Masks.FILE_A));
+        assertEquals(Masks.FILE_H >>> 1, Shifts.west(Masks.FILE_H));
+    }
+
+    @Test
+    public void testPawnAttacks() {
+        long pawns = Bitboard.set(Bitboard.set(0L, 0, 1), 4, 1);
+        assertEquals(Bitboard.set(Bitboard.set(Bitboard.set(0L, 1, 2), 3, 2), 5, 2), Shifts.pawnAttacks(pawns, true));
+
+        long blackPawns = Bitboard.set(0L, 7, 6);
+        assertEquals(Bitboard.set(0L, 6, 5), Shifts.pawnAttacks(blackPawns, false));
+    }
+
+    @Test
+    public void testKnightAttacks() {
+        assertEquals(Bitboard.set(Bitboard.set(0L, 1, 2), 2, 1), Shifts.knightAttacks(Bitboard.set(0L, 0, 0)));
+        assertEquals(8, Bitboard.count(Shifts.knightAttacks(Bitboard.set(0L, 3, 3))));
+        assertEquals(2, Bitboard.count(Shifts.knightAttacks(Bitboard.set(0L, 7, 7))));
+    }
+
+    @Test
+    public void testKingAttacks() {
+        assertEquals(3, Bitboard.count(Shifts.kingAttacks(Bitboard.set(0L, 0, 0))));
+        assertEquals(8, Bitboard.count(Shifts.kingAttacks(Bitboard.set(0L, 3, 3))));
+        assertEquals(5, Bitboard.count(Shifts.kingAttacks(Bitboard.set(0L, 7, 4))));
+    }
+}
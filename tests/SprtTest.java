@@ -0,0 +1,65 @@
+import com.jlogical.speedchess.match.MatchScore;
+import com.jlogical.speedchess.match.Sprt;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SprtTest {
+
+    /**
+     * @return a match score with the given numbers of wins, draws and losses.
+     */
+    private static MatchScore score(int wins, int draws, int losses) {
+        MatchScore score = new MatchScore();
+        for (int i = 0; i < wins; i++) score.add(1);
+        for (int i = 0; i < draws; i++) score.add(0.5);
+        for (int i = 0; i < losses; i++) score.add(0);
+        return score;
+    }
+
+    @Test
+    public void testEloRoundTrip() {
+        for (double elo = -800; elo <= 800; elo += 12.5) {
+            assertEquals(elo, MatchScore.elo(MatchScore.score(elo)), 1e-9);
+        }
+        assertEquals(0.5, MatchScore.score(0), 1e-12);
+        assertEquals(0, MatchScore.elo(0.5), 1e-12);
+    }
+
+    @Test
+    public void testKnownScore() {
+        // A 70% score with a variance of 0.16 per game.
+        MatchScore score = score(60, 20, 20);
+        assertEquals(100, score.getGames());
+        assertEquals(0.7, score.getScore(), 1e-12);
+        assertEquals(0.16, score.getVariance(), 1e-12);
+        assertEquals(147.1907, score.getElo(), 1e-3);
+        assertEquals(66.0134, score.getEloError(), 1e-3);
+        assertEquals(-score.getElo(), score(20, 20, 60).getElo(), 1e-9);
+
+        assertEquals(Double.POSITIVE_INFINITY, new MatchScore().getEloError(), 0);
+    }
+
+    @Test
+    public void testLlr() {
+        Sprt sprt = new Sprt(0, 5, 0.05, 0.05);
+        assertEquals(0, sprt.getLlr(new MatchScore()), 0);
+        assertEquals(Sprt.Decision.CONTINUE, sprt.decide(new MatchScore()));
+
+        // Winning favours H1 and losing favours H0, but 100 games are not enough to decide either.
+        assertEquals(0.8832, sprt.getLlr(score(60, 20, 20)), 1e-3);
+        assertTrue(sprt.getLlr(score(20, 20, 60)) < 0);
+        assertTrue(sprt.getLlr(score(50, 0, 50)) < 0); // An even score is below the midpoint of the hypotheses.
+        assertEquals(Sprt.Decision.CONTINUE, sprt.decide(score(60, 20, 20)));
+
+        // The same lopsided score over ten times as many games crosses the bounds.
+        assertEquals(8.832, sprt.getLlr(score(600, 200, 200)), 1e-2);
+        assertEquals(Sprt.Decision.ACCEPT_H1, sprt.decide(score(600, 200, 200)));
+        assertEquals(Sprt.Decision.ACCEPT_H0, sprt.decide(score(200, 200, 600)));
+    }
+
+    @Test
+    public void testRejectsEmptyInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new Sprt(5, 5, 0.05, 0.05));
+    }
+}
@@ -0,0 +1,54 @@
+import com.jlogical.speedchess.board.Board;
+import com.jlogical.speedchess.cpu.StaticExchange;
+import com.jlogical.speedchess.moves.Move;
+import com.jlogical.speedchess.moves.MoveGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaticExchangeTest {
+
+    /**
+     * @return the exchange value of the legal move in coordinate notation.
+     */
+    private static int see(String fen, String coordinates) {
+        Board board = new Board(fen);
+        boolean player = board.getCurrPlayer();
+        for (Move move : MoveGenerator.generateMoves(board, player, true).getMoves()) {
+            if (move.toCoordinates().equals(coordinates)) return new StaticExchange().evaluate(board, move, player);
+        }
+        throw new IllegalArgumentException(coordinates);
+    }
+
+    @Test
+    public void testUndefendedCapture() {
+        assertEquals(100, see("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "e1e5"));
+        assertEquals(100, see("4k3/8/8/3p4/8/8/8/3QK3 w - - 0 1", "d1d5"));
+    }
+
+    @Test
+    public void testDefendedCapture() {
+        assertEquals(-800, see("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1", "d1d5"));
+    }
+
+    @Test
+    public void testXRays() {
+        // The rook behind the first one recaptures once it has moved.
+        assertEquals(-300, see("4k3/8/4p3/3p4/8/8/3R4/3RK3 w - - 0 1", "d2d5"));
+        // Both sides have pieces lined up behind their first attackers, and black's queen has the last word.
+        assertEquals(-220, see("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", "d3e5"));
+    }
+
+    @Test
+    public void testBlackCaptures() {
+        assertEquals(100, see("3qk3/8/8/8/3P4/8/8/4K3 b - - 0 1", "d8d4"));
+        assertEquals(-800, see("3qk3/8/8/8/3P4/4P3/8/4K3 b - - 0 1", "d8d4"));
+    }
+
+    @Test
+    public void testHangingQuietMove() {
+        // The knight moves to a square the pawn attacks, and nothing defends it.
+        assertEquals(-320, see("4k3/8/8/8/4p3/8/8/4K1N1 w - - 0 1", "g1f3"));
+        assertEquals(0, see("4k3/8/8/8/4p3/8/8/4K1N1 w - - 0 1", "g1h3"));
+    }
+}
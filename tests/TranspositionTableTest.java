@@ -0,0 +1,103 @@
+import com.jlogical.speedchess.cpu.TranspositionTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTest {
+
+    private static final int ENTRIES = 20000;
+
+    /**
+     * @return a table filled with random entries, and the keys stored in it.
+     */
+    private static TranspositionTable randomTable(int sizeMb, long[] keys, long seed) {
+        Random random = new Random(seed);
+        TranspositionTable table = new TranspositionTable(sizeMb);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+            table.store(keys[i], random.nextInt(256), random.nextInt(3), random.nextInt(200001) - 100000, random.nextInt(1 << 15));
+        }
+        return table;
+    }
+
+    @Test
+    public void testSaveLoadRoundTrip() throws IOException {
+        long[] keys = new long[ENTRIES];
+        TranspositionTable table = randomTable(4, keys, 1);
+        Path path = Files.createTempFile("tt", ".snapshot");
+        try {
+            table.save(path);
+
+            TranspositionTable loaded = new TranspositionTable(4);
+            loaded.load(path);
+            for (long key : keys) assertEquals(table.probe(key), loaded.probe(key));
+
+            // A smaller table keeps some of the entries, and nothing it did not have.
+            TranspositionTable smaller = new TranspositionTable(1);
+            smaller.load(path);
+            int kept = 0;
+            for (long key : keys) {
+                long entry = smaller.probe(key);
+                if (entry == TranspositionTable.EMPTY) continue;
+                assertEquals(table.probe(key), entry);
+                kept++;
+            }
+            assertTrue(kept > 0);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testEntryFieldsRoundTrip() {
+        long entry = TranspositionTable.pack(255, TranspositionTable.UPPER_BOUND, -31999, 0x7FFF);
+        assertEquals(255, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.UPPER_BOUND, TranspositionTable.getFlag(entry));
+        assertEquals(-31999, TranspositionTable.getScore(entry));
+        assertEquals(0x7FFF, TranspositionTable.getMove(entry));
+    }
+
+    @Test
+    public void testCorruptSnapshotsAreRejected() throws IOException {
+        long[] keys = new long[ENTRIES];
+        TranspositionTable table = randomTable(4, keys, 2);
+        Path path = Files.createTempFile("tt", ".snapshot");
+        try {
+            table.save(path);
+            byte[] snapshot = Files.readAllBytes(path);
+
+            TranspositionTable target = new TranspositionTable(4);
+            target.store(42, 10, TranspositionTable.EXACT, 123, 456);
+            long before = target.probe(42);
+
+            // A flipped bit in the entries fails the checksum.
+            byte[] flipped = snapshot.clone();
+            flipped[flipped.length - 3] ^= 0x10;
+            Files.write(path, flipped);
+            assertThrows(IOException.class, () -> target.load(path));
+
+            // A file cut short has the wrong size.
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(snapshot.length - 16);
+            }
+            assertThrows(IOException.class, () -> target.load(path));
+
+            // A file that is not a snapshot at all.
+            Files.write(path, ByteBuffer.allocate(64).putInt(0x12345678).array());
+            assertThrows(IOException.class, () -> target.load(path));
+
+            // Rejected snapshots leave the table as it was.
+            assertEquals(before, target.probe(42));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}